@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static org.neo4j.csv.reader.Mark.END_OF_LINE_CHARACTER;
+
+/**
+ * Like {@link BufferedCharSeeker}, but seeks directly in the bytes of UTF-8, or plain ASCII, encoded data
+ * read from a {@link ReadableByteChannel}, instead of first having every byte decoded into a character.
+ * Values are then extracted straight from the bytes using {@link Extractor#extract(byte[], int, int, boolean)},
+ * which for numbers means no decoding and no garbage at all.
+ *
+ * Delimiters and quotation character must be ASCII characters. In UTF-8 all bytes of multi-byte sequences
+ * have their high bit set and so can never be mistaken for any of those, which is what makes it possible
+ * to seek without decoding.
+ */
+public class BufferedByteSeeker implements CharSeeker
+{
+    private static final int MAX_ASCII_CHAR = 0x7F;
+    private static final int EOL_CHAR = '\n';
+    private static final int EOL_CHAR_2 = '\r';
+    // Returned when there's no more data, it's negative and so never matches any delimiter either
+    private static final int EOF_CHAR = -1;
+    private static final int BACK_SLASH = '\\';
+    private static final ReadableByteChannel NO_MORE_DATA = new ReadableByteChannel()
+    {
+        @Override
+        public int read( ByteBuffer dst )
+        {
+            return -1;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close()
+        {   // Nothing to close
+        }
+    };
+
+    private final ReadableByteChannel channel;
+    private final byte[] buffer;
+
+    // Wraps the byte[] buffer and is only used during reading more data, using f.ex. compact()
+    private final ByteBuffer byteBuffer;
+
+    private int bufferPos;
+    // Index in buffer after the last byte of valid data. End of data is tracked by this index rather than
+    // by a marker byte since any byte value may occur in the data, also in data which isn't valid UTF-8
+    private int dataEnd;
+    private long lineStartPos;
+    private int seekStartPos;
+    private int lineNumber = 1;
+    private boolean eof;
+    private final int quoteChar;
+    private int[] verifiedDelimiters;
+
+    public BufferedByteSeeker( ReadableByteChannel channel, int bufferSize, char quoteChar )
+    {
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+        this.byteBuffer = ByteBuffer.wrap( buffer );
+        this.bufferPos = bufferSize;
+        this.dataEnd = bufferSize;
+        this.quoteChar = ascii( quoteChar );
+    }
+
+    /**
+     * Seeks through bytes already in memory, f.ex. a chunk read by {@link ByteLineChunker}, without
+     * copying them. {@code data} is used as the buffer itself, with only the first {@code length} bytes seen.
+     * {@code firstLineNumber} is the line number, in the whole input, of the first line in {@code data}.
+     */
+    public BufferedByteSeeker( byte[] data, int length, char quoteChar, int firstLineNumber )
+    {
+        this.channel = NO_MORE_DATA;
+        this.buffer = data;
+        this.byteBuffer = ByteBuffer.wrap( buffer );
+        this.bufferPos = 0;
+        this.dataEnd = length;
+        this.quoteChar = ascii( quoteChar );
+        this.lineNumber = firstLineNumber;
+    }
+
+    @Override
+    public boolean seek( Mark mark, int[] untilOneOfChars ) throws IOException
+    {
+        if ( untilOneOfChars != verifiedDelimiters )
+        {
+            for ( int delimiter : untilOneOfChars )
+            {
+                ascii( delimiter );
+            }
+            verifiedDelimiters = untilOneOfChars;
+        }
+
+        if ( eof )
+        {   // We're at the end
+            return eof( mark );
+        }
+
+        seekStartPos = bufferPos; // seekStartPos updated in nextChar if buffer flips over
+        int ch;
+        int endOffset = 1;
+        int skippedChars = 0;
+        int quoteDepth = 0;
+        boolean isQuoted = false;
+        while ( !eof )
+        {
+            ch = nextChar( skippedChars );
+            if ( quoteDepth == 0 )
+            {   // In normal mode, i.e. not within quotes
+                if ( ch == quoteChar && seekStartPos == bufferPos - 1/* -1 since we just advanced one */ )
+                {   // We found a quote, which was the first of the value, skip it and switch mode
+                    quoteDepth++;
+                    seekStartPos++;
+                    continue;
+                }
+                else if ( isNewLine( ch ) )
+                {   // Encountered newline, done for now
+                    break;
+                }
+                else
+                {
+                    for ( int i = 0; i < untilOneOfChars.length; i++ )
+                    {
+                        if ( ch == untilOneOfChars[i] )
+                        {   // We found a delimiter, set marker and return true
+                            mark.set( lineNumber, seekStartPos, bufferPos - endOffset - skippedChars, ch, isQuoted );
+                            return true;
+                        }
+                    }
+                }
+            }
+            else
+            {   // In quoted mode, i.e. within quotes
+                isQuoted = true;
+                if ( ch == quoteChar )
+                {   // Found a quote within a quote, peek at next char
+                    int nextCh = peekChar();
+
+                    if ( nextCh == quoteChar )
+                    {   // Found a double quote, skip it and we're going down one more quote depth (quote-in-quote)
+                        repositionChar( bufferPos++, ++skippedChars );
+                        quoteDepth = quoteDepth == 1 ? 2 : 1; // toggle between quote and quote-in-quote
+                    }
+                    else
+                    {   // Found an ending quote, skip it and switch mode
+                        endOffset++;
+                        quoteDepth--;
+                    }
+                }
+                else if ( isNewLine( ch ) )
+                {   // Found a new line, just keep going
+                    nextChar( skippedChars );
+                }
+                else if ( ch == BACK_SLASH )
+                {   // Legacy concern, support java style quote encoding
+                    int nextCh = peekChar();
+                    if ( nextCh == quoteChar )
+                    {   // Found a slash encoded quote
+                        repositionChar( bufferPos++, ++skippedChars );
+                    }
+                }
+            }
+        }
+
+        int valueLength = bufferPos - seekStartPos - 1;
+        if ( eof && valueLength == 0 && seekStartPos == lineStartPos )
+        {   // We didn't find any of the characters sought for
+            return eof( mark );
+        }
+
+        // We found the last value of the line or stream
+        skippedChars += skipEolChars();
+        mark.set( lineNumber, seekStartPos, bufferPos - endOffset - skippedChars, END_OF_LINE_CHARACTER, isQuoted );
+        lineNumber++;
+        lineStartPos = bufferPos;
+        return true;
+    }
+
+    private static int ascii( int ch )
+    {
+        if ( ch > MAX_ASCII_CHAR )
+        {
+            throw new IllegalArgumentException( "Only ASCII delimiters and quotation characters are supported " +
+                    "when seeking in bytes, but got '" + (char) ch + "'" );
+        }
+        return ch;
+    }
+
+    private void repositionChar( int offset, int stepsBack )
+    {
+        buffer[offset - stepsBack] = buffer[offset];
+    }
+
+    private boolean isNewLine( int ch )
+    {
+        return ch == EOL_CHAR || ch == EOL_CHAR_2;
+    }
+
+    private int peekChar() throws IOException
+    {
+        fillBufferIfWeHaveExhaustedIt();
+        return bufferPos < dataEnd ? buffer[bufferPos] : EOF_CHAR;
+    }
+
+    private boolean eof( Mark mark )
+    {
+        mark.set( lineNumber, -1, -1, Mark.END_OF_LINE_CHARACTER, false );
+        return false;
+    }
+
+    @Override
+    public <EXTRACTOR extends Extractor<?>> EXTRACTOR extract( Mark mark, EXTRACTOR extractor )
+    {
+        if ( !tryExtract( mark, extractor ) )
+        {
+            throw new IllegalStateException( extractor + " didn't extract value for " + mark +
+                    ". For values which are optional please use tryExtract method instead" );
+        }
+        return extractor;
+    }
+
+    @Override
+    public boolean tryExtract( Mark mark, Extractor<?> extractor )
+    {
+        long from = mark.startPosition();
+        long to = mark.position();
+        return extractor.extract( buffer, (int)(from), (int)(to-from), mark.isQuoted() );
+    }
+
+    private int skipEolChars() throws IOException
+    {
+        int skipped = 0;
+        while ( isNewLine( nextChar( 0/*doesn't matter since we ignore the chars anyway*/ ) ) )
+        {   // Just loop through, skipping them
+            skipped++;
+        }
+        bufferPos--; // since nextChar advances one step
+        return skipped;
+    }
+
+    /**
+     * @return the next byte, where bytes of multi-byte UTF-8 sequences come out as negative values
+     * and so never match any delimiter, quotation or new line character. Past the end of data
+     * {@link #EOF_CHAR} is returned.
+     */
+    private int nextChar( int skippedChars ) throws IOException
+    {
+        fillBufferIfWeHaveExhaustedIt();
+        if ( bufferPos >= dataEnd )
+        {
+            bufferPos++;
+            eof = true;
+            return EOF_CHAR;
+        }
+        byte ch = buffer[bufferPos++];
+        if ( skippedChars > 0 )
+        {
+            repositionChar( bufferPos - 1, skippedChars );
+        }
+        return ch;
+    }
+
+    private void fillBufferIfWeHaveExhaustedIt() throws IOException
+    {
+        if ( bufferPos >= dataEnd && dataEnd == buffer.length && channel != NO_MORE_DATA )
+        {   // All data in a full buffer has been read, so there may be more in the channel
+            if ( seekStartPos == 0 )
+            {
+                throw new IllegalStateException( "Tried to read in a value larger than buffer size " + buffer.length );
+            }
+            byteBuffer.position( seekStartPos );
+            byteBuffer.compact();
+            bufferPos = byteBuffer.position();
+            while ( byteBuffer.hasRemaining() && channel.read( byteBuffer ) != -1 )
+            {   // A channel may read less than asked for before reaching the end, so keep reading
+            }
+            dataEnd = byteBuffer.position();
+            seekStartPos = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[buffer:" + byteBuffer +
+                ", seekPos:" + seekStartPos + ", line:" + lineNumber + "]";
+    }
+}
@@ -37,6 +37,11 @@ public class BufferedCharSeeker implements CharSeeker
     public static final int DEFAULT_BUFFER_SIZE = 2 * MB;
     public static final char DEFAULT_QUOTE_CHAR = '"';
 
+    /**
+     * Number of characters needed after the data in a buffer given to {@link #BufferedCharSeeker(char[], int, char, int)}.
+     */
+    public static final int CHUNK_PADDING = 2;
+
     private static final char EOL_CHAR = '\n';
     private static final char EOL_CHAR_2 = '\r';
     private static final char EOF_CHAR = (char) -1;
@@ -75,6 +80,26 @@ public class BufferedCharSeeker implements CharSeeker
         this.quoteChar = quoteChar;
     }
 
+    /**
+     * Seeks through characters already in memory, f.ex. a chunk read by {@link LineChunker}, without
+     * copying them. {@code data} is used as the buffer itself and must have room for
+     * {@link #CHUNK_PADDING} more characters after {@code length}, where the end of data is marked.
+     * {@code firstLineNumber} is the line number, in the whole input, of the first line in {@code data}.
+     */
+    public BufferedCharSeeker( char[] data, int length, char quoteChar, int firstLineNumber )
+    {
+        this.reader = Readables.EMPTY;
+        this.buffer = data;
+        this.charBuffer = CharBuffer.wrap( buffer );
+        this.bufferPos = 0;
+        this.quoteChar = quoteChar;
+        this.lineNumber = firstLineNumber;
+        for ( int i = 0; i < CHUNK_PADDING; i++ )
+        {
+            buffer[length + i] = EOF_CHAR;
+        }
+    }
+
     @Override
     public boolean seek( Mark mark, int[] untilOneOfChars ) throws IOException
     {
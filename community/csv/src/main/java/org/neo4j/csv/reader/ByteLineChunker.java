@@ -0,0 +1,194 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.copyOf;
+
+/**
+ * Like {@link LineChunker}, but reads UTF-8, or plain ASCII, encoded bytes from a {@link ReadableByteChannel}
+ * and gives each chunk a {@link BufferedByteSeeker}. Line boundaries are found directly in the bytes, which
+ * works for the same reason as seeking in them does, i.e. delimiters, quotation character and new lines are
+ * ASCII characters which bytes of UTF-8 multi-byte sequences can never be mistaken for.
+ */
+public class ByteLineChunker implements Chunker
+{
+    private static final int MAX_ASCII_CHAR = 0x7F;
+    private static final byte EOL_CHAR = '\n';
+    private static final byte EOL_CHAR_2 = '\r';
+    private static final byte BACK_SLASH = '\\';
+
+    private final ReadableByteChannel source;
+    private final int chunkSize;
+    private final char delimiter;
+    private final char quoteChar;
+
+    // Bytes read from the source after the last line boundary of the previous chunk
+    private byte[] carry = new byte[0];
+    private int carryLength;
+    private boolean eof;
+    // Line number of the first line in the next chunk
+    private int lineNumber = 1;
+    // Number of lines before the boundary found by the last call to lastLineBoundary
+    private int linesBeforeBoundary;
+
+    public ByteLineChunker( ReadableByteChannel source, int chunkSize, char delimiter, char quoteChar )
+    {
+        if ( delimiter > MAX_ASCII_CHAR || quoteChar > MAX_ASCII_CHAR )
+        {
+            throw new IllegalArgumentException( "Only ASCII delimiters and quotation characters are supported " +
+                    "when chunking bytes, but got '" + delimiter + "' and '" + quoteChar + "'" );
+        }
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.delimiter = delimiter;
+        this.quoteChar = quoteChar;
+    }
+
+    @Override
+    public CharSeeker nextChunk() throws IOException
+    {
+        byte[] data = new byte[Math.max( chunkSize, carryLength * 2 )];
+        arraycopy( carry, 0, data, 0, carryLength );
+        int length = carryLength;
+        int boundary = -1;
+        while ( boundary == -1 )
+        {
+            length = fill( data, length );
+            if ( eof )
+            {   // The last chunk ends wherever the data ends
+                boundary = length;
+            }
+            else
+            {
+                boundary = lastLineBoundary( data, length );
+                if ( boundary == -1 )
+                {   // A line longer than the chunk, grow the chunk to fit more of it
+                    data = copyOf( data, length * 2 );
+                }
+            }
+        }
+
+        carryLength = length - boundary;
+        if ( carry.length < carryLength )
+        {
+            carry = new byte[carryLength];
+        }
+        arraycopy( data, boundary, carry, 0, carryLength );
+        if ( boundary == 0 )
+        {
+            return null;
+        }
+        CharSeeker chunk = new BufferedByteSeeker( data, boundary, quoteChar, lineNumber );
+        lineNumber += linesBeforeBoundary;
+        return chunk;
+    }
+
+    private int fill( byte[] data, int length ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.wrap( data, length, data.length - length );
+        while ( !eof && buffer.hasRemaining() )
+        {
+            if ( source.read( buffer ) == -1 )
+            {
+                eof = true;
+            }
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Scans from the start of the chunk, which is always at the start of a line, so that the quotation state
+     * is known at every byte.
+     *
+     * @return index of the first byte of the last line starting within {@code length} bytes,
+     * or {@code -1} if no line starts after the first. The number of lines before it is kept in
+     * {@link #linesBeforeBoundary}.
+     */
+    private int lastLineBoundary( byte[] data, int length )
+    {
+        int boundary = -1;
+        int lines = 0;
+        boolean quoted = false;
+        boolean valueStart = true;
+        for ( int i = 0; i < length; i++ )
+        {
+            byte ch = data[i];
+            if ( quoted )
+            {
+                if ( i + 1 == length )
+                {   // Can't tell what this byte means without the next one, it's after the boundary anyway
+                    break;
+                }
+                if ( ch == quoteChar )
+                {
+                    if ( data[i + 1] == quoteChar )
+                    {   // Double quote, i.e. an escaped quote
+                        i++;
+                    }
+                    else
+                    {
+                        quoted = false;
+                    }
+                }
+                else if ( ch == BACK_SLASH && data[i + 1] == quoteChar )
+                {   // Legacy concern, java style quote encoding
+                    i++;
+                }
+            }
+            else if ( ch == quoteChar && valueStart )
+            {
+                quoted = true;
+                valueStart = false;
+            }
+            else if ( isNewLine( ch ) )
+            {
+                // A line starts after a run of newline characters, which we can only know if the run
+                // ends within the data we have
+                if ( i + 1 < length && !isNewLine( data[i + 1] ) )
+                {
+                    boundary = i + 1;
+                    linesBeforeBoundary = ++lines;
+                }
+                valueStart = true;
+            }
+            else
+            {
+                valueStart = ch == delimiter;
+            }
+        }
+        return boundary;
+    }
+
+    private static boolean isNewLine( byte ch )
+    {
+        return ch == EOL_CHAR || ch == EOL_CHAR_2;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        source.close();
+    }
+}
@@ -22,6 +22,7 @@ package org.neo4j.csv.reader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
+import java.nio.channels.ReadableByteChannel;
 
 import static org.neo4j.csv.reader.BufferedCharSeeker.DEFAULT_BUFFER_SIZE;
 import static org.neo4j.csv.reader.ThreadAheadReadable.threadAhead;
@@ -53,6 +54,21 @@ public class CharSeekers
         return new BufferedCharSeeker( reader, bufferSize, quotationCharacter );
     }
 
+    /**
+     * Instantiates a {@link BufferedByteSeeker} which seeks and extracts values directly from UTF-8, or ASCII,
+     * encoded bytes, i.e. without decoding the data into characters.
+     *
+     * @param channel the {@link ReadableByteChannel} which is the source of data, f.ex. a
+     * {@link java.nio.channels.FileChannel}.
+     * @param bufferSize buffer size of the seeker.
+     * @param quotationCharacter character to interpret quotation character, must be an ASCII character.
+     * @return a {@link CharSeeker} seeking in the bytes of the given {@code channel}.
+     */
+    public static CharSeeker byteSeeker( ReadableByteChannel channel, int bufferSize, char quotationCharacter )
+    {
+        return new BufferedByteSeeker( channel, bufferSize, quotationCharacter );
+    }
+
     /**
      * Instantiates a default {@link CharSeeker} capable of reading data in the specified {@code file}.
      *
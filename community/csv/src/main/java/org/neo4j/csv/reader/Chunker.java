@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Cuts data into chunks of whole lines, where each chunk gets its own {@link CharSeeker}.
+ * Chunks can then be parsed independently of, and concurrently with, each other.
+ */
+public interface Chunker extends Closeable
+{
+    /**
+     * @return {@link CharSeeker} seeking through the next chunk of whole lines, or {@code null} if there
+     * are no more lines.
+     * @throws IOException on I/O error reading from the source.
+     */
+    CharSeeker nextChunk() throws IOException;
+}
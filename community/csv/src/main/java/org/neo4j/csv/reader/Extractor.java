@@ -44,11 +44,27 @@ public interface Extractor<T>
      */
     boolean extract( char[] data, int offset, int length, boolean skippedChars );
 
+    /**
+     * Extracts value of type {@code T} from the given UTF-8 encoded data, f.ex. seeked by a {@link BufferedByteSeeker}.
+     * @param data bytes in a buffer.
+     * @param offset offset into the buffer where the value starts.
+     * @param length number of bytes from the offset to extract.
+     * @param skippedChars whether or not there were skipped characters, f.ex. quotation.
+     * @return {@code true} if a value was extracted, otherwise {@code false}.
+     */
+    boolean extract( byte[] data, int offset, int length, boolean skippedChars );
+
     /**
      * @return the most recently extracted value.
      */
     T value();
 
+    /**
+     * @return a new {@link Extractor} of the same kind, with its own value. Used to extract values
+     * from multiple threads concurrently, one {@link Extractor} per thread.
+     */
+    Extractor<T> clone();
+
     /**
      * @return string representation of what type of value of produces. Also used as key in {@link Extractors}.
      */
@@ -20,6 +20,7 @@
 package org.neo4j.csv.reader;
 
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -227,7 +228,7 @@ public class Extractors
         return doubleArray;
     }
 
-    private static abstract class AbstractExtractor<T> implements Extractor<T>
+    private static abstract class AbstractExtractor<T> implements Extractor<T>, Cloneable
     {
         private final String toString;
 
@@ -236,6 +237,20 @@ public class Extractors
             this.toString = toString;
         }
 
+        @SuppressWarnings( "unchecked" )
+        @Override
+        public Extractor<T> clone()
+        {
+            try
+            {
+                return (Extractor<T>) super.clone();
+            }
+            catch ( CloneNotSupportedException e )
+            {
+                throw new AssertionError( e );
+            }
+        }
+
         @Override
         public String toString()
         {
@@ -261,6 +276,17 @@ public class Extractors
             return extract0( data, offset, length );
         }
 
+        @Override
+        public final boolean extract( byte[] data, int offset, int length, boolean skippedChars )
+        {
+            if ( nullValue( length, skippedChars ) )
+            {
+                clear();
+                return false;
+            }
+            return extract0( data, offset, length );
+        }
+
         protected boolean nullValue( int length, boolean skippedChars )
         {
             return length == 0;
@@ -269,6 +295,8 @@ public class Extractors
         protected abstract void clear();
 
         protected abstract boolean extract0( char[] data, int offset, int length );
+
+        protected abstract boolean extract0( byte[] data, int offset, int length );
     }
 
     private static class StringExtractor extends AbstractSingleValueExtractor<String>
@@ -299,6 +327,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = decode( data, offset, length );
+            return true;
+        }
+
         @Override
         public String value()
         {
@@ -328,6 +363,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = extractLong( data, offset, length );
+            return true;
+        }
+
         @Override
         public Long value()
         {
@@ -366,6 +408,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = safeCastLongToInt( extractLong( data, offset, length ) );
+            return true;
+        }
+
         @Override
         public Integer value()
         {
@@ -404,6 +453,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = safeCastLongToShort( extractLong( data, offset, length ) );
+            return true;
+        }
+
         @Override
         public Short value()
         {
@@ -442,6 +498,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = safeCastLongToByte( extractLong( data, offset, length ) );
+            return true;
+        }
+
         @Override
         public Byte value()
         {
@@ -487,6 +550,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = extractBoolean( data, offset, length );
+            return true;
+        }
+
         @Override
         public Boolean value()
         {
@@ -525,6 +595,18 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            if ( length == 1 && data[offset] >= 0 )
+            {   // A single ASCII character
+                value = (char) data[offset];
+                return true;
+            }
+            char[] chars = decode( data, offset, length ).toCharArray();
+            return extract0( chars, 0, chars.length );
+        }
+
         @Override
         public Character value()
         {
@@ -560,6 +642,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = Float.parseFloat( decode( data, offset, length ) );
+            return true;
+        }
+
         @Override
         public Float value()
         {
@@ -595,6 +684,13 @@ public class Extractors
             return true;
         }
 
+        @Override
+        protected boolean extract0( byte[] data, int offset, int length )
+        {
+            value = Double.parseDouble( decode( data, offset, length ) );
+            return true;
+        }
+
         @Override
         public Double value()
         {
@@ -631,6 +727,15 @@ public class Extractors
             return true;
         }
 
+        @Override
+        public boolean extract( byte[] data, int offset, int length, boolean skippedChars )
+        {
+            // Arrays are allocated anyway, so decoding the characters first is of little extra cost.
+            // Going through the char variant also gives empty and quoted values the same treatment.
+            char[] chars = decode( data, offset, length ).toCharArray();
+            return extract( chars, 0, chars.length, skippedChars );
+        }
+
         protected abstract void extract0( char[] data, int offset, int length );
 
         protected int charsToNextDelimiter( char[] data, int offset, int length )
@@ -879,6 +984,28 @@ public class Extractors
         return negate ? -result : result;
     }
 
+    private static long extractLong( byte[] data, int offset, int length )
+    {
+        if ( length == 0 )
+        {
+            throw new NumberFormatException( "For input string \"\"" );
+        }
+
+        long result = 0;
+        int i = 0;
+        boolean negate = false;
+        if ( data[offset] == '-' )
+        {
+            negate = true;
+            i++;
+        }
+        for ( ; i < length; i++ )
+        {
+            result = result*10 + digit( (char) data[offset+i] );
+        }
+        return negate ? -result : result;
+    }
+
     private static int digit( char ch )
     {
         int digit = ch - '0';
@@ -913,6 +1040,39 @@ public class Extractors
         return true;
     }
 
+    private static boolean extractBoolean( byte[] data, int offset, int length )
+    {
+        if ( BOOLEAN_TRUE_CHARACTERS.length != length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( data[offset+i] != BOOLEAN_TRUE_CHARACTERS[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes UTF-8 encoded bytes into a {@link String}. Plain ASCII, which is by far the most common case,
+     * maps byte for character and so bypasses the charset decoder.
+     */
+    @SuppressWarnings( "deprecation" )
+    private static String decode( byte[] data, int offset, int length )
+    {
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( data[offset+i] < 0 )
+            {   // Part of a multi-byte character
+                return new String( data, offset, length, StandardCharsets.UTF_8 );
+            }
+        }
+        return new String( data, 0, offset, length );
+    }
+
     private static int safeCastLongToInt( long value )
     {
         if ( value > Integer.MAX_VALUE )
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.IOException;
+
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.copyOf;
+
+import static org.neo4j.csv.reader.BufferedCharSeeker.CHUNK_PADDING;
+
+/**
+ * {@link Chunker} reading a {@link CharReadable} in chunks of whole lines.
+ *
+ * Line boundaries are found by following quotation the same way {@link BufferedCharSeeker} does, i.e. a quote
+ * character starting a value begins a quoted section which may contain delimiters and newlines, a double quote
+ * within it is an escaped quote and so is a back slash followed by a quote. A line longer than the chunk
+ * size will make that chunk grow to fit it.
+ *
+ * Lines are counted along the way, so that the {@link CharSeeker} of each chunk reports line numbers
+ * in the whole input rather than in the chunk.
+ */
+public class LineChunker implements Chunker
+{
+    private static final char EOL_CHAR = '\n';
+    private static final char EOL_CHAR_2 = '\r';
+    private static final char BACK_SLASH = '\\';
+
+    private final CharReadable source;
+    private final int chunkSize;
+    private final char delimiter;
+    private final char quoteChar;
+
+    // Characters read from the source after the last line boundary of the previous chunk
+    private char[] carry = new char[0];
+    private int carryLength;
+    private boolean eof;
+    // Line number of the first line in the next chunk
+    private int lineNumber = 1;
+    // Number of lines before the boundary found by the last call to lastLineBoundary
+    private int linesBeforeBoundary;
+
+    public LineChunker( CharReadable source, int chunkSize, char delimiter, char quoteChar )
+    {
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.delimiter = delimiter;
+        this.quoteChar = quoteChar;
+    }
+
+    @Override
+    public CharSeeker nextChunk() throws IOException
+    {
+        char[] data = new char[Math.max( chunkSize, carryLength * 2 ) + CHUNK_PADDING];
+        arraycopy( carry, 0, data, 0, carryLength );
+        int length = carryLength;
+        int boundary = -1;
+        while ( boundary == -1 )
+        {
+            length = fill( data, length );
+            if ( eof )
+            {   // The last chunk ends wherever the data ends
+                boundary = length;
+            }
+            else
+            {
+                boundary = lastLineBoundary( data, length );
+                if ( boundary == -1 )
+                {   // A line longer than the chunk, grow the chunk to fit more of it
+                    data = copyOf( data, length * 2 + CHUNK_PADDING );
+                }
+            }
+        }
+
+        carryLength = length - boundary;
+        if ( carry.length < carryLength )
+        {
+            carry = new char[carryLength];
+        }
+        arraycopy( data, boundary, carry, 0, carryLength );
+        if ( boundary == 0 )
+        {
+            return null;
+        }
+        CharSeeker chunk = new BufferedCharSeeker( data, boundary, quoteChar, lineNumber );
+        lineNumber += linesBeforeBoundary;
+        return chunk;
+    }
+
+    private int fill( char[] data, int length ) throws IOException
+    {
+        int capacity = data.length - CHUNK_PADDING;
+        while ( !eof && length < capacity )
+        {
+            int read = source.read( data, length, capacity - length );
+            if ( read == -1 )
+            {
+                eof = true;
+            }
+            else
+            {
+                length += read;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Scans from the start of the chunk, which is always at the start of a line, so that the quotation state
+     * is known at every character.
+     *
+     * @return index of the first character of the last line starting within {@code length} characters,
+     * or {@code -1} if no line starts after the first. The number of lines before it is kept in
+     * {@link #linesBeforeBoundary}.
+     */
+    private int lastLineBoundary( char[] data, int length )
+    {
+        int boundary = -1;
+        int lines = 0;
+        boolean quoted = false;
+        boolean valueStart = true;
+        for ( int i = 0; i < length; i++ )
+        {
+            char ch = data[i];
+            if ( quoted )
+            {
+                if ( i + 1 == length )
+                {   // Can't tell what this character means without the next one, it's after the boundary anyway
+                    break;
+                }
+                if ( ch == quoteChar )
+                {
+                    if ( data[i + 1] == quoteChar )
+                    {   // Double quote, i.e. an escaped quote
+                        i++;
+                    }
+                    else
+                    {
+                        quoted = false;
+                    }
+                }
+                else if ( ch == BACK_SLASH && data[i + 1] == quoteChar )
+                {   // Legacy concern, java style quote encoding
+                    i++;
+                }
+            }
+            else if ( ch == quoteChar && valueStart )
+            {
+                quoted = true;
+                valueStart = false;
+            }
+            else if ( isNewLine( ch ) )
+            {
+                // A line starts after a run of newline characters, which we can only know if the run
+                // ends within the data we have
+                if ( i + 1 < length && !isNewLine( data[i + 1] ) )
+                {
+                    boundary = i + 1;
+                    linesBeforeBoundary = ++lines;
+                }
+                valueStart = true;
+            }
+            else
+            {
+                valueStart = ch == delimiter;
+            }
+        }
+        return boundary;
+    }
+
+    private static boolean isNewLine( char ch )
+    {
+        return ch == EOL_CHAR || ch == EOL_CHAR_2;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        source.close();
+    }
+}
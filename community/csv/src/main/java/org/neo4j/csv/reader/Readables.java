@@ -23,10 +23,12 @@ import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -98,13 +100,23 @@ public class Readables
     {
         @Override
         public CharReadable apply( File file ) throws IOException
+        {
+            return wrap( new InputStreamReader( FROM_FILE_BYTES.apply( file ) ) );
+        }
+    };
+
+    private static final RawFunction<File,InputStream,IOException> FROM_FILE_BYTES =
+            new RawFunction<File,InputStream,IOException>()
+    {
+        @Override
+        public InputStream apply( File file ) throws IOException
         {
             int magic = magic( file );
             if ( magic == ZIP_MAGIC )
             {   // ZIP file
                 ZipFile zipFile = new ZipFile( file );
                 ZipEntry entry = getSingleSuitableEntry( zipFile );
-                return wrap( new InputStreamReader( zipFile.getInputStream( entry ) ) );
+                return zipFile.getInputStream( entry );
             }
             else if ( (magic >>> 16) == GZIP_MAGIC )
             {   // GZIP file. GZIP isn't an archive like ZIP, so this is purely data that is compressed.
@@ -112,11 +124,10 @@ public class Readables
                 // files into one blob, which is then compressed. If that's the case then
                 // the data will look like garbage and the reader will fail for whatever it will be used for.
                 // TODO add tar support
-                GZIPInputStream zipStream = new GZIPInputStream( new FileInputStream( file ) );
-                return wrap( new InputStreamReader( zipStream ) );
+                return new GZIPInputStream( new FileInputStream( file ) );
             }
 
-            return wrap( new FileReader( file ) );
+            return new FileInputStream( file );
         }
 
         private ZipEntry getSingleSuitableEntry( ZipFile zipFile ) throws IOException
@@ -191,6 +202,15 @@ public class Readables
         return new MultiReadable( iterator( files, FROM_FILE ) );
     }
 
+    /**
+     * Like {@link #multipleFiles(File...)}, but reads the raw bytes of the files, f.ex. for a
+     * {@link BufferedByteSeeker} to seek in UTF-8 encoded data without decoding it.
+     */
+    public static ReadableByteChannel multipleFilesAsBytes( File... files )
+    {
+        return Channels.newChannel( new MultiInputStream( iterator( files, FROM_FILE_BYTES ) ) );
+    }
+
     public static CharReadable multipleSources( CharReadable... sources )
     {
         return new MultiReadable( iterator( sources, IDENTITY ) );
@@ -266,4 +286,77 @@ public class Readables
             }
         };
     }
+
+    /**
+     * Bytes of multiple {@link InputStream streams} as one, the same way {@link MultiReadable} does it
+     * for characters.
+     */
+    private static class MultiInputStream extends InputStream
+    {
+        private final RawIterator<InputStream,IOException> actual;
+        private InputStream current;
+        private int readFromCurrent;
+
+        MultiInputStream( RawIterator<InputStream,IOException> actual )
+        {
+            this.actual = actual;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            byte[] single = new byte[1];
+            return read( single, 0, 1 ) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read( byte[] buffer, int offset, int length ) throws IOException
+        {
+            int read = 0;
+            while ( read < length )
+            {
+                int readThisTime = current != null ? current.read( buffer, offset + read, length - read ) : -1;
+                if ( readThisTime == -1 )
+                {
+                    if ( actual.hasNext() )
+                    {
+                        closeCurrent();
+                        current = actual.next();
+
+                        // Same as in MultiReadable, keep the last line of this source apart from
+                        // the first line of the next source.
+                        if ( readFromCurrent > 0 )
+                        {
+                            buffer[offset + read++] = '\n';
+                            readFromCurrent = 0;
+                        }
+                    }
+                    else
+                    {
+                        break;
+                    }
+                }
+                else
+                {
+                    read += readThisTime;
+                    readFromCurrent += readThisTime;
+                }
+            }
+            return read == 0 ? -1 : read;
+        }
+
+        private void closeCurrent() throws IOException
+        {
+            if ( current != null )
+            {
+                current.close();
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            closeCurrent();
+        }
+    }
 }
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import static org.neo4j.csv.reader.Readables.wrap;
+
+public class BufferedByteSeekerTest
+{
+    @Test
+    public void shouldSeekAndExtractNumbersAndStrings() throws Exception
+    {
+        // GIVEN
+        seeker = seeker( "1,first\n" +
+                         "-22,second\n", 100 );
+
+        // WHEN/THEN
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( 1L, seeker.extract( mark, extractors.long_() ).longValue() );
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( "first", seeker.extract( mark, extractors.string() ).value() );
+        assertTrue( mark.isEndOfLine() );
+        assertEquals( 1, mark.lineNumber() );
+
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( -22, seeker.extract( mark, extractors.int_() ).intValue() );
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( "second", seeker.extract( mark, extractors.string() ).value() );
+        assertTrue( mark.isEndOfLine() );
+        assertEquals( 2, mark.lineNumber() );
+
+        assertFalse( seeker.seek( mark, COMMA ) );
+    }
+
+    @Test
+    public void shouldExtractMultiByteCharactersAndQuotedValues() throws Exception
+    {
+        // GIVEN
+        seeker = seeker( "\"åäö, \"\"quoted\"\"\",日本語\n", 100 );
+
+        // WHEN/THEN
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( "åäö, \"quoted\"", seeker.extract( mark, extractors.string() ).value() );
+        assertTrue( seeker.seek( mark, COMMA ) );
+        assertEquals( "日本語", seeker.extract( mark, extractors.string() ).value() );
+        assertTrue( mark.isEndOfLine() );
+        assertFalse( seeker.seek( mark, COMMA ) );
+    }
+
+    @Test
+    public void shouldFindSameValuesAsCharSeekerAcrossBufferReads() throws Exception
+    {
+        // GIVEN
+        StringBuilder data = new StringBuilder();
+        for ( int row = 0; row < 100; row++ )
+        {
+            for ( int col = 0; col < 5; col++ )
+            {
+                data.append( col > 0 ? "," : "" ).append( randomValue() );
+            }
+            data.append( row % 2 == 0 ? "\n" : "\r\n" );
+        }
+        seeker = seeker( data.toString(), 100 );
+        Mark charMark = new Mark();
+
+        // WHEN/THEN
+        try ( CharSeeker charSeeker = new BufferedCharSeeker( wrap( new StringReader( data.toString() ) ), 100 ) )
+        {
+            while ( charSeeker.seek( charMark, COMMA ) )
+            {
+                assertTrue( seeker.seek( mark, COMMA ) );
+                assertEquals( charMark.lineNumber(), mark.lineNumber() );
+                assertEquals( charMark.isEndOfLine(), mark.isEndOfLine() );
+                Extractor<String> string = extractors.string();
+                charSeeker.tryExtract( charMark, string );
+                String expected = string.value();
+                seeker.tryExtract( mark, string );
+                assertEquals( expected, string.value() );
+            }
+            assertFalse( seeker.seek( mark, COMMA ) );
+        }
+    }
+
+    @Test
+    public void shouldNotTreatAnyByteValueInTheDataAsEndOfData() throws Exception
+    {
+        // GIVEN a byte which is invalid in UTF-8, f.ex. a latin-1 encoded 'ÿ', in the middle of the data
+        byte[] data = bytesWithInvalidByte( "1,a\n2,b", "\n3,c\n4,d\n" );
+
+        for ( int bufferSize : new int[] {5, 1000} )
+        {
+            // WHEN
+            try ( CharSeeker seeker = new BufferedByteSeeker(
+                    Channels.newChannel( new ByteArrayInputStream( data ) ), bufferSize, '"' ) )
+            {
+                // THEN all values are still there
+                assertEquals( 8, countValues( seeker ) );
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotTreatAnyByteValueInAChunkAsEndOfData() throws Exception
+    {
+        // GIVEN
+        byte[] data = bytesWithInvalidByte( "1,a\n2,b", "\n3,c\n4,d\n" );
+
+        // WHEN
+        seeker = new BufferedByteSeeker( data, data.length, '"', 1 );
+
+        // THEN
+        assertEquals( 8, countValues( seeker ) );
+    }
+
+    @Test
+    public void shouldNotAcceptNonAsciiDelimiter() throws Exception
+    {
+        // GIVEN
+        seeker = seeker( "a§b", 100 );
+
+        // WHEN
+        try
+        {
+            seeker.seek( mark, new int[] {'§'} );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalArgumentException e )
+        {   // THEN good
+        }
+    }
+
+    private String randomValue()
+    {
+        String[] parts = {"abc", "123", "åäö", "日本", "\"quoted, \"\"value\"\"\""};
+        StringBuilder value = new StringBuilder();
+        int count = random.nextInt( 3 );
+        for ( int i = 0; i < count; i++ )
+        {
+            String part = parts[random.nextInt( parts.length )];
+            if ( part.startsWith( "\"" ) )
+            {   // Quoted values must be complete values
+                return part;
+            }
+            value.append( part );
+        }
+        return value.toString();
+    }
+
+    static byte[] bytesWithInvalidByte( String before, String after )
+    {
+        byte[] first = before.getBytes( StandardCharsets.UTF_8 );
+        byte[] last = after.getBytes( StandardCharsets.UTF_8 );
+        byte[] data = new byte[first.length + 1 + last.length];
+        System.arraycopy( first, 0, data, 0, first.length );
+        data[first.length] = (byte) 0xFF;
+        System.arraycopy( last, 0, data, first.length + 1, last.length );
+        return data;
+    }
+
+    private int countValues( CharSeeker seeker ) throws IOException
+    {
+        int count = 0;
+        while ( seeker.seek( mark, COMMA ) )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private CharSeeker seeker( String data, int bufferSize )
+    {
+        return new BufferedByteSeeker( Channels.newChannel(
+                new ByteArrayInputStream( data.getBytes( StandardCharsets.UTF_8 ) ) ), bufferSize, '"' );
+    }
+
+    private static final int[] COMMA = new int[] { ',' };
+    private final Random random = new Random();
+    private final Extractors extractors = new Extractors( ',' );
+    private final Mark mark = new Mark();
+
+    private CharSeeker seeker;
+
+    @After
+    public void closeSeeker() throws IOException
+    {
+        if ( seeker != null )
+        {
+            seeker.close();
+        }
+    }
+}
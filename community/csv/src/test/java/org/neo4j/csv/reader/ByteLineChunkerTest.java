@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import static org.neo4j.csv.reader.Readables.wrap;
+
+public class ByteLineChunkerTest
+{
+    @Test
+    public void shouldSplitUtf8DataIntoChunksOfWholeLines() throws Exception
+    {
+        // GIVEN
+        ByteLineChunker chunker = chunker( "1,\"åäö\nline, \"\"quoted\"\"\"\n2,日本\r\n3,ü\n4,ß", 8 );
+
+        // WHEN
+        List<String> values = new ArrayList<>();
+        int chunks = 0;
+        CharSeeker seeker;
+        while ( (seeker = chunker.nextChunk()) != null )
+        {
+            Mark mark = new Mark();
+            while ( seeker.seek( mark, delimiter ) )
+            {
+                values.add( seeker.extract( mark, extractors.string() ).value() );
+            }
+            chunks++;
+        }
+        chunker.close();
+
+        // THEN
+        assertTrue( "Expected several chunks, but got " + chunks, chunks > 1 );
+        assertEquals( asList( "1", "åäö\nline, \"quoted\"", "2", "日本", "3", "ü", "4", "ß" ), values );
+    }
+
+    @Test
+    public void shouldReportLineNumbersInTheWholeInputRatherThanInTheChunk() throws Exception
+    {
+        // GIVEN
+        String data = "1,a\n2,\"multi\nline\"\n\n3,b\r\n4,c\n5,d\n6,e\n7,f";
+        ByteLineChunker chunker = chunker( data, 8 );
+
+        // WHEN
+        List<Integer> lineNumbers = new ArrayList<>();
+        CharSeeker seeker;
+        while ( (seeker = chunker.nextChunk()) != null )
+        {
+            lineNumbers.addAll( lineNumbers( seeker ) );
+        }
+        chunker.close();
+
+        // THEN the same line numbers as when seeking through the whole input in one go
+        assertEquals( lineNumbers( new BufferedCharSeeker( wrap( new StringReader( data ) ) ) ), lineNumbers );
+    }
+
+    @Test
+    public void shouldNotTreatAnyByteValueInTheDataAsEndOfData() throws Exception
+    {
+        // GIVEN a byte which is invalid in UTF-8, f.ex. a latin-1 encoded 'ÿ', in the middle of the data
+        byte[] data = BufferedByteSeekerTest.bytesWithInvalidByte( "1,a\n2,b", "\n3,c\n4,d\n" );
+
+        for ( int chunkSize : new int[] {8, 1000} )
+        {
+            // WHEN
+            ByteLineChunker chunker = new ByteLineChunker(
+                    Channels.newChannel( new ByteArrayInputStream( data ) ), chunkSize, ',', '"' );
+            int values = 0;
+            CharSeeker seeker;
+            while ( (seeker = chunker.nextChunk()) != null )
+            {
+                Mark mark = new Mark();
+                while ( seeker.seek( mark, delimiter ) )
+                {
+                    values++;
+                }
+            }
+            chunker.close();
+
+            // THEN all values are still there
+            assertEquals( 8, values );
+        }
+    }
+
+    @Test
+    public void shouldReturnNullOnEmptySource() throws Exception
+    {
+        // GIVEN
+        ByteLineChunker chunker = chunker( "", 10 );
+
+        // WHEN/THEN
+        assertNull( chunker.nextChunk() );
+        chunker.close();
+    }
+
+    private ByteLineChunker chunker( String data, int chunkSize )
+    {
+        return new ByteLineChunker( Channels.newChannel(
+                new ByteArrayInputStream( data.getBytes( StandardCharsets.UTF_8 ) ) ), chunkSize, ',', '"' );
+    }
+
+    private List<Integer> lineNumbers( CharSeeker seeker ) throws IOException
+    {
+        List<Integer> lineNumbers = new ArrayList<>();
+        Mark mark = new Mark();
+        while ( seeker.seek( mark, delimiter ) )
+        {
+            lineNumbers.add( mark.lineNumber() );
+        }
+        return lineNumbers;
+    }
+
+    private final int[] delimiter = new int[] {','};
+    private final Extractors extractors = new Extractors( ';' );
+}
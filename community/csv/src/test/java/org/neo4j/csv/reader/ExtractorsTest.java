@@ -19,12 +19,17 @@
  */
 package org.neo4j.csv.reader;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
 import org.junit.Test;
 
 import org.neo4j.csv.reader.Extractors.IntExtractor;
+import org.neo4j.csv.reader.Extractors.LongExtractor;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ExtractorsTest
@@ -207,6 +212,75 @@ public class ExtractorsTest
         assertEquals( "", extractor.value() );
     }
 
+    @Test
+    public void shouldExtractNumbersFromBytes() throws Exception
+    {
+        // GIVEN
+        Extractors extractors = new Extractors( ',' );
+        byte[] data = "x-9876543210,12x".getBytes( StandardCharsets.UTF_8 );
+
+        // WHEN
+        LongExtractor longExtractor = extractors.long_();
+        longExtractor.extract( data, 1, 11, false );
+        IntExtractor intExtractor = extractors.int_();
+        intExtractor.extract( data, 13, 2, false );
+
+        // THEN
+        assertEquals( -9876543210L, longExtractor.longValue() );
+        assertEquals( 12, intExtractor.intValue() );
+    }
+
+    @Test
+    public void shouldExtractStringsAndArraysFromUtf8Bytes() throws Exception
+    {
+        // GIVEN
+        Extractors extractors = new Extractors( ';' );
+        byte[] ascii = "plain".getBytes( StandardCharsets.UTF_8 );
+        byte[] multiByte = "åäö;日本".getBytes( StandardCharsets.UTF_8 );
+
+        // WHEN/THEN
+        Extractor<String> string = extractors.string();
+        string.extract( ascii, 0, ascii.length, false );
+        assertEquals( "plain", string.value() );
+        string.extract( multiByte, 0, multiByte.length, false );
+        assertEquals( "åäö;日本", string.value() );
+        Extractor<String[]> stringArray = extractors.stringArray();
+        stringArray.extract( multiByte, 0, multiByte.length, false );
+        assertArrayEquals( new String[] {"åäö", "日本"}, stringArray.value() );
+    }
+
+    @Test
+    public void shouldExtractEmptyAndQuotedEmptyValuesFromBytesLikeFromChars() throws Exception
+    {
+        // GIVEN
+        Extractors extractors = new Extractors( ';' );
+        char[] chars = "x\"\"".toCharArray();
+        byte[] bytes = "x\"\"".getBytes( StandardCharsets.UTF_8 );
+        Extractor<?>[] all = {
+                extractors.string(), extractors.long_(), extractors.int_(), extractors.char_(),
+                extractors.short_(), extractors.byte_(), extractors.boolean_(), extractors.float_(),
+                extractors.double_(), extractors.stringArray(), extractors.booleanArray(), extractors.byteArray(),
+                extractors.shortArray(), extractors.intArray(), extractors.longArray(), extractors.floatArray(),
+                extractors.doubleArray()};
+
+        for ( Extractor<?> extractor : all )
+        {
+            for ( boolean quoted : new boolean[] {false, true} )
+            {
+                // WHEN
+                Extractor<?> fromChars = extractor.clone();
+                boolean extractedFromChars = fromChars.extract( chars, 1, 0, quoted );
+                Extractor<?> fromBytes = extractor.clone();
+                boolean extractedFromBytes = fromBytes.extract( bytes, 1, 0, quoted );
+
+                // THEN
+                String description = extractor + (quoted ? " quoted" : "");
+                assertEquals( description, extractedFromChars, extractedFromBytes );
+                assertTrue( description, Objects.deepEquals( fromChars.value(), fromBytes.value() ) );
+            }
+        }
+    }
+
     private String toString( long[] values, char delimiter )
     {
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.csv.reader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import static org.neo4j.csv.reader.Readables.wrap;
+
+public class LineChunkerTest
+{
+    @Test
+    public void shouldSplitDataIntoChunksOfWholeLines() throws Exception
+    {
+        // GIVEN
+        LineChunker chunker = chunker( "first,1\nsecond,2\nthird,3\nfourth,4\n", 20 );
+
+        // WHEN
+        List<List<String>> chunks = readChunks( chunker );
+
+        // THEN
+        assertTrue( "Expected several chunks, but got " + chunks, chunks.size() > 1 );
+        assertEquals( asList( "first", "1", "second", "2", "third", "3", "fourth", "4" ), flatten( chunks ) );
+    }
+
+    @Test
+    public void shouldNotSplitLinesWithinQuotes() throws Exception
+    {
+        // GIVEN
+        LineChunker chunker = chunker( "1,\"multi\nline, \"\"quoted\"\"\nvalue\"\n" +
+                "2,\"a\"\n3,\"b\"\n4,\"c\"\n5,\"d\"\n6,\"e\"\n", 12 );
+
+        // WHEN
+        List<List<String>> chunks = readChunks( chunker );
+
+        // THEN
+        assertTrue( "Expected several chunks, but got " + chunks, chunks.size() > 1 );
+        assertEquals( asList( "1", "multi\nline, \"quoted\"\nvalue", "2", "a", "3", "b", "4", "c", "5", "d", "6", "e" ),
+                flatten( chunks ) );
+    }
+
+    @Test
+    public void shouldNotStartChunkWithinRunOfNewLines() throws Exception
+    {
+        // GIVEN
+        LineChunker chunker = chunker( "one\r\ntwo\r\nthree\r\n", 5 );
+
+        // WHEN
+        List<List<String>> chunks = readChunks( chunker );
+
+        // THEN
+        assertEquals( asList( "one", "two", "three" ), flatten( chunks ) );
+    }
+
+    @Test
+    public void shouldIncludeLastLineWithoutNewLine() throws Exception
+    {
+        // GIVEN
+        LineChunker chunker = chunker( "one\ntwo", 100 );
+
+        // WHEN
+        List<List<String>> chunks = readChunks( chunker );
+
+        // THEN
+        assertEquals( asList( asList( "one", "two" ) ), chunks );
+    }
+
+    @Test
+    public void shouldReturnNullOnEmptySource() throws Exception
+    {
+        // GIVEN
+        LineChunker chunker = chunker( "", 10 );
+
+        // WHEN/THEN
+        assertNull( chunker.nextChunk() );
+        chunker.close();
+    }
+
+    @Test
+    public void shouldReportLineNumbersInTheWholeInputRatherThanInTheChunk() throws Exception
+    {
+        // GIVEN
+        String data = "1,a\n2,\"multi\nline\"\n\n3,b\r\n4,c\n5,d\n6,e\n7,f";
+        LineChunker chunker = chunker( data, 8 );
+
+        // WHEN
+        List<Integer> lineNumbers = new ArrayList<>();
+        CharSeeker seeker;
+        int chunks = 0;
+        while ( (seeker = chunker.nextChunk()) != null )
+        {
+            lineNumbers.addAll( lineNumbers( seeker ) );
+            chunks++;
+        }
+        chunker.close();
+
+        // THEN the same line numbers as when seeking through the whole input in one go
+        assertTrue( "Expected several chunks, but got " + chunks, chunks > 1 );
+        assertEquals( lineNumbers( new BufferedCharSeeker( wrap( new StringReader( data ) ) ) ), lineNumbers );
+    }
+
+    private List<Integer> lineNumbers( CharSeeker seeker ) throws IOException
+    {
+        List<Integer> lineNumbers = new ArrayList<>();
+        Mark mark = new Mark();
+        while ( seeker.seek( mark, delimiter ) )
+        {
+            lineNumbers.add( mark.lineNumber() );
+        }
+        return lineNumbers;
+    }
+
+    private LineChunker chunker( String data, int chunkSize )
+    {
+        return new LineChunker( wrap( new StringReader( data ) ), chunkSize, ',', '"' );
+    }
+
+    private List<List<String>> readChunks( LineChunker chunker ) throws IOException
+    {
+        List<List<String>> chunks = new ArrayList<>();
+        CharSeeker seeker;
+        while ( (seeker = chunker.nextChunk()) != null )
+        {
+            List<String> values = new ArrayList<>();
+            Mark mark = new Mark();
+            while ( seeker.seek( mark, delimiter ) )
+            {
+                values.add( seeker.extract( mark, extractors.string() ).value() );
+            }
+            assertFalse( seeker.seek( mark, delimiter ) );
+            chunks.add( values );
+        }
+        chunker.close();
+        return chunks;
+    }
+
+    private List<String> flatten( List<List<String>> chunks )
+    {
+        List<String> values = new ArrayList<>();
+        for ( List<String> chunk : chunks )
+        {
+            values.addAll( chunk );
+        }
+        return values;
+    }
+
+    private final int[] delimiter = new int[] {','};
+    private final Extractors extractors = new Extractors( ';' );
+}
@@ -19,10 +19,13 @@
  */
 package org.neo4j.csv.reader;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -34,6 +37,7 @@ import org.neo4j.test.TestDirectory;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
@@ -123,6 +127,29 @@ public class ReadablesTest
         }
     }
 
+    @Test
+    public void shouldReadBytesOfMultipleFilesAsOne() throws Exception
+    {
+        // GIVEN
+        File compressed = compressWithGZip( "a,1\nb,2" );
+        File plainText = write( "c,3\n" );
+
+        // WHEN
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try ( ReadableByteChannel channel = Readables.multipleFilesAsBytes( compressed, plainText ) )
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( 3 );
+            while ( channel.read( buffer ) != -1 )
+            {
+                bytes.write( buffer.array(), 0, buffer.position() );
+                buffer.clear();
+            }
+        }
+
+        // THEN
+        assertEquals( "a,1\nb,2\nc,3\n", bytes.toString( "UTF-8" ) );
+    }
+
     private File write( String text ) throws IOException
     {
         File file = directory.file( "plain-text" );
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.commands
+
+sealed trait Bound[+V] {
+  def endPoint: V
+  def inclusive: Boolean
+
+  def map[P](f: V => P): Bound[P]
+}
+
+case class InclusiveBound[+V](endPoint: V) extends Bound[V] {
+  def inclusive = true
+
+  def map[P](f: V => P) = InclusiveBound(f(endPoint))
+}
+
+case class ExclusiveBound[+V](endPoint: V) extends Bound[V] {
+  def inclusive = false
+
+  def map[P](f: V => P) = ExclusiveBound(f(endPoint))
+}
+
+/*
+Describes the values an index range seek should find; an open ended inequality range or a string prefix.
+ */
+sealed trait SeekRange[+V] {
+  def map[P](f: V => P): SeekRange[P]
+}
+
+case class InequalitySeekRange[+V](lower: Option[Bound[V]], upper: Option[Bound[V]]) extends SeekRange[V] {
+  def map[P](f: V => P) = InequalitySeekRange(lower.map(_.map(f)), upper.map(_.map(f)))
+}
+
+case class PrefixSeekRange[+V](prefix: V) extends SeekRange[V] {
+  def map[P](f: V => P) = PrefixSeekRange(f(prefix))
+}
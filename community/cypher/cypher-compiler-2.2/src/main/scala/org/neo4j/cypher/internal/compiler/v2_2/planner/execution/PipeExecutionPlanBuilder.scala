@@ -90,6 +90,9 @@ class PipeExecutionPlanBuilder(clock: Clock, monitors: Monitors) {
         case NodeIndexUniqueSeek(IdName(id), label, propertyKey, valueExpr, _) =>
           NodeIndexSeekPipe(id, label, propertyKey, valueExpr.map(buildExpression), unique = true)()
 
+        case NodeIndexRangeSeek(IdName(id), label, propertyKey, range, _) =>
+          NodeIndexRangeSeekPipe(id, label, propertyKey, range.map(buildExpression))()
+
         case Selection(predicates, left) =>
           FilterPipe(buildPipe(left, input), predicates.map(buildPredicate).reduce(_ ++ _))()
 
@@ -53,6 +53,10 @@ case class CardinalityCostModel(cardinality: CardinalityModel) extends CostModel
     case NodeIndexSeek(_, _, _, ManyQueryExpression(Collection(elements)), _) =>
       DB_ACCESS_BOUND_PLAN_COST_PER_ROW * Multiplier(elements.size)
 
+    // a range seek is a single index lookup producing its rows, just like a seek for a single value
+    case _: NodeIndexSeek | _: NodeIndexRangeSeek =>
+      DB_ACCESS_BOUND_PLAN_COST_PER_ROW
+
     case _ =>
       DB_ACCESS_BOUND_PLAN_COST_PER_ROW
   }
@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
 
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.{ManyQueryExpression, QueryExpression}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{Bound, ExclusiveBound, InclusiveBound, InequalitySeekRange, ManyQueryExpression, PrefixSeekRange, QueryExpression, SeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.QueryGraph
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
@@ -103,6 +103,91 @@ object indexSeekLeafPlanner extends IndexLeafPlanner {
 
 }
 
+object indexRangeSeekLeafPlanner extends LeafPlanner {
+
+  private case class RangeBound(name: String, propertyKeyName: PropertyKeyName, predicate: Expression,
+                                isLower: Boolean, bound: Bound[Expression])
+
+  // literal prefix followed by .*, e.g. 'Andr.*'
+  private val PrefixRegex = """([^\\.\[\]\(\)\{\}\*\+\?\^\$\|]+)\.\*""".r
+
+  def apply(qg: QueryGraph)(implicit context: LogicalPlanningContext) = {
+    implicit val semanticTable = context.semanticTable
+    val predicates: Seq[Expression] = qg.selections.flatPredicates
+    val labelPredicateMap: Map[IdName, Set[HasLabels]] = qg.selections.labelPredicates
+
+    def producePlanFor(name: String, propertyKeyName: PropertyKeyName, propertyPredicates: Seq[Expression],
+                       range: SeekRange[Expression]) = {
+      val idName = IdName(name)
+      for (labelPredicate <- labelPredicateMap.getOrElse(idName, Set.empty);
+           labelName <- labelPredicate.labels;
+           indexDescriptor <- findIndexesFor(labelName.name, propertyKeyName.name);
+           labelId <- labelName.id)
+      yield {
+        val propertyName = propertyKeyName.name
+        val hint = qg.hints.collectFirst {
+          case hint @ UsingIndexHint(Identifier(`name`), `labelName`, Identifier(`propertyName`)) => hint
+        }
+        planNodeIndexRangeSeek(idName, LabelToken(labelName, labelId),
+                               PropertyKeyToken(propertyKeyName, propertyKeyName.id.head), range,
+                               propertyPredicates :+ labelPredicate, hint, qg.argumentIds)
+      }
+    }
+
+    val inequalities = predicates.flatMap(rangeBound).filterNot(bound => qg.argumentIds.contains(IdName(bound.name)))
+
+    val rangePlans = inequalities.groupBy(bound => (bound.name, bound.propertyKeyName)).toSeq.flatMap {
+      case ((name, propertyKeyName), bounds) =>
+        val lower = bounds.find(_.isLower)
+        val upper = bounds.find(!_.isLower)
+        val range = InequalitySeekRange(lower.map(_.bound), upper.map(_.bound))
+        producePlanFor(name, propertyKeyName, (lower ++ upper).map(_.predicate).toSeq, range)
+    }
+
+    // the regex is kept as a selection on top of the seek, the prefix only narrows down the candidates
+    val prefixPlans = predicates.collect {
+      case regex@RegexMatch(Property(Identifier(name), propertyKeyName), literal@StringLiteral(PrefixRegex(prefix)))
+        if !qg.argumentIds.contains(IdName(name)) =>
+        producePlanFor(name, propertyKeyName, Seq.empty, PrefixSeekRange(StringLiteral(prefix)(literal.position)))
+          .map(seek => planSelection(Seq(regex), seek))
+    }.flatten
+
+    rangePlans ++ prefixPlans
+  }
+
+  private def rangeBound(predicate: Expression): Option[RangeBound] = predicate match {
+    case GreaterThan(Property(Identifier(name), key), SeekableValue(value)) =>
+      Some(RangeBound(name, key, predicate, isLower = true, ExclusiveBound(value)))
+    case GreaterThanOrEqual(Property(Identifier(name), key), SeekableValue(value)) =>
+      Some(RangeBound(name, key, predicate, isLower = true, InclusiveBound(value)))
+    case LessThan(Property(Identifier(name), key), SeekableValue(value)) =>
+      Some(RangeBound(name, key, predicate, isLower = false, ExclusiveBound(value)))
+    case LessThanOrEqual(Property(Identifier(name), key), SeekableValue(value)) =>
+      Some(RangeBound(name, key, predicate, isLower = false, InclusiveBound(value)))
+    case GreaterThan(SeekableValue(value), Property(Identifier(name), key)) =>
+      Some(RangeBound(name, key, predicate, isLower = false, ExclusiveBound(value)))
+    case GreaterThanOrEqual(SeekableValue(value), Property(Identifier(name), key)) =>
+      Some(RangeBound(name, key, predicate, isLower = false, InclusiveBound(value)))
+    case LessThan(SeekableValue(value), Property(Identifier(name), key)) =>
+      Some(RangeBound(name, key, predicate, isLower = true, ExclusiveBound(value)))
+    case LessThanOrEqual(SeekableValue(value), Property(Identifier(name), key)) =>
+      Some(RangeBound(name, key, predicate, isLower = true, InclusiveBound(value)))
+    case _ =>
+      None
+  }
+
+  private object SeekableValue {
+    def unapply(expression: Expression): Option[Expression] = expression match {
+      case literal: Literal => Some(literal)
+      case parameter: Parameter => Some(parameter)
+      case _ => None
+    }
+  }
+
+  private def findIndexesFor(label: String, property: String)(implicit context: LogicalPlanningContext): Option[IndexDescriptor] =
+    context.planContext.getIndexRule(label, property) orElse context.planContext.getUniqueIndexRule(label, property)
+}
+
 object legacyHintLeafPlanner extends LeafPlanner {
   def apply(qg: QueryGraph)(implicit context: LogicalPlanningContext) = {
     qg.hints.toSeq.collect {
@@ -20,7 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps
 
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.QueryExpression
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{QueryExpression, SeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.pipes.{LazyLabel, SortDescription}
 import org.neo4j.cypher.internal.compiler.v2_2.planner._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans.{Limit => LimitPlan, Skip => SkipPlan, _}
@@ -161,6 +161,22 @@ object LogicalPlanProducer {
     )
   }
 
+  def planNodeIndexRangeSeek(idName: IdName,
+                             label: ast.LabelToken,
+                             propertyKey: ast.PropertyKeyToken,
+                             range: SeekRange[Expression], solvedPredicates: Seq[Expression] = Seq.empty,
+                             solvedHint: Option[UsingIndexHint] = None,
+                             argumentIds: Set[IdName]) = {
+    NodeIndexRangeSeek(idName, label, propertyKey, range, argumentIds)(
+      PlannerQuery(graph = QueryGraph.empty
+        .addPatternNodes(idName)
+        .addPredicates(solvedPredicates: _*)
+        .addHints(solvedHint)
+        .addArgumentIds(argumentIds.toSeq)
+      )
+    )
+  }
+
   def planLegacyHintSeek(idName: IdName, hint: LegacyIndexHint, argumentIds: Set[IdName]) = {
     LegacyIndexSeek(idName, hint, argumentIds)(
       PlannerQuery(graph = QueryGraph.empty
@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compiler.v2_2.spi
 
 import org.neo4j.cypher.internal.compiler.v2_2.InternalQueryStatistics
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.graphdb._
 import org.neo4j.kernel.api.constraints.UniquenessConstraint
 import org.neo4j.kernel.api.index.IndexDescriptor
@@ -73,6 +74,8 @@ trait QueryContext extends TokenContext {
 
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node]
 
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node]
+
   def getNodesByLabel(id: Int): Iterator[Node]
 
   def upgradeToLockingQueryContext: LockingQueryContext = upgrade(this)
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.cypher.internal.compiler.v2_2.pipes
+
+import org.mockito.Mockito._
+import org.neo4j.cypher.internal.commons.CypherFunSuite
+import org.neo4j.cypher.internal.compiler.v2_2.{LabelId, PropertyKeyId}
+import org.neo4j.cypher.internal.compiler.v2_2.ast.{LabelToken, PropertyKeyToken, _}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{ExclusiveBound, InclusiveBound, InequalitySeekRange, PrefixSeekRange}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.expressions.{Literal, ParameterExpression}
+import org.neo4j.cypher.internal.compiler.v2_2.spi.QueryContext
+import org.neo4j.graphdb.Node
+import org.neo4j.kernel.api.index.IndexDescriptor
+
+class NodeIndexRangeSeekPipeTest extends CypherFunSuite with AstConstructionTestSupport {
+
+  implicit val monitor = mock[PipeMonitor]
+
+  val label = LabelToken(LabelName("LabelName")_, LabelId(11))
+  val propertyKey = PropertyKeyToken(PropertyKeyName("PropertyName")_, PropertyKeyId(10))
+  val descriptor = new IndexDescriptor(label.nameId.id, propertyKey.nameId.id)
+  val node = mock[Node]
+  val node2 = mock[Node]
+
+  test("should return nodes found by an index range seek with evaluated bounds") {
+    // given
+    val query = mock[QueryContext]
+    when(query.indexSeekByRange(descriptor, InequalitySeekRange(Some(ExclusiveBound(10)), Some(InclusiveBound(42)))))
+      .thenReturn(Iterator(node, node2))
+    val queryState = QueryStateHelper.emptyWith(query = query, params = Map("upper" -> 42))
+
+    // when
+    val pipe = NodeIndexRangeSeekPipe("n", label, propertyKey,
+      InequalitySeekRange(Some(ExclusiveBound(Literal(10))), Some(InclusiveBound(ParameterExpression("upper")))))()
+    val result = pipe.createResults(queryState)
+
+    // then
+    result.map(_("n")).toList should equal(List(node, node2))
+  }
+
+  test("should return nodes found by an open ended index range seek") {
+    // given
+    val query = mock[QueryContext]
+    when(query.indexSeekByRange(descriptor, InequalitySeekRange(None, Some(ExclusiveBound("m")))))
+      .thenReturn(Iterator(node))
+    val queryState = QueryStateHelper.emptyWith(query = query)
+
+    // when
+    val pipe = NodeIndexRangeSeekPipe("n", label, propertyKey, InequalitySeekRange(None, Some(ExclusiveBound(Literal("m")))))()
+    val result = pipe.createResults(queryState)
+
+    // then
+    result.map(_("n")).toList should equal(List(node))
+  }
+
+  test("should return nodes found by an index prefix seek") {
+    // given
+    val query = mock[QueryContext]
+    when(query.indexSeekByRange(descriptor, PrefixSeekRange("Andr"))).thenReturn(Iterator(node))
+    val queryState = QueryStateHelper.emptyWith(query = query)
+
+    // when
+    val pipe = NodeIndexRangeSeekPipe("n", label, propertyKey, PrefixSeekRange(Literal("Andr")))()
+    val result = pipe.createResults(queryState)
+
+    // then
+    result.map(_("n")).toList should equal(List(node))
+  }
+}
@@ -20,7 +20,10 @@
 package org.neo4j.cypher.internal.compiler.v2_2.planner.logical
 
 import org.neo4j.cypher.internal.commons.CypherFunSuite
-import org.neo4j.cypher.internal.compiler.v2_2.ast.{HasLabels, Identifier, LabelName}
+import org.neo4j.cypher.internal.compiler.v2_2.{LabelId, PropertyKeyId}
+import org.neo4j.cypher.internal.compiler.v2_2.ast.{GreaterThan, HasLabels, Identifier, LabelName, LabelToken, Property, PropertyKeyName, PropertyKeyToken, SignedDecimalIntegerLiteral}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{ExclusiveBound, InequalitySeekRange}
+import org.neo4j.cypher.internal.compiler.v2_2.pipes.LazyLabel
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.Metrics.{QueryGraphCardinalityInput, CardinalityModel}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.{LogicalPlanningTestSupport, PlannerQuery}
@@ -50,4 +53,17 @@ class CardinalityCostModelTest extends CypherFunSuite with LogicalPlanningTestSu
 
     costModel(plan, QueryGraphCardinalityInput.empty) should equal(Cost(221))
   }
+
+  test("index range seek should be cheaper than a label scan filtered on the same range") {
+    val propertyPredicate = GreaterThan(Property(Identifier("n")_, PropertyKeyName("prop")_)_, SignedDecimalIntegerLiteral("42")_)_
+    val rangeSeek = NodeIndexRangeSeek("n", LabelToken("Awesome", LabelId(0)), PropertyKeyToken("prop", PropertyKeyId(0)),
+      InequalitySeekRange(Some(ExclusiveBound(SignedDecimalIntegerLiteral("42")_)), None), Set.empty)(PlannerQuery.empty)
+    val scanAndFilter =
+      Selection(List(propertyPredicate),
+        NodeByLabelScan("n", LazyLabel("Awesome"), Set.empty)(PlannerQuery.empty)
+      )(PlannerQuery.empty)
+
+    costModel(rangeSeek, QueryGraphCardinalityInput.empty) should equal(Cost(10))
+    costModel(scanAndFilter, QueryGraphCardinalityInput.empty) should equal(Cost(20))
+  }
 }
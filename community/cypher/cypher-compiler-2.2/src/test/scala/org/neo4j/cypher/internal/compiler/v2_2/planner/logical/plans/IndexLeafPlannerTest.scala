@@ -21,11 +21,11 @@ package org.neo4j.cypher.internal.compiler.v2_2.planner.logical.plans
 
 import org.neo4j.cypher.internal.commons.CypherFunSuite
 import org.neo4j.cypher.internal.compiler.v2_2.ast._
-import org.neo4j.cypher.internal.compiler.v2_2.commands.ManyQueryExpression
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{ExclusiveBound, InclusiveBound, InequalitySeekRange, ManyQueryExpression, PrefixSeekRange}
 import org.neo4j.cypher.internal.compiler.v2_2.planner.BeLikeMatcher._
 import org.neo4j.cypher.internal.compiler.v2_2.planner._
 import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.LogicalPlanningContext
-import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps.{indexSeekLeafPlanner, uniqueIndexSeekLeafPlanner}
+import org.neo4j.cypher.internal.compiler.v2_2.planner.logical.steps.{indexRangeSeekLeafPlanner, indexSeekLeafPlanner, uniqueIndexSeekLeafPlanner}
 
 class IndexLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSupport2 {
 
@@ -166,6 +166,76 @@ class IndexLeafPlannerTest extends CypherFunSuite with LogicalPlanningTestSuppor
     }
   }
 
+  test("index range seek when there is an index on the property for inequalities") {
+    new given {
+      qg = queryGraph(GreaterThan(property, lit6)_, LessThanOrEqual(property, lit42)_, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexRangeSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(NodeIndexRangeSeek(`idName`, _, _, InequalitySeekRange(Some(ExclusiveBound(`lit6`)), Some(InclusiveBound(`lit42`))), _)) => ()
+        }
+      }
+    }
+  }
+
+  test("index range seek reads inequalities with the property on the right hand side") {
+    new given {
+      qg = queryGraph(GreaterThan(lit42, property)_, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexRangeSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(NodeIndexRangeSeek(`idName`, _, _, InequalitySeekRange(None, Some(ExclusiveBound(`lit42`))), _)) => ()
+        }
+      }
+    }
+  }
+
+  test("does not plan index range seek when no index exist") {
+    new given {
+      qg = queryGraph(GreaterThan(property, lit6)_, hasLabels)
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexRangeSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans shouldBe empty
+      }
+    }
+  }
+
+  test("index prefix seek keeps the regular expression as a selection") {
+    val regex = RegexMatch(property, StringLiteral("Andr.*")_)_
+
+    new given {
+      qg = queryGraph(regex, hasLabels)
+
+      indexOn("Awesome", "prop")
+
+      withLogicalPlanningContext { (ctx) =>
+        // when
+        val resultPlans = indexRangeSeekLeafPlanner(qg)(ctx)
+
+        // then
+        resultPlans should beLike {
+          case Seq(Selection(Seq(`regex`), NodeIndexRangeSeek(`idName`, _, _, PrefixSeekRange(StringLiteral("Andr")), _))) => ()
+        }
+      }
+    }
+  }
+
   private def queryGraph(predicates: Expression*) =
     QueryGraph(
       selections = Selections(predicates.map(Predicate(Set(idName), _)).toSet),
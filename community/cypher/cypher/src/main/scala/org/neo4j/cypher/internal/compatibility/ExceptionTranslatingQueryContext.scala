@@ -20,6 +20,7 @@
 package org.neo4j.cypher.internal.compatibility
 
 import org.neo4j.cypher.CypherExecutionException
+import org.neo4j.cypher.internal.compiler.v2_2.commands.SeekRange
 import org.neo4j.cypher.internal.compiler.v2_2.spi
 import org.neo4j.cypher.internal.compiler.v2_2.spi._
 import org.neo4j.graphdb.{Direction, Node, PropertyContainer, Relationship}
@@ -86,6 +87,9 @@ class ExceptionTranslatingQueryContext(inner: QueryContext) extends DelegatingQu
   override def exactIndexSearch(index: IndexDescriptor, value: Any): Iterator[Node] =
     translateException(super.exactIndexSearch(index, value))
 
+  override def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] =
+    translateException(super.indexSeekByRange(index, range))
+
   override def getNodesByLabel(id: Int): Iterator[Node] =
     translateException(super.getNodesByLabel(id))
 
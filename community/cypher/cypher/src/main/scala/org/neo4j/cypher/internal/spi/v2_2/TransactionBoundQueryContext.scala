@@ -20,7 +20,8 @@
 package org.neo4j.cypher.internal.spi.v2_2
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator
-import org.neo4j.cypher.internal.compiler.v2_2.{EntityNotFoundException, FailedIndexException}
+import org.neo4j.cypher.internal.compiler.v2_2.commands.{InequalitySeekRange, PrefixSeekRange, SeekRange}
+import org.neo4j.cypher.internal.compiler.v2_2.{EntityNotFoundException, FailedIndexException, IncomparableValuesException}
 import org.neo4j.cypher.internal.compiler.v2_2.spi._
 import org.neo4j.cypher.internal.helpers.JavaConversionSupport
 import org.neo4j.cypher.internal.helpers.JavaConversionSupport._
@@ -117,6 +118,32 @@ final class TransactionBoundQueryContext(graph: GraphDatabaseAPI,
   def exactIndexSearch(index: IndexDescriptor, value: Any) =
     mapToScala(statement.readOperations().nodesGetFromIndexLookup(index, value))(nodeOps.getById)
 
+  def indexSeekByRange(index: IndexDescriptor, range: SeekRange[Any]): Iterator[Node] = range match {
+    case PrefixSeekRange(prefix: String) =>
+      mapToScala(statement.readOperations().nodesGetFromIndexRangeSeekByPrefix(index, prefix))(nodeOps.getById)
+
+    case InequalitySeekRange(lower, upper) if (lower ++ upper).forall(_.endPoint.isInstanceOf[Number]) =>
+      mapToScala(statement.readOperations().nodesGetFromIndexRangeSeekByNumber(index,
+        lower.map(_.endPoint.asInstanceOf[Number]).orNull, lower.exists(_.inclusive),
+        upper.map(_.endPoint.asInstanceOf[Number]).orNull, upper.exists(_.inclusive)))(nodeOps.getById)
+
+    case InequalitySeekRange(lower, upper) if (lower ++ upper).forall(_.endPoint.isInstanceOf[String]) =>
+      mapToScala(statement.readOperations().nodesGetFromIndexRangeSeekByString(index,
+        lower.map(_.endPoint.asInstanceOf[String]).orNull, lower.exists(_.inclusive),
+        upper.map(_.endPoint.asInstanceOf[String]).orNull, upper.exists(_.inclusive)))(nodeOps.getById)
+
+    // a null bound never compares true, so nothing can be found
+    case InequalitySeekRange(lower, upper) if (lower ++ upper).exists(_.endPoint == null) =>
+      Iterator.empty
+
+    // bounds of mixed or unindexed types fail the same way as comparing them would
+    case InequalitySeekRange(lower, upper) =>
+      val endPoints = (lower ++ upper).map(_.endPoint).toSeq
+      throw new IncomparableValuesException(textWithType(endPoints.head), textWithType(endPoints.last))
+  }
+
+  private def textWithType(x: Any) = s"$x (${x.getClass.getSimpleName})"
+
   def exactUniqueIndexSearch(index: IndexDescriptor, value: Any): Option[Node] = {
     val nodeId: Long = statement.readOperations().nodeGetUniqueFromIndexLookup(index, value)
     if (StatementConstants.NO_SUCH_NODE == nodeId) None else Some(nodeOps.getById(nodeId))
@@ -102,4 +102,34 @@ class IndexUsageAcceptanceTest extends ExecutionEngineFunSuite with NewPlannerTe
     }
     found shouldBe true
   }
+
+  test("should use index range seek for inequality predicates") {
+    // Given
+    graph.inTx {
+      (1 to 100).foreach { i =>
+        createLabeledNode(Map("prop" -> i), "L")
+      }
+    }
+    graph.createIndex("L", "prop")
+
+    // When
+    val result = executeWithNewPlanner("MATCH (n:L) WHERE n.prop > 90 RETURN n.prop AS prop")
+
+    // Then
+    result.columnAs[Int]("prop").toSet should equal((91 to 100).toSet)
+    result.executionPlanDescription().toString should include("NodeIndexRangeSeek")
+  }
+
+  test("should fail index range seek with bounds that can not be compared") {
+    // Given
+    graph.inTx {
+      (1 to 100).foreach { i =>
+        createLabeledNode(Map("prop" -> i), "L")
+      }
+    }
+    graph.createIndex("L", "prop")
+
+    // When, Then the same error as comparing the values with a filter
+    intercept[IncomparableValuesException](executeWithNewPlanner("MATCH (n:L) WHERE n.prop > 90 AND n.prop < 'x' RETURN n"))
+  }
 }
@@ -31,11 +31,13 @@ import org.neo4j.function.Function;
 import org.neo4j.function.Functions;
 import org.neo4j.helpers.Args;
 import org.neo4j.helpers.Args.Option;
+import org.neo4j.helpers.Service;
 import org.neo4j.helpers.collection.IterableWrapper;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.io.fs.DefaultFileSystemAbstraction;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.impl.storemigration.FileOperation;
 import org.neo4j.kernel.impl.storemigration.StoreFile;
 import org.neo4j.kernel.impl.storemigration.StoreFileType;
@@ -45,6 +47,7 @@ import org.neo4j.kernel.lifecycle.LifeSupport;
 import org.neo4j.kernel.logging.ClassicLoggingService;
 import org.neo4j.kernel.logging.Logging;
 import org.neo4j.unsafe.impl.batchimport.BatchImporter;
+import org.neo4j.unsafe.impl.batchimport.ImportCheckpoints;
 import org.neo4j.unsafe.impl.batchimport.ParallelBatchImporter;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
@@ -71,6 +74,15 @@ import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.defaultF
  */
 public class ImportTool
 {
+    private static final Function<String,String[]> TO_SCHEMA = new Function<String,String[]>()
+    {
+        @Override
+        public String[] apply( String from )
+        {
+            return from.split( ":", 2 );
+        }
+    };
+
     private static final Function<String,IdType> TO_ID_TYPE = new Function<String,IdType>()
     {
         @Override
@@ -82,7 +94,8 @@ public class ImportTool
 
     enum Options
     {
-        STORE_DIR( "into", "<store-dir>", "Database directory to import into. " + "Must not contain existing database." ),
+        STORE_DIR( "into", "<store-dir>", "Database directory to import into. " + "Must not contain existing database, "
+                + "unless resuming an import." ),
         NODE_DATA(
                 "nodes",
                 "\"<file1>" + MULTI_FILE_DELIMITER + "<file2>" + MULTI_FILE_DELIMITER + "...\"",
@@ -117,6 +130,13 @@ public class ImportTool
                         + IdType.STRING + ": arbitrary strings for identifying nodes.\n"
                         + IdType.INTEGER + ": arbitrary integer values for identifying nodes.\n"
                         + IdType.ACTUAL + ": (advanced) actual node ids." ),
+        INDEX( "index", "<label>:<property-key>",
+                "Index to build for nodes with the given label and property key, as part of the import. "
+                        + "Multiple indexes can be specified in one import." ),
+        UNIQUE( "unique", "<label>:<property-key>",
+                "Uniqueness constraint to create for nodes with the given label and property key, "
+                        + "with its index built as part of the import. The import fails if nodes violates it. "
+                        + "Multiple constraints can be specified in one import." ),
         PROCESSORS( "processors", "<max processor count>",
                 "(advanced) Max number of processors used by the importer. Defaults to the number of "
                         + "available processors reported by the JVM"
@@ -124,7 +144,13 @@ public class ImportTool
                         + ". There is a certain amount of minimum threads needed so for that reason there "
                         + "is no lower bound for this value. For optimal performance this value shouldn't be "
                         + "greater than the number of available processors." ),
-        STACKTRACE( "stacktrace", "", "Enable printing of error stack traces." );
+        SPILL_DIR( "spill-directory", "<directory>",
+                "(advanced) Directory to place temporary data in when it doesn't fit in memory during the import. "
+                        + "Defaults to <store-dir>. Preferably on a fast drive with plenty of space." ),
+        STACKTRACE( "stacktrace", "", "Enable printing of error stack traces." ),
+        RESUME( "resume", "",
+                "Resume an import into <store-dir> which didn't complete, continuing after the last "
+                        + "import phase it completed. The same input as for the aborted import must be given." );
 
         private final String key;
         private final String usage;
@@ -169,6 +195,12 @@ public class ImportTool
      */
     static final String MULTI_FILE_DELIMITER = " ";
 
+    /**
+     * Upper bound of the number of threads parsing each input group, since the processors are shared with
+     * the stages of the importer consuming the parsed input.
+     */
+    static final int MAX_PARSING_THREADS = 4;
+
     public static void main( String[] incomingArguments )
     {
         Args args = Args.parse( incomingArguments );
@@ -182,12 +214,18 @@ public class ImportTool
         File storeDir;
         // The input groups
         Collection<Option<File[]>> nodesFiles, relationshipsFiles;
+        Collection<String[]> indexes, uniquenessConstraints;
         boolean enableStacktrace;
+        boolean resume;
         Number processors = null;
+        File spillDirectory = null;
         Input input = null;
         try
         {
-            storeDir =
+            resume = args.getBoolean( Options.RESUME.key(), Boolean.FALSE, Boolean.TRUE );
+            storeDir = resume ?
+                    args.interpretOption( Options.STORE_DIR.key(), Converters.<File> mandatory(), Converters.toFile(),
+                            Validators.DIRECTORY_IS_WRITABLE ) :
                     args.interpretOption( Options.STORE_DIR.key(), Converters.<File> mandatory(), Converters.toFile(),
                             Validators.DIRECTORY_IS_WRITABLE, Validators.CONTAINS_NO_EXISTING_DATABASE );
             nodesFiles =
@@ -198,15 +236,22 @@ public class ImportTool
                     args.interpretOptionsWithMetadata( Options.RELATIONSHIP_DATA.key(),
                             Converters.<File[]> optional(), Converters.toFiles( MULTI_FILE_DELIMITER ),
                             Validators.FILES_EXISTS, Validators.<File> atLeast( 1 ) );
+            indexes = args.interpretOptions( Options.INDEX.key(), Converters.<String[]> optional(), TO_SCHEMA,
+                    Validators.<String> atLeast( 2 ) );
+            uniquenessConstraints = args.interpretOptions( Options.UNIQUE.key(), Converters.<String[]> optional(),
+                    TO_SCHEMA, Validators.<String> atLeast( 2 ) );
             enableStacktrace = args.getBoolean( Options.STACKTRACE.key(), Boolean.FALSE, Boolean.TRUE );
             processors = args.getNumber( Options.PROCESSORS.key(), null );
+            spillDirectory = args.interpretOption( Options.SPILL_DIR.key(), Converters.<File> optional(),
+                    Converters.toFile() );
             input = new CsvInput(
                     nodeData( nodesFiles ),
                     defaultFormatNodeFileHeader(),
                     relationshipData( relationshipsFiles ),
                     defaultFormatRelationshipFileHeader(),
                     args.interpretOption( Options.ID_TYPE.key(), withDefault( IdType.STRING ), TO_ID_TYPE ),
-                    csvConfiguration( args ) );
+                    csvConfiguration( args ),
+                    parsingThreads( processors ) );
         }
         catch ( IllegalArgumentException e )
         {
@@ -217,14 +262,30 @@ public class ImportTool
         Logging logging = life.add( new ClassicLoggingService(
                 new Config( stringMap( store_dir.name(), storeDir.getAbsolutePath() ) ) ) );
         life.start();
-        BatchImporter importer = new ParallelBatchImporter( storeDir.getPath(),
-                importConfiguration( processors ),
+        ParallelBatchImporter importer = new ParallelBatchImporter( storeDir.getPath(),
+                importConfiguration( processors, spillDirectory ),
                 logging,
-                ExecutionMonitors.defaultVisible() );
+                ExecutionMonitors.defaultVisible(),
+                (Iterable) Service.load( KernelExtensionFactory.class ) );
+        for ( String[] index : indexes )
+        {
+            importer.createIndex( index[0], index[1] );
+        }
+        for ( String[] constraint : uniquenessConstraints )
+        {
+            importer.createUniquenessConstraint( constraint[0], constraint[1] );
+        }
         boolean success = false;
         try
         {
-            importer.doImport( input );
+            if ( resume )
+            {
+                importer.resumeImport( input );
+            }
+            else
+            {
+                importer.doImport( input );
+            }
             success = true;
         }
         catch ( Exception e )
@@ -234,13 +295,20 @@ public class ImportTool
         finally
         {
             life.shutdown();
-            if ( !success )
+            if ( !success && canBeResumed( fs, storeDir ) )
+            {
+                System.err.println( "Import can be resumed from where it left off using --" +
+                        Options.RESUME.key() );
+            }
+            else if ( !success )
             {
                 try
                 {
                     StoreFile.fileOperation( FileOperation.DELETE, fs, storeDir, null,
                             Iterables.<StoreFile,StoreFile>iterable( StoreFile.values() ),
                             false, false, StoreFileType.values() );
+                    // Indexes and label scan store built during the import
+                    fs.deleteRecursively( new File( storeDir, "schema" ) );
                 }
                 catch ( IOException e )
                 {
@@ -254,7 +322,23 @@ public class ImportTool
         }
     }
 
-    private static org.neo4j.unsafe.impl.batchimport.Configuration importConfiguration( final Number processors )
+    /**
+     * Store files of an aborted import are kept if at least one import phase completed and was checkpointed,
+     * so that the import can be resumed from there instead of being started all over.
+     */
+    private static boolean canBeResumed( FileSystemAbstraction fs, File storeDir )
+    {
+        return new ImportCheckpoints( fs, storeDir ).lastCompleted() != null;
+    }
+
+    static int parsingThreads( Number processors )
+    {
+        int max = processors != null ? processors.intValue() : Runtime.getRuntime().availableProcessors();
+        return Math.max( 1, Math.min( max, MAX_PARSING_THREADS ) );
+    }
+
+    private static org.neo4j.unsafe.impl.batchimport.Configuration importConfiguration( final Number processors,
+            final File spillDirectory )
     {
         return new org.neo4j.unsafe.impl.batchimport.Configuration.Default()
         {
@@ -263,6 +347,12 @@ public class ImportTool
             {
                 return processors != null ? processors.intValue() : super.maxNumberOfProcessors();
             }
+
+            @Override
+            public File spillDirectory()
+            {
+                return spillDirectory;
+            }
         };
     }
 
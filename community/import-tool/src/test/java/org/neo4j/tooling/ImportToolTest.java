@@ -179,6 +179,16 @@ public class ImportToolTest
                 } );
     }
 
+    @Test
+    public void shouldBoundNumberOfParsingThreads() throws Exception
+    {
+        // WHEN/THEN
+        assertEquals( 2, ImportTool.parsingThreads( 2 ) );
+        assertEquals( ImportTool.MAX_PARSING_THREADS, ImportTool.parsingThreads( 64 ) );
+        assertEquals( 1, ImportTool.parsingThreads( 0 ) );
+        assertTrue( ImportTool.parsingThreads( null ) <= ImportTool.MAX_PARSING_THREADS );
+    }
+
     @Test
     public void shouldImportOnlyNodes() throws Exception
     {
@@ -20,6 +20,7 @@
 package org.neo4j.io.pagecache;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.neo4j.io.fs.StoreChannel;
 
@@ -152,6 +153,17 @@ public interface Page
      */
     void swapOut( StoreChannel channel, long offset, int length ) throws IOException;
 
+    /**
+     * Get a ByteBuffer view of the first {@code length} bytes of the contents of this page, with its position
+     * at zero and its limit at the given length.
+     *
+     * This is used for vectored IO, where the contents of many pages are swapped out in a single gathering
+     * write. The returned buffer must only be used while the page is locked, and must not be retained.
+     *
+     * May throw an AssertionError or a RuntimeException if the length is greater than the cache-page size.
+     */
+    ByteBuffer bufferProxy( int length );
+
     /**
      * Get the internal id of this cache page object.
      */
@@ -63,6 +63,23 @@ public interface PageSwapper
      */
     int write( long filePageId, Page page ) throws IOException;
 
+    /**
+     * Write the contents of the given run of pages, to the concrete file on
+     * the file system, at the consecutive file pages that begin at the given
+     * startFilePageId.
+     *
+     * The page at {@code pages[arrayOffset]} is written to startFilePageId,
+     * the page after it to startFilePageId + 1, and so on, for {@code length}
+     * pages. Implementations should write the whole run with as few system
+     * calls as possible, for instance with a gathering write.
+     *
+     * Returns the number of bytes written to the file.
+     *
+     * The same note on asynchronously closed channels as for
+     * {@link #write(long, Page)} applies.
+     */
+    long write( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException;
+
     /**
      * Notification that a page has been evicted, used to clean up state in structures
      * outside the page table.
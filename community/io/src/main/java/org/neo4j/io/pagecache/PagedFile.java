@@ -53,13 +53,27 @@ public interface PagedFile extends AutoCloseable
     public static final int PF_NO_GROW = 1 << 2;
     /**
      * Read-ahead hint for sequential forward scanning.
+     *
+     * The page cache may use this to fault in the pages following the one the
+     * cursor is currently on, in the background, such that they are already
+     * in memory by the time the cursor gets to them.
      */
-    public static final int PF_READ_AHEAD = 1 << 3; // TBD
+    public static final int PF_READ_AHEAD = 1 << 3;
     /**
-     * Do not load in the page if it is not loaded already. Only useful with
-     * exclusive locking when you want to overwrite the whole page anyway.
+     * Do not load in the page if it is not loaded already. If the page is not
+     * in memory, or cannot be pinned without waiting for a concurrent page
+     * fault or lock holder, then {@link PageCursor#next()} returns false and
+     * the cursor is left unpinned. The cursor does not advance in that case,
+     * so calling {@link PageCursor#next(long)} with a different page id is the
+     * way to move on. Useful for opportunistic, cache-only access to pages.
+     * <p>
+     * Likewise, if the page is evicted while being read, then
+     * {@link PageCursor#shouldRetry()} returns true and leaves the cursor
+     * unpinned, with {@link PageCursor#getCurrentPageId()} returning
+     * {@link PageCursor#UNBOUND_PAGE_ID}, rather than faulting the page back in.
+     * Callers must check for this before reading the page again.
      */
-    public static final int PF_NO_FAULT = 1 << 4; // TBD
+    public static final int PF_NO_FAULT = 1 << 4;
     /**
      * Do not update page access statistics.
      */
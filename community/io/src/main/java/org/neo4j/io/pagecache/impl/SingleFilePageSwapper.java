@@ -21,6 +21,7 @@ package org.neo4j.io.pagecache.impl;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
@@ -52,6 +53,10 @@ public class SingleFilePageSwapper implements PageSwapper
     // Guarded by synchronized(this). See tryReopen() and close().
     private boolean closed;
 
+    // Gathering writes go through the position of the channel, so they must
+    // not race with each other. Positional reads and writes are unaffected.
+    private final Object gatheringWriteLock = new Object();
+
     // Accessed through unsafe
     private volatile long fileSize;
 
@@ -141,6 +146,58 @@ public class SingleFilePageSwapper implements PageSwapper
         }
     }
 
+    @Override
+    public long write( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        if ( length == 1 )
+        {
+            return write( startFilePageId, pages[arrayOffset] );
+        }
+
+        long offset = pageIdToPosition( startFilePageId );
+        long bytesToWrite = ((long) filePageSize) * length;
+        increaseFileSizeTo( offset + bytesToWrite );
+        ByteBuffer[] srcs = new ByteBuffer[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            srcs[i] = pages[arrayOffset + i].bufferProxy( filePageSize );
+        }
+        try
+        {
+            writeAll( srcs, offset, bytesToWrite );
+            return bytesToWrite;
+        }
+        catch ( ClosedChannelException e )
+        {
+            // AsynchronousCloseException is a subclass of
+            // ClosedChannelException, and ClosedByInterruptException is in
+            // turn a subclass of AsynchronousCloseException.
+            tryReopen( e );
+            boolean interrupted = Thread.interrupted();
+            // Recurse because this is hopefully a very rare occurrence.
+            long bytesWritten = write( startFilePageId, pages, arrayOffset, length );
+            if ( interrupted )
+            {
+                Thread.currentThread().interrupt();
+            }
+            return bytesWritten;
+        }
+    }
+
+    private void writeAll( ByteBuffer[] srcs, long offset, long bytesToWrite ) throws IOException
+    {
+        synchronized ( gatheringWriteLock )
+        {
+            StoreChannel channel = this.channel;
+            channel.position( offset );
+            long bytesWritten = 0;
+            while ( bytesWritten < bytesToWrite )
+            {
+                bytesWritten += channel.write( srcs );
+            }
+        }
+    }
+
     @Override
     public void evicted( long filePageId, Page page )
     {
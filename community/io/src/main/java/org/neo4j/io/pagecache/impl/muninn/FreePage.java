@@ -20,7 +20,7 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 /**
- * A free page in the MuninnPageCache.freelist.
+ * A free page in the PagePartition.freelist.
  *
  * The next pointers are always other FreePage instances.
  */
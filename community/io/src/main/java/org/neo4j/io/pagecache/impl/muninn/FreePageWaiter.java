@@ -31,7 +31,7 @@ import java.util.concurrent.locks.LockSupport;
  * Calling unpark a lot can be expensive and slow other threads down.
  * Especially on Windows. That's why we will eventually fall back on blocking
  * if we find that we spin too much. This class implements that blocking
- * support, and is used in MuninnPageCache.unparkEvictor on behalf of the page
+ * support, and is used in PagePartition.grabFreePage on behalf of the page
  * faulting threads.
  */
 final class FreePageWaiter
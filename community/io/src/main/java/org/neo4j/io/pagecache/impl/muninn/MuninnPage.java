@@ -90,7 +90,7 @@ final class MuninnPage extends StampedLock implements Page
         return 1 << (cachePageHeader & 0x7F);
     }
 
-    private boolean isDirty()
+    boolean isDirty()
     {
         return (cachePageHeader & ~0x7F) != 0;
     }
@@ -100,7 +100,7 @@ final class MuninnPage extends StampedLock implements Page
         cachePageHeader |= ~0x7F;
     }
 
-    private void markAsClean()
+    void markAsClean()
     {
         cachePageHeader &= 0x7F;
     }
@@ -366,6 +366,28 @@ final class MuninnPage extends StampedLock implements Page
         }
     }
 
+    /**
+     * NOTE: This method must be called while holding at least the page read lock.
+     * This method assumes that initBuffer() has already been called at least once.
+     */
+    @Override
+    public ByteBuffer bufferProxy( int length )
+    {
+        assert isReadLocked() || isWriteLocked() : "bufferProxy requires lock";
+        checkBounds( length );
+        try
+        {
+            ByteBuffer bufferProxy = UnsafeUtil.newDirectByteBuffer( pointer, getCachePageSize() );
+            bufferProxy.clear();
+            bufferProxy.limit( length );
+            return bufferProxy;
+        }
+        catch ( Exception e )
+        {
+            throw new IllegalStateException( "Could not create a buffer proxy for " + this, e );
+        }
+    }
+
     /**
      * NOTE: This method must be called while holding a pessimistic lock on the page.
      */
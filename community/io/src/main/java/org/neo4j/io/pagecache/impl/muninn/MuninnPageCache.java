@@ -21,15 +21,15 @@ package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.LockSupport;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.neo4j.io.fs.FileSystemAbstraction;
-import org.neo4j.io.fs.FileUtils;
 import org.neo4j.io.pagecache.monitoring.EvictionEvent;
 import org.neo4j.io.pagecache.monitoring.EvictionRunEvent;
 import org.neo4j.io.pagecache.monitoring.MajorFlushEvent;
 import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
+import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.RunnablePageCache;
@@ -87,69 +87,56 @@ import org.neo4j.io.pagecache.monitoring.PageFaultEvent;
  */
 public class MuninnPageCache implements RunnablePageCache
 {
-    // The number of times we will spin, during page faulting, on checking the
-    // freelist and LockSupport.unpark'ing the eviction thread, before blocking
-    // and waiting for the eviction thread to do something.
-    private static final int pageFaultSpinCount = Integer.getInteger(
-            "org.neo4j.io.pagecache.impl.muninn.pageFaultSpinCount",
-            FileUtils.OS_IS_WINDOWS? 10 : 1000 );
-
-    // Keep this many pages free and ready for use in faulting.
+    // Keep this many pages free and ready for use in faulting, in every
+    // eviction partition.
     // This will be truncated to be no more than half of the number of pages
-    // in the cache.
+    // in the partition.
     private static final int pagesToKeepFree = Integer.getInteger(
             "org.neo4j.io.pagecache.impl.muninn.pagesToKeepFree", 30 );
 
+    // The number of pages that cursors with the PF_READ_AHEAD flag will ask
+    // to have faulted in ahead of their current position.
+    // This will be truncated to be no more than a quarter of the number of
+    // pages in the cache. Setting it to 0 disables read-ahead.
+    private static final int readAheadPageCount = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.readAheadPageCount", 32 );
+
     // This is a pre-allocated constant, so we can throw it without allocating any objects:
     private static final IOException oomException = new IOException(
             "OutOfMemoryError encountered in the page cache background eviction thread" );
 
-    // The field offset to unsafely access the freelist field.
-    private static final long freelistOffset =
-            UnsafeUtil.getFieldOffset( MuninnPageCache.class, "freelist" );
+    // The number of partitions the pages are divided into. Every partition
+    // has its own freelist and clock arm, and is swept by its own eviction
+    // thread. This will be truncated such that every partition has at least
+    // minPagesPerEvictionPartition pages.
+    private static final int evictionPartitionCount = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.evictionPartitions",
+            Math.max( 1, Runtime.getRuntime().availableProcessors() / 8 ) );
 
-    // This is used as a poison-pill signal in the freelist, to inform any
-    // page faulting thread that it is now no longer possible to queue up and
-    // wait for more pages to be evicted, because the page cache has been shut
-    // down.
-    private static final FreePageWaiter shutdownSignal = new FreePageWaiter();
+    private static final int minPagesPerEvictionPartition = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.minPagesPerEvictionPartition", 4096 );
 
     private final PageSwapperFactory swapperFactory;
     private final int cachePageSize;
-    private final int keepFree;
+    private final int readAheadPages;
     private final MuninnCursorPool cursorPool;
     private final PageCacheMonitor monitor;
     final MuninnPage[] pages;
-
-    // The freelist takes a bit of explanation. It is a thread-safe linked-list
-    // of 3 types of objects. A link can either be a MuninnPage, a FreePage or
-    // a FreePageWaiter.
-    // Initially, most of the links are MuninnPages that are ready for the
-    // taking. Then towards the end, we have the last bunch of pages linked
-    // through FreePage objects. We make this transition because, once a
-    // MuninnPage has been removed from the list, it cannot be added back. The
-    // reason is that the MuninnPages are reused, and adding them back into the
-    // freelist would expose us to the ABA-problem, which can cause cycles to
-    // form. The FreePage and FreePageWaiter objects, however, are single-use
-    // such that they don't exhibit the ABA-problem. In other words, eviction
-    // will never add MuninnPages to the freelist; it will only add free pages
-    // through a new FreePage object, or with direct transfer through a
-    // FreePageWaiter. FreePageWaiters are added to the list by threads that
-    // want a free page, but have discovered that the freelist is either empty,
-    // or has another FreePageWaiter at the head.
-    // This contraption basically gives us a "transfer stack" with some space
-    // optimisations for the initial bulk of contents.
-    // This field is accessed via Unsafe.
-    private volatile Object freelist;
+    private final PagePartition[] partitions;
 
     // Linked list of mappings - guarded by synchronized(this)
     private volatile FileMapping mappedFiles;
 
-    // The thread that runs the eviction algorithm. We unpark this when we've run out of
-    // free pages to grab.
-    private volatile Thread evictorThread;
+    // The threads that run the eviction algorithm for all partitions but the
+    // first, which is swept by the thread that calls run().
+    private Thread[] evictorThreads;
     private volatile IOException evictorException;
 
+    // Faults in pages on behalf of cursors that use PF_READ_AHEAD. The thread
+    // that runs it is started the first time read-ahead is requested.
+    private final ReadAheadWorker readAheadWorker;
+    private volatile Thread readAheadThread; // writes guarded by synchronized(this)
+
     // Flag for when page cache is closed - writes guarded by synchronized(this), reads can be unsynchronized
     private volatile boolean closed;
 
@@ -167,45 +154,43 @@ public class MuninnPageCache implements RunnablePageCache
             int maxPages,
             int cachePageSize,
             PageCacheMonitor monitor )
+    {
+        this( swapperFactory, maxPages, cachePageSize, monitor,
+                Math.min( evictionPartitionCount, maxPages / minPagesPerEvictionPartition ) );
+    }
+
+    MuninnPageCache(
+            PageSwapperFactory swapperFactory,
+            int maxPages,
+            int cachePageSize,
+            PageCacheMonitor monitor,
+            int partitionCount )
     {
         verifyHacks();
         verifyCachePageSizeIsPowerOfTwo( cachePageSize );
 
         this.swapperFactory = swapperFactory;
         this.cachePageSize = cachePageSize;
-        this.keepFree = Math.min( pagesToKeepFree, maxPages / 2 );
+        this.readAheadPages = Math.min( readAheadPageCount, maxPages / 4 );
+        this.readAheadWorker = new ReadAheadWorker();
         this.cursorPool = new MuninnCursorPool();
         this.monitor = monitor;
         this.pages = new MuninnPage[maxPages];
 
         MemoryReleaser memoryReleaser = new MemoryReleaser( maxPages );
-        Object pageList = null;
-        int pageIndex = maxPages;
-        while ( pageIndex --> 0 )
+        for ( int pageIndex = 0; pageIndex < maxPages; pageIndex++ )
         {
-            MuninnPage page = new MuninnPage( cachePageSize, memoryReleaser );
-            pages[pageIndex] = page;
+            pages[pageIndex] = new MuninnPage( cachePageSize, memoryReleaser );
+        }
 
-            if ( pageList == null )
-            {
-                FreePage freePage = new FreePage( page );
-                freePage.setNext( null );
-                pageList = freePage;
-            }
-            else if ( pageList instanceof FreePage
-                    && ((FreePage) pageList).count < keepFree )
-            {
-                FreePage freePage = new FreePage( page );
-                freePage.setNext( (FreePage) pageList );
-                pageList = freePage;
-            }
-            else
-            {
-                page.nextFree = pageList;
-                pageList = page;
-            }
+        partitionCount = Math.max( 1, Math.min( partitionCount, maxPages ) );
+        this.partitions = new PagePartition[partitionCount];
+        for ( int i = 0; i < partitionCount; i++ )
+        {
+            int startIndex = (int) ((long) maxPages * i / partitionCount);
+            int endIndex = (int) ((long) maxPages * (i + 1) / partitionCount);
+            partitions[i] = new PagePartition( this, monitor, pages, startIndex, endIndex, pagesToKeepFree );
         }
-        UnsafeUtil.putObjectVolatile( this, freelistOffset, pageList );
     }
 
     private static void verifyHacks()
@@ -350,22 +335,56 @@ public class MuninnPageCache implements RunnablePageCache
     {
         try ( MajorFlushEvent cacheFlush = monitor.beginCacheFlush() )
         {
-            for ( int i = 0; i < pages.length; i++ )
+            // All bound pages belong to mapped files, since files are flushed
+            // when they are unmapped. Flushing file by file lets us write runs
+            // of adjacent dirty pages with vectored writes.
+            FileMapping fileMapping = mappedFiles;
+            while ( fileMapping != null )
             {
-                MuninnPage page = pages[i];
-                long stamp = page.readLock();
-                try
-                {
-                    page.flush( cacheFlush.flushEventOpportunity() );
-                }
-                finally
-                {
-                    page.unlockRead( stamp );
-                }
+                fileMapping.pagedFile.flushPages( cacheFlush.flushEventOpportunity() );
+                fileMapping = fileMapping.next;
             }
         }
     }
 
+    /**
+     * Receives the pages that are in memory, file by file, from
+     * {@link #visitResidentPages(ResidentPageVisitor)}.
+     */
+    public interface ResidentPageVisitor
+    {
+        /**
+         * @param file The mapped file.
+         * @param filePageSize The page size the file has been mapped with.
+         * @param filePageIds The sorted ids of the file pages that are in memory.
+         */
+        void visit( File file, int filePageSize, long[] filePageIds ) throws IOException;
+    }
+
+    /**
+     * Tell the given visitor which pages of the currently mapped files are in
+     * memory. This is only a snapshot, since pages are concurrently faulted
+     * in and evicted.
+     */
+    public void visitResidentPages( ResidentPageVisitor visitor ) throws IOException
+    {
+        List<FileMapping> fileMappings = new ArrayList<>();
+        synchronized ( this )
+        {
+            assertNotClosed();
+            for ( FileMapping fileMapping = mappedFiles; fileMapping != null; fileMapping = fileMapping.next )
+            {
+                fileMappings.add( fileMapping );
+            }
+        }
+
+        for ( FileMapping fileMapping : fileMappings )
+        {
+            MuninnPagedFile pagedFile = fileMapping.pagedFile;
+            visitor.visit( fileMapping.file, pagedFile.pageSize(), pagedFile.residentPageIds() );
+        }
+    }
+
     @Override
     public synchronized void close() throws IOException
     {
@@ -393,6 +412,12 @@ public class MuninnPageCache implements RunnablePageCache
 
         closed = true;
 
+        if ( readAheadThread != null )
+        {
+            readAheadThread.interrupt();
+            readAheadThread = null;
+        }
+
         for ( int i = 0; i < pages.length; i++ )
         {
             pages[i] = null;
@@ -406,7 +431,7 @@ public class MuninnPageCache implements RunnablePageCache
         super.finalize();
     }
 
-    private void assertHealthy() throws IOException
+    void assertHealthy() throws IOException
     {
         assertNotClosed();
         IOException exception = evictorException;
@@ -438,316 +463,146 @@ public class MuninnPageCache implements RunnablePageCache
 
     MuninnPage grabFreePage( PageFaultEvent faultEvent ) throws IOException
     {
-        // Review the comment on the freelist field before making changes to
-        // this part of the code.
-        // Whatever the case, we're going to the head-pointer of the freelist,
-        // and in doing so, we can discover a number of things.
-        // We can discover a MuninnPage object, in which case we can try to
-        // CAS the freelist pointer to the value of the MuninnPage.nextFree
-        // pointer, and if this succeeds then we've grabbed that page.
-        // We can discover a FreePage object, in which case we'll do a similar
-        // dance by attempting to CAS the freelist to the FreePage objects next
-        // pointer, and again, if we succeed then we've grabbed the MuninnPage
-        // given by the FreePage object.
-        // We can discover a FreePageWaiter object, which means that other
-        // threads have already given up spinning on the freelist waiting for
-        // free pages, so we might as well just get in line right away.
-        // We can discover a null-pointer, in which case the freelist has just
-        // been emptied for whatever it contained before. Either new FreePage
-        // objects are going to be added to it, or another thread is going to
-        // get tired of waiting and add a FreePageWaiter to it, or we are going
-        // to get tired of waiting and add our own FreePageWaiter to it.
-        // Importantly, this FreePageWaiter could be the shutdownSignal
-        // instance, so we need to check for that and throw the appropriate
-        // exception if that turns out to be the case.
-
-        Object current;
-        FreePageWaiter waiter = null;
-        int iterationCount = 0;
-        boolean shouldUnparkInSpin = true;
-        for (;;)
-        {
-            assertHealthy();
-            iterationCount++;
-            current = getFreelistHead();
-            if ( current == null && iterationCount > pageFaultSpinCount )
-            {
-                waiter = waiter == null? new FreePageWaiter() : waiter;
-                // Make sure to null out the next pointer, in case the waiter
-                // was created at a time where the current object was another
-                // waiter.
-                waiter.next = null;
-                if ( compareAndSetFreelistHead( null, waiter ) )
-                {
-                    unparkEvictor();
-                    faultEvent.setParked( true );
-                    return waiter.park( this );
-                }
-            }
-            else if ( current == null )
-            {
-                // Short-circuit the checks bellow for performance, because we
-                // know that they will always fail when 'current' is null.
-                if ( shouldUnparkInSpin )
-                {
-                    unparkEvictor();
-                    shouldUnparkInSpin = false;
-                }
-                continue;
-            }
-            else if ( current instanceof MuninnPage )
-            {
-                MuninnPage page = (MuninnPage) current;
-                if ( compareAndSetFreelistHead( page, page.nextFree ) )
-                {
-                    return page;
-                }
-            }
-            else if ( current instanceof FreePage )
-            {
-                FreePage freePage = (FreePage) current;
-                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
-                {
-                    return freePage.page;
-                }
-            }
-            else if ( current instanceof FreePageWaiter )
-            {
-                if ( current == shutdownSignal )
-                {
-                    throw new IllegalStateException(
-                            "The PageCache has been shut down" );
-                }
+        if ( partitions.length == 1 )
+        {
+            return partitions[0].grabFreePage( faultEvent );
+        }
 
-                waiter = waiter == null? new FreePageWaiter() : waiter;
-                waiter.next = (FreePageWaiter) current;
-                if ( compareAndSetFreelistHead( current, waiter ) )
-                {
-                    unparkEvictor();
-                    faultEvent.setParked( true );
-                    return waiter.park( this );
-                }
+        // Take free pages from the partition of the current thread, if it has
+        // any, and otherwise look for them in the other partitions before we
+        // start spinning and waiting for eviction in our own partition.
+        int home = homePartition();
+        MuninnPage page = stealFreePage( home );
+        return page != null? page : partitions[home].grabFreePage( faultEvent );
+    }
+
+    /**
+     * Grab a free page if one is immediately available, without ever waiting
+     * for the eviction threads. Returns null if no partition has free pages
+     * that other threads aren't already waiting for.
+     */
+    MuninnPage tryGrabFreePage()
+    {
+        return stealFreePage( homePartition() );
+    }
+
+    private MuninnPage stealFreePage( int home )
+    {
+        int partitionCount = partitions.length;
+        for ( int i = 0; i < partitionCount; i++ )
+        {
+            int index = home + i;
+            index = index < partitionCount? index : index - partitionCount;
+            MuninnPage page = partitions[index].tryGrabFreePage();
+            if ( page != null )
+            {
+                return page;
             }
-            unparkEvictor();
         }
+        return null;
     }
 
-    private void unparkEvictor()
+    private int homePartition()
     {
-        LockSupport.unpark( evictorThread );
+        return (int) (Thread.currentThread().getId() % partitions.length);
     }
 
-    private Object getFreelistHead()
+    /**
+     * The number of pages a PF_READ_AHEAD cursor should ask to have faulted
+     * in ahead of its current position, or 0 if read-ahead is disabled.
+     */
+    int readAheadPages()
     {
-        return UnsafeUtil.getObjectVolatile( this, freelistOffset );
+        return readAheadPages;
     }
 
-    private boolean compareAndSetFreelistHead( Object expected, Object update )
+    /**
+     * Queue up the given range of file pages, both inclusive, to be faulted
+     * in by the read-ahead thread.
+     */
+    void readAhead( MuninnPagedFile pagedFile, long startPageId, long endPageId )
     {
-        return UnsafeUtil.compareAndSwapObject(
-                this, freelistOffset, expected, update );
+        if ( readAheadThread == null )
+        {
+            startReadAheadThread();
+        }
+        readAheadWorker.request( pagedFile, startPageId, endPageId );
     }
 
-    private Object getAndSetFreelistHead( Object newFreelistHead )
+    private synchronized void startReadAheadThread()
     {
-        return UnsafeUtil.getAndSetObject(
-                this, freelistOffset, newFreelistHead );
+        if ( readAheadThread == null && !closed )
+        {
+            Thread thread = new Thread( readAheadWorker, "Page Cache Read-Ahead" );
+            thread.setDaemon( true );
+            thread.start();
+            readAheadThread = thread;
+        }
     }
 
     /**
      * Runs the eviction algorithm. Must be run in a dedicated thread.
+     *
+     * The calling thread sweeps the first partition of pages, and the
+     * remaining partitions get eviction threads of their own, that live as
+     * long as this method runs.
      */
     @Override
     public void run()
     {
-        // We scan through all the pages, one by one, and decrement their usage stamps.
-        // If a usage reaches zero, we try-write-locking it, and if we get that lock,
-        // we evict the page. If we don't, we move on to the next page.
-        // Once we have enough free pages, we park our thread. Page-faulting will
-        // unpark our thread as needed.
-        evictorThread = Thread.currentThread();
-        continuouslySweepPages();
-    }
-
-    private void continuouslySweepPages()
-    {
-        int clockArm = 0;
-
-        while ( !Thread.interrupted() )
+        startEvictorThreads();
+        try
         {
-            int pageCountToEvict = parkUntilEvictionRequired( keepFree );
-            try ( EvictionRunEvent evictionRunEvent = monitor.beginPageEvictions( pageCountToEvict ) )
-            {
-                clockArm = evictPages( pageCountToEvict, clockArm, evictionRunEvent );
-            }
+            partitions[0].run();
         }
-
-        // The last thing we do, is unparking any thread that might be waiting
-        // for free pages in a page fault.
-        // This can happen because files can be unmapped while their cursors
-        // are in use.
-        Object freelistHead = getAndSetFreelistHead( shutdownSignal );
-        if ( freelistHead instanceof FreePageWaiter )
+        finally
         {
-            FreePageWaiter waiters = (FreePageWaiter) freelistHead;
-            interruptAllWaiters( waiters );
+            stopEvictorThreads();
         }
     }
 
-    private void interruptAllWaiters( FreePageWaiter waiters )
+    private synchronized void startEvictorThreads()
     {
-        while ( waiters != null )
+        if ( closed )
         {
-            waiters.unparkInterrupt();
-            waiters = waiters.next;
+            return;
+        }
+        evictorThreads = new Thread[partitions.length - 1];
+        for ( int i = 1; i < partitions.length; i++ )
+        {
+            Thread thread = new Thread( partitions[i], "Page Cache Eviction " + i );
+            thread.setDaemon( true );
+            thread.start();
+            evictorThreads[i - 1] = thread;
         }
     }
 
-    private int parkUntilEvictionRequired( int keepFree )
+    private synchronized void stopEvictorThreads()
     {
-        // Park until we're either interrupted, or the number of free pages drops
-        // bellow keepFree.
-        long parkNanos = TimeUnit.MILLISECONDS.toNanos( 10 );
-        for (;;)
+        if ( evictorThreads != null )
         {
-            LockSupport.parkNanos( parkNanos );
-            if ( Thread.currentThread().isInterrupted() || closed )
-            {
-                return 0;
-            }
-
-            Object freelistHead = getFreelistHead();
-
-            if ( freelistHead instanceof FreePage )
-            {
-                int availablePages = ((FreePage) freelistHead).count;
-                if ( availablePages < keepFree )
-                {
-                    return keepFree - availablePages;
-                }
-            }
-            else if ( freelistHead instanceof FreePageWaiter )
+            for ( Thread thread : evictorThreads )
             {
-                return keepFree;
+                thread.interrupt();
             }
+            evictorThreads = null;
         }
     }
 
+    /**
+     * Run the eviction algorithm over the first partition of pages. This is
+     * the whole cache, unless the cache has more than one partition.
+     */
     int evictPages( int pageCountToEvict, int clockArm, EvictionRunEvent evictionRunEvent )
     {
-        FreePageWaiter waiters = grabFreePageWaitersIfAny();
-
-        Thread currentThread = Thread.currentThread();
-        while ( (pageCountToEvict > 0 || waiters != null) && !currentThread.isInterrupted() ) {
-            if ( clockArm == pages.length )
-            {
-                clockArm = 0;
-            }
-            MuninnPage page = pages[clockArm];
-
-            if ( page == null )
-            {
-                // The page cache has been shut down.
-                currentThread.interrupt();
-                interruptAllWaiters( waiters );
-                return 0;
-            }
-
-            if ( page.isLoaded() && page.decrementUsage() )
-            {
-                long stamp = page.tryWriteLock();
-                if ( stamp != 0 )
-                {
-                    // We got the lock.
-                    // Assume that the eviction is going to succeed, so that we
-                    // always make some kind of progress. This means that, if
-                    // we have a temporary outage of the storage system, for
-                    // instance if the drive is full, then we won't spin in
-                    // this forever. Instead, we'll eventually make our way
-                    // back out to the main loop, where we have a chance to
-                    // sleep for a little while in `parkUntilEvictionRequired`.
-                    // This reduces the CPU load and power usage in such a
-                    // scenario.
-                    pageCountToEvict--;
-                    boolean pageEvicted;
-
-                    try ( EvictionEvent evictionEvent = evictionRunEvent.beginEviction() )
-                    {
-                        pageEvicted = evictPage( page, evictionEvent );
-                    }
-                    finally
-                    {
-                        page.unlockWrite( stamp );
-                    }
-
-                    if ( pageEvicted )
-                    {
-                        if ( waiters != null )
-                        {
-                            waiters.unpark( page );
-                            waiters = waiters.next;
-                        }
-                        else
-                        {
-                            Object current;
-                            Object nextListHead;
-                            FreePage freePage = null;
-                            FreePageWaiter waiter;
-                            do
-                            {
-                                waiter = null;
-                                current = getFreelistHead();
-                                if ( current == null || current instanceof FreePage )
-                                {
-                                    freePage = freePage == null?
-                                            new FreePage( page ) : freePage;
-                                    freePage.setNext( (FreePage) current );
-                                    nextListHead = freePage;
-                                }
-                                else
-                                {
-                                    assert current instanceof FreePageWaiter :
-                                            "Unexpected link type: " + current;
-                                    waiter = (FreePageWaiter) current;
-                                    nextListHead = waiter.next;
-                                }
-                            }
-                            while ( !compareAndSetFreelistHead(
-                                    current, nextListHead ) );
-                            if ( waiter != null )
-                            {
-                                waiter.unpark( page );
-                            }
-                        }
-                    }
-                    else if ( waiters != null && evictorException != null )
-                    {
-                        waiters.unparkException( evictorException );
-                        waiters = waiters.next;
-                    }
-                }
-            }
-
-            clockArm++;
-        }
-
-        // If we still have waiters left, then it means our eviction loop was
-        // interrupted and that we are about to shut down.
-        // We first have to unblock our waiters and let them know what's going
-        // on, though.
-        // New waiters can queue up while we are doing this, however, so we
-        // must also take care of those waiters as the last thing we do before
-        // the eviction thread finally terminates. And we must prevent new
-        // waiters from queueing up.
-        interruptAllWaiters( waiters );
-
-        return clockArm;
+        return partitions[0].evictPages( pageCountToEvict, clockArm, evictionRunEvent );
     }
 
-    private boolean evictPage( MuninnPage page, EvictionEvent evictionEvent )
+    boolean evictPage( MuninnPage page, EvictionEvent evictionEvent )
     {
         try
         {
+            flushForEviction( page, evictionEvent );
             page.evict( evictionEvent );
             clearEvictorException();
             return true;
@@ -771,29 +626,40 @@ public class MuninnPageCache implements RunnablePageCache
         return false;
     }
 
-    private FreePageWaiter grabFreePageWaitersIfAny()
+    /**
+     * If the given page is dirty, then flush it together with the dirty pages
+     * that follow it in its file, so they don't have to be written one by one
+     * when they are evicted or flushed later.
+     */
+    private void flushForEviction( MuninnPage page, EvictionEvent evictionEvent ) throws IOException
     {
-        Object freelistHead = getFreelistHead();
-        if ( freelistHead instanceof FreePageWaiter )
+        PageSwapper swapper = page.getSwapper();
+        if ( swapper == null || !page.isDirty() )
         {
-            FreePageWaiter waiters =
-                    (FreePageWaiter) getAndSetFreelistHead( null );
-            return reverse( waiters );
+            return;
         }
-        return null;
+        FileMapping fileMapping = mappedFiles;
+        while ( fileMapping != null )
+        {
+            MuninnPagedFile pagedFile = fileMapping.pagedFile;
+            if ( pagedFile.swapper == swapper )
+            {
+                pagedFile.flushForEviction( page, evictionEvent.flushEventOpportunity() );
+                return;
+            }
+            fileMapping = fileMapping.next;
+        }
+        // The file is no longer mapped; page.evict() will flush the page by itself.
     }
 
-    private FreePageWaiter reverse( FreePageWaiter waiters )
+    IOException evictorException()
     {
-        FreePageWaiter result = null;
-        while ( waiters != null )
-        {
-            FreePageWaiter tail = waiters.next;
-            waiters.next = result;
-            result = waiters;
-            waiters = tail;
-        }
-        return result;
+        return evictorException;
+    }
+
+    boolean isClosed()
+    {
+        return closed;
     }
 
     private void clearEvictorException()
@@ -25,6 +25,7 @@ import java.lang.Override;
 import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.jsr166e.StampedLock;
 import org.neo4j.io.pagecache.monitoring.PageFaultEvent;
 import org.neo4j.io.pagecache.monitoring.PinEvent;
@@ -41,6 +42,10 @@ abstract class MuninnPageCursor implements PageCursor
     protected long lastPageId;
     protected long lockStamp;
 
+    // The last file page id that we have asked to have read ahead, when
+    // using PF_READ_AHEAD.
+    private long readAheadEndPageId;
+
     private boolean claimed;
     private int offset;
 
@@ -72,6 +77,7 @@ abstract class MuninnPageCursor implements PageCursor
         nextPageId = pageId;
         currentPageId = UNBOUND_PAGE_ID;
         lastPageId = pagedFile.getLastPageId();
+        readAheadEndPageId = UNBOUND_PAGE_ID;
     }
 
     public final void reset( MuninnPage page )
@@ -102,6 +108,43 @@ abstract class MuninnPageCursor implements PageCursor
         return currentPageId;
     }
 
+    /**
+     * If the cursor was opened with PF_READ_AHEAD, then make sure that the
+     * pages following the given file page are being faulted in ahead of us.
+     *
+     * A new range is only requested once the cursor has moved past the middle
+     * of the previously requested range, so a sequential scan will issue one
+     * request for every half-window of pages. Jumping backwards, or past the
+     * requested range, restarts the read-ahead from the new position.
+     */
+    protected final void readAhead( long filePageId )
+    {
+        if ( (pf_flags & PagedFile.PF_READ_AHEAD) == 0 )
+        {
+            return;
+        }
+        int window = pagedFile.readAheadPages();
+        if ( window == 0 )
+        {
+            return;
+        }
+        if ( filePageId <= currentPageId || filePageId > readAheadEndPageId )
+        {
+            readAheadEndPageId = filePageId;
+        }
+        if ( filePageId + window / 2 < readAheadEndPageId )
+        {
+            return;
+        }
+        long startPageId = readAheadEndPageId + 1;
+        long endPageId = Math.min( filePageId + window, lastPageId );
+        if ( startPageId <= endPageId )
+        {
+            pagedFile.readAhead( startPageId, endPageId );
+            readAheadEndPageId = endPageId;
+        }
+    }
+
     /**
      * NOTE: Must be called while holding the right translationTableLock.writeLock
      * for the given translationTable!!!
@@ -21,9 +21,15 @@ package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.io.pagecache.monitoring.FlushEvent;
+import org.neo4j.io.pagecache.monitoring.FlushEventOpportunity;
 import org.neo4j.io.pagecache.monitoring.MajorFlushEvent;
 import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
 import org.neo4j.io.pagecache.PageCursor;
@@ -33,6 +39,7 @@ import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.jsr166e.StampedLock;
 import org.neo4j.io.pagecache.monitoring.PageFaultEvent;
+import org.neo4j.io.pagecache.monitoring.PinEvent;
 
 final class MuninnPagedFile implements PagedFile
 {
@@ -41,6 +48,11 @@ final class MuninnPagedFile implements PagedFile
     static final int translationTableStripeLevel = 1 << stripeFactor;
     static final int translationTableStripeMask = translationTableStripeLevel - 1;
 
+    // The maximum number of adjacent dirty pages that we will write out with
+    // a single vectored write, when flushing or evicting.
+    static final int maxPagesPerWrite = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.MuninnPagedFile.maxPagesPerWrite", 128 );
+
     private static final long referenceCounterOffset =
             UnsafeUtil.getFieldOffset( MuninnPagedFile.class, "referenceCounter" );
     private static final long lastPageIdOffset =
@@ -148,23 +160,192 @@ final class MuninnPagedFile implements PagedFile
     {
         try ( MajorFlushEvent flushEvent = monitor.beginFileFlush( swapper ) )
         {
-            PageFlusher flusher = new PageFlusher( swapper, flushEvent );
-            for ( int i = 0; i < translationTableStripeLevel; i++ )
+            flushPages( flushEvent.flushEventOpportunity() );
+            force();
+        }
+    }
+
+    /**
+     * Flush all the dirty pages of this file, in file order, such that runs of
+     * adjacent dirty pages are written with a single vectored write.
+     * This does not force the file.
+     */
+    void flushPages( FlushEventOpportunity flushOpportunity ) throws IOException
+    {
+        PageFlusher flusher = new PageFlusher( this, flushOpportunity );
+        for ( int i = 0; i < translationTableStripeLevel; i++ )
+        {
+            PrimitiveLongObjectMap<MuninnPage> translationTable = translationTables[i];
+            StampedLock translationTableLock = translationTableLocks[i];
+
+            long stamp = translationTableLock.readLock();
+            try
+            {
+                translationTable.visitEntries( flusher );
+            }
+            finally
             {
-                PrimitiveLongObjectMap<MuninnPage> translationTable = translationTables[i];
-                StampedLock translationTableLock = translationTableLocks[i];
+                translationTableLock.unlockRead( stamp );
+            }
+        }
+        flusher.flush();
+    }
 
-                long stamp = translationTableLock.readLock();
+    /**
+     * Get the sorted ids of the file pages that are currently in memory.
+     * This is only a snapshot, since pages can be faulted in and evicted
+     * concurrently.
+     */
+    long[] residentPageIds()
+    {
+        final PrimitiveLongSet filePageIds = Primitive.longSet();
+        for ( int i = 0; i < translationTableStripeLevel; i++ )
+        {
+            PrimitiveLongObjectMap<MuninnPage> translationTable = translationTables[i];
+            StampedLock translationTableLock = translationTableLocks[i];
+
+            long stamp = translationTableLock.readLock();
+            try
+            {
+                translationTable.visitEntries( new PrimitiveLongObjectVisitor<MuninnPage,RuntimeException>()
+                {
+                    @Override
+                    public boolean visited( long filePageId, MuninnPage page )
+                    {
+                        // The translation tables can have stale entries.
+                        if ( page.isBoundTo( swapper, filePageId ) )
+                        {
+                            filePageIds.add( filePageId );
+                        }
+                        return false;
+                    }
+                } );
+            }
+            finally
+            {
+                translationTableLock.unlockRead( stamp );
+            }
+        }
+
+        long[] result = new long[filePageIds.size()];
+        PrimitiveLongIterator iterator = filePageIds.iterator();
+        for ( int i = 0; i < result.length && iterator.hasNext(); i++ )
+        {
+            result[i] = iterator.next();
+        }
+        Arrays.sort( result );
+        return result;
+    }
+
+    /**
+     * Flush the given page, which is about to be evicted, together with the
+     * dirty pages that immediately follow it in the file, if any, in a single
+     * vectored write. The following pages stay in memory, but will be clean.
+     *
+     * NOTE: This method must be called while holding the write lock on the
+     * given page. The locks on the following pages are only tried, so pages
+     * that are in use by other threads simply end the run.
+     */
+    void flushForEviction( MuninnPage page, FlushEventOpportunity flushOpportunity ) throws IOException
+    {
+        long startFilePageId = page.getFilePageId();
+        MuninnPage[] run = new MuninnPage[maxPagesPerWrite];
+        long[] stamps = new long[run.length];
+        run[0] = page;
+        int runLength = 1;
+        try
+        {
+            while ( runLength < run.length )
+            {
+                long filePageId = startFilePageId + runLength;
+                int stripe = (int) (filePageId & translationTableStripeMask);
+                StampedLock translationTableLock = translationTableLocks[stripe];
+                MuninnPage neighbour;
+                // Page faulting threads hold translation table write locks
+                // while they wait for the eviction thread to free up pages,
+                // so we must not block on them here.
+                long ttlStamp = translationTableLock.tryReadLock();
+                if ( ttlStamp == 0 )
+                {
+                    break;
+                }
                 try
                 {
-                    translationTable.visitEntries( flusher );
+                    neighbour = translationTables[stripe].get( filePageId );
                 }
                 finally
                 {
-                    translationTableLock.unlockRead( stamp );
+                    translationTableLock.unlockRead( ttlStamp );
+                }
+                if ( neighbour == null )
+                {
+                    break;
+                }
+                long stamp = neighbour.tryReadLock();
+                if ( stamp == 0 )
+                {
+                    break;
+                }
+                if ( !neighbour.isBoundTo( swapper, filePageId ) || !neighbour.isDirty() )
+                {
+                    neighbour.unlockRead( stamp );
+                    break;
                 }
+                run[runLength] = neighbour;
+                stamps[runLength] = stamp;
+                runLength++;
+            }
+            flushRun( startFilePageId, run, runLength, flushOpportunity );
+        }
+        finally
+        {
+            // The first page is locked by our caller.
+            for ( int i = 1; i < runLength; i++ )
+            {
+                run[i].unlockRead( stamps[i] );
             }
-            force();
+        }
+    }
+
+    /**
+     * Write the given run of dirty pages to the consecutive file pages that
+     * begin at the given startFilePageId, and mark them as clean.
+     *
+     * NOTE: This method must be called while holding at least the read locks
+     * of all the pages in the run.
+     */
+    void flushRun(
+            long startFilePageId,
+            MuninnPage[] pages,
+            int length,
+            FlushEventOpportunity flushOpportunity ) throws IOException
+    {
+        if ( length == 0 )
+        {
+            return;
+        }
+        FlushEvent[] events = new FlushEvent[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            events[i] = flushOpportunity.beginFlush( startFilePageId + i, pages[i].getCachePageId(), swapper );
+        }
+        try
+        {
+            swapper.write( startFilePageId, pages, 0, length );
+        }
+        catch ( IOException e )
+        {
+            for ( FlushEvent event : events )
+            {
+                event.done( e );
+            }
+            throw e;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            pages[i].markAsClean();
+            events[i].addBytesWritten( pageSize );
+            events[i].done();
         }
     }
 
@@ -228,6 +409,91 @@ final class MuninnPagedFile implements PagedFile
         return UnsafeUtil.getIntVolatile( this, referenceCounterOffset );
     }
 
+    /**
+     * The number of pages that cursors with the PF_READ_AHEAD flag should
+     * keep faulted in ahead of their current position.
+     */
+    int readAheadPages()
+    {
+        return pageCache.readAheadPages();
+    }
+
+    /**
+     * Ask for the given range of file pages, both inclusive, to be faulted in
+     * by the background read-ahead thread.
+     */
+    void readAhead( long startPageId, long endPageId )
+    {
+        pageCache.readAhead( this, startPageId, endPageId );
+    }
+
+    /**
+     * Fault the given file page into the cache, without pinning it, unless it
+     * is already there. This never waits for the eviction thread to free up
+     * pages.
+     *
+     * Returns false if the page could not be faulted in, either because the
+     * file has been unmapped, or because there were no free pages.
+     */
+    boolean prefetch( long filePageId ) throws IOException
+    {
+        int stripe = (int) (filePageId & translationTableStripeMask);
+        StampedLock translationTableLock = translationTableLocks[stripe];
+        PrimitiveLongObjectMap<MuninnPage> translationTable = translationTables[stripe];
+
+        MuninnPage page;
+        long stamp;
+        long ttlStamp = translationTableLock.writeLock();
+        try
+        {
+            if ( getRefCount() == 0 )
+            {
+                return false;
+            }
+            if ( translationTable.get( filePageId ) != null )
+            {
+                // The page is either already loaded, or someone else is
+                // faulting it in, or it is on its way out through eviction.
+                // Either way, there is nothing for us to do.
+                return true;
+            }
+            page = pageCache.tryGrabFreePage();
+            if ( page == null )
+            {
+                return false;
+            }
+            stamp = page.writeLock();
+            translationTable.put( filePageId, page );
+        }
+        finally
+        {
+            translationTableLock.unlockWrite( ttlStamp );
+        }
+
+        PinEvent pinEvent = monitor.beginPin( false, filePageId, swapper );
+        PageFaultEvent faultEvent = pinEvent.beginPageFault();
+        try
+        {
+            page.initBuffer();
+            page.fault( swapper, filePageId, faultEvent );
+            // Give the page a chance to survive a sweep of the clock arm
+            // before the scanning cursor gets to it.
+            page.incrementUsage();
+            faultEvent.done();
+            return true;
+        }
+        catch ( Throwable throwable )
+        {
+            faultEvent.done( throwable );
+            throw throwable;
+        }
+        finally
+        {
+            page.unlockWrite( stamp );
+            pinEvent.done();
+        }
+    }
+
     /**
      * Grab a free page for the purpose of page faulting. Possibly blocking if
      * none are immediately available.
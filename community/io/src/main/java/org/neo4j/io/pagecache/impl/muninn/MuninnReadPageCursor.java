@@ -23,6 +23,7 @@ import java.io.IOException;
 
 import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.io.pagecache.PageSwapper;
+import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.jsr166e.StampedLock;
 
 final class MuninnReadPageCursor extends MuninnPageCursor
@@ -58,12 +59,85 @@ final class MuninnReadPageCursor extends MuninnPageCursor
             return false;
         }
         unpinCurrentPage();
-        pin( nextPageId );
+        readAhead( nextPageId );
+        if ( (pf_flags & PagedFile.PF_NO_FAULT) != 0 )
+        {
+            if ( !pinIfLoaded( nextPageId ) )
+            {
+                currentPageId = UNBOUND_PAGE_ID;
+                return false;
+            }
+        }
+        else
+        {
+            pin( nextPageId );
+        }
         currentPageId = nextPageId;
         nextPageId++;
         return true;
     }
 
+    /**
+     * Pin the given file page, but only if it is already in memory, and can
+     * be pinned without waiting for a concurrent page fault to finish.
+     * Returns false, and leaves the cursor unpinned, otherwise.
+     */
+    private boolean pinIfLoaded( long filePageId )
+    {
+        int stripe = (int) (filePageId & MuninnPagedFile.translationTableStripeMask);
+        StampedLock translationTableLock = pagedFile.translationTableLocks[stripe];
+        PrimitiveLongObjectMap<MuninnPage> translationTable = pagedFile.translationTables[stripe];
+        PageSwapper swapper = pagedFile.swapper;
+        pinEvent = pagedFile.monitor.beginPin( false, filePageId, swapper );
+        MuninnPage page;
+
+        long stamp = translationTableLock.tryOptimisticRead();
+        page = translationTable.get( filePageId );
+        if ( !translationTableLock.validate( stamp ) )
+        {
+            stamp = translationTableLock.readLock();
+            try
+            {
+                page = translationTable.get( filePageId );
+            }
+            finally
+            {
+                translationTableLock.unlockRead( stamp );
+            }
+        }
+
+        if ( page != null )
+        {
+            // A zero stamp means the page is write locked, most likely because
+            // it is being faulted in, and we don't want to wait for that.
+            lockStamp = page.tryOptimisticRead();
+            if ( lockStamp != 0 && page.isBoundTo( swapper, filePageId ) )
+            {
+                pinCursorToPage( page, filePageId, swapper );
+                optimisticLock = true;
+                return true;
+            }
+
+            // The page is either stale, or in the middle of being faulted in
+            // or evicted. We can't tell which without a read lock, but we
+            // won't wait for one either.
+            lockStamp = page.tryReadLock();
+            if ( lockStamp != 0 )
+            {
+                if ( page.isBoundTo( swapper, filePageId ) )
+                {
+                    pinCursorToPage( page, filePageId, swapper );
+                    optimisticLock = false;
+                    return true;
+                }
+                page.unlockRead( lockStamp );
+            }
+        }
+        lockStamp = 0;
+        pinEvent.done();
+        return false;
+    }
+
     private void pin( long filePageId ) throws IOException
     {
         int stripe = (int) (filePageId & MuninnPagedFile.translationTableStripeMask);
@@ -177,7 +251,19 @@ final class MuninnReadPageCursor extends MuninnPageCursor
     public boolean shouldRetry() throws IOException
     {
         boolean needsRetry = optimisticLock && !page.validate( lockStamp );
-        if ( needsRetry )
+        if ( needsRetry && (pf_flags & PagedFile.PF_NO_FAULT) != 0 )
+        {
+            // We must neither fault nor wait for a lock, so we start over with
+            // pinning the page, but only if it is still in memory.
+            setOffset( 0 );
+            page = null;
+            pinEvent.done();
+            if ( !pinIfLoaded( currentPageId ) )
+            {
+                currentPageId = UNBOUND_PAGE_ID;
+            }
+        }
+        else if ( needsRetry )
         {
             setOffset( 0 );
             optimisticLock = false;
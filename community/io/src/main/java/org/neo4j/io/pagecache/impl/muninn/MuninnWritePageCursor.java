@@ -57,12 +57,73 @@ final class MuninnWritePageCursor extends MuninnPageCursor
             }
         }
         unpinCurrentPage();
-        pin( nextPageId );
+        readAhead( nextPageId );
+        if ( (pf_flags & PagedFile.PF_NO_FAULT) != 0 )
+        {
+            if ( !pinIfLoaded( nextPageId ) )
+            {
+                currentPageId = UNBOUND_PAGE_ID;
+                return false;
+            }
+        }
+        else
+        {
+            pin( nextPageId );
+        }
         currentPageId = nextPageId;
         nextPageId++;
         return true;
     }
 
+    /**
+     * Pin the given file page, but only if it is already in memory, and its
+     * write lock can be taken without waiting.
+     * Returns false, and leaves the cursor unpinned, otherwise.
+     */
+    private boolean pinIfLoaded( long filePageId )
+    {
+        int stripe = (int) (filePageId & MuninnPagedFile.translationTableStripeMask);
+        StampedLock translationTableLock = pagedFile.translationTableLocks[stripe];
+        PrimitiveLongObjectMap<MuninnPage> translationTable = pagedFile.translationTables[stripe];
+        PageSwapper swapper = pagedFile.swapper;
+        pinEvent = pagedFile.monitor.beginPin( true, filePageId, swapper );
+        MuninnPage page;
+
+        long stamp = translationTableLock.tryOptimisticRead();
+        page = translationTable.get( filePageId );
+        if ( !translationTableLock.validate( stamp ) )
+        {
+            stamp = translationTableLock.readLock();
+            try
+            {
+                page = translationTable.get( filePageId );
+            }
+            finally
+            {
+                translationTableLock.unlockRead( stamp );
+            }
+        }
+
+        if ( page != null )
+        {
+            // A page that is being faulted in is write locked for the
+            // duration of the IO, so we must not block on this lock.
+            lockStamp = page.tryWriteLock();
+            if ( lockStamp != 0 )
+            {
+                if ( page.isBoundTo( swapper, filePageId ) )
+                {
+                    pinCursorToPage( page, filePageId, swapper );
+                    return true;
+                }
+                page.unlockWrite( lockStamp );
+            }
+        }
+        lockStamp = 0;
+        pinEvent.done();
+        return false;
+    }
+
     private void pin( long filePageId ) throws IOException
     {
         int stripe = (int) (filePageId & MuninnPagedFile.translationTableStripeMask);
@@ -20,35 +20,104 @@
 package org.neo4j.io.pagecache.impl.muninn;
 
 import java.io.IOException;
+import java.util.Arrays;
 
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
-import org.neo4j.io.pagecache.PageSwapper;
 import org.neo4j.io.pagecache.monitoring.FlushEventOpportunity;
-import org.neo4j.io.pagecache.monitoring.MajorFlushEvent;
 
+/**
+ * Collects the pages of a {@link MuninnPagedFile} from its translation tables, and then flushes the dirty
+ * ones in file order, such that runs of adjacent dirty pages are written with a single vectored write.
+ */
 final class PageFlusher implements PrimitiveLongObjectVisitor<MuninnPage, IOException>
 {
-    private final PageSwapper swapper;
+    private final MuninnPagedFile pagedFile;
     private final FlushEventOpportunity flushOpportunity;
+    private final PrimitiveLongObjectMap<MuninnPage> pages;
+    private long[] filePageIds;
+    private int count;
 
-    public PageFlusher( PageSwapper swapper, MajorFlushEvent flushEvent )
+    public PageFlusher( MuninnPagedFile pagedFile, FlushEventOpportunity flushOpportunity )
     {
-        this.swapper = swapper;
-        this.flushOpportunity = flushEvent.flushEventOpportunity();
+        this.pagedFile = pagedFile;
+        this.flushOpportunity = flushOpportunity;
+        this.pages = Primitive.longObjectMap();
+        this.filePageIds = new long[32];
     }
 
     @Override
-    public boolean visited( long filePageId, MuninnPage page ) throws IOException
+    public boolean visited( long filePageId, MuninnPage page )
     {
-        long stamp = page.readLock();
-        try
+        if ( count == filePageIds.length )
         {
-            page.flush( swapper, filePageId, flushOpportunity );
-            return false;
+            filePageIds = Arrays.copyOf( filePageIds, count * 2 );
         }
-        finally
+        filePageIds[count++] = filePageId;
+        pages.put( filePageId, page );
+        return false;
+    }
+
+    /**
+     * Flush all the dirty pages that were visited.
+     */
+    public void flush() throws IOException
+    {
+        Arrays.sort( filePageIds, 0, count );
+        MuninnPage[] run = new MuninnPage[MuninnPagedFile.maxPagesPerWrite];
+        long[] stamps = new long[run.length];
+
+        int i = 0;
+        while ( i < count )
         {
-            page.unlockRead( stamp );
+            long startFilePageId = 0;
+            int runLength = 0;
+            for ( ; i < count && runLength < run.length; i++ )
+            {
+                long filePageId = filePageIds[i];
+                if ( runLength > 0 && filePageId != startFilePageId + runLength )
+                {
+                    // There's a gap in the file pages, so this run ends here.
+                    break;
+                }
+                MuninnPage page = pages.get( filePageId );
+                long stamp = page.readLock();
+                if ( page.isBoundTo( pagedFile.swapper, filePageId ) && page.isDirty() )
+                {
+                    if ( runLength == 0 )
+                    {
+                        startFilePageId = filePageId;
+                    }
+                    run[runLength] = page;
+                    stamps[runLength] = stamp;
+                    runLength++;
+                }
+                else
+                {
+                    // The page is either clean, or has been evicted since we
+                    // visited it. Either way, it breaks the run.
+                    page.unlockRead( stamp );
+                    if ( runLength > 0 )
+                    {
+                        i++;
+                        break;
+                    }
+                }
+            }
+
+            try
+            {
+                pagedFile.flushRun( startFilePageId, run, runLength, flushOpportunity );
+            }
+            finally
+            {
+                for ( int j = 0; j < runLength; j++ )
+                {
+                    run[j].unlockRead( stamps[j] );
+                    run[j] = null;
+                }
+            }
         }
     }
 }
@@ -0,0 +1,519 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.io.pagecache.monitoring.EvictionEvent;
+import org.neo4j.io.pagecache.monitoring.EvictionRunEvent;
+import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
+import org.neo4j.io.pagecache.monitoring.PageFaultEvent;
+
+/**
+ * A contiguous range of the pages in the {@link MuninnPageCache}, with its own
+ * freelist and clock arm.
+ *
+ * Each partition is swept by its own eviction thread, so that eviction
+ * throughput can scale with the number of threads that are page faulting.
+ * Page faulting threads prefer the partition given to them by
+ * {@link MuninnPageCache#grabFreePage(PageFaultEvent)}, but will take free
+ * pages from other partitions before they start waiting for eviction.
+ */
+final class PagePartition implements Runnable
+{
+    // The number of times we will spin, during page faulting, on checking the
+    // freelist and LockSupport.unpark'ing the eviction thread, before blocking
+    // and waiting for the eviction thread to do something.
+    private static final int pageFaultSpinCount = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.pageFaultSpinCount",
+            FileUtils.OS_IS_WINDOWS? 10 : 1000 );
+
+    // The field offset to unsafely access the freelist field.
+    private static final long freelistOffset =
+            UnsafeUtil.getFieldOffset( PagePartition.class, "freelist" );
+
+    // This is used as a poison-pill signal in the freelist, to inform any
+    // page faulting thread that it is now no longer possible to queue up and
+    // wait for more pages to be evicted, because the page cache has been shut
+    // down.
+    private static final FreePageWaiter shutdownSignal = new FreePageWaiter();
+
+    private final MuninnPageCache pageCache;
+    private final PageCacheMonitor monitor;
+    private final MuninnPage[] pages;
+    private final int startIndex;
+    private final int endIndex;
+    private final int keepFree;
+
+    // The freelist takes a bit of explanation. It is a thread-safe linked-list
+    // of 3 types of objects. A link can either be a MuninnPage, a FreePage or
+    // a FreePageWaiter.
+    // Initially, most of the links are MuninnPages that are ready for the
+    // taking. Then towards the end, we have the last bunch of pages linked
+    // through FreePage objects. We make this transition because, once a
+    // MuninnPage has been removed from the list, it cannot be added back. The
+    // reason is that the MuninnPages are reused, and adding them back into the
+    // freelist would expose us to the ABA-problem, which can cause cycles to
+    // form. The FreePage and FreePageWaiter objects, however, are single-use
+    // such that they don't exhibit the ABA-problem. In other words, eviction
+    // will never add MuninnPages to the freelist; it will only add free pages
+    // through a new FreePage object, or with direct transfer through a
+    // FreePageWaiter. FreePageWaiters are added to the list by threads that
+    // want a free page, but have discovered that the freelist is either empty,
+    // or has another FreePageWaiter at the head.
+    // This contraption basically gives us a "transfer stack" with some space
+    // optimisations for the initial bulk of contents.
+    // This field is accessed via Unsafe.
+    private volatile Object freelist;
+
+    // The thread that runs the eviction algorithm for this partition. We
+    // unpark this when we've run out of free pages to grab.
+    private volatile Thread evictorThread;
+
+    /**
+     * Create a partition of the pages from startIndex, inclusive, to endIndex,
+     * exclusive, in the given pages array, and put them all on the freelist.
+     */
+    PagePartition(
+            MuninnPageCache pageCache,
+            PageCacheMonitor monitor,
+            MuninnPage[] pages,
+            int startIndex,
+            int endIndex,
+            int pagesToKeepFree )
+    {
+        this.pageCache = pageCache;
+        this.monitor = monitor;
+        this.pages = pages;
+        this.startIndex = startIndex;
+        this.endIndex = endIndex;
+        this.keepFree = Math.min( pagesToKeepFree, (endIndex - startIndex) / 2 );
+
+        Object pageList = null;
+        int pageIndex = endIndex;
+        while ( pageIndex --> startIndex )
+        {
+            MuninnPage page = pages[pageIndex];
+
+            if ( pageList == null )
+            {
+                FreePage freePage = new FreePage( page );
+                freePage.setNext( null );
+                pageList = freePage;
+            }
+            else if ( pageList instanceof FreePage
+                    && ((FreePage) pageList).count < keepFree )
+            {
+                FreePage freePage = new FreePage( page );
+                freePage.setNext( (FreePage) pageList );
+                pageList = freePage;
+            }
+            else
+            {
+                page.nextFree = pageList;
+                pageList = page;
+            }
+        }
+        UnsafeUtil.putObjectVolatile( this, freelistOffset, pageList );
+    }
+
+    MuninnPage grabFreePage( PageFaultEvent faultEvent ) throws IOException
+    {
+        // Review the comment on the freelist field before making changes to
+        // this part of the code.
+        // Whatever the case, we're going to the head-pointer of the freelist,
+        // and in doing so, we can discover a number of things.
+        // We can discover a MuninnPage object, in which case we can try to
+        // CAS the freelist pointer to the value of the MuninnPage.nextFree
+        // pointer, and if this succeeds then we've grabbed that page.
+        // We can discover a FreePage object, in which case we'll do a similar
+        // dance by attempting to CAS the freelist to the FreePage objects next
+        // pointer, and again, if we succeed then we've grabbed the MuninnPage
+        // given by the FreePage object.
+        // We can discover a FreePageWaiter object, which means that other
+        // threads have already given up spinning on the freelist waiting for
+        // free pages, so we might as well just get in line right away.
+        // We can discover a null-pointer, in which case the freelist has just
+        // been emptied for whatever it contained before. Either new FreePage
+        // objects are going to be added to it, or another thread is going to
+        // get tired of waiting and add a FreePageWaiter to it, or we are going
+        // to get tired of waiting and add our own FreePageWaiter to it.
+        // Importantly, this FreePageWaiter could be the shutdownSignal
+        // instance, so we need to check for that and throw the appropriate
+        // exception if that turns out to be the case.
+
+        Object current;
+        FreePageWaiter waiter = null;
+        int iterationCount = 0;
+        boolean shouldUnparkInSpin = true;
+        for (;;)
+        {
+            pageCache.assertHealthy();
+            iterationCount++;
+            current = getFreelistHead();
+            if ( current == null && iterationCount > pageFaultSpinCount )
+            {
+                waiter = waiter == null? new FreePageWaiter() : waiter;
+                // Make sure to null out the next pointer, in case the waiter
+                // was created at a time where the current object was another
+                // waiter.
+                waiter.next = null;
+                if ( compareAndSetFreelistHead( null, waiter ) )
+                {
+                    unparkEvictor();
+                    faultEvent.setParked( true );
+                    return waiter.park( pageCache );
+                }
+            }
+            else if ( current == null )
+            {
+                // Short-circuit the checks bellow for performance, because we
+                // know that they will always fail when 'current' is null.
+                if ( shouldUnparkInSpin )
+                {
+                    unparkEvictor();
+                    shouldUnparkInSpin = false;
+                }
+                continue;
+            }
+            else if ( current instanceof MuninnPage )
+            {
+                MuninnPage page = (MuninnPage) current;
+                if ( compareAndSetFreelistHead( page, page.nextFree ) )
+                {
+                    return page;
+                }
+            }
+            else if ( current instanceof FreePage )
+            {
+                FreePage freePage = (FreePage) current;
+                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
+                {
+                    return freePage.page;
+                }
+            }
+            else if ( current instanceof FreePageWaiter )
+            {
+                if ( current == shutdownSignal )
+                {
+                    throw new IllegalStateException(
+                            "The PageCache has been shut down" );
+                }
+
+                waiter = waiter == null? new FreePageWaiter() : waiter;
+                waiter.next = (FreePageWaiter) current;
+                if ( compareAndSetFreelistHead( current, waiter ) )
+                {
+                    unparkEvictor();
+                    faultEvent.setParked( true );
+                    return waiter.park( pageCache );
+                }
+            }
+            unparkEvictor();
+        }
+    }
+
+    /**
+     * Grab a free page if one is immediately available, without ever waiting
+     * for the eviction thread. Returns null if the freelist is empty, or if
+     * other threads are already waiting for pages to be freed.
+     */
+    MuninnPage tryGrabFreePage()
+    {
+        for (;;)
+        {
+            Object current = getFreelistHead();
+            if ( current instanceof MuninnPage )
+            {
+                MuninnPage page = (MuninnPage) current;
+                if ( compareAndSetFreelistHead( page, page.nextFree ) )
+                {
+                    return page;
+                }
+            }
+            else if ( current instanceof FreePage )
+            {
+                FreePage freePage = (FreePage) current;
+                if ( compareAndSetFreelistHead( freePage, freePage.next ) )
+                {
+                    return freePage.page;
+                }
+            }
+            else
+            {
+                // The freelist is either empty, or has waiters on it that
+                // deserve the freed pages more than we do.
+                unparkEvictor();
+                return null;
+            }
+        }
+    }
+
+    private void unparkEvictor()
+    {
+        LockSupport.unpark( evictorThread );
+    }
+
+    private Object getFreelistHead()
+    {
+        return UnsafeUtil.getObjectVolatile( this, freelistOffset );
+    }
+
+    private boolean compareAndSetFreelistHead( Object expected, Object update )
+    {
+        return UnsafeUtil.compareAndSwapObject(
+                this, freelistOffset, expected, update );
+    }
+
+    private Object getAndSetFreelistHead( Object newFreelistHead )
+    {
+        return UnsafeUtil.getAndSetObject(
+                this, freelistOffset, newFreelistHead );
+    }
+
+    /**
+     * Runs the eviction algorithm for this partition. Must be run in a
+     * dedicated thread.
+     */
+    @Override
+    public void run()
+    {
+        // We scan through all the pages, one by one, and decrement their usage stamps.
+        // If a usage reaches zero, we try-write-locking it, and if we get that lock,
+        // we evict the page. If we don't, we move on to the next page.
+        // Once we have enough free pages, we park our thread. Page-faulting will
+        // unpark our thread as needed.
+        evictorThread = Thread.currentThread();
+        continuouslySweepPages();
+    }
+
+    private void continuouslySweepPages()
+    {
+        int clockArm = startIndex;
+
+        while ( !Thread.interrupted() )
+        {
+            int pageCountToEvict = parkUntilEvictionRequired( keepFree );
+            try ( EvictionRunEvent evictionRunEvent = monitor.beginPageEvictions( pageCountToEvict ) )
+            {
+                clockArm = evictPages( pageCountToEvict, clockArm, evictionRunEvent );
+            }
+        }
+
+        // The last thing we do, is unparking any thread that might be waiting
+        // for free pages in a page fault.
+        // This can happen because files can be unmapped while their cursors
+        // are in use.
+        Object freelistHead = getAndSetFreelistHead( shutdownSignal );
+        if ( freelistHead instanceof FreePageWaiter )
+        {
+            FreePageWaiter waiters = (FreePageWaiter) freelistHead;
+            interruptAllWaiters( waiters );
+        }
+    }
+
+    private void interruptAllWaiters( FreePageWaiter waiters )
+    {
+        while ( waiters != null )
+        {
+            waiters.unparkInterrupt();
+            waiters = waiters.next;
+        }
+    }
+
+    private int parkUntilEvictionRequired( int keepFree )
+    {
+        // Park until we're either interrupted, or the number of free pages drops
+        // bellow keepFree.
+        long parkNanos = TimeUnit.MILLISECONDS.toNanos( 10 );
+        for (;;)
+        {
+            LockSupport.parkNanos( parkNanos );
+            if ( Thread.currentThread().isInterrupted() || pageCache.isClosed() )
+            {
+                return 0;
+            }
+
+            Object freelistHead = getFreelistHead();
+
+            if ( freelistHead instanceof FreePage )
+            {
+                int availablePages = ((FreePage) freelistHead).count;
+                if ( availablePages < keepFree )
+                {
+                    return keepFree - availablePages;
+                }
+            }
+            else if ( freelistHead instanceof FreePageWaiter )
+            {
+                return keepFree;
+            }
+        }
+    }
+
+    int evictPages( int pageCountToEvict, int clockArm, EvictionRunEvent evictionRunEvent )
+    {
+        FreePageWaiter waiters = grabFreePageWaitersIfAny();
+
+        Thread currentThread = Thread.currentThread();
+        while ( (pageCountToEvict > 0 || waiters != null) && !currentThread.isInterrupted() ) {
+            if ( clockArm >= endIndex || clockArm < startIndex )
+            {
+                clockArm = startIndex;
+            }
+            MuninnPage page = pages[clockArm];
+
+            if ( page == null )
+            {
+                // The page cache has been shut down.
+                currentThread.interrupt();
+                interruptAllWaiters( waiters );
+                return startIndex;
+            }
+
+            if ( page.isLoaded() && page.decrementUsage() )
+            {
+                long stamp = page.tryWriteLock();
+                if ( stamp != 0 )
+                {
+                    // We got the lock.
+                    // Assume that the eviction is going to succeed, so that we
+                    // always make some kind of progress. This means that, if
+                    // we have a temporary outage of the storage system, for
+                    // instance if the drive is full, then we won't spin in
+                    // this forever. Instead, we'll eventually make our way
+                    // back out to the main loop, where we have a chance to
+                    // sleep for a little while in `parkUntilEvictionRequired`.
+                    // This reduces the CPU load and power usage in such a
+                    // scenario.
+                    pageCountToEvict--;
+                    boolean pageEvicted;
+
+                    try ( EvictionEvent evictionEvent = evictionRunEvent.beginEviction() )
+                    {
+                        pageEvicted = pageCache.evictPage( page, evictionEvent );
+                    }
+                    finally
+                    {
+                        page.unlockWrite( stamp );
+                    }
+
+                    if ( pageEvicted )
+                    {
+                        if ( waiters != null )
+                        {
+                            waiters.unpark( page );
+                            waiters = waiters.next;
+                        }
+                        else
+                        {
+                            Object current;
+                            Object nextListHead;
+                            FreePage freePage = null;
+                            FreePageWaiter waiter;
+                            do
+                            {
+                                waiter = null;
+                                current = getFreelistHead();
+                                if ( current == null || current instanceof FreePage )
+                                {
+                                    freePage = freePage == null?
+                                            new FreePage( page ) : freePage;
+                                    freePage.setNext( (FreePage) current );
+                                    nextListHead = freePage;
+                                }
+                                else
+                                {
+                                    assert current instanceof FreePageWaiter :
+                                            "Unexpected link type: " + current;
+                                    waiter = (FreePageWaiter) current;
+                                    nextListHead = waiter.next;
+                                }
+                            }
+                            while ( !compareAndSetFreelistHead(
+                                    current, nextListHead ) );
+                            if ( waiter != null )
+                            {
+                                waiter.unpark( page );
+                            }
+                        }
+                    }
+                    else if ( waiters != null )
+                    {
+                        IOException evictorException = pageCache.evictorException();
+                        if ( evictorException != null )
+                        {
+                            waiters.unparkException( evictorException );
+                            waiters = waiters.next;
+                        }
+                    }
+                }
+            }
+
+            clockArm++;
+        }
+
+        // If we still have waiters left, then it means our eviction loop was
+        // interrupted and that we are about to shut down.
+        // We first have to unblock our waiters and let them know what's going
+        // on, though.
+        // New waiters can queue up while we are doing this, however, so we
+        // must also take care of those waiters as the last thing we do before
+        // the eviction thread finally terminates. And we must prevent new
+        // waiters from queueing up.
+        interruptAllWaiters( waiters );
+
+        return clockArm;
+    }
+
+    private FreePageWaiter grabFreePageWaitersIfAny()
+    {
+        Object freelistHead = getFreelistHead();
+        if ( freelistHead instanceof FreePageWaiter )
+        {
+            FreePageWaiter waiters =
+                    (FreePageWaiter) getAndSetFreelistHead( null );
+            return reverse( waiters );
+        }
+        return null;
+    }
+
+    private FreePageWaiter reverse( FreePageWaiter waiters )
+    {
+        FreePageWaiter result = null;
+        while ( waiters != null )
+        {
+            FreePageWaiter tail = waiters.next;
+            waiters.next = result;
+            result = waiters;
+            waiters = tail;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "PagePartition[" + startIndex + ".." + endIndex + ")";
+    }
+}
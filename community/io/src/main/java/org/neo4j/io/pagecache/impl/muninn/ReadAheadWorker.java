@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.impl.muninn;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Services {@link org.neo4j.io.pagecache.PagedFile#PF_READ_AHEAD} hints on behalf of the cursors.
+ *
+ * Cursors that scan forward with the read-ahead flag queue up ranges of file pages that they are
+ * soon going to pin, and this worker faults them in ahead of time, on its own thread.
+ * Read-ahead is only ever a hint: ranges are dropped if the queue is full, and pages are only
+ * faulted into pages that are already free, so the worker never waits on the eviction thread.
+ */
+final class ReadAheadWorker implements Runnable
+{
+    private static final int queueCapacity = Integer.getInteger(
+            "org.neo4j.io.pagecache.impl.muninn.ReadAheadWorker.queueCapacity", 64 );
+
+    private final BlockingQueue<ReadAheadRequest> queue = new ArrayBlockingQueue<>( queueCapacity );
+
+    /**
+     * Ask for the file pages from {@code startPageId} to {@code endPageId}, both inclusive, to be faulted in.
+     * Returns false if the request was dropped.
+     */
+    public boolean request( MuninnPagedFile pagedFile, long startPageId, long endPageId )
+    {
+        return queue.offer( new ReadAheadRequest( pagedFile, startPageId, endPageId ) );
+    }
+
+    @Override
+    public void run()
+    {
+        try
+        {
+            while ( !Thread.currentThread().isInterrupted() )
+            {
+                readAhead( queue.take() );
+            }
+        }
+        catch ( InterruptedException ignore )
+        {
+            // The page cache is shutting down.
+        }
+        queue.clear();
+    }
+
+    private void readAhead( ReadAheadRequest request )
+    {
+        MuninnPagedFile pagedFile = request.pagedFile;
+        try
+        {
+            for ( long filePageId = request.startPageId; filePageId <= request.endPageId; filePageId++ )
+            {
+                if ( !pagedFile.prefetch( filePageId ) )
+                {
+                    // Either the file has been unmapped, or we ran out of free pages.
+                    // Whatever remains of the range will be faulted in by the cursor itself.
+                    return;
+                }
+            }
+        }
+        catch ( IOException | RuntimeException ignore )
+        {
+            // Read-ahead is only a hint. The cursor will run into the same problem,
+            // and report it, when it gets to the page.
+        }
+    }
+
+    private static final class ReadAheadRequest
+    {
+        final MuninnPagedFile pagedFile;
+        final long startPageId;
+        final long endPageId;
+
+        ReadAheadRequest( MuninnPagedFile pagedFile, long startPageId, long endPageId )
+        {
+            this.pagedFile = pagedFile;
+            this.startPageId = startPageId;
+            this.endPageId = endPageId;
+        }
+    }
+}
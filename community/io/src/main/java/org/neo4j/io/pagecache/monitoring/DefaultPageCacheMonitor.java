@@ -25,12 +25,22 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.io.pagecache.PageSwapper;
 
 /**
  * The default PageCacheMonitor implementation, that just increments counters.
+ *
+ * Besides the global counters, it also keeps {@link PagedFileCounters} for
+ * every file that has been mapped. Faults, hits and the heat map are only
+ * counted while pin monitoring is enabled, see
+ * {@link #enablePinUnpinMonitoring()}.
  */
 public class DefaultPageCacheMonitor implements PageCacheMonitor
 {
@@ -44,7 +54,7 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
             boolean alwaysEnabled = Boolean.getBoolean(
                     "org.neo4j.io.pagecache.monitoring.monitorPinUnpin" );
 
-            MethodType type = MethodType.methodType( PinEvent.class );
+            MethodType type = MethodType.methodType( PinEvent.class, long.class, PageSwapper.class );
             MethodHandles.Lookup lookup = MethodHandles.lookup();
             MethodHandle monitoredPinMH = lookup.findVirtual( DefaultPageCacheMonitor.class, "beginMonitoredPin", type );
             if ( alwaysEnabled )
@@ -91,6 +101,9 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
     protected final AtomicLong filesUnmapped = new AtomicLong();
     protected final AtomicLong evictionExceptions = new AtomicLong();
 
+    // Keyed by file name, since that is what the page swappers can tell us.
+    private final ConcurrentMap<String,FileEvents> files = new ConcurrentHashMap<>();
+
     private final FlushEvent flushEvent = new FlushEvent()
     {
         @Override
@@ -117,7 +130,8 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
         @Override
         public FlushEvent beginFlush( long filePageId, int cachePageId, PageSwapper swapper )
         {
-            return flushEvent;
+            FileEvents fileEvents = fileEvents( swapper );
+            return fileEvents == null? flushEvent : fileEvents.flushEvent;
         }
     };
 
@@ -131,6 +145,11 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
         @Override
         public void setSwapper( PageSwapper swapper )
         {
+            FileEvents fileEvents = fileEvents( swapper );
+            if ( fileEvents != null )
+            {
+                fileEvents.counters.evictions.getAndIncrement();
+            }
         }
 
         @Override
@@ -240,6 +259,11 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
     public void mappedFile( File file )
     {
         filesMapped.getAndIncrement();
+        String fileName = file.getName();
+        if ( !files.containsKey( fileName ) )
+        {
+            files.putIfAbsent( fileName, new FileEvents( fileName ) );
+        }
     }
 
     @Override
@@ -259,7 +283,7 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
     {
         try
         {
-            return (PinEvent) beginPinMH.invokeExact( this );
+            return (PinEvent) beginPinMH.invokeExact( this, filePageId, swapper );
         }
         catch ( Throwable throwable )
         {
@@ -271,7 +295,7 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
      * Invoked through beginPinMH.
      */
     @SuppressWarnings( "UnusedDeclaration" )
-    private PinEvent beginNullPin()
+    private PinEvent beginNullPin( long filePageId, PageSwapper swapper )
     {
         return NULL_PIN_EVENT;
     }
@@ -280,10 +304,21 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
      * Invoked through beginPinMH.
      */
     @SuppressWarnings( "UnusedDeclaration" )
-    private PinEvent beginMonitoredPin()
+    private PinEvent beginMonitoredPin( long filePageId, PageSwapper swapper )
     {
         pins.getAndIncrement();
-        return pinEvent;
+        FileEvents fileEvents = fileEvents( swapper );
+        if ( fileEvents == null )
+        {
+            return pinEvent;
+        }
+        fileEvents.counters.pin( filePageId );
+        return fileEvents.pinEvent;
+    }
+
+    private FileEvents fileEvents( PageSwapper swapper )
+    {
+        return swapper == null? null : files.get( swapper.fileName() );
     }
 
     @Override
@@ -357,4 +392,119 @@ public class DefaultPageCacheMonitor implements PageCacheMonitor
     {
         return evictionExceptions.get();
     }
+
+    /**
+     * Get the counters for the mapped file with the given name, or null if no
+     * file by that name has been mapped.
+     */
+    public PagedFileCounters countersFor( String fileName )
+    {
+        FileEvents fileEvents = files.get( fileName );
+        return fileEvents == null? null : fileEvents.counters;
+    }
+
+    /**
+     * Get the counters for all the files that have been mapped. Counters are
+     * kept when files are unmapped, so they carry on if the file is mapped
+     * again.
+     */
+    public Collection<PagedFileCounters> allFileCounters()
+    {
+        Collection<PagedFileCounters> counters = new ArrayList<>();
+        for ( FileEvents fileEvents : files.values() )
+        {
+            counters.add( fileEvents.counters );
+        }
+        return Collections.unmodifiableCollection( counters );
+    }
+
+    /**
+     * The events for a particular file, that count towards both the global
+     * counters and the counters of that file.
+     */
+    private final class FileEvents
+    {
+        private final PagedFileCounters counters;
+
+        private final FlushEvent flushEvent = new FlushEvent()
+        {
+            @Override
+            public void addBytesWritten( int bytes )
+            {
+                bytesWritten.getAndAdd( bytes );
+                counters.bytesWritten.getAndAdd( bytes );
+            }
+
+            @Override
+            public void done()
+            {
+                flushes.getAndIncrement();
+                counters.flushes.getAndIncrement();
+            }
+
+            @Override
+            public void done( IOException exception )
+            {
+                done();
+            }
+        };
+
+        private final PageFaultEvent pageFaultEvent = new PageFaultEvent()
+        {
+            @Override
+            public void addBytesRead( int bytes )
+            {
+                bytesRead.getAndAdd( bytes );
+                counters.bytesRead.getAndAdd( bytes );
+            }
+
+            @Override
+            public void done()
+            {
+                faults.getAndIncrement();
+                counters.faults.getAndIncrement();
+            }
+
+            @Override
+            public void done( Throwable throwable )
+            {
+                done();
+            }
+
+            @Override
+            public void setCachePageId( int cachePageId )
+            {
+            }
+
+            @Override
+            public void setParked( boolean parked )
+            {
+            }
+        };
+
+        private final PinEvent pinEvent = new PinEvent()
+        {
+            @Override
+            public void setCachePageId( int cachePageId )
+            {
+            }
+
+            @Override
+            public PageFaultEvent beginPageFault()
+            {
+                return pageFaultEvent;
+            }
+
+            @Override
+            public void done()
+            {
+                unpins.getAndIncrement();
+            }
+        };
+
+        FileEvents( String fileName )
+        {
+            this.counters = new PagedFileCounters( fileName );
+        }
+    }
 }
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.io.pagecache.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The counters that the {@link DefaultPageCacheMonitor} keeps for every file
+ * that has been mapped into the page cache.
+ *
+ * Besides the counts, this also keeps a sampled heat map of the file, where
+ * every entry counts the sampled pins of a range of
+ * {@link #heatMapPageRange()} consecutive file pages.
+ */
+public final class PagedFileCounters
+{
+    // The number of consecutive file pages that are counted together in an
+    // entry of the heat map.
+    private static final int heatMapPageRange = Integer.getInteger(
+            "org.neo4j.io.pagecache.monitoring.heatMapPageRange", 1024 );
+
+    // Only one in this many pins are recorded in the heat map. Must be a power
+    // of two.
+    private static final int heatMapSampleInterval = Integer.highestOneBit( Math.max( 1, Integer.getInteger(
+            "org.neo4j.io.pagecache.monitoring.heatMapSampleInterval", 64 ) ) );
+
+    private final String fileName;
+    final AtomicLong faults = new AtomicLong();
+    final AtomicLong pins = new AtomicLong();
+    final AtomicLong evictions = new AtomicLong();
+    final AtomicLong flushes = new AtomicLong();
+    final AtomicLong bytesRead = new AtomicLong();
+    final AtomicLong bytesWritten = new AtomicLong();
+    private volatile AtomicLongArray heatMap = new AtomicLongArray( 16 );
+
+    PagedFileCounters( String fileName )
+    {
+        this.fileName = fileName;
+    }
+
+    void pin( long filePageId )
+    {
+        long count = pins.getAndIncrement();
+        if ( (count & (heatMapSampleInterval - 1)) == 0 )
+        {
+            long range = filePageId / heatMapPageRange;
+            if ( range < Integer.MAX_VALUE )
+            {
+                AtomicLongArray heatMap = this.heatMap;
+                if ( range >= heatMap.length() )
+                {
+                    heatMap = growHeatMap( (int) range );
+                }
+                heatMap.getAndIncrement( (int) range );
+            }
+        }
+    }
+
+    private synchronized AtomicLongArray growHeatMap( int range )
+    {
+        // Samples that are recorded in the old array while we copy it are
+        // lost. That's fine, since it's only a sample anyway.
+        AtomicLongArray heatMap = this.heatMap;
+        if ( range >= heatMap.length() )
+        {
+            AtomicLongArray grown = new AtomicLongArray( Math.max( range + 1, heatMap.length() * 2 ) );
+            for ( int i = 0; i < heatMap.length(); i++ )
+            {
+                grown.set( i, heatMap.get( i ) );
+            }
+            this.heatMap = heatMap = grown;
+        }
+        return heatMap;
+    }
+
+    /**
+     * The name of the file these counters are for.
+     */
+    public String fileName()
+    {
+        return fileName;
+    }
+
+    public long countFaults()
+    {
+        return faults.get();
+    }
+
+    /**
+     * The number of pins that found their page already in memory.
+     */
+    public long countHits()
+    {
+        return Math.max( 0, pins.get() - faults.get() );
+    }
+
+    public long countPins()
+    {
+        return pins.get();
+    }
+
+    public long countEvictions()
+    {
+        return evictions.get();
+    }
+
+    public long countFlushes()
+    {
+        return flushes.get();
+    }
+
+    public long countBytesRead()
+    {
+        return bytesRead.get();
+    }
+
+    public long countBytesWritten()
+    {
+        return bytesWritten.get();
+    }
+
+    /**
+     * The number of consecutive file pages that are counted together in an
+     * entry of the {@link #heatMap()}.
+     */
+    public int heatMapPageRange()
+    {
+        return heatMapPageRange;
+    }
+
+    /**
+     * A snapshot of the sampled pin counts, where entry {@code i} counts the
+     * pins of the file pages from {@code i * heatMapPageRange()}, inclusive, to
+     * {@code (i + 1) * heatMapPageRange()}, exclusive. Trailing ranges without
+     * any samples are left out.
+     */
+    public long[] heatMap()
+    {
+        AtomicLongArray heatMap = this.heatMap;
+        int length = heatMap.length();
+        while ( length > 0 && heatMap.get( length - 1 ) == 0 )
+        {
+            length--;
+        }
+        long[] snapshot = new long[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            snapshot[i] = heatMap.get( i );
+        }
+        return snapshot;
+    }
+}
@@ -661,7 +661,12 @@ public class EphemeralFileSystemAbstraction implements FileSystemAbstraction
         public long write( ByteBuffer[] srcs, int offset, int length ) throws IOException
         {
             checkIfClosedOrInterrupted();
-            throw new UnsupportedOperationException();
+            long bytesWritten = 0;
+            for ( int i = offset; i < offset + length; i++ )
+            {
+                bytesWritten += data.write( this, srcs[i] );
+            }
+            return bytesWritten;
         }
 
         @Override
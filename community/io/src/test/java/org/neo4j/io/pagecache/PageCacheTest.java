@@ -77,6 +77,7 @@ import static org.junit.Assert.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_EXCLUSIVE_LOCK;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
 import static org.neo4j.test.ByteArrayMatcher.byteArray;
 import static org.neo4j.test.ThreadTestUtils.awaitThreadState;
@@ -341,6 +342,87 @@ public abstract class PageCacheTest<T extends RunnablePageCache>
         assertThat( recordId, is( recordCount ) );
     }
 
+    @Test( timeout = 10000 )
+    public void mustReadExistingDataWithReadAhead() throws IOException
+    {
+        generateFileWithRecords( file, recordCount, recordSize );
+
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+
+        int recordId = 0;
+        try ( PagedFile pagedFile = cache.map( file, filePageSize );
+              PageCursor cursor = pagedFile.io( 0L, PF_SHARED_LOCK | PF_READ_AHEAD ) )
+        {
+            while ( cursor.next() )
+            {
+                verifyRecordsMatchExpected( cursor );
+                recordId += recordsPerFilePage;
+            }
+        }
+
+        assertThat( recordId, is( recordCount ) );
+    }
+
+    @Test( timeout = 1000 )
+    public void noFaultReadMustNotPinPagesThatAreNotInMemory() throws IOException
+    {
+        generateFileWithRecords( file, recordCount, recordSize );
+
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+
+        try ( PagedFile pagedFile = cache.map( file, filePageSize );
+              PageCursor cursor = pagedFile.io( 0L, PF_SHARED_LOCK | PF_NO_FAULT ) )
+        {
+            assertFalse( cursor.next() );
+            assertFalse( cursor.next( 3 ) );
+        }
+    }
+
+    @Test( timeout = 1000 )
+    public void noFaultWriteMustNotPinPagesThatAreNotInMemory() throws IOException
+    {
+        generateFileWithRecords( file, recordCount, recordSize );
+
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+
+        try ( PagedFile pagedFile = cache.map( file, filePageSize );
+              PageCursor cursor = pagedFile.io( 0L, PF_EXCLUSIVE_LOCK | PF_NO_FAULT ) )
+        {
+            assertFalse( cursor.next() );
+            assertFalse( cursor.next( 3 ) );
+        }
+    }
+
+    @Test( timeout = 1000 )
+    public void noFaultReadMustPinPagesThatAreAlreadyInMemory() throws IOException
+    {
+        generateFileWithRecords( file, recordCount, recordSize );
+
+        PageCache cache = getPageCache( fs, maxPages, pageCachePageSize, PageCacheMonitor.NULL );
+
+        try ( PagedFile pagedFile = cache.map( file, filePageSize ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 2L, PF_SHARED_LOCK ) )
+            {
+                assertTrue( cursor.next() );
+            }
+
+            try ( PageCursor cursor = pagedFile.io( 2L, PF_SHARED_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( 2L ) );
+                verifyRecordsMatchExpected( cursor );
+                assertFalse( cursor.next() );
+            }
+
+            try ( PageCursor cursor = pagedFile.io( 2L, PF_EXCLUSIVE_LOCK | PF_NO_FAULT ) )
+            {
+                assertTrue( cursor.next() );
+                assertThat( cursor.getCurrentPageId(), is( 2L ) );
+            }
+        }
+    }
+
     @Test( timeout = 1000 )
     public void mustScanInTheMiddleOfTheFile() throws IOException
     {
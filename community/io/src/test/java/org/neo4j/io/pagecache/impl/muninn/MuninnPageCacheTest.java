@@ -24,11 +24,14 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.primitive.PrimitiveLongIntMap;
@@ -40,17 +43,21 @@ import org.neo4j.io.pagecache.PageCacheTest;
 import org.neo4j.io.pagecache.PageCursor;
 import org.neo4j.io.pagecache.PagedFile;
 import org.neo4j.io.pagecache.RecordingPageCacheMonitor;
+import org.neo4j.io.pagecache.impl.SingleFilePageSwapperFactory;
 import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.neo4j.io.pagecache.PagedFile.PF_EXCLUSIVE_LOCK;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
 import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_READ_AHEAD;
 import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
 import static org.neo4j.io.pagecache.RecordingPageCacheMonitor.Evict;
 import static org.neo4j.io.pagecache.RecordingPageCacheMonitor.Fault;
@@ -103,6 +110,35 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         assertNotNull( monitor.observe( Evict.class ) );
     }
 
+    @Test
+    public void noFaultShouldRetryMustNotFaultInPageEvictedWhileReading() throws Exception
+    {
+        writeInitialDataTo( file );
+        RecordingPageCacheMonitor monitor = new RecordingPageCacheMonitor();
+
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 2, 8, monitor );
+        PagedFile pagedFile = pageCache.map( file, 8 );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK ) )
+        {
+            assertTrue( cursor.next() );
+        }
+        assertNotNull( monitor.observe( Fault.class ) );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK | PF_NO_FAULT ) )
+        {
+            assertTrue( cursor.next() );
+            assertThat( cursor.getLong(), is( x ) );
+
+            pageCache.evictPages( 1, 0, monitor.beginPageEvictions( 1 ) );
+            assertNotNull( monitor.observe( Evict.class ) );
+
+            assertTrue( cursor.shouldRetry() );
+            assertThat( cursor.getCurrentPageId(), is( PageCursor.UNBOUND_PAGE_ID ) );
+        }
+        assertThat( monitor.tryObserve( Fault.class ), nullValue() );
+    }
+
     private void writeInitialDataTo( File file ) throws IOException
     {
         StoreChannel channel = fs.create( file );
@@ -203,6 +239,198 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
         assertThat( buf.getLong(), is( 0L ) );
     }
 
+    @Test( timeout = 10000 )
+    public void readAheadMustFaultInPagesAheadOfTheCursor() throws Exception
+    {
+        StoreChannel channel = fs.create( file );
+        channel.writeAll( ByteBuffer.allocate( 8 * 16 ) );
+        channel.close();
+        RecordingPageCacheMonitor monitor = new RecordingPageCacheMonitor();
+
+        // With 16 pages in the cache, the read-ahead window is 4 pages.
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 16, 8, monitor );
+        PagedFile pagedFile = pageCache.map( file, 8 );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK | PF_READ_AHEAD ) )
+        {
+            assertTrue( cursor.next() );
+            assertThat( monitor.observe( Fault.class ).pageId, is( 0L ) );
+            for ( long pageId = 1; pageId <= 4; pageId++ )
+            {
+                assertThat( monitor.observe( Fault.class ).pageId, is( pageId ) );
+            }
+
+            // The read-ahead pages are already in memory, so the cursor
+            // must not fault them in itself.
+            for ( int i = 0; i < 2; i++ )
+            {
+                assertTrue( cursor.next() );
+            }
+            assertThat( monitor.observe( Fault.class ).pageId, is( 5L ) );
+        }
+        pagedFile.close();
+        pageCache.close();
+    }
+
+    @Test
+    public void flushMustWriteAdjacentDirtyPagesWithSingleGatheringWrite() throws Exception
+    {
+        final AtomicInteger gatheringWrites = new AtomicInteger();
+        final AtomicInteger singleWrites = new AtomicInteger();
+        FileSystemAbstraction fs = writeCountingFileSystem( gatheringWrites, singleWrites );
+
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 8, 8, PageCacheMonitor.NULL );
+        PagedFile pagedFile = pageCache.map( file, 8 );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_EXCLUSIVE_LOCK ) )
+        {
+            for ( long i = 0; i < 4; i++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( i + 1 );
+            }
+        }
+        pagedFile.flush();
+
+        assertThat( gatheringWrites.get(), is( 1 ) );
+        assertThat( singleWrites.get(), is( 0 ) );
+        assertFileContains( 1L, 2L, 3L, 4L );
+        pagedFile.close();
+        pageCache.close();
+    }
+
+    @Test
+    public void evictingDirtyPageMustAlsoFlushTheDirtyPagesFollowingIt() throws Exception
+    {
+        final AtomicInteger gatheringWrites = new AtomicInteger();
+        final AtomicInteger singleWrites = new AtomicInteger();
+        FileSystemAbstraction fs = writeCountingFileSystem( gatheringWrites, singleWrites );
+
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 4, 8, PageCacheMonitor.NULL );
+        PagedFile pagedFile = pageCache.map( file, 8 );
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_EXCLUSIVE_LOCK ) )
+        {
+            for ( long i = 0; i < 3; i++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( i + 1 );
+            }
+        }
+
+        // Evict only the first page
+        int clockArm = pageCache.evictPages( 1, 0, PageCacheMonitor.NULL_EVICTION_RUN_EVENT );
+        assertThat( clockArm, is( 1 ) );
+
+        assertThat( gatheringWrites.get(), is( 1 ) );
+        assertThat( singleWrites.get(), is( 0 ) );
+        assertFileContains( 1L, 2L, 3L );
+
+        // The pages that were flushed along with the evicted one are now clean
+        pagedFile.flush();
+        assertThat( gatheringWrites.get(), is( 1 ) );
+        assertThat( singleWrites.get(), is( 0 ) );
+        pagedFile.close();
+        pageCache.close();
+    }
+
+    @Test
+    public void mustGrabFreePagesFromAllEvictionPartitions() throws Exception
+    {
+        MuninnPageCache pageCache = new MuninnPageCache(
+                new SingleFilePageSwapperFactory( fs ), 8, 8, PageCacheMonitor.NULL, 4 );
+
+        Set<MuninnPage> grabbedPages = new HashSet<>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            MuninnPage page = pageCache.tryGrabFreePage();
+            assertNotNull( page );
+            grabbedPages.add( page );
+        }
+        assertThat( grabbedPages.size(), is( 8 ) );
+        assertThat( pageCache.tryGrabFreePage(), is( nullValue() ) );
+        pageCache.close();
+    }
+
+    @Test( timeout = 10000 )
+    public void mustWriteAndReadBackFileMuchLargerThanCacheWithMultipleEvictionPartitions() throws Exception
+    {
+        final MuninnPageCache pageCache = new MuninnPageCache(
+                new SingleFilePageSwapperFactory( fs ), 8, 8, PageCacheMonitor.NULL, 4 );
+        Future<?> eviction = executor.submit( pageCache );
+        PagedFile pagedFile = pageCache.map( file, 8 );
+        int pageCount = 64;
+
+        try ( PageCursor cursor = pagedFile.io( 0, PF_EXCLUSIVE_LOCK ) )
+        {
+            for ( long i = 0; i < pageCount; i++ )
+            {
+                assertTrue( cursor.next() );
+                cursor.putLong( i + 1 );
+            }
+        }
+        try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK ) )
+        {
+            for ( long i = 0; i < pageCount; i++ )
+            {
+                assertTrue( cursor.next() );
+                long value;
+                do
+                {
+                    value = cursor.getLong();
+                }
+                while ( cursor.shouldRetry() );
+                assertThat( value, is( i + 1 ) );
+            }
+            assertFalse( cursor.next() );
+        }
+
+        pagedFile.close();
+        eviction.cancel( true );
+        pageCache.close();
+    }
+
+    private FileSystemAbstraction writeCountingFileSystem(
+            final AtomicInteger gatheringWrites, final AtomicInteger singleWrites )
+    {
+        return new DelegatingFileSystemAbstraction( this.fs )
+        {
+            @Override
+            public StoreChannel open( File fileName, String mode ) throws IOException
+            {
+                return new DelegatingStoreChannel( super.open( fileName, mode ) )
+                {
+                    @Override
+                    public long write( ByteBuffer[] srcs ) throws IOException
+                    {
+                        gatheringWrites.getAndIncrement();
+                        return super.write( srcs );
+                    }
+
+                    @Override
+                    public void writeAll( ByteBuffer src, long position ) throws IOException
+                    {
+                        singleWrites.getAndIncrement();
+                        super.writeAll( src, position );
+                    }
+                };
+            }
+        };
+    }
+
+    private void assertFileContains( long... values ) throws IOException
+    {
+        ByteBuffer buf = ByteBuffer.allocate( values.length * 8 );
+        StoreChannel channel = fs.open( file, "r" );
+        channel.read( buf );
+        channel.close();
+        buf.flip();
+        for ( long value : values )
+        {
+            assertThat( buf.getLong(), is( value ) );
+        }
+    }
+
     @Test
     public void closingTheCursorMustUnlockModifiedPage() throws Exception
     {
@@ -265,6 +493,12 @@ public class MuninnPageCacheTest extends PageCacheTest<MuninnPageCache>
                     {
                         throw new IOException( "uh-oh..." );
                     }
+
+                    @Override
+                    public long write( ByteBuffer[] srcs ) throws IOException
+                    {
+                        throw new IOException( "uh-oh..." );
+                    }
                 };
             }
         };
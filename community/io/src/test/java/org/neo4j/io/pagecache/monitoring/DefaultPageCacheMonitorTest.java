@@ -19,6 +19,16 @@
  */
 package org.neo4j.io.pagecache.monitoring;
 
+import org.junit.Test;
+
+import java.io.File;
+
+import org.neo4j.io.pagecache.PageSwapper;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
 public class DefaultPageCacheMonitorTest extends PageCacheMonitorTest
 {
     @Override
@@ -27,4 +37,63 @@ public class DefaultPageCacheMonitorTest extends PageCacheMonitorTest
         DefaultPageCacheMonitor.enablePinUnpinMonitoring();
         return new DefaultPageCacheMonitor();
     }
+
+    @Test
+    public void mustCountEventsPerMappedFile()
+    {
+        DefaultPageCacheMonitor monitor = createMonitor();
+        PageSwapper swapper = new DummyPageSwapper( "a" );
+        PageSwapper otherSwapper = new DummyPageSwapper( "b" );
+        monitor.mappedFile( new File( "a" ) );
+
+        PinEvent pinEvent = monitor.beginPin( false, 0, swapper );
+        PageFaultEvent pageFaultEvent = pinEvent.beginPageFault();
+        pageFaultEvent.addBytesRead( 42 );
+        pageFaultEvent.done();
+        pinEvent.done();
+        monitor.beginPin( false, 0, swapper ).done();
+        monitor.beginPin( false, 0, otherSwapper ).done();
+
+        try ( EvictionRunEvent evictionRunEvent = monitor.beginPageEvictions( 1 );
+              EvictionEvent evictionEvent = evictionRunEvent.beginEviction() )
+        {
+            FlushEvent flushEvent = evictionEvent.flushEventOpportunity().beginFlush( 0, 0, swapper );
+            flushEvent.addBytesWritten( 12 );
+            flushEvent.done();
+            evictionEvent.setSwapper( swapper );
+        }
+
+        PagedFileCounters counters = monitor.countersFor( "a" );
+        assertThat( counters.fileName(), is( "a" ) );
+        assertThat( counters.countPins(), is( 2L ) );
+        assertThat( counters.countFaults(), is( 1L ) );
+        assertThat( counters.countHits(), is( 1L ) );
+        assertThat( counters.countBytesRead(), is( 42L ) );
+        assertThat( counters.countEvictions(), is( 1L ) );
+        assertThat( counters.countFlushes(), is( 1L ) );
+        assertThat( counters.countBytesWritten(), is( 12L ) );
+        assertThat( monitor.countersFor( "b" ), is( nullValue() ) );
+        assertThat( monitor.allFileCounters().size(), is( 1 ) );
+        assertThat( monitor.countPins(), is( 3L ) );
+    }
+
+    @Test
+    public void heatMapMustSamplePinnedPageRanges()
+    {
+        DefaultPageCacheMonitor monitor = createMonitor();
+        PageSwapper swapper = new DummyPageSwapper( "a" );
+        monitor.mappedFile( new File( "a" ) );
+        PagedFileCounters counters = monitor.countersFor( "a" );
+        long hotPageId = 3 * counters.heatMapPageRange();
+
+        for ( int i = 0; i < 1000; i++ )
+        {
+            monitor.beginPin( false, hotPageId, swapper ).done();
+        }
+
+        long[] heatMap = counters.heatMap();
+        assertThat( heatMap.length, is( 4 ) );
+        assertThat( heatMap[0], is( 0L ) );
+        assertThat( heatMap[3] > 0, is( true ) );
+    }
 }
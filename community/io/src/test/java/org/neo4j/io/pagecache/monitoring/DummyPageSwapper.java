@@ -45,6 +45,12 @@ public class DummyPageSwapper implements PageSwapper
         return 0;
     }
 
+    @Override
+    public long write( long startFilePageId, Page[] pages, int arrayOffset, int length ) throws IOException
+    {
+        return 0;
+    }
+
     @Override
     public void evicted( long pageId, Page page )
     {
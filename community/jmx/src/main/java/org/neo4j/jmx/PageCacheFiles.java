@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx;
+
+@ManagementInterface( name = PageCacheFiles.NAME )
+@Description( "Information about how each of the files mapped into the Neo4j page cache is using it" )
+public interface PageCacheFiles
+{
+    final String NAME = "Page cache files";
+
+    @Description( "Page cache statistics and a sampled heat map for every file that has been mapped into " +
+                  "the page cache. Faults, hits and heat maps are only counted while pin monitoring is enabled." )
+    PagedFileInfo[] getPagedFiles();
+
+    @Description( "Enable monitoring of page pins, which is needed for counting faults and hits and for " +
+                  "sampling the heat maps. This cannot be disabled again without restarting the JVM." )
+    void enablePinMonitoring();
+}
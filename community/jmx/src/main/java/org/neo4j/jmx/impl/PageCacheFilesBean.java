@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.NotCompliantMBeanException;
+
+import org.neo4j.helpers.Service;
+import org.neo4j.io.pagecache.monitoring.DefaultPageCacheMonitor;
+import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
+import org.neo4j.io.pagecache.monitoring.PagedFileCounters;
+import org.neo4j.jmx.PageCacheFiles;
+import org.neo4j.jmx.PagedFileInfo;
+
+@Service.Implementation( ManagementBeanProvider.class )
+public final class PageCacheFilesBean extends ManagementBeanProvider
+{
+    public PageCacheFilesBean()
+    {
+        super( PageCacheFiles.class );
+    }
+
+    @Override
+    protected Neo4jMBean createMBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        DefaultPageCacheMonitor monitor = defaultMonitor( management );
+        return monitor == null? null : new PageCacheFilesImpl( management, monitor );
+    }
+
+    @Override
+    protected Neo4jMBean createMXBean( ManagementData management ) throws NotCompliantMBeanException
+    {
+        DefaultPageCacheMonitor monitor = defaultMonitor( management );
+        return monitor == null? null : new PageCacheFilesImpl( management, monitor, true );
+    }
+
+    private static DefaultPageCacheMonitor defaultMonitor( ManagementData management )
+    {
+        // Only the default monitor keeps per-file counters.
+        PageCacheMonitor monitor = management.resolveDependency( PageCacheMonitor.class );
+        return monitor instanceof DefaultPageCacheMonitor? (DefaultPageCacheMonitor) monitor : null;
+    }
+
+    private static class PageCacheFilesImpl extends Neo4jMBean implements PageCacheFiles
+    {
+        private final DefaultPageCacheMonitor monitor;
+
+        PageCacheFilesImpl( ManagementData management, DefaultPageCacheMonitor monitor )
+                throws NotCompliantMBeanException
+        {
+            super( management );
+            this.monitor = monitor;
+        }
+
+        PageCacheFilesImpl( ManagementData management, DefaultPageCacheMonitor monitor, boolean isMXBean )
+        {
+            super( management, isMXBean );
+            this.monitor = monitor;
+        }
+
+        @Override
+        public PagedFileInfo[] getPagedFiles()
+        {
+            List<PagedFileInfo> infos = new ArrayList<>();
+            for ( PagedFileCounters counters : monitor.allFileCounters() )
+            {
+                infos.add( new PagedFileInfo(
+                        counters.fileName(),
+                        counters.countFaults(),
+                        counters.countHits(),
+                        counters.countEvictions(),
+                        counters.countFlushes(),
+                        counters.countBytesRead(),
+                        counters.countBytesWritten(),
+                        counters.heatMapPageRange(),
+                        counters.heatMap() ) );
+            }
+            return infos.toArray( new PagedFileInfo[infos.size()] );
+        }
+
+        @Override
+        public void enablePinMonitoring()
+        {
+            DefaultPageCacheMonitor.enablePinUnpinMonitoring();
+        }
+    }
+}
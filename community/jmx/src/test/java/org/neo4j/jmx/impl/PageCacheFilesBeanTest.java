@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.jmx.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.jmx.PageCacheFiles;
+import org.neo4j.jmx.PagedFileInfo;
+import org.neo4j.kernel.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+
+import static org.junit.Assert.assertTrue;
+
+public class PageCacheFilesBeanTest
+{
+    private GraphDatabaseService graphdb;
+
+    @Before
+    public void startDb()
+    {
+        graphdb = new TestGraphDatabaseFactory().newImpermanentDatabase();
+    }
+
+    @After
+    public void stopDb()
+    {
+        graphdb.shutdown();
+    }
+
+    @Test
+    public void mustReportCountersForMappedStoreFiles() throws Exception
+    {
+        PageCacheFiles bean = ((GraphDatabaseAPI) graphdb).getDependencyResolver()
+                .resolveDependency( JmxKernelExtension.class ).getSingleManagementBean( PageCacheFiles.class );
+        bean.enablePinMonitoring();
+
+        try ( Transaction tx = graphdb.beginTx() )
+        {
+            graphdb.createNode();
+            tx.success();
+        }
+
+        boolean foundNodeStore = false;
+        for ( PagedFileInfo info : bean.getPagedFiles() )
+        {
+            if ( info.getFileName().equals( "neostore.nodestore.db" ) )
+            {
+                foundNodeStore = true;
+                assertTrue( info.getHits() + info.getFaults() > 0 );
+            }
+        }
+        assertTrue( foundNodeStore );
+    }
+}
@@ -70,10 +70,16 @@ public abstract class GraphDatabaseSettings
     public static final Setting<Boolean> read_only = setting( "read_only", BOOLEAN, FALSE );
 
     @Description("The type of cache to use for nodes and relationships. "
+                  + "The `offheap` cache keeps nodes and relationships serialized in memory outside of the java heap. "
                   + "Note that the Neo4j Enterprise Edition has the additional `hpc` cache type (High-Performance Cache). "
             + "See the chapter on caches in the manual for more information.")
     public static final Setting<String> cache_type = setting( "cache_type", options( availableCaches() ), availableCaches()[0] );
 
+    @Description("Only cache nodes and relationships which are accessed frequently enough, as opposed to caching "
+            + "every one loaded. Keeps large scans, touching each node or relationship once, from evicting "
+            + "frequently accessed ones. Applies to the `soft`, `weak`, `offheap` and `hpc` cache types.")
+    public static final Setting<Boolean> cache_admission_filter = setting( "cache_admission_filter", BOOLEAN, FALSE );
+
     @Description("Print out the effective Neo4j configuration after startup.")
     public static final Setting<Boolean> dump_configuration = setting("dump_configuration", BOOLEAN, FALSE );
 
@@ -193,6 +199,11 @@ public abstract class GraphDatabaseSettings
                   "`0` means that no rotation will automatically occur based on file size. " )
     public static final Setting<Long> logical_log_rotation_threshold = setting( "logical_log_rotation_threshold", BYTES, "25M" );
 
+    @Description( "Compress the commands of each transaction written to the logical log. Makes the logical logs, " +
+                  "and transactions streamed from them to other instances, smaller at the cost of some CPU " +
+                  "when committing and reading transactions. Logs can be read regardless of this setting." )
+    public static final Setting<Boolean> logical_log_compression = setting( "logical_log_compression", BOOLEAN, FALSE );
+
     @Description("Use a quick approach for rebuilding the ID generators. This give quicker recovery time, " +
             "but will limit the ability to reuse the space of deleted entities.")
     @Internal
@@ -221,6 +232,16 @@ public abstract class GraphDatabaseSettings
             " that less than 2GB of memory is free when it starts." )
     public static final Setting<Long> pagecache_memory = setting( "dbms.pagecache.memory", directMemoryUsage(), "50%" );
 
+    @Description( "Periodically record which pages are in the page cache, and load those pages back in when the" +
+            " database starts, before it becomes available. This shortens the time it takes for the page cache" +
+            " to warm up after a restart." )
+    public static final Setting<Boolean> pagecache_warmup_enabled = setting( "dbms.pagecache.warmup.enabled",
+            BOOLEAN, FALSE );
+
+    @Description( "How often to record which pages are in the page cache, for warming it up after a restart." )
+    public static final Setting<Long> pagecache_warmup_profile_interval = setting(
+            "dbms.pagecache.warmup.profile.interval", DURATION, "1m" );
+
     @Deprecated
     @Obsoleted( "This is no longer used" )
     @Description( "Log memory mapping statistics regularly." )
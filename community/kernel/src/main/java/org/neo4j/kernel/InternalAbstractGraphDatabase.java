@@ -20,6 +20,7 @@
 package org.neo4j.kernel;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -715,8 +716,33 @@ public abstract class InternalAbstractGraphDatabase
     protected LifecycledPageCache createPageCache()
     {
         SingleFilePageSwapperFactory swapperFactory = new SingleFilePageSwapperFactory( fileSystem );
-        LifecycledPageCache lifecycledPageCache = new LifecycledPageCache(
-                swapperFactory, jobScheduler, config, pageCacheMonitor );
+        final LifecycledPageCache lifecycledPageCache = new LifecycledPageCache(
+                swapperFactory, jobScheduler, config, pageCacheMonitor, fileSystem, storeDir,
+                logging.getMessagesLog( LifecycledPageCache.class ) );
+
+        // The stores have mapped their files by the time the database becomes
+        // available, so the files that were mapped for warming up the page
+        // cache can be let go of.
+        availabilityGuard.addListener( new AvailabilityGuard.AvailabilityListener()
+        {
+            @Override
+            public void available()
+            {
+                try
+                {
+                    lifecycledPageCache.releaseWarmedUpFiles();
+                }
+                catch ( IOException e )
+                {
+                    msgLog.warn( "Failed to release the files mapped for warming up the page cache", e );
+                }
+            }
+
+            @Override
+            public void unavailable()
+            {
+            }
+        } );
 
         if ( config.get( GraphDatabaseSettings.dump_configuration ) )
         {
@@ -103,6 +103,8 @@ import org.neo4j.kernel.impl.store.record.SchemaRule;
 import org.neo4j.kernel.impl.storemigration.StoreUpgrader;
 import org.neo4j.kernel.impl.transaction.TransactionHeaderInformationFactory;
 import org.neo4j.kernel.impl.transaction.TransactionMonitor;
+import org.neo4j.kernel.impl.transaction.command.ParallelRecordApplier;
+import org.neo4j.kernel.impl.transaction.log.CommitLatencyHistogram;
 import org.neo4j.kernel.impl.transaction.log.LogFile;
 import org.neo4j.kernel.impl.transaction.log.LogFileInformation;
 import org.neo4j.kernel.impl.transaction.log.LogFileRecoverer;
@@ -118,6 +120,7 @@ import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogVersionedStoreChannel;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogicalTransactionStore;
 import org.neo4j.kernel.impl.transaction.log.ReadableVersionableLogChannel;
+import org.neo4j.kernel.impl.transaction.log.TransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.TransactionMetadataCache;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryReader;
@@ -222,6 +225,8 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
         LogRotationControl logRotationControl();
 
         LogRotation logRotation();
+
+        CommitLatencyHistogram commitLatencyHistogram();
     }
 
     private interface KernelModule
@@ -683,7 +688,8 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
 
         final IndexingService indexingService = IndexingService.create(
                 new IndexSamplingConfig( config ), scheduler, providerMap,
-                new NeoStoreIndexStoreView( lockService, neoStore ), tokenNameLookup, updateableSchemaState,
+                new NeoStoreIndexStoreView( lockService, neoStore, scheduler, Runtime.getRuntime().availableProcessors() ),
+                tokenNameLookup, updateableSchemaState,
                 toList( new SchemaStorage( neoStore.getSchemaStore() ).allIndexRules() ), logging,
                 indexingServiceMonitor );
         final IntegrityValidator integrityValidator = new IntegrityValidator( neoStore, indexingService );
@@ -821,10 +827,24 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
         final LogRotation logRotation = new LogRotationImpl( monitors.newMonitor( LogRotation.Monitor.class ),
                 logFile, logRotationControl, kernelHealth, logging );
 
+        // Listens to the transaction appender monitor, and is exposed as a dependency for reporting
+        final CommitLatencyHistogram commitLatencyHistogram = new CommitLatencyHistogram();
+        monitors.addMonitorListener( commitLatencyHistogram );
+        life.add( new LifecycleAdapter()
+        {
+            @Override
+            public void shutdown()
+            {
+                monitors.removeMonitorListener( commitLatencyHistogram );
+            }
+        } );
+
         final LogicalTransactionStore logicalTransactionStore =
                 new PhysicalLogicalTransactionStore( logFile, logRotation,
                         transactionMetadataCache, neoStore, legacyIndexTransactionOrdering,
-                        kernelHealth, config.get( GraphDatabaseSettings.batched_writes ) );
+                        kernelHealth, config.get( GraphDatabaseSettings.batched_writes ),
+                        monitors.newMonitor( TransactionAppender.Monitor.class ),
+                        config.get( GraphDatabaseSettings.logical_log_compression ) );
 
         life.add( logFile );
         life.add( logicalTransactionStore );
@@ -872,6 +892,12 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
             {
                 return logRotation;
             }
+
+            @Override
+            public CommitLatencyHistogram commitLatencyHistogram()
+            {
+                return commitLatencyHistogram;
+            }
         };
     }
 
@@ -881,12 +907,17 @@ public class NeoStoreDataSource implements NeoStoreProvider, Lifecycle, IndexPro
             final PhysicalLogFiles logFiles, final LogRotationControl logRotationControl,
             final StartupStatisticsProvider startupStatistics )
     {
+        // Log entries are read on the recovery thread, while record commands are applied by these other threads
+        int recoveryThreads = Runtime.getRuntime().availableProcessors();
+        ParallelRecordApplier recordApplier = recoveryThreads > 1 ?
+                new ParallelRecordApplier( neoStore, cacheAccess, recoveryThreads ) : null;
         final TransactionRepresentationStoreApplier storeRecoverer =
                 new TransactionRepresentationStoreApplier(
                         indexingService, labelScanStore, neoStore, cacheAccess, lockService,
-                        legacyIndexProviderLookup, indexConfigStore, IdOrderingQueue.BYPASS );
+                        legacyIndexProviderLookup, indexConfigStore, IdOrderingQueue.BYPASS, recordApplier );
 
-        RecoveryVisitor recoveryVisitor = new RecoveryVisitor( neoStore, storeRecoverer, recoveryVisitorMonitor );
+        RecoveryVisitor recoveryVisitor = new RecoveryVisitor( neoStore, storeRecoverer, recordApplier,
+                recoveryVisitorMonitor );
 
         LogEntryReader<ReadableVersionableLogChannel> logEntryReader = new LogEntryReaderFactory().versionable();
         final Visitor<LogVersionedStoreChannel,IOException> logFileRecoverer =
@@ -35,6 +35,24 @@ public interface IndexReader extends Resource
 {
     PrimitiveLongIterator lookup( Object value );
 
+    /**
+     * Searches this index for numeric values between {@code lower} and {@code upper}.
+     * A {@code null} bound leaves the range open in that direction.
+     * Numbers are indexed as doubles, so results close to the bounds may need exact filtering by the caller.
+     */
+    PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower, Number upper, boolean includeUpper );
+
+    /**
+     * Searches this index for string values between {@code lower} and {@code upper}.
+     * A {@code null} bound leaves the range open in that direction.
+     */
+    PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower, String upper, boolean includeUpper );
+
+    /**
+     * Searches this index for string values starting with {@code prefix}.
+     */
+    PrimitiveLongIterator rangeSeekByPrefix( String prefix );
+
     IndexReader EMPTY = new IndexReader()
     {
         @Override
@@ -43,6 +61,26 @@ public interface IndexReader extends Resource
             return PrimitiveLongCollections.emptyIterator();
         }
 
+        @Override
+        public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                        Number upper, boolean includeUpper )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                        String upper, boolean includeUpper )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+        {
+            return PrimitiveLongCollections.emptyIterator();
+        }
+
         // Used for checking index correctness
         @Override
         public int getIndexedCount( long nodeId, Object propertyValue )
@@ -91,6 +129,26 @@ public interface IndexReader extends Resource
             return delegate.lookup( value );
         }
 
+        @Override
+        public PrimitiveLongIterator rangeSeekByNumber( Number lower, boolean includeLower,
+                                                        Number upper, boolean includeUpper )
+        {
+            return delegate.rangeSeekByNumber( lower, includeLower, upper, includeUpper );
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByString( String lower, boolean includeLower,
+                                                        String upper, boolean includeUpper )
+        {
+            return delegate.rangeSeekByString( lower, includeLower, upper, includeUpper );
+        }
+
+        @Override
+        public PrimitiveLongIterator rangeSeekByPrefix( String prefix )
+        {
+            return delegate.rangeSeekByPrefix( prefix );
+        }
+
         @Override
         public int getIndexedCount( long nodeId, Object propertyValue )
         {
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.index;
+
+/**
+ * Decides whether property values fall within the ranges and prefixes of
+ * {@link IndexReader#rangeSeekByNumber(Number, boolean, Number, boolean) range} and
+ * {@link IndexReader#rangeSeekByPrefix(String) prefix} seeks, for the parts of the kernel that have to match
+ * values themselves rather than asking an index, e.g. transaction state and exact filtering of index results.
+ *
+ * A {@code null} bound means that the range is unbounded in that direction.
+ */
+public class RangeMatcher
+{
+    private RangeMatcher()
+    {
+    }
+
+    public static boolean inNumberRange( Object value, Number lower, boolean includeLower,
+                                         Number upper, boolean includeUpper )
+    {
+        if ( !(value instanceof Number) )
+        {
+            return false;
+        }
+        Number number = (Number) value;
+        if ( lower != null )
+        {
+            int comparison = compare( number, lower );
+            if ( comparison < 0 || (comparison == 0 && !includeLower) )
+            {
+                return false;
+            }
+        }
+        if ( upper != null )
+        {
+            int comparison = compare( number, upper );
+            if ( comparison > 0 || (comparison == 0 && !includeUpper) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean inStringRange( Object value, String lower, boolean includeLower,
+                                         String upper, boolean includeUpper )
+    {
+        if ( !isString( value ) )
+        {
+            return false;
+        }
+        String string = value.toString();
+        if ( lower != null )
+        {
+            int comparison = string.compareTo( lower );
+            if ( comparison < 0 || (comparison == 0 && !includeLower) )
+            {
+                return false;
+            }
+        }
+        if ( upper != null )
+        {
+            int comparison = string.compareTo( upper );
+            if ( comparison > 0 || (comparison == 0 && !includeUpper) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean hasPrefix( Object value, String prefix )
+    {
+        return isString( value ) && value.toString().startsWith( prefix );
+    }
+
+    /**
+     * Integral numbers are compared exactly, anything else as doubles, which is also how numbers are indexed.
+     */
+    static int compare( Number a, Number b )
+    {
+        if ( isIntegral( a ) && isIntegral( b ) )
+        {
+            return Long.compare( a.longValue(), b.longValue() );
+        }
+        return Double.compare( a.doubleValue(), b.doubleValue() );
+    }
+
+    private static boolean isIntegral( Number number )
+    {
+        return number instanceof Long || number instanceof Integer ||
+               number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isString( Object value )
+    {
+        return value instanceof String || value instanceof Character;
+    }
+}
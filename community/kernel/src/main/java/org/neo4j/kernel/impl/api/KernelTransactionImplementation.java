@@ -53,8 +53,10 @@ import org.neo4j.kernel.impl.api.state.TxState;
 import org.neo4j.kernel.impl.api.store.PersistenceCache;
 import org.neo4j.kernel.impl.api.store.StoreReadLayer;
 import org.neo4j.kernel.impl.index.IndexEntityType;
+import org.neo4j.kernel.impl.locking.LockBatch;
 import org.neo4j.kernel.impl.locking.LockGroup;
 import org.neo4j.kernel.impl.locking.Locks;
+import org.neo4j.kernel.impl.locking.ResourceTypes;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.SchemaStorage;
 import org.neo4j.kernel.impl.store.UniquenessConstraintRule;
@@ -139,6 +141,8 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
     private final Clock clock;
     private final TransactionToRecordStateVisitor txStateToRecordStateVisitor = new TransactionToRecordStateVisitor();
     private final Collection<Command> extractedCommands = new ArrayCollection<>( 32 );
+    private final LockBatch commitLocks = new LockBatch();
+    private final RelationshipDataExtractor createdRelationshipData = new RelationshipDataExtractor();
     private TransactionState txState;
     private LegacyIndexTransactionState legacyIndexTransactionState;
     private TransactionType transactionType = TransactionType.ANY;
@@ -350,6 +354,25 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
         }
     }
 
+    /**
+     * Nodes of created relationships aren't locked when the relationships are created, but here, all of them in
+     * one call and in id order. Transactions creating relationships to the same nodes, f.ex. hub nodes, in
+     * different orders over many statements will then meet in the same order instead of deadlocking.
+     */
+    private void acquireNodeLocksOfCreatedRelationships()
+    {
+        if ( hasTxStateWithChanges() )
+        {
+            for ( Long relationshipId : txState().addedAndRemovedRelationships().getAdded() )
+            {
+                txState().relationshipVisit( relationshipId, createdRelationshipData );
+                commitLocks.addExclusive( ResourceTypes.NODE,
+                        createdRelationshipData.startNode(), createdRelationshipData.endNode() );
+            }
+            commitLocks.acquire( locks );
+        }
+    }
+
     private void prepareRecordChangesFromTransactionState()
     {
         if ( hasTxStateWithChanges() )
@@ -440,6 +463,7 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
                 throw new TransactionFailureException( Status.Transaction.HookFailed, hooksState.failure(), "" );
             }
 
+            acquireNodeLocksOfCreatedRelationships();
             prepareRecordChangesFromTransactionState();
 
             // Convert changes into commands and commit
@@ -659,7 +683,8 @@ public class KernelTransactionImplementation implements KernelTransaction, TxSta
             }
             catch ( EntityNotFoundException e )
             {
-                throw new IllegalStateException( "Nodes with added relationships should exist.", e );
+                throw new IllegalStateException( "Nodes with added relationships should exist, " +
+                        "but one was deleted by a concurrent transaction before this one committed.", e );
             }
 
             // record the state changes to be made to the store
@@ -229,17 +229,8 @@ public class LockingStatementOperations implements
     public long relationshipCreate( KernelStatement state, int relationshipTypeId, long startNodeId, long endNodeId )
             throws EntityNotFoundException
     {
-        // Order the locks to lower the risk of deadlocks with other threads adding rels concurrently
-        if(startNodeId < endNodeId)
-        {
-            state.locks().acquireExclusive( ResourceTypes.NODE, startNodeId );
-            state.locks().acquireExclusive( ResourceTypes.NODE, endNodeId );
-        }
-        else
-        {
-            state.locks().acquireExclusive( ResourceTypes.NODE, endNodeId );
-            state.locks().acquireExclusive( ResourceTypes.NODE, startNodeId );
-        }
+        // The nodes aren't locked here, but when the transaction commits, together with the nodes of all other
+        // relationships it created and in id order, to avoid deadlocks with other threads adding rels concurrently
         return entityWriteDelegate.relationshipCreate( state, relationshipTypeId, startNodeId, endNodeId );
     }
 
@@ -253,8 +244,7 @@ public class LockingStatementOperations implements
                 @Override
                 public void visit( long relId, int type, long startNode, long endNode )
                 {
-                    state.locks().acquireExclusive( ResourceTypes.NODE, startNode );
-                    state.locks().acquireExclusive( ResourceTypes.NODE, endNode );
+                    state.locks().acquireExclusive( ResourceTypes.NODE, startNode, endNode );
                 }
             });
         }
@@ -55,6 +55,7 @@ import org.neo4j.kernel.api.exceptions.schema.SchemaRuleNotFoundException;
 import org.neo4j.kernel.api.exceptions.schema.TooManyLabelsException;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.InternalIndexState;
+import org.neo4j.kernel.api.index.RangeMatcher;
 import org.neo4j.kernel.api.properties.DefinedProperty;
 import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.kernel.api.properties.PropertyKeyIdIterator;
@@ -597,6 +598,66 @@ public class StateHandlingStatementOperations implements
         return resourceIterator( changeFilteredMatches, committed );
     }
 
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByNumber( KernelStatement state, IndexDescriptor index,
+                                                                     final Number lower, final boolean includeLower,
+                                                                     final Number upper, final boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        // Numbers are indexed as doubles, so ask the index for the inclusive range and filter out values
+        // that only fell within it, or on the wrong side of an exclusive bound, through rounding
+        PrimitiveLongResourceIterator committed = storeLayer.nodesGetFromIndexRangeSeekByNumber( state, index,
+                lower, true, upper, true );
+        PrimitiveLongIterator exactMatches = PrimitiveLongCollections.filter( committed,
+                propertyValueMatches( state, index.getPropertyKeyId(), new Predicate<Object>()
+                {
+                    @Override
+                    public boolean accept( Object value )
+                    {
+                        return RangeMatcher.inNumberRange( value, lower, includeLower, upper, includeUpper );
+                    }
+                } ) );
+        if ( state.hasTxStateWithChanges() )
+        {
+            exactMatches = filterIndexStateChanges( state, state.txState().indexUpdatesForRangeSeekByNumber(
+                    index, lower, includeLower, upper, includeUpper ), exactMatches );
+        }
+        return resourceIterator( exactMatches, committed );
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByString( KernelStatement state, IndexDescriptor index,
+                                                                     String lower, boolean includeLower,
+                                                                     String upper, boolean includeUpper )
+            throws IndexNotFoundKernelException
+    {
+        PrimitiveLongResourceIterator committed = storeLayer.nodesGetFromIndexRangeSeekByString( state, index,
+                lower, includeLower, upper, includeUpper );
+        PrimitiveLongIterator changeFilteredMatches = committed;
+        if ( state.hasTxStateWithChanges() )
+        {
+            changeFilteredMatches = filterIndexStateChanges( state, state.txState().indexUpdatesForRangeSeekByString(
+                    index, lower, includeLower, upper, includeUpper ), committed );
+        }
+        return resourceIterator( changeFilteredMatches, committed );
+    }
+
+    @Override
+    public PrimitiveLongIterator nodesGetFromIndexRangeSeekByPrefix( KernelStatement state, IndexDescriptor index,
+                                                                     String prefix )
+            throws IndexNotFoundKernelException
+    {
+        PrimitiveLongResourceIterator committed =
+                storeLayer.nodesGetFromIndexRangeSeekByPrefix( state, index, prefix );
+        PrimitiveLongIterator changeFilteredMatches = committed;
+        if ( state.hasTxStateWithChanges() )
+        {
+            changeFilteredMatches = filterIndexStateChanges( state,
+                    state.txState().indexUpdatesForRangeSeekByPrefix( index, prefix ), committed );
+        }
+        return resourceIterator( changeFilteredMatches, committed );
+    }
+
     private PrimitiveLongIterator filterExactIndexMatches(
             KernelStatement state,
             IndexDescriptor index,
@@ -638,16 +699,45 @@ public class StateHandlingStatementOperations implements
         };
     }
 
+    private PrimitiveLongPredicate propertyValueMatches(
+            final KernelStatement state,
+            final int propertyKeyId,
+            final Predicate<Object> values )
+    {
+        return new PrimitiveLongPredicate()
+        {
+            @Override
+            public boolean accept( long nodeId )
+            {
+                try
+                {
+                    Property property = nodeGetProperty( state, nodeId, propertyKeyId );
+                    return property instanceof DefinedProperty &&
+                           values.accept( ((DefinedProperty) property).value() );
+                }
+                catch ( EntityNotFoundException e )
+                {
+                    throw new ThisShouldNotHappenError( "Chris", "An index claims a node by id " + nodeId +
+                            " has the value. However, it looks like that node does not exist.", e);
+                }
+            }
+        };
+    }
+
+    private PrimitiveLongIterator filterIndexStateChanges( KernelStatement state,
+            ReadableDiffSets<Long> labelPropertyChanges, PrimitiveLongIterator nodeIds )
+    {
+        ReadableDiffSets<Long> nodes = state.txState().addedAndRemovedNodes();
+        return nodes.augmentWithRemovals( labelPropertyChanges.augment( nodeIds ) );
+    }
+
     private PrimitiveLongIterator filterIndexStateChanges( KernelStatement state, IndexDescriptor index,
             Object value, PrimitiveLongIterator nodeIds )
     {
         if ( state.hasTxStateWithChanges() )
         {
-            ReadableDiffSets<Long> labelPropertyChanges = state.txState().indexUpdates( index, value );
-            ReadableDiffSets<Long> nodes = state.txState().addedAndRemovedNodes();
-
             // Apply to actual index lookup
-            return nodes.augmentWithRemovals( labelPropertyChanges.augment( nodeIds ) );
+            return filterIndexStateChanges( state, state.txState().indexUpdates( index, value ), nodeIds );
         }
         return nodeIds;
     }
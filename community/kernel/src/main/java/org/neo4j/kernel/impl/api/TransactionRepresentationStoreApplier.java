@@ -36,6 +36,7 @@ import org.neo4j.kernel.impl.transaction.command.HighIdTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.IndexTransactionApplier;
 import org.neo4j.kernel.impl.transaction.command.NeoCommandHandler;
 import org.neo4j.kernel.impl.transaction.command.NeoStoreTransactionApplier;
+import org.neo4j.kernel.impl.transaction.command.ParallelRecordApplier;
 import org.neo4j.kernel.impl.transaction.state.PropertyLoader;
 import org.neo4j.kernel.impl.util.IdOrderingQueue;
 
@@ -55,11 +56,27 @@ public class TransactionRepresentationStoreApplier
     private final ProviderLookup legacyIndexProviderLookup;
     private final PropertyLoader propertyLoader;
     private final IdOrderingQueue legacyIndexTransactionOrdering;
+    private final ParallelRecordApplier recordApplier;
 
     public TransactionRepresentationStoreApplier(
             IndexingService indexingService, LabelScanStore labelScanStore, NeoStore neoStore,
             CacheAccessBackDoor cacheAccess, LockService lockService, ProviderLookup legacyIndexProviderLookup,
             IndexConfigStore indexConfigStore, IdOrderingQueue legacyIndexTransactionOrdering )
+    {
+        this( indexingService, labelScanStore, neoStore, cacheAccess, lockService, legacyIndexProviderLookup,
+                indexConfigStore, legacyIndexTransactionOrdering, null );
+    }
+
+    /**
+     * @param recordApplier if not {@code null}, record commands are handed to it to be applied in parallel,
+     * instead of being applied as part of {@link #apply(TransactionRepresentation, LockGroup, long,
+     * TransactionApplicationMode) apply}. Only for recovery, where nothing reads the store meanwhile.
+     */
+    public TransactionRepresentationStoreApplier(
+            IndexingService indexingService, LabelScanStore labelScanStore, NeoStore neoStore,
+            CacheAccessBackDoor cacheAccess, LockService lockService, ProviderLookup legacyIndexProviderLookup,
+            IndexConfigStore indexConfigStore, IdOrderingQueue legacyIndexTransactionOrdering,
+            ParallelRecordApplier recordApplier )
     {
         this.indexingService = indexingService;
         this.labelScanStore = labelScanStore;
@@ -70,6 +87,7 @@ public class TransactionRepresentationStoreApplier
         this.indexConfigStore = indexConfigStore;
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
         this.propertyLoader = new PropertyLoader( neoStore );
+        this.recordApplier = recordApplier;
     }
 
     public void apply( TransactionRepresentation representation, LockGroup locks,
@@ -79,6 +97,10 @@ public class TransactionRepresentationStoreApplier
         // Graph store application. The order of the decorated store appliers is irrelevant
         NeoCommandHandler storeApplier = new NeoStoreTransactionApplier(
                 neoStore, cacheAccess, lockService, locks, transactionId );
+        if ( recordApplier != null )
+        {
+            storeApplier = recordApplier.decorate( storeApplier );
+        }
         if ( mode.needsIdTracking() )
         {
             storeApplier = new HighIdTransactionApplier( storeApplier, neoStore );
@@ -20,9 +20,13 @@
 package org.neo4j.kernel.impl.api.index;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 
@@ -35,6 +39,7 @@ import org.neo4j.kernel.api.index.IndexPopulator;
 import org.neo4j.kernel.api.index.IndexUpdater;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.logging.Logging;
@@ -49,80 +54,433 @@ import static org.neo4j.kernel.impl.api.index.IndexPopulationFailure.failure;
 import static org.neo4j.register.Register.DoubleLongRegister;
 
 /**
- * Represents one job of initially populating an index over existing data in the database.
- * Scans the store directly.
+ * Represents one job of initially populating one or more indexes over existing data in the database.
+ * Scans the store directly, once, handing each node property to every index that covers it. Each index
+ * gets its entries in batches, and the failure or cancellation of one index doesn't affect the others.
  */
 public class IndexPopulationJob implements Runnable
 {
-    // NOTE: unbounded queue expected here
-    private final Queue<NodePropertyUpdate> queue = new ConcurrentLinkedQueue<>();
-    private final IndexDescriptor descriptor;
-
-    private final IndexConfiguration config;
-    private final SchemaIndexProvider.Descriptor providerDescriptor;
+    /**
+     * Number of scanned entries gathered for an index before handing them to its {@link IndexPopulator}.
+     */
+    static final int BATCH_SIZE = 1_000;
 
-    private final IndexPopulator populator;
-    private final FlippableIndexProxy flipper;
+    private final List<IndexPopulation> populations = new CopyOnWriteArrayList<>();
     private final IndexStoreView storeView;
     private final UpdateableSchemaState updateableSchemaState;
-    private final String indexUserDescription;
-    private final FailedIndexProxyFactory failureDelegate;
     private final StringLogger log;
-    private final IndexCountsRemover indexCountsRemover;
     private final CountDownLatch doneSignal = new CountDownLatch( 1 );
 
     private volatile StoreScan<IndexPopulationFailedKernelException> storeScan;
-    private volatile boolean cancelled;
-
-    public IndexPopulationJob(IndexDescriptor descriptor,
-                              IndexConfiguration config,
-                              SchemaIndexProvider.Descriptor providerDescriptor,
-                              String indexUserDescription,
-                              FailedIndexProxyFactory failureDelegateFactory,
-                              IndexPopulator populator,
-                              FlippableIndexProxy flipper,
-                              IndexStoreView storeView,
-                              UpdateableSchemaState updateableSchemaState,
-                              Logging logging)
+
+    public IndexPopulationJob( IndexStoreView storeView,
+                               UpdateableSchemaState updateableSchemaState,
+                               Logging logging )
     {
-        this.descriptor = descriptor;
-        this.config = config;
-        this.providerDescriptor = providerDescriptor;
-        this.populator = populator;
-        this.flipper = flipper;
         this.storeView = storeView;
         this.updateableSchemaState = updateableSchemaState;
-        this.indexUserDescription = indexUserDescription;
-        this.failureDelegate = failureDelegateFactory;
         this.log = logging.getMessagesLog( getClass() );
-        this.indexCountsRemover = IndexCountsRemover.Factory.create( storeView, descriptor );
+    }
+
+    public IndexPopulationJob( IndexDescriptor descriptor,
+                               IndexConfiguration config,
+                               SchemaIndexProvider.Descriptor providerDescriptor,
+                               String indexUserDescription,
+                               FailedIndexProxyFactory failureDelegateFactory,
+                               IndexPopulator populator,
+                               FlippableIndexProxy flipper,
+                               IndexStoreView storeView,
+                               UpdateableSchemaState updateableSchemaState,
+                               Logging logging )
+    {
+        this( storeView, updateableSchemaState, logging );
+        addPopulator( populator, descriptor, config, providerDescriptor, indexUserDescription, flipper,
+                failureDelegateFactory );
+    }
+
+    /**
+     * Adds an index to be populated by this job. Must be called before the job is {@link #run() run}.
+     *
+     * @return the population of the added index, for feeding it updates from transactions and cancelling it.
+     */
+    public IndexPopulation addPopulator( IndexPopulator populator,
+                                         IndexDescriptor descriptor,
+                                         IndexConfiguration config,
+                                         SchemaIndexProvider.Descriptor providerDescriptor,
+                                         String indexUserDescription,
+                                         FlippableIndexProxy flipper,
+                                         FailedIndexProxyFactory failureDelegateFactory )
+    {
+        IndexPopulation population = new IndexPopulation( populator, descriptor, config, providerDescriptor,
+                indexUserDescription, flipper, failureDelegateFactory );
+        populations.add( population );
+        return population;
     }
 
     @Override
     public void run()
     {
         String oldThreadName = currentThread().getName();
-        currentThread().setName( format( "Index populator on %s [runs on: %s]", indexUserDescription, oldThreadName ) );
-        boolean success = false;
-        Throwable failureCause = null;
-
+        currentThread().setName( format( "Index populator on %s [runs on: %s]", indexUserDescriptions(),
+                oldThreadName ) );
         try
         {
+            List<IndexPopulation> active = new ArrayList<>( populations.size() );
+            for ( IndexPopulation population : populations )
+            {
+                if ( population.start() )
+                {
+                    active.add( population );
+                }
+            }
+
+            try
+            {
+                indexAllNodes( active );
+            }
+            catch ( Throwable t )
+            {
+                for ( IndexPopulation population : active )
+                {
+                    population.fail( t );
+                }
+                return;
+            }
+
+            for ( IndexPopulation population : active )
+            {
+                population.complete();
+            }
+        }
+        finally
+        {
+            doneSignal.countDown();
+            currentThread().setName( oldThreadName );
+        }
+    }
+
+    private void indexAllNodes( final List<IndexPopulation> active ) throws IndexPopulationFailedKernelException
+    {
+        if ( active.isEmpty() )
+        {
+            return;
+        }
+
+        if ( active.size() == 1 )
+        {
+            final IndexPopulation population = active.get( 0 );
+            storeScan = storeView.visitNodesWithPropertyAndLabel( population.descriptor,
+                    new Visitor<NodePropertyUpdate, IndexPopulationFailedKernelException>()
+                    {
+                        @Override
+                        public boolean visit( NodePropertyUpdate update ) throws IndexPopulationFailedKernelException
+                        {
+                            population.add( update );
+                            population.scanned( update.getNodeId(), storeScan.highestReadNodeId() );
+                            return false;
+                        }
+                    } );
+        }
+        else
+        {
+            int[] labelIds = new int[active.size()];
+            int[] propertyKeyIds = new int[active.size()];
+            for ( int i = 0; i < labelIds.length; i++ )
+            {
+                labelIds[i] = active.get( i ).descriptor.getLabelId();
+                propertyKeyIds[i] = active.get( i ).descriptor.getPropertyKeyId();
+            }
+            storeScan = storeView.visitNodes( labelIds, propertyKeyIds,
+                    new Visitor<NodePropertyUpdate, IndexPopulationFailedKernelException>()
+                    {
+                        @Override
+                        public boolean visit( NodePropertyUpdate update )
+                        {
+                            fanOut( active, update );
+                            return false;
+                        }
+                    },
+                    new Visitor<NodeLabelUpdate, IndexPopulationFailedKernelException>()
+                    {
+                        @Override
+                        public boolean visit( NodeLabelUpdate update )
+                        {
+                            return false;
+                        }
+                    } );
+        }
+
+        storeScan.run();
+    }
+
+    private void fanOut( List<IndexPopulation> active, NodePropertyUpdate update )
+    {
+        for ( int i = 0; i < active.size(); i++ )
+        {
+            IndexPopulation population = active.get( i );
+            if ( population.cancelled )
+            {
+                active.remove( i-- );
+                population.abandon();
+                continue;
+            }
+            try
+            {
+                if ( population.covers( update ) )
+                {
+                    population.add( update );
+                }
+                population.scanned( update.getNodeId(), storeScan.highestReadNodeId() );
+            }
+            catch ( IndexPopulationFailedKernelException e )
+            {
+                // Only this index failed, the rest of them carry on with the scan
+                active.remove( i-- );
+                population.fail( e );
+            }
+        }
+        if ( active.isEmpty() )
+        {
+            storeScan.stop();
+        }
+    }
+
+    private boolean allCancelled()
+    {
+        for ( IndexPopulation population : populations )
+        {
+            if ( !population.cancelled )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String indexUserDescriptions()
+    {
+        StringBuilder descriptions = new StringBuilder();
+        for ( IndexPopulation population : populations )
+        {
+            if ( descriptions.length() > 0 )
+            {
+                descriptions.append( ", " );
+            }
+            descriptions.append( population.indexUserDescription );
+        }
+        return descriptions.toString();
+    }
+
+    /**
+     * Cancels the population of all indexes in this job.
+     */
+    public Future<Void> cancel()
+    {
+        for ( IndexPopulation population : populations )
+        {
+            population.cancelled = true;
+        }
+        stopScan();
+        return latchGuardedValue( NO_VALUE, doneSignal, "Index population job cancel" );
+    }
+
+    private void stopScan()
+    {
+        StoreScan<IndexPopulationFailedKernelException> scan = storeScan;
+        if ( scan != null && allCancelled() )
+        {
+            scan.stop();
+        }
+    }
+
+    /**
+     * A transaction happened that produced the given updates. Let this job incorporate its data,
+     * feeding it to the {@link IndexPopulator populators} of the indexes it concerns.
+     */
+    public void update( NodePropertyUpdate update )
+    {
+        for ( IndexPopulation population : populations )
+        {
+            if ( population.covers( update ) )
+            {
+                population.update( update );
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[populations:" + populations + "]";
+    }
+
+    public void awaitCompletion() throws InterruptedException
+    {
+        doneSignal.await();
+    }
+
+    /**
+     * The population of one of the indexes of an {@link IndexPopulationJob}. All methods but
+     * {@link #update(NodePropertyUpdate)}, {@link #cancel()} and {@link #awaitCompletion()} are called
+     * by the thread running the job.
+     */
+    public class IndexPopulation
+    {
+        // NOTE: unbounded queue expected here
+        private final Queue<NodePropertyUpdate> queue = new ConcurrentLinkedQueue<>();
+        private final List<NodePropertyUpdate> batch = new ArrayList<>();
+        // Updates from transactions to nodes the scan had already read when they were drained from the queue,
+        // applied after the batched entries from the scan once the scan has visited those nodes
+        private final List<NodePropertyUpdate> scannedNodeUpdates = new ArrayList<>();
+        private final IndexPopulator populator;
+        private final IndexDescriptor descriptor;
+        private final IndexConfiguration config;
+        private final SchemaIndexProvider.Descriptor providerDescriptor;
+        private final String indexUserDescription;
+        private final FlippableIndexProxy flipper;
+        private final FailedIndexProxyFactory failureDelegate;
+        private final IndexCountsRemover indexCountsRemover;
+        private final CountDownLatch doneSignal = new CountDownLatch( 1 );
+
+        private volatile boolean cancelled;
+
+        private IndexPopulation( IndexPopulator populator,
+                                 IndexDescriptor descriptor,
+                                 IndexConfiguration config,
+                                 SchemaIndexProvider.Descriptor providerDescriptor,
+                                 String indexUserDescription,
+                                 FlippableIndexProxy flipper,
+                                 FailedIndexProxyFactory failureDelegateFactory )
+        {
+            this.populator = populator;
+            this.descriptor = descriptor;
+            this.config = config;
+            this.providerDescriptor = providerDescriptor;
+            this.indexUserDescription = indexUserDescription;
+            this.flipper = flipper;
+            this.failureDelegate = failureDelegateFactory;
+            this.indexCountsRemover = IndexCountsRemover.Factory.create( storeView, descriptor );
+        }
+
+        private boolean start()
+        {
+            if ( cancelled )
+            {
+                abandon();
+                return false;
+            }
             try
             {
-                log.info( format("Index population started: [%s]", indexUserDescription) );
+                log.info( format( "Index population started: [%s]", indexUserDescription ) );
                 log.flush();
                 populator.create();
                 storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
+                return true;
+            }
+            catch ( Throwable t )
+            {
+                fail( t );
+                return false;
+            }
+        }
 
-                indexAllNodes();
-                verifyDeferredConstraints();
-                if ( cancelled )
+        private boolean covers( NodePropertyUpdate update )
+        {
+            return update.getPropertyKeyId() == descriptor.getPropertyKeyId() &&
+                   update.forLabel( descriptor.getLabelId() );
+        }
+
+        private void add( NodePropertyUpdate update )
+        {
+            batch.add( update );
+        }
+
+        /**
+         * Called for every node the scan visits, after any {@link #add(NodePropertyUpdate) add} of it, whether or
+         * not it's covered by this index. Drains the updates from transactions that have come in so far, keeping
+         * the ones to nodes up to {@code highestReadNodeId}, which the scan may read ahead of the visited node,
+         * to be applied after the batched entries. The ones to nodes further ahead are dropped, since the scan
+         * will see their changes when it reads them.
+         */
+        private void scanned( long visitedNodeId, long highestReadNodeId )
+                throws IndexPopulationFailedKernelException
+        {
+            drainQueue( Math.max( visitedNodeId, highestReadNodeId ) );
+            if ( batch.size() >= BATCH_SIZE || scannedNodeUpdates.size() >= BATCH_SIZE )
+            {
+                flush( visitedNodeId );
+            }
+        }
+
+        private void drainQueue( long scannedNodeId )
+        {
+            NodePropertyUpdate update;
+            // no need to worry about concurrent polls as nobody else is emptying this queue
+            while ( (update = queue.poll()) != null )
+            {
+                if ( update.getNodeId() <= scannedNodeId )
                 {
-                    storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
-                    // We remain in POPULATING state
-                    return;
+                    scannedNodeUpdates.add( update );
                 }
+            }
+        }
+
+        /**
+         * Hands the batched entries to the populator, followed by the kept updates to nodes up to
+         * {@code visitedNodeId}. Updates to nodes read ahead, but not yet visited, are kept until after
+         * the entries of those nodes.
+         */
+        private void flush( long visitedNodeId ) throws IndexPopulationFailedKernelException
+        {
+            try
+            {
+                for ( NodePropertyUpdate update : batch )
+                {
+                    populator.add( update.getNodeId(), update.getValueAfter() );
+                }
+                if ( !scannedNodeUpdates.isEmpty() )
+                {
+                    try ( IndexUpdater updater = populator.newPopulatingUpdater( storeView ) )
+                    {
+                        Iterator<NodePropertyUpdate> updates = scannedNodeUpdates.iterator();
+                        while ( updates.hasNext() )
+                        {
+                            NodePropertyUpdate update = updates.next();
+                            if ( update.getNodeId() <= visitedNodeId )
+                            {
+                                updater.process( update );
+                                updates.remove();
+                            }
+                        }
+                    }
+                }
+            }
+            catch ( IndexEntryConflictException | IOException conflict )
+            {
+                scannedNodeUpdates.clear();
+                throw new IndexPopulationFailedKernelException( descriptor, indexUserDescription, conflict );
+            }
+            finally
+            {
+                batch.clear();
+            }
+        }
+
+        private void complete()
+        {
+            if ( cancelled )
+            {
+                abandon();
+                return;
+            }
+
+            boolean success = false;
+            try
+            {
+                // The scan is done, so every update that has come in so far is to a node it has passed
+                drainQueue( Long.MAX_VALUE );
+                flush( Long.MAX_VALUE );
+                verifyDeferredConstraints();
 
                 Callable<Void> duringFlip = new Callable<Void>()
                 {
@@ -144,32 +502,61 @@ public class IndexPopulationJob implements Runnable
 
                 flipper.flip( duringFlip, failureDelegate );
                 success = true;
-                log.info( format("Index population completed. Index is now online: [%s]", indexUserDescription) );
+                log.info( format( "Index population completed. Index is now online: [%s]", indexUserDescription ) );
                 log.flush();
             }
             catch ( Throwable t )
             {
-                // If the cause of index population failure is a conflict in a (unique) index, the conflict is the
-                // failure
-                if ( t instanceof IndexPopulationFailedKernelException )
+                fail( t );
+            }
+            finally
+            {
+                if ( success )
                 {
-                    Throwable cause = t.getCause();
-                    if ( cause instanceof IndexEntryConflictException )
-                    {
-                        t = cause;
-                    }
+                    doneSignal.countDown();
+                }
+                else
+                {
+                    close( null );
                 }
+            }
+        }
+
+        private void abandon()
+        {
+            try
+            {
+                storeView.replaceIndexCounts( descriptor, 0, 0, 0 );
+                // We remain in POPULATING state
+            }
+            finally
+            {
+                close( null );
+            }
+        }
 
-                // Index conflicts are expected (for unique indexes) so we don't need to log them.
-                if ( !(t instanceof IndexEntryConflictException) /*TODO: && this is a unique index...*/ )
+        private void fail( Throwable t )
+        {
+            // If the cause of index population failure is a conflict in a (unique) index, the conflict is the
+            // failure
+            if ( t instanceof IndexPopulationFailedKernelException )
+            {
+                Throwable cause = t.getCause();
+                if ( cause instanceof IndexEntryConflictException )
                 {
-                    log.error( format("Failed to populate index: [%s]", indexUserDescription), t );
-                    log.flush();
+                    t = cause;
                 }
+            }
 
-                // Set failure cause to be stored persistently
-                failureCause = t;
+            // Index conflicts are expected (for unique indexes) so we don't need to log them.
+            if ( !(t instanceof IndexEntryConflictException) /*TODO: && this is a unique index...*/ )
+            {
+                log.error( format( "Failed to populate index: [%s]", indexUserDescription ), t );
+                log.flush();
+            }
 
+            try
+            {
                 // The flipper will have already flipped to a failed index context here, but
                 // it will not include the cause of failure, so we do another flip to a failed
                 // context that does.
@@ -182,118 +569,99 @@ public class IndexPopulationJob implements Runnable
             }
             finally
             {
-                try
-                {
-                    if ( !success )
-                    {
-                        if ( failureCause != null )
-                        {
-                            populator.markAsFailed( failure( failureCause ).asString() );
-                        }
+                // Set failure cause to be stored persistently
+                close( t );
+            }
+        }
 
-                        populator.close( false );
-                    }
-                }
-                catch ( Throwable e )
+        private void close( Throwable failureCause )
+        {
+            if ( doneSignal.getCount() == 0 )
+            {
+                return;
+            }
+            try
+            {
+                if ( failureCause != null )
                 {
-                    log.error( format("Unable to close failed populator for index: [%s]", indexUserDescription), e );
-                    log.flush();
+                    populator.markAsFailed( failure( failureCause ).asString() );
                 }
+
+                populator.close( false );
+            }
+            catch ( Throwable e )
+            {
+                log.error( format( "Unable to close failed populator for index: [%s]", indexUserDescription ), e );
+                log.flush();
+            }
+            finally
+            {
+                doneSignal.countDown();
             }
         }
-        finally
+
+        private void verifyDeferredConstraints() throws IndexPopulationFailedKernelException
         {
-            doneSignal.countDown();
-            currentThread().setName( oldThreadName );
+            try
+            {
+                populator.verifyDeferredConstraints( storeView );
+            }
+            catch ( Exception conflict )
+            {
+                throw new IndexPopulationFailedKernelException( descriptor, indexUserDescription, conflict );
+            }
         }
-    }
 
-    private void indexAllNodes() throws IndexPopulationFailedKernelException
-    {
-        storeScan = storeView.visitNodesWithPropertyAndLabel( descriptor,
-                new Visitor<NodePropertyUpdate, IndexPopulationFailedKernelException>()
+        private void populateFromQueueIfAvailable( final long currentlyIndexedNodeId )
+            throws IndexEntryConflictException, IOException
+        {
+            if ( !queue.isEmpty() )
+            {
+                try ( IndexUpdater updater = populator.newPopulatingUpdater( storeView ) )
                 {
-                    @Override
-                    public boolean visit( NodePropertyUpdate update ) throws IndexPopulationFailedKernelException
+                    do
                     {
-                        try
-                        {
-                            populator.add( update.getNodeId(), update.getValueAfter() );
-                            populateFromQueueIfAvailable( update.getNodeId() );
-                        }
-                        catch ( IndexEntryConflictException | IOException conflict )
+                        // no need to check for null as nobody else is emptying this queue
+                        NodePropertyUpdate update = queue.poll();
+                        // TODO: We see updates twice here from IndexStatisticsTest
+                        if ( update.getNodeId() <= currentlyIndexedNodeId )
                         {
-                            throw new IndexPopulationFailedKernelException( descriptor, indexUserDescription, conflict );
+                            updater.process( update );
                         }
-                        return false;
-                    }
-                } );
-        storeScan.run();
-    }
+                    } while ( !queue.isEmpty() );
+                }
+            }
+        }
 
-    private void verifyDeferredConstraints() throws IndexPopulationFailedKernelException
-    {
-        try
+        /**
+         * A transaction happened that produced the given update. Let this population incorporate its data,
+         * feeding it to the {@link IndexPopulator}.
+         */
+        public void update( NodePropertyUpdate update )
         {
-            populator.verifyDeferredConstraints( storeView );
+            queue.add( update );
         }
-        catch ( Exception conflict )
+
+        /**
+         * Cancels the population of this index, leaving the other indexes of the job to carry on.
+         */
+        public Future<Void> cancel()
         {
-            throw new IndexPopulationFailedKernelException( descriptor, indexUserDescription, conflict );
+            cancelled = true;
+            stopScan();
+            return latchGuardedValue( NO_VALUE, doneSignal, "Index population job cancel" );
         }
-    }
 
-    private void populateFromQueueIfAvailable( final long currentlyIndexedNodeId )
-        throws IndexEntryConflictException, IOException
-    {
-        if ( !queue.isEmpty() )
+        public void awaitCompletion() throws InterruptedException
         {
-            try ( IndexUpdater updater = populator.newPopulatingUpdater( storeView ) )
-            {
-                do
-                {
-                    // no need to check for null as nobody else is emptying this queue
-                    NodePropertyUpdate update = queue.poll();
-                    // TODO: We see updates twice here from IndexStatisticsTest
-                    if ( update.getNodeId() <= currentlyIndexedNodeId )
-                    {
-                        updater.process( update );
-                    }
-                } while ( !queue.isEmpty() );
-            }
+            doneSignal.await();
         }
-    }
 
-    public Future<Void> cancel()
-    {
-        // Stop the population
-        if ( storeScan != null )
+        @Override
+        public String toString()
         {
-            cancelled = true;
-            storeScan.stop();
+            return getClass().getSimpleName() + "[populator:" + populator + ", descriptor:" +
+                   indexUserDescription + "]";
         }
-
-        return latchGuardedValue( NO_VALUE, doneSignal, "Index population job cancel" );
     }
-
-    /**
-     * A transaction happened that produced the given updates. Let this job incorporate its data,
-     * feeding it to the {@link IndexPopulator}.
-     */
-    public void update( NodePropertyUpdate update )
-    {
-        queue.add( update );
-    }
-
-    @Override
-    public String toString()
-    {
-        return getClass().getSimpleName() + "[populator:" + populator + ", descriptor:" + indexUserDescription + "]";
-    }
-
-    public void awaitCompletion() throws InterruptedException
-    {
-        doneSignal.await();
-    }
-
 }
@@ -29,12 +29,14 @@ import org.neo4j.kernel.api.index.IndexPopulator;
 import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
 import org.neo4j.kernel.impl.api.UpdateableSchemaState;
+import org.neo4j.kernel.impl.api.index.IndexPopulationJob.IndexPopulation;
 import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
 import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.kernel.logging.Logging;
 
 import static java.lang.String.format;
 import static org.neo4j.kernel.impl.api.index.IndexPopulationFailure.failure;
+import static org.neo4j.kernel.impl.util.JobScheduler.Group.indexPopulation;
 
 public class IndexProxySetup
 {
@@ -63,11 +65,22 @@ public class IndexProxySetup
         this.logging = logging;
     }
 
+    public IndexPopulationJob newIndexPopulationJob()
+    {
+        return new IndexPopulationJob( storeView, updateableSchemaState, logging );
+    }
+
+    public void startIndexPopulation( IndexPopulationJob job )
+    {
+        scheduler.schedule( indexPopulation, job );
+    }
+
     public IndexProxy createPopulatingIndexProxy( final long ruleId,
                                                   final IndexDescriptor descriptor,
                                                   final SchemaIndexProvider.Descriptor providerDescriptor,
                                                   final boolean constraint,
-                                                  final IndexingService.Monitor monitor ) throws IOException
+                                                  final IndexingService.Monitor monitor,
+                                                  IndexPopulationJob populationJob ) throws IOException
     {
         final FlippableIndexProxy flipper = new FlippableIndexProxy();
 
@@ -86,9 +99,10 @@ public class IndexProxySetup
                 IndexCountsRemover.Factory.create( storeView, descriptor )
         );
 
+        IndexPopulation population = populationJob.addPopulator( populator, descriptor, config,
+                providerDescriptor, indexUserDescription, flipper, failureDelegateFactory );
         PopulatingIndexProxy populatingIndex =
-                new PopulatingIndexProxy( scheduler, descriptor, config, failureDelegateFactory, populator, flipper,
-                        storeView, updateableSchemaState, logging, indexUserDescription, providerDescriptor );
+                new PopulatingIndexProxy( descriptor, config, providerDescriptor, population );
         flipper.flipTo( populatingIndex );
 
         // Prepare for flipping to online mode
@@ -23,11 +23,18 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.helpers.BiConsumer;
@@ -92,6 +99,21 @@ public class IndexingService extends LifecycleAdapter
     private final Monitor monitor;
     private final Set<Long> recoveredNodeIds = new HashSet<>();
 
+    /**
+     * Updates of committed transactions not yet applied to the indexes, see {@link #updateIndexes}.
+     */
+    private final Queue<PendingIndexUpdates> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final Lock updateLock = new ReentrantLock();
+
+    private static final Comparator<NodePropertyUpdate> NODE_ID_ORDER = new Comparator<NodePropertyUpdate>()
+    {
+        @Override
+        public int compare( NodePropertyUpdate o1, NodePropertyUpdate o2 )
+        {
+            return Long.compare( o1.getNodeId(), o2.getNodeId() );
+        }
+    };
+
     enum State
     {
         NOT_STARTED,
@@ -267,7 +289,8 @@ public class IndexingService extends LifecycleAdapter
         // Drop placeholder proxies for indexes that need to be rebuilt
         dropRecoveringIndexes( indexMap, rebuildingDescriptors );
 
-        // Rebuild indexes by recreating and repopulating them
+        // Rebuild indexes by recreating and repopulating them, all of them in a single scan of the store
+        IndexPopulationJob populationJob = proxySetup.newIndexPopulationJob();
         for ( Map.Entry<Long, Pair<IndexDescriptor, SchemaIndexProvider.Descriptor>> entry : rebuildingDescriptors.entrySet() )
         {
             long indexId = entry.getKey();
@@ -282,12 +305,16 @@ public class IndexingService extends LifecycleAdapter
              * they will get dropped as soon as recovery is completed by the constraint system.
              */
             IndexProxy proxy = proxySetup.createPopulatingIndexProxy(
-                    indexId, indexDescriptor, providerDescriptor, false, monitor );
+                    indexId, indexDescriptor, providerDescriptor, false, monitor, populationJob );
             proxy.start();
             indexMap.putIndexProxy( indexId, proxy );
         }
 
         indexMapRef.setIndexMap( indexMap );
+        if ( !rebuildingDescriptors.isEmpty() )
+        {
+            proxySetup.startIndexPopulation( populationJob );
+        }
 
         samplingController.recoverIndexSamples();
         samplingController.start();
@@ -328,76 +355,159 @@ public class IndexingService extends LifecycleAdapter
     }
 
     /*
-     * Creates an index.
+     * Creates indexes. Indexes created together are populated together, in a single scan of the store.
      *
      * This code is called from the transaction infrastructure during transaction commits, which means that
      * it is *vital* that it is stable, and handles errors very well. Failing here means that the entire db
      * will shut down.
      */
-    public void createIndex( IndexRule rule )
+    public void createIndex( IndexRule... rules )
     {
         IndexMap indexMap = indexMapRef.indexMapSnapshot();
+        IndexPopulationJob populationJob = null;
 
-        long ruleId = rule.getId();
-        IndexProxy index = indexMap.getIndexProxy( ruleId );
-        if (index != null)
+        for ( IndexRule rule : rules )
         {
-            // We already have this index
-            return;
-        }
-        final IndexDescriptor descriptor = new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() );
-        SchemaIndexProvider.Descriptor providerDescriptor = rule.getProviderDescriptor();
-        boolean constraint = rule.isConstraintIndex();
-        if ( state == State.RUNNING )
-        {
-            try
+            long ruleId = rule.getId();
+            IndexProxy index = indexMap.getIndexProxy( ruleId );
+            if ( index != null )
             {
-                index = proxySetup.createPopulatingIndexProxy(
-                        ruleId, descriptor, providerDescriptor, constraint, monitor );
-                index.start();
+                // We already have this index
+                continue;
             }
-            catch ( IOException e )
+            final IndexDescriptor descriptor = new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() );
+            SchemaIndexProvider.Descriptor providerDescriptor = rule.getProviderDescriptor();
+            boolean constraint = rule.isConstraintIndex();
+            if ( state == State.RUNNING )
             {
-                throw new RuntimeException( e );
+                try
+                {
+                    if ( populationJob == null )
+                    {
+                        populationJob = proxySetup.newIndexPopulationJob();
+                    }
+                    index = proxySetup.createPopulatingIndexProxy(
+                            ruleId, descriptor, providerDescriptor, constraint, monitor, populationJob );
+                    index.start();
+                }
+                catch ( IOException e )
+                {
+                    throw new RuntimeException( e );
+                }
             }
-        }
-        else
-        {
-            index = proxySetup.createRecoveringIndexProxy( descriptor, providerDescriptor, constraint );
+            else
+            {
+                index = proxySetup.createRecoveringIndexProxy( descriptor, providerDescriptor, constraint );
+            }
+
+            indexMap.putIndexProxy( rule.getId(), index );
         }
 
-        indexMap.putIndexProxy( rule.getId(), index );
         indexMapRef.setIndexMap( indexMap );
+        if ( populationJob != null )
+        {
+            proxySetup.startIndexPopulation( populationJob );
+        }
     }
 
+    /**
+     * Applies the updates of a committed transaction to the indexes. Only one thread at a time writes to the
+     * indexes, and transactions committing meanwhile queue up their updates. Whichever thread gets to write next
+     * applies all queued updates as one batch, sorted by node id and through a single updater per index, so that
+     * each index refreshes its readers once per batch rather than once per transaction.
+     */
     public void updateIndexes( IndexUpdates updates, long transactionId, boolean forceIdempotency )
     {
         if ( state == State.RUNNING )
         {
-
-            IndexUpdateMode mode = forceIdempotency ? IndexUpdateMode.RECOVERY : IndexUpdateMode.ONLINE;
-            try ( IndexUpdaterMap updaterMap = indexMapRef.createIndexUpdaterMap( mode ) )
+            // Converting the updates may read the store, let committers do that in parallel
+            PendingIndexUpdates pending = new PendingIndexUpdates( updates, forceIdempotency );
+            pendingUpdates.add( pending );
+            updateLock.lock();
+            try
+            {
+                if ( !pending.isApplied() )
+                {
+                    applyPendingUpdates();
+                }
+            }
+            finally
             {
-                applyUpdates( updates, updaterMap );
+                updateLock.unlock();
             }
+            pending.rethrowFailure();
         }
         else
         {
-            if( state == State.NOT_STARTED )
+            updateLock.lock();
+            try
             {
-                recoveredNodeIds.addAll( updates.changedNodeIds() );
+                if ( state == State.NOT_STARTED )
+                {
+                    recoveredNodeIds.addAll( updates.changedNodeIds() );
+                }
+                else
+                {
+                    // This is a temporary measure to resolve a corruption bug. We believe that it's caused by stray
+                    // HA transactions, and we know that this measure will fix it. It appears, however, that the
+                    // correct fix will be, as it is for several other issues, to modify the system to allow us to
+                    // kill running transactions before state switches.
+                    throw new IllegalStateException( "Cannot queue index updates while index service is " + state );
+                }
             }
-            else
+            finally
             {
-                // This is a temporary measure to resolve a corruption bug. We believe that it's caused by stray
-                // HA transactions, and we know that this measure will fix it. It appears, however, that the correct
-                // fix will be, as it is for several other issues, to modify the system to allow us to kill running
-                // transactions before state switches.
-                throw new IllegalStateException( "Cannot queue index updates while index service is " + state );
+                updateLock.unlock();
             }
         }
     }
 
+    private void applyPendingUpdates()
+    {
+        List<PendingIndexUpdates> batch = new ArrayList<>();
+        PendingIndexUpdates pending;
+        while ( (pending = pendingUpdates.poll()) != null )
+        {
+            if ( !batch.isEmpty() && batch.get( 0 ).forceIdempotency != pending.forceIdempotency )
+            {
+                applyBatch( batch );
+                batch.clear();
+            }
+            batch.add( pending );
+        }
+        if ( !batch.isEmpty() )
+        {
+            applyBatch( batch );
+        }
+    }
+
+    private void applyBatch( List<PendingIndexUpdates> batch )
+    {
+        List<NodePropertyUpdate> updates = new ArrayList<>();
+        for ( PendingIndexUpdates pending : batch )
+        {
+            updates.addAll( pending.updates );
+        }
+        // A node is changed by at most one of the transactions in a batch, since it's locked until applied.
+        // The sort is stable, keeping the order of updates within each transaction
+        Collections.sort( updates, NODE_ID_ORDER );
+
+        Throwable failure = null;
+        IndexUpdateMode mode = batch.get( 0 ).forceIdempotency ? IndexUpdateMode.RECOVERY : IndexUpdateMode.ONLINE;
+        try ( IndexUpdaterMap updaterMap = indexMapRef.createIndexUpdaterMap( mode ) )
+        {
+            applyUpdates( updates, updaterMap );
+        }
+        catch ( Throwable e )
+        {
+            failure = e;
+        }
+        for ( PendingIndexUpdates pending : batch )
+        {
+            pending.applied( failure );
+        }
+    }
+
     protected void applyRecoveredUpdates() throws IOException
     {
         logger.debug( "Applying recovered updates: " + recoveredNodeIds );
@@ -640,4 +750,40 @@ public class IndexingService extends LifecycleAdapter
 
         return concatResourceIterators( snapshots.iterator() );
     }
+
+    private static class PendingIndexUpdates
+    {
+        private final List<NodePropertyUpdate> updates = new ArrayList<>();
+        private final boolean forceIdempotency;
+        private volatile boolean applied;
+        private volatile Throwable failure;
+
+        PendingIndexUpdates( IndexUpdates updates, boolean forceIdempotency )
+        {
+            for ( NodePropertyUpdate update : updates )
+            {
+                this.updates.add( update );
+            }
+            this.forceIdempotency = forceIdempotency;
+        }
+
+        void applied( Throwable failure )
+        {
+            this.failure = failure;
+            this.applied = true;
+        }
+
+        boolean isApplied()
+        {
+            return applied;
+        }
+
+        void rethrowFailure()
+        {
+            if ( failure != null )
+            {
+                throw launderedException( failure );
+            }
+        }
+    }
 }
@@ -32,53 +32,38 @@ import org.neo4j.kernel.api.exceptions.index.IndexPopulationFailedKernelExceptio
 import org.neo4j.kernel.api.index.IndexConfiguration;
 import org.neo4j.kernel.api.index.IndexDescriptor;
 import org.neo4j.kernel.api.index.IndexEntryConflictException;
-import org.neo4j.kernel.api.index.IndexPopulator;
 import org.neo4j.kernel.api.index.IndexReader;
 import org.neo4j.kernel.api.index.IndexUpdater;
 import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.SchemaIndexProvider;
-import org.neo4j.kernel.impl.api.UpdateableSchemaState;
-import org.neo4j.kernel.impl.util.JobScheduler;
-import org.neo4j.kernel.logging.Logging;
+import org.neo4j.kernel.impl.api.index.IndexPopulationJob.IndexPopulation;
 
 import static org.neo4j.helpers.collection.IteratorUtil.emptyIterator;
-import static org.neo4j.kernel.impl.util.JobScheduler.Group.indexPopulation;
 
 
 public class PopulatingIndexProxy implements IndexProxy
 {
-    private final JobScheduler scheduler;
     private final IndexDescriptor descriptor;
     private final SchemaIndexProvider.Descriptor providerDescriptor;
-    private final IndexPopulationJob job;
+    private final IndexPopulation job;
     private final IndexConfiguration configuration;
 
-    public PopulatingIndexProxy( JobScheduler scheduler,
-                                 IndexDescriptor descriptor,
+    public PopulatingIndexProxy( IndexDescriptor descriptor,
                                  IndexConfiguration configuration,
-                                 FailedIndexProxyFactory failureDelegateFactory,
-                                 IndexPopulator writer,
-                                 FlippableIndexProxy flipper,
-                                 IndexStoreView storeView,
-                                 UpdateableSchemaState updateableSchemaState,
-                                 Logging logging,
-                                 String indexUserDescription,
-                                 SchemaIndexProvider.Descriptor providerDescriptor )
-    {
-        this.scheduler = scheduler;
+                                 SchemaIndexProvider.Descriptor providerDescriptor,
+                                 IndexPopulation population )
+    {
         this.descriptor = descriptor;
         this.configuration = configuration;
         this.providerDescriptor = providerDescriptor;
-        this.job = new IndexPopulationJob( descriptor, configuration, providerDescriptor,
-                indexUserDescription, failureDelegateFactory, writer, flipper, storeView,
-                updateableSchemaState, logging );
+        this.job = population;
     }
 
     @Override
     public void start()
     {
-        scheduler.schedule( indexPopulation, job );
+        // The population itself is run by its IndexPopulationJob, which may be shared with other indexes
     }
 
     @Override
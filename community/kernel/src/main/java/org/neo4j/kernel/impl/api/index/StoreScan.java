@@ -24,4 +24,11 @@ public interface StoreScan<FAILURE extends Exception>
     void run() throws FAILURE;
 
     void stop();
+
+    /**
+     * @return the highest id of the nodes this scan may have read so far, which is ahead of the node being
+     * visited if the scan reads the store ahead of its visitors, or {@code -1} if none. Changes made to nodes
+     * up to this id concurrently with the scan may have been read too late for it to see them.
+     */
+    long highestReadNodeId();
 }
\ No newline at end of file
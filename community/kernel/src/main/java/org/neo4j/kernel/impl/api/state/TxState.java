@@ -35,6 +35,7 @@ import org.neo4j.helpers.Predicate;
 import org.neo4j.helpers.collection.Iterables;
 import org.neo4j.kernel.api.constraints.UniquenessConstraint;
 import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.RangeMatcher;
 import org.neo4j.kernel.api.properties.DefinedProperty;
 import org.neo4j.kernel.api.properties.Property;
 import org.neo4j.kernel.api.txstate.ReadableTxState;
@@ -1004,6 +1005,77 @@ public final class TxState implements TransactionState
                                  property( descriptor.getPropertyKeyId(), value ) ) );
     }
 
+    @Override
+    public ReadableDiffSets<Long> indexUpdatesForRangeSeekByNumber( IndexDescriptor descriptor,
+                                                                    final Number lower, final boolean includeLower,
+                                                                    final Number upper, final boolean includeUpper )
+    {
+        return indexUpdatesMatching( descriptor, new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                return RangeMatcher.inNumberRange( value, lower, includeLower, upper, includeUpper );
+            }
+        } );
+    }
+
+    @Override
+    public ReadableDiffSets<Long> indexUpdatesForRangeSeekByString( IndexDescriptor descriptor,
+                                                                    final String lower, final boolean includeLower,
+                                                                    final String upper, final boolean includeUpper )
+    {
+        return indexUpdatesMatching( descriptor, new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                return RangeMatcher.inStringRange( value, lower, includeLower, upper, includeUpper );
+            }
+        } );
+    }
+
+    @Override
+    public ReadableDiffSets<Long> indexUpdatesForRangeSeekByPrefix( IndexDescriptor descriptor, final String prefix )
+    {
+        return indexUpdatesMatching( descriptor, new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object value )
+            {
+                return RangeMatcher.hasPrefix( value, prefix );
+            }
+        } );
+    }
+
+    /**
+     * Merges the index updates of all values of the indexed property that the given predicate accepts.
+     * Removals are applied before additions, so that a node moving between two matching values cancels out
+     * and keeps being reported once, by the committed index.
+     */
+    private ReadableDiffSets<Long> indexUpdatesMatching( IndexDescriptor descriptor, Predicate<Object> values )
+    {
+        Map<DefinedProperty, DiffSets<Long>> updates =
+                indexUpdates == null ? null : indexUpdates.get( descriptor.getLabelId() );
+        if ( updates == null )
+        {
+            return ReadableDiffSets.Empty.instance();
+        }
+        DiffSets<Long> diff = new DiffSets<>();
+        Set<Long> added = new HashSet<>();
+        for ( Map.Entry<DefinedProperty, DiffSets<Long>> entry : updates.entrySet() )
+        {
+            DefinedProperty property = entry.getKey();
+            if ( property.propertyKeyId() == descriptor.getPropertyKeyId() && values.accept( property.value() ) )
+            {
+                diff.removeAll( entry.getValue().getRemoved().iterator() );
+                added.addAll( entry.getValue().getAdded() );
+            }
+        }
+        diff.addAll( added.iterator() );
+        return diff;
+    }
+
     @Override
     public void indexDoUpdateProperty( IndexDescriptor descriptor, long nodeId,
                                        DefinedProperty propertyBefore, DefinedProperty propertyAfter )
@@ -192,6 +192,7 @@ public class PersistenceCache
                 if ( node != null )
                 {
                     node.commitPropertyMaps( translateAddedAndChangedProperties( added, changed ), removed );
+                    nodeChanged( node );
                 }
             }
 
@@ -211,6 +212,10 @@ public class PersistenceCache
                     {
                         evictNode( id );
                     }
+                    else
+                    {
+                        nodeChanged( node );
+                    }
                 }
             }
 
@@ -222,6 +227,7 @@ public class PersistenceCache
                 if ( relationship != null )
                 {
                     relationship.commitPropertyMaps( translateAddedAndChangedProperties( added, changed ), removed );
+                    relationshipCache.updateSize( relationship, relationship.sizeOfObjectInBytesIncludingOverhead() );
                 }
             }
 
@@ -348,10 +354,20 @@ public class PersistenceCache
                     labels[i] = (int) labelsAfter[i];
                 }
                 node.commitLabels( labels );
+                nodeChanged( node );
             }
         }
     }
 
+    /**
+     * Lets the node cache know about changes made to a cached node. This keeps the size accounting right and
+     * lets caches not keeping the node objects themselves, but copies of their state, update their copy.
+     */
+    private void nodeChanged( NodeImpl node )
+    {
+        nodeCache.updateSize( node, node.sizeOfObjectInBytesIncludingOverhead() );
+    }
+
     public void evictNode( long nodeId )
     {
         nodeCache.remove( nodeId );
@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+/**
+ * Decides whether or not a new entry is worth a place in a cache, based on how frequently its key has been
+ * accessed recently compared to the entry it would replace. This is the TinyLFU admission policy: entries
+ * touched only once, for example by a scan over the whole graph, won't displace frequently accessed ones,
+ * whatever eviction policy the cache uses.
+ *
+ * All accesses to the cache, hits as well as misses, should be {@link #record(long) recorded}.
+ */
+public class AdmissionFilter
+{
+    /**
+     * A key must have been accessed at least this many times to be admitted by {@link #admit(long)}, i.e.
+     * the first access to a key never admits it.
+     */
+    static final int DOORKEEPER_FREQUENCY = 2;
+
+    private final FrequencySketch sketch;
+
+    /**
+     * @param expectedKeys the number of keys to track, typically the max number of entries of the cache.
+     */
+    public AdmissionFilter( int expectedKeys )
+    {
+        this.sketch = new FrequencySketch( expectedKeys );
+    }
+
+    public void record( long key )
+    {
+        sketch.increment( key );
+    }
+
+    /**
+     * For caches knowing which entry would be evicted to make room for the candidate.
+     *
+     * @return whether or not {@code candidate} should replace {@code victim} in the cache.
+     */
+    public boolean admit( long candidate, long victim )
+    {
+        return sketch.frequency( candidate ) > sketch.frequency( victim );
+    }
+
+    /**
+     * For caches which don't know what, if anything, will be evicted to make room for the candidate.
+     *
+     * @return whether or not {@code candidate} has been accessed frequently enough to be cached.
+     */
+    public boolean admit( long candidate )
+    {
+        return sketch.frequency( candidate ) >= DOORKEEPER_FREQUENCY;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.util.Collection;
+
+/**
+ * Puts entities into the wrapped cache only if they are {@link AdmissionFilter#admit(long) admitted}, for caches
+ * which have no way of telling which entity they would evict. An entity not admitted is returned from
+ * {@link #put(EntityWithSizeObject, boolean) put} as if it was cached, but isn't.
+ */
+public class AdmittingCache<E extends EntityWithSizeObject> extends Cache.Adapter<E>
+{
+    private final Cache<E> actual;
+    private final AdmissionFilter admission;
+
+    public AdmittingCache( Cache<E> actual, AdmissionFilter admission )
+    {
+        this.actual = actual;
+        this.admission = admission;
+    }
+
+    @Override
+    public String getName()
+    {
+        return actual.getName();
+    }
+
+    @Override
+    public E put( E value, boolean force )
+    {
+        if ( force || admission.admit( value.getId() ) )
+        {
+            return actual.put( value, force );
+        }
+        return value;
+    }
+
+    @Override
+    public E remove( long key )
+    {
+        return actual.remove( key );
+    }
+
+    @Override
+    public E get( long key )
+    {
+        admission.record( key );
+        return actual.get( key );
+    }
+
+    @Override
+    public void clear()
+    {
+        actual.clear();
+    }
+
+    @Override
+    public long size()
+    {
+        return actual.size();
+    }
+
+    @Override
+    public void putAll( Collection<E> values )
+    {
+        for ( E value : values )
+        {
+            put( value );
+        }
+    }
+
+    @Override
+    public long hitCount()
+    {
+        return actual.hitCount();
+    }
+
+    @Override
+    public long missCount()
+    {
+        return actual.missCount();
+    }
+
+    @Override
+    public void updateSize( E entity, int newSize )
+    {
+        actual.updateSize( entity, newSize );
+    }
+
+    @Override
+    public void printStatistics()
+    {
+        actual.printStatistics();
+    }
+}
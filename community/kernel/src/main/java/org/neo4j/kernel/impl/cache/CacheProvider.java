@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.cache;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.helpers.Service;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.configuration.HasSettings;
@@ -31,6 +32,10 @@ public abstract class CacheProvider extends Service implements HasSettings
 {
     protected static final String NODE_CACHE_NAME = "NodeCache";
     protected static final String RELATIONSHIP_CACHE_NAME = "RelationshipCache";
+    /**
+     * Number of keys to track in an {@link AdmissionFilter} for caches without a fixed max number of entries.
+     */
+    protected static final int DEFAULT_ADMISSION_FILTER_KEYS = 1 << 18;
 
     private final String name;
     private final String description;
@@ -47,6 +52,16 @@ public abstract class CacheProvider extends Service implements HasSettings
     public abstract Cache<RelationshipImpl> newRelationshipCache( StringLogger logger, Config config,
             Monitors monitors );
     
+    /**
+     * @return {@code cache} wrapped in an {@link AdmittingCache} if {@link GraphDatabaseSettings#cache_admission_filter}
+     * is enabled, otherwise {@code cache} itself.
+     */
+    protected static <E extends EntityWithSizeObject> Cache<E> withAdmissionFilter( Cache<E> cache, Config config )
+    {
+        return config.get( GraphDatabaseSettings.cache_admission_filter ) ?
+                new AdmittingCache<>( cache, new AdmissionFilter( DEFAULT_ADMISSION_FILTER_KEYS ) ) : cache;
+    }
+
     public String getName()
     {
         return name;
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+/**
+ * Approximate access frequencies of a large number of keys in a small fixed amount of memory, a count-min
+ * sketch of 4-bit counters. Each key is counted in four counters, picked by different hash functions, and its
+ * frequency is the smallest of them. Collisions can make a frequency higher than it really is, never lower.
+ *
+ * Frequencies age: once the number of increments reaches ten times the number of counters per row all counters
+ * are halved, so that keys frequently accessed long ago don't stay frequent forever.
+ *
+ * Counters are updated without synchronization. Concurrent updates may be lost, which only makes the
+ * frequencies a little less accurate.
+ */
+public class FrequencySketch
+{
+    static final int MAX_FREQUENCY = 15;
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * @param expectedKeys the number of keys expected to be tracked, typically the max number of entries of the
+     * cache this sketch is used with.
+     */
+    public FrequencySketch( int expectedKeys )
+    {
+        int length = Integer.highestOneBit( Math.max( 64, Math.min( expectedKeys, 1 << 30 ) ) - 1 ) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    public void increment( long key )
+    {
+        long hash = spread( key );
+        // Each long holds 16 counters in four groups, the key picks one group, the same in all four rows
+        int start = (int) (hash & 3) << 2;
+        boolean added = false;
+        for ( int i = 0; i < 4; i++ )
+        {
+            added |= incrementAt( indexOf( hash, i ), start + i );
+        }
+        if ( added && ++size >= sampleSize )
+        {
+            reset();
+        }
+    }
+
+    public int frequency( long key )
+    {
+        long hash = spread( key );
+        int start = (int) (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for ( int i = 0; i < 4; i++ )
+        {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf( hash, i )] >>> offset) & 0xfL);
+            frequency = Math.min( frequency, count );
+        }
+        return frequency;
+    }
+
+    private boolean incrementAt( int index, int counter )
+    {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        long value = table[index];
+        if ( (value & mask) != mask )
+        {
+            table[index] = value + (1L << offset);
+            return true;
+        }
+        return false;
+    }
+
+    private int indexOf( long hash, int row )
+    {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private void reset()
+    {
+        for ( int i = 0; i < table.length; i++ )
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private static long spread( long key )
+    {
+        long hash = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
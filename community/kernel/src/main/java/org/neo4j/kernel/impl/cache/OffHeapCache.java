@@ -0,0 +1,579 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+/**
+ * A cache which keeps its entities serialized in direct memory, outside of the java heap, and materializes
+ * a new entity object from those bytes for every {@link #get(long) get}. Entity objects handed out by this
+ * cache are therefore views, they are not kept around by the cache and will not burden the garbage collector
+ * more than any other short lived object.
+ *
+ * The cache is divided into segments, selected by entity id, each with its own lock. A segment is a ring
+ * buffer of entries, where new and updated entries are appended at the head and the oldest entries are evicted
+ * from the tail when the ring is full. The id to entry mapping of a segment is kept in a primitive map, which
+ * doesn't create any objects per entry. Sizes are exact; the amount of memory used is the number of serialized
+ * bytes and is bounded by the configured size.
+ *
+ * Entities loaded lazily, or changed by committing transactions, are written back to the cache via
+ * {@link #updateSize(EntityWithSizeObject, int)}. Since there can be multiple views of the same entity around
+ * each view is stamped with the generation of the entry it was created from, using
+ * {@link EntityWithSizeObject#setRegisteredSize(int)}, and only a view of the latest generation can write back
+ * its state. A stale view may carry changes that the cached entry doesn't have, e.g. a transaction committing
+ * changes to an entity while a reader writes back what it lazily loaded of it, so a write-back of a stale view
+ * evicts the entry, which gets loaded anew from the store next time.
+ */
+public class OffHeapCache<E extends EntityWithSizeObject> extends Cache.Adapter<E>
+{
+    /**
+     * Serializes entities into, and materializes entities from, the bytes kept in the cache.
+     */
+    public interface Format<E>
+    {
+        /**
+         * Writes the state of {@code entity} into {@code target}.
+         *
+         * @throws BufferOverflowException if {@code target} is too small, in which case it will
+         * be called again with a bigger buffer.
+         */
+        void write( E entity, ByteBuffer target );
+
+        E read( long id, ByteBuffer source );
+    }
+
+    static final int ENTRY_HEADER_SIZE = 8/*id*/ + 4/*length*/ + 4/*generation*/;
+    private static final int INITIAL_SEGMENT_SIZE = 64 * 1024;
+    private static final int INITIAL_SCRATCH_SIZE = 1024;
+
+    private final String name;
+    private final Format<E> format;
+    private final StringLogger logger;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int segmentCapacity;
+    private final HitCounter counter = new HitCounter();
+    private final ThreadLocal<ByteBuffer> scratch = new ThreadLocal<ByteBuffer>()
+    {
+        @Override
+        protected ByteBuffer initialValue()
+        {
+            return ByteBuffer.allocate( INITIAL_SCRATCH_SIZE );
+        }
+    };
+
+    /**
+     * @param maxSizeInBytes total number of bytes of direct memory to use, divided evenly between the segments.
+     * @param segmentCount number of segments, will be rounded up to the nearest power of two.
+     */
+    public OffHeapCache( String name, long maxSizeInBytes, int segmentCount, Format<E> format, StringLogger logger )
+    {
+        this.name = name;
+        this.format = format;
+        this.logger = logger;
+        int segmentsPowerOfTwo = 1;
+        while ( segmentsPowerOfTwo < segmentCount )
+        {
+            segmentsPowerOfTwo <<= 1;
+        }
+        long capacity = maxSizeInBytes / segmentsPowerOfTwo;
+        if ( capacity < ENTRY_HEADER_SIZE || capacity > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "Can not divide " + maxSizeInBytes + " bytes into " +
+                    segmentsPowerOfTwo + " segments of valid size" );
+        }
+        this.segmentCapacity = (int) capacity;
+        this.segments = new Segment[segmentsPowerOfTwo];
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            segments[i] = new Segment( segmentCapacity );
+        }
+        this.segmentMask = segmentsPowerOfTwo - 1;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public E put( E value, boolean force )
+    {
+        long id = value.getId();
+        Segment segment = segmentFor( id );
+        if ( !force )
+        {
+            E existing = materialize( id, segment );
+            if ( existing != null )
+            {
+                return existing;
+            }
+        }
+
+        ByteBuffer bytes = serialize( value );
+        if ( bytes != null )
+        {
+            synchronized ( segment )
+            {
+                if ( force || !segment.contains( id ) )
+                {
+                    value.setRegisteredSize( segment.store( id, bytes ) );
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public E remove( long key )
+    {
+        Segment segment = segmentFor( key );
+        ByteBuffer bytes;
+        int generation;
+        synchronized ( segment )
+        {
+            int offset = segment.offsetOf( key );
+            if ( offset == -1 )
+            {
+                return null;
+            }
+            bytes = segment.copy( offset, scratchFor( segment.lengthAt( offset ) ) );
+            generation = segment.generationAt( offset );
+            segment.remove( key, offset );
+        }
+        return view( key, bytes, generation );
+    }
+
+    @Override
+    public E get( long key )
+    {
+        return counter.count( materialize( key, segmentFor( key ) ) );
+    }
+
+    private E materialize( long id, Segment segment )
+    {
+        ByteBuffer bytes;
+        int generation;
+        synchronized ( segment )
+        {
+            int offset = segment.offsetOf( id );
+            if ( offset == -1 )
+            {
+                return null;
+            }
+            bytes = segment.copy( offset, scratchFor( segment.lengthAt( offset ) ) );
+            generation = segment.generationAt( offset );
+        }
+        return view( id, bytes, generation );
+    }
+
+    private E view( long id, ByteBuffer bytes, int generation )
+    {
+        E entity = format.read( id, bytes );
+        entity.setRegisteredSize( generation );
+        return entity;
+    }
+
+    @Override
+    public void updateSize( E entity, int newSize )
+    {
+        // The size reported is the heap size of the view, what we care about is the number of serialized bytes.
+        // This is rather the signal that the entity has changed and should be written back.
+        long id = entity.getId();
+        Segment segment = segmentFor( id );
+        synchronized ( segment )
+        {
+            if ( !segment.isCurrentGeneration( id, entity.getRegisteredSize() ) )
+            {
+                segment.remove( id );
+                return;
+            }
+        }
+
+        ByteBuffer bytes = serialize( entity );
+        synchronized ( segment )
+        {
+            if ( bytes != null && segment.isCurrentGeneration( id, entity.getRegisteredSize() ) )
+            {
+                entity.setRegisteredSize( segment.store( id, bytes ) );
+            }
+            else
+            {   // Either it has grown too big for the cache, or another view was written back while serializing
+                segment.remove( id );
+            }
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return number of entities in the cache.
+     */
+    @Override
+    public long size()
+    {
+        long size = 0;
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                size += segment.index.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of bytes of direct memory used by the entities currently in the cache.
+     */
+    public long bytesUsed()
+    {
+        long bytes = 0;
+        for ( Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                bytes += segment.liveBytes;
+            }
+        }
+        return bytes;
+    }
+
+    public long maxSize()
+    {
+        return (long) segmentCapacity * segments.length;
+    }
+
+    @Override
+    public void putAll( Collection<E> values )
+    {
+        for ( E value : values )
+        {
+            put( value );
+        }
+    }
+
+    @Override
+    public long hitCount()
+    {
+        return counter.getHitsCount();
+    }
+
+    @Override
+    public long missCount()
+    {
+        return counter.getMissCount();
+    }
+
+    @Override
+    public void printStatistics()
+    {
+        logger.logMessage( name + " entities:" + size() + " bytes:" + bytesUsed() + "/" + maxSize() +
+                " hits:" + hitCount() + " misses:" + missCount() );
+    }
+
+    private Segment segmentFor( long id )
+    {
+        // Ids are handed out sequentially so mix the bits to spread neighbours over different segments
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 40) & segmentMask];
+    }
+
+    private ByteBuffer scratchFor( int length )
+    {
+        ByteBuffer buffer = scratch.get();
+        if ( buffer.capacity() < length )
+        {
+            buffer = ByteBuffer.allocate( length );
+            scratch.set( buffer );
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * @return the serialized form of {@code entity}, or {@code null} if it's too big for a segment.
+     */
+    private ByteBuffer serialize( E entity )
+    {
+        ByteBuffer buffer = scratchFor( INITIAL_SCRATCH_SIZE );
+        while ( true )
+        {
+            try
+            {
+                format.write( entity, buffer );
+                buffer.flip();
+                return buffer.remaining() + ENTRY_HEADER_SIZE <= segmentCapacity ? buffer : null;
+            }
+            catch ( BufferOverflowException e )
+            {
+                if ( buffer.capacity() >= segmentCapacity )
+                {
+                    return null;
+                }
+                buffer = scratchFor( (int) Math.min( buffer.capacity() * 2L, segmentCapacity ) );
+            }
+        }
+    }
+
+    /**
+     * A ring buffer of entries {@code [id,length,generation,bytes]} in direct memory. Entries are appended at
+     * {@link #head} and evicted from {@link #tail}. When an entry doesn't fit between the head and the end of the
+     * buffer the head wraps around to the start, and {@link #wrapLimit} marks where the entries before the wrap end.
+     * Updating an entry appends a new entry and leaves the old one behind as dead bytes, reclaimed as the tail
+     * passes over it.
+     *
+     * The buffer starts out small and is doubled, copying only the live entries, until it reaches its maximum
+     * capacity. Only then will entries start to be evicted.
+     */
+    private static class Segment
+    {
+        private final int maxCapacity;
+        private ByteBuffer buffer;
+        private final PrimitiveLongIntMap index = Primitive.longIntMap();
+        private int head;
+        private int tail;
+        private int wrapLimit;
+        private boolean wrapped;
+        private int entriesInRing;
+        private long liveBytes;
+        private int generation;
+
+        Segment( int maxCapacity )
+        {
+            this.maxCapacity = maxCapacity;
+            this.buffer = ByteBuffer.allocateDirect( Math.min( INITIAL_SEGMENT_SIZE, maxCapacity ) );
+            clear();
+        }
+
+        void clear()
+        {
+            index.clear();
+            resetRing();
+            liveBytes = 0;
+        }
+
+        private void resetRing()
+        {
+            head = tail = 0;
+            wrapLimit = buffer.capacity();
+            wrapped = false;
+            entriesInRing = 0;
+        }
+
+        boolean contains( long id )
+        {
+            return index.containsKey( id );
+        }
+
+        int offsetOf( long id )
+        {
+            return index.get( id );
+        }
+
+        int lengthAt( int offset )
+        {
+            return buffer.getInt( offset + 8 );
+        }
+
+        int generationAt( int offset )
+        {
+            return buffer.getInt( offset + 12 );
+        }
+
+        boolean isCurrentGeneration( long id, int generation )
+        {
+            int offset = index.get( id );
+            return offset != -1 && generationAt( offset ) == generation;
+        }
+
+        ByteBuffer copy( int offset, ByteBuffer target )
+        {
+            int length = lengthAt( offset );
+            ByteBuffer source = buffer.duplicate();
+            source.limit( offset + ENTRY_HEADER_SIZE + length ).position( offset + ENTRY_HEADER_SIZE );
+            target.put( source );
+            target.flip();
+            return target;
+        }
+
+        /**
+         * @return the generation of the stored entry.
+         */
+        int store( long id, ByteBuffer bytes )
+        {
+            int length = bytes.remaining();
+            int offset = allocate( ENTRY_HEADER_SIZE + length );
+            if ( ++generation == 0 )
+            {   // zero is what entities not created by this cache have
+                generation = 1;
+            }
+            buffer.putLong( offset, id );
+            buffer.putInt( offset + 8, length );
+            buffer.putInt( offset + 12, generation );
+            ByteBuffer target = buffer.duplicate();
+            target.position( offset + ENTRY_HEADER_SIZE );
+            target.put( bytes );
+
+            int previous = index.put( id, offset );
+            if ( previous != -1 )
+            {
+                liveBytes -= ENTRY_HEADER_SIZE + lengthAt( previous );
+            }
+            liveBytes += ENTRY_HEADER_SIZE + length;
+            return generation;
+        }
+
+        void remove( long id )
+        {
+            int offset = index.get( id );
+            if ( offset != -1 )
+            {
+                remove( id, offset );
+            }
+        }
+
+        void remove( long id, int offset )
+        {
+            index.remove( id );
+            liveBytes -= ENTRY_HEADER_SIZE + lengthAt( offset );
+        }
+
+        private int allocate( int size )
+        {
+            while ( true )
+            {
+                if ( !wrapped )
+                {
+                    if ( buffer.capacity() - head >= size )
+                    {
+                        return claim( size );
+                    }
+                    if ( grow() )
+                    {
+                        continue;
+                    }
+                    wrapLimit = head;
+                    head = 0;
+                    wrapped = true;
+                }
+                else
+                {
+                    if ( tail - head >= size )
+                    {
+                        return claim( size );
+                    }
+                    if ( grow() )
+                    {
+                        continue;
+                    }
+                    evictTail();
+                }
+            }
+        }
+
+        private boolean grow()
+        {
+            if ( buffer.capacity() >= maxCapacity )
+            {
+                return false;
+            }
+
+            ByteBuffer grown = ByteBuffer.allocateDirect( (int) Math.min( buffer.capacity() * 2L, maxCapacity ) );
+            int offset = tail;
+            boolean beforeWrap = wrapped;
+            int position = 0;
+            int liveEntries = 0;
+            for ( int i = 0; i < entriesInRing; i++ )
+            {
+                if ( beforeWrap && offset >= wrapLimit )
+                {
+                    offset = 0;
+                    beforeWrap = false;
+                }
+                long id = buffer.getLong( offset );
+                int size = ENTRY_HEADER_SIZE + lengthAt( offset );
+                if ( index.get( id ) == offset )
+                {
+                    ByteBuffer entry = buffer.duplicate();
+                    entry.limit( offset + size ).position( offset );
+                    grown.position( position );
+                    grown.put( entry );
+                    index.put( id, position );
+                    position += size;
+                    liveEntries++;
+                }
+                offset += size;
+            }
+
+            buffer = grown;
+            resetRing();
+            head = position;
+            entriesInRing = liveEntries;
+            return true;
+        }
+
+        private int claim( int size )
+        {
+            int offset = head;
+            head += size;
+            entriesInRing++;
+            return offset;
+        }
+
+        private void evictTail()
+        {
+            long id = buffer.getLong( tail );
+            int length = lengthAt( tail );
+            if ( index.get( id ) == tail )
+            {
+                remove( id, tail );
+            }
+            tail += ENTRY_HEADER_SIZE + length;
+            if ( --entriesInRing == 0 )
+            {
+                resetRing();
+            }
+            else if ( tail >= wrapLimit )
+            {
+                tail = 0;
+                wrapLimit = buffer.capacity();
+                wrapped = false;
+            }
+        }
+    }
+}
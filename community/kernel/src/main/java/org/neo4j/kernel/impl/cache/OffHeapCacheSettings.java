@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import org.neo4j.graphdb.config.Setting;
+import org.neo4j.graphdb.factory.Description;
+
+import static org.neo4j.helpers.Settings.BYTES;
+import static org.neo4j.helpers.Settings.INTEGER;
+import static org.neo4j.helpers.Settings.min;
+import static org.neo4j.helpers.Settings.setting;
+
+/**
+ * Settings for the off-heap cache
+ */
+@Description( "Off-heap cache configuration settings" )
+public class OffHeapCacheSettings
+{
+    @Description( "Amount of direct memory, outside of the java heap, to dedicate to cached nodes. "
+            + "Nodes are kept in a compact serialized form, so the memory used is the exact number of bytes "
+            + "of the cached nodes. The least recently written nodes are evicted when it's full. "
+            + "The JVM must be allowed to allocate this much direct memory, see -XX:MaxDirectMemorySize." )
+    public static final Setting<Long> offheap_node_cache_size = setting( "offheap_node_cache_size", BYTES, "128M" );
+
+    @Description( "Amount of direct memory, outside of the java heap, to dedicate to cached relationships. "
+            + "See offheap_node_cache_size for more information." )
+    public static final Setting<Long> offheap_relationship_cache_size =
+            setting( "offheap_relationship_cache_size", BYTES, "128M" );
+
+    @Description( "Number of segments each off-heap cache is divided into. Each segment has its own lock, "
+            + "so more segments allow more concurrent access. Rounded up to the nearest power of two." )
+    @SuppressWarnings("unchecked")
+    public static final Setting<Integer> offheap_cache_segments =
+            setting( "offheap_cache_segments", INTEGER, "32", min( 1 ) );
+}
@@ -39,12 +39,12 @@ public class SoftCacheProvider extends CacheProvider
     @Override
     public Cache<NodeImpl> newNodeCache( StringLogger logger, Config config, Monitors monitors )
     {
-        return new SoftLruCache<NodeImpl>( NODE_CACHE_NAME );
+        return withAdmissionFilter( new SoftLruCache<NodeImpl>( NODE_CACHE_NAME ), config );
     }
 
     @Override
     public Cache<RelationshipImpl> newRelationshipCache( StringLogger logger, Config config, Monitors monitors )
     {
-        return new SoftLruCache<RelationshipImpl>( RELATIONSHIP_CACHE_NAME );
+        return withAdmissionFilter( new SoftLruCache<RelationshipImpl>( RELATIONSHIP_CACHE_NAME ), config );
     }
 }
@@ -39,12 +39,12 @@ public class WeakCacheProvider extends CacheProvider
     @Override
     public Cache<NodeImpl> newNodeCache( StringLogger logger, Config config, Monitors monitors )
     {
-        return new WeakLruCache<>( NODE_CACHE_NAME );
+        return withAdmissionFilter( new WeakLruCache<NodeImpl>( NODE_CACHE_NAME ), config );
     }
 
     @Override
     public Cache<RelationshipImpl> newRelationshipCache( StringLogger logger, Config config, Monitors monitors )
     {
-        return new WeakLruCache<>( RELATIONSHIP_CACHE_NAME );
+        return withAdmissionFilter( new WeakLruCache<RelationshipImpl>( RELATIONSHIP_CACHE_NAME ), config );
     }
 }
@@ -759,6 +759,21 @@ public class NodeImpl extends ArrayBasedPrimitive
         this.labels = labels;
     }
 
+    int[] getCachedLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * Sets a complete set of relationships, as opposed to the incremental loading from the store,
+     * i.e. there will be no more relationships to load for this node afterwards.
+     */
+    synchronized void setAllRelationships( RelIdArray[] relationships )
+    {
+        this.relationships = relationships;
+        this.relChainPosition = RelationshipLoadingPosition.EMPTY;
+    }
+
     @Override
     protected Property noProperty( int key )
     {
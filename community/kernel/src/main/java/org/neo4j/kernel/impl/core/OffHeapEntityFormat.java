@@ -0,0 +1,508 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.collection.primitive.PrimitiveLongSet;
+import org.neo4j.kernel.api.properties.DefinedProperty;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.impl.cache.OffHeapCache;
+import org.neo4j.kernel.impl.util.RelIdArray;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
+import org.neo4j.kernel.impl.util.RelIdIterator;
+
+/**
+ * Compact serialized form of {@link NodeImpl} and {@link RelationshipImpl} for {@link OffHeapCache}.
+ *
+ * Only state which is complete is written: labels and properties if they have been loaded and relationships
+ * of a node if all of them have been loaded. Partially loaded relationships are left out, a materialized node
+ * will then load its relationships from the store again on demand, as a node fresh from the store would.
+ */
+public class OffHeapEntityFormat
+{
+    private static final byte HAS_LABELS = 0x1;
+    private static final byte HAS_PROPERTIES = 0x2;
+    private static final byte HAS_RELATIONSHIPS = 0x4;
+    private static final byte IS_DENSE = 0x8;
+
+    private static final byte BOOLEAN = 0, BYTE = 1, SHORT = 2, CHAR = 3, INT = 4, LONG = 5, FLOAT = 6, DOUBLE = 7,
+            STRING = 8, BOOLEAN_ARRAY = 9, BYTE_ARRAY = 10, SHORT_ARRAY = 11, CHAR_ARRAY = 12, INT_ARRAY = 13,
+            LONG_ARRAY = 14, FLOAT_ARRAY = 15, DOUBLE_ARRAY = 16, STRING_ARRAY = 17, UNKNOWN = -1;
+    private static final Map<Class<?>,Byte> TYPES = new HashMap<>();
+    static
+    {
+        TYPES.put( Boolean.class, BOOLEAN );
+        TYPES.put( Byte.class, BYTE );
+        TYPES.put( Short.class, SHORT );
+        TYPES.put( Character.class, CHAR );
+        TYPES.put( Integer.class, INT );
+        TYPES.put( Long.class, LONG );
+        TYPES.put( Float.class, FLOAT );
+        TYPES.put( Double.class, DOUBLE );
+        TYPES.put( String.class, STRING );
+        TYPES.put( boolean[].class, BOOLEAN_ARRAY );
+        TYPES.put( byte[].class, BYTE_ARRAY );
+        TYPES.put( short[].class, SHORT_ARRAY );
+        TYPES.put( char[].class, CHAR_ARRAY );
+        TYPES.put( int[].class, INT_ARRAY );
+        TYPES.put( long[].class, LONG_ARRAY );
+        TYPES.put( float[].class, FLOAT_ARRAY );
+        TYPES.put( double[].class, DOUBLE_ARRAY );
+        TYPES.put( String[].class, STRING_ARRAY );
+    }
+
+    public static final OffHeapCache.Format<NodeImpl> NODES = new OffHeapCache.Format<NodeImpl>()
+    {
+        @Override
+        public void write( NodeImpl node, ByteBuffer target )
+        {
+            synchronized ( node )
+            {
+                int[] labels = node.getCachedLabels();
+                DefinedProperty[] properties = propertiesOf( node );
+                RelIdArray[] relationships = node.getRelChainPosition() == RelationshipLoadingPosition.EMPTY ?
+                        node.getRelationshipIds() : null;
+                byte flags = (byte) ((labels != null ? HAS_LABELS : 0) | (properties != null ? HAS_PROPERTIES : 0) |
+                        (relationships != null ? HAS_RELATIONSHIPS : 0) | (node.isDense() ? IS_DENSE : 0));
+                target.put( flags );
+                if ( labels != null )
+                {
+                    target.putInt( labels.length );
+                    for ( int label : labels )
+                    {
+                        target.putInt( label );
+                    }
+                }
+                if ( properties != null )
+                {
+                    writeProperties( properties, target );
+                }
+                if ( relationships != null )
+                {
+                    writeRelationships( relationships, target );
+                }
+            }
+        }
+
+        @Override
+        public NodeImpl read( long id, ByteBuffer source )
+        {
+            byte flags = source.get();
+            NodeImpl node = (flags & IS_DENSE) != 0 ? new DenseNodeImpl( id ) : new NodeImpl( id );
+            if ( (flags & HAS_LABELS) != 0 )
+            {
+                int[] labels = new int[source.getInt()];
+                for ( int i = 0; i < labels.length; i++ )
+                {
+                    labels[i] = source.getInt();
+                }
+                node.commitLabels( labels );
+            }
+            if ( (flags & HAS_PROPERTIES) != 0 )
+            {
+                node.setProperties( readProperties( source ) );
+            }
+            if ( (flags & HAS_RELATIONSHIPS) != 0 )
+            {
+                node.setAllRelationships( readRelationships( source ) );
+            }
+            return node;
+        }
+    };
+
+    public static final OffHeapCache.Format<RelationshipImpl> RELATIONSHIPS = new OffHeapCache.Format<RelationshipImpl>()
+    {
+        @Override
+        public void write( RelationshipImpl relationship, ByteBuffer target )
+        {
+            synchronized ( relationship )
+            {
+                target.putLong( relationship.getStartNodeId() );
+                target.putLong( relationship.getEndNodeId() );
+                target.putInt( relationship.getTypeId() );
+                DefinedProperty[] properties = propertiesOf( relationship );
+                target.put( properties != null ? HAS_PROPERTIES : 0 );
+                if ( properties != null )
+                {
+                    writeProperties( properties, target );
+                }
+            }
+        }
+
+        @Override
+        public RelationshipImpl read( long id, ByteBuffer source )
+        {
+            RelationshipImpl relationship = new RelationshipImpl( id, source.getLong(), source.getLong(),
+                    source.getInt() );
+            if ( (source.get() & HAS_PROPERTIES) != 0 )
+            {
+                relationship.setProperties( readProperties( source ) );
+            }
+            return relationship;
+        }
+    };
+
+    private OffHeapEntityFormat()
+    {
+    }
+
+    /**
+     * @return the loaded properties, or {@code null} if they're not loaded or some value can't be serialized.
+     */
+    private static DefinedProperty[] propertiesOf( ArrayBasedPrimitive entity )
+    {
+        if ( !entity.hasLoadedProperties() )
+        {
+            return null;
+        }
+        List<DefinedProperty> properties = new ArrayList<>();
+        for ( Iterator<DefinedProperty> iterator = entity.getCachedProperties(); iterator.hasNext(); )
+        {
+            DefinedProperty property = iterator.next();
+            if ( typeOf( property.value() ) == UNKNOWN )
+            {
+                return null;
+            }
+            properties.add( property );
+        }
+        return properties.toArray( new DefinedProperty[properties.size()] );
+    }
+
+    private static void writeProperties( DefinedProperty[] properties, ByteBuffer target )
+    {
+        target.putInt( properties.length );
+        for ( DefinedProperty property : properties )
+        {
+            target.putInt( property.propertyKeyId() );
+            writeValue( property.value(), target );
+        }
+    }
+
+    private static Iterator<DefinedProperty> readProperties( ByteBuffer source )
+    {
+        int count = source.getInt();
+        List<DefinedProperty> properties = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            int key = source.getInt();
+            properties.add( Property.property( key, readValue( source ) ) );
+        }
+        return properties.iterator();
+    }
+
+    private static void writeRelationships( RelIdArray[] relationships, ByteBuffer target )
+    {
+        target.putInt( relationships.length );
+        for ( RelIdArray ids : relationships )
+        {
+            // Iterating outgoing and incoming both include loops, which can be told apart by being in both
+            PrimitiveLongSet outgoing = collect( ids.iterator( DirectionWrapper.OUTGOING ) );
+            PrimitiveLongSet incoming = collect( ids.iterator( DirectionWrapper.INCOMING ) );
+            PrimitiveLongSet loops = Primitive.longSet();
+            for ( RelIdIterator iterator = ids.iterator( DirectionWrapper.OUTGOING ); iterator.hasNext(); )
+            {
+                long id = iterator.next();
+                if ( incoming.contains( id ) )
+                {
+                    loops.add( id );
+                    outgoing.remove( id );
+                    incoming.remove( id );
+                }
+            }
+            target.putInt( ids.getType() );
+            writeIds( outgoing, target );
+            writeIds( incoming, target );
+            writeIds( loops, target );
+        }
+    }
+
+    private static PrimitiveLongSet collect( RelIdIterator ids )
+    {
+        PrimitiveLongSet set = Primitive.longSet();
+        while ( ids.hasNext() )
+        {
+            set.add( ids.next() );
+        }
+        return set;
+    }
+
+    private static void writeIds( PrimitiveLongSet ids, ByteBuffer target )
+    {
+        target.putInt( ids.size() );
+        for ( PrimitiveLongIterator iterator = ids.iterator(); iterator.hasNext(); )
+        {
+            target.putLong( iterator.next() );
+        }
+    }
+
+    private static RelIdArray[] readRelationships( ByteBuffer source )
+    {
+        RelIdArray[] relationships = new RelIdArray[source.getInt()];
+        for ( int i = 0; i < relationships.length; i++ )
+        {
+            int type = source.getInt();
+            int outgoing = source.getInt();
+            // The loops come last, so peek ahead to know which kind of array is needed
+            int incomingPosition = source.position() + outgoing * 8;
+            int incoming = source.getInt( incomingPosition );
+            int loops = source.getInt( incomingPosition + 4 + incoming * 8 );
+            RelIdArray ids = loops > 0 ? new RelIdArrayWithLoops( type ) : new RelIdArray( type );
+            readIds( ids, outgoing, DirectionWrapper.OUTGOING, source );
+            readIds( ids, source.getInt(), DirectionWrapper.INCOMING, source );
+            readIds( ids, source.getInt(), DirectionWrapper.BOTH, source );
+            ids.shrink();
+            relationships[i] = ids;
+        }
+        return relationships;
+    }
+
+    private static void readIds( RelIdArray ids, int count, DirectionWrapper direction, ByteBuffer source )
+    {
+        for ( int i = 0; i < count; i++ )
+        {
+            ids.add( source.getLong(), direction );
+        }
+    }
+
+    private static byte typeOf( Object value )
+    {
+        Byte type = value != null ? TYPES.get( value.getClass() ) : null;
+        return type != null ? type : UNKNOWN;
+    }
+
+    private static void writeValue( Object value, ByteBuffer target )
+    {
+        byte type = typeOf( value );
+        target.put( type );
+        switch ( type )
+        {
+        case BOOLEAN: target.put( (byte) ((Boolean) value ? 1 : 0) ); break;
+        case BYTE: target.put( (Byte) value ); break;
+        case SHORT: target.putShort( (Short) value ); break;
+        case CHAR: target.putChar( (Character) value ); break;
+        case INT: target.putInt( (Integer) value ); break;
+        case LONG: target.putLong( (Long) value ); break;
+        case FLOAT: target.putFloat( (Float) value ); break;
+        case DOUBLE: target.putDouble( (Double) value ); break;
+        case STRING: writeString( (String) value, target ); break;
+        case BOOLEAN_ARRAY:
+        {
+            boolean[] array = (boolean[]) value;
+            target.putInt( array.length );
+            for ( boolean item : array )
+            {
+                target.put( (byte) (item ? 1 : 0) );
+            }
+            break;
+        }
+        case BYTE_ARRAY:
+        {
+            byte[] array = (byte[]) value;
+            target.putInt( array.length );
+            target.put( array );
+            break;
+        }
+        case SHORT_ARRAY:
+        {
+            short[] array = (short[]) value;
+            target.putInt( array.length );
+            for ( short item : array )
+            {
+                target.putShort( item );
+            }
+            break;
+        }
+        case CHAR_ARRAY:
+        {
+            char[] array = (char[]) value;
+            target.putInt( array.length );
+            for ( char item : array )
+            {
+                target.putChar( item );
+            }
+            break;
+        }
+        case INT_ARRAY:
+        {
+            int[] array = (int[]) value;
+            target.putInt( array.length );
+            for ( int item : array )
+            {
+                target.putInt( item );
+            }
+            break;
+        }
+        case LONG_ARRAY:
+        {
+            long[] array = (long[]) value;
+            target.putInt( array.length );
+            for ( long item : array )
+            {
+                target.putLong( item );
+            }
+            break;
+        }
+        case FLOAT_ARRAY:
+        {
+            float[] array = (float[]) value;
+            target.putInt( array.length );
+            for ( float item : array )
+            {
+                target.putFloat( item );
+            }
+            break;
+        }
+        case DOUBLE_ARRAY:
+        {
+            double[] array = (double[]) value;
+            target.putInt( array.length );
+            for ( double item : array )
+            {
+                target.putDouble( item );
+            }
+            break;
+        }
+        case STRING_ARRAY:
+        {
+            String[] array = (String[]) value;
+            target.putInt( array.length );
+            for ( String item : array )
+            {
+                writeString( item, target );
+            }
+            break;
+        }
+        default:
+            throw new IllegalArgumentException( "Unsupported value " + value );
+        }
+    }
+
+    private static Object readValue( ByteBuffer source )
+    {
+        byte type = source.get();
+        switch ( type )
+        {
+        case BOOLEAN: return source.get() != 0;
+        case BYTE: return source.get();
+        case SHORT: return source.getShort();
+        case CHAR: return source.getChar();
+        case INT: return source.getInt();
+        case LONG: return source.getLong();
+        case FLOAT: return source.getFloat();
+        case DOUBLE: return source.getDouble();
+        case STRING: return readString( source );
+        case BOOLEAN_ARRAY:
+        {
+            boolean[] array = new boolean[source.getInt()];
+            for ( int i = 0; i < array.length; i++ )
+            {
+                array[i] = source.get() != 0;
+            }
+            return array;
+        }
+        case BYTE_ARRAY:
+        {
+            byte[] array = new byte[source.getInt()];
+            source.get( array );
+            return array;
+        }
+        case SHORT_ARRAY:
+        {
+            short[] array = new short[source.getInt()];
+            source.asShortBuffer().get( array );
+            source.position( source.position() + array.length * 2 );
+            return array;
+        }
+        case CHAR_ARRAY:
+        {
+            char[] array = new char[source.getInt()];
+            source.asCharBuffer().get( array );
+            source.position( source.position() + array.length * 2 );
+            return array;
+        }
+        case INT_ARRAY:
+        {
+            int[] array = new int[source.getInt()];
+            source.asIntBuffer().get( array );
+            source.position( source.position() + array.length * 4 );
+            return array;
+        }
+        case LONG_ARRAY:
+        {
+            long[] array = new long[source.getInt()];
+            source.asLongBuffer().get( array );
+            source.position( source.position() + array.length * 8 );
+            return array;
+        }
+        case FLOAT_ARRAY:
+        {
+            float[] array = new float[source.getInt()];
+            source.asFloatBuffer().get( array );
+            source.position( source.position() + array.length * 4 );
+            return array;
+        }
+        case DOUBLE_ARRAY:
+        {
+            double[] array = new double[source.getInt()];
+            source.asDoubleBuffer().get( array );
+            source.position( source.position() + array.length * 8 );
+            return array;
+        }
+        case STRING_ARRAY:
+        {
+            String[] array = new String[source.getInt()];
+            for ( int i = 0; i < array.length; i++ )
+            {
+                array[i] = readString( source );
+            }
+            return array;
+        }
+        default:
+            throw new IllegalStateException( "Unknown value type " + type );
+        }
+    }
+
+    private static void writeString( String value, ByteBuffer target )
+    {
+        int length = value.length();
+        target.putInt( length );
+        for ( int i = 0; i < length; i++ )
+        {
+            target.putChar( value.charAt( i ) );
+        }
+    }
+
+    private static String readString( ByteBuffer source )
+    {
+        char[] chars = new char[source.getInt()];
+        source.asCharBuffer().get( chars );
+        source.position( source.position() + chars.length * 2 );
+        return new String( chars );
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.Arrays;
+
+/**
+ * Collects resources a transaction is about to lock exclusively and acquires them in bulk, one
+ * {@link Locks.Client#acquireExclusive(Locks.ResourceType, long...) acquire call} per resource type.
+ *
+ * Resource types are acquired in ascending {@link Locks.ResourceType#typeId() type id} order and the ids within
+ * each type in ascending id order. Two transactions locking overlapping sets of resources through batches will
+ * therefore always meet in the same order, which avoids the deadlocks that locking in statement order causes
+ * on frequently updated resources, such as hub nodes.
+ *
+ * Ids added more than once are only locked once. A batch is reusable: it is empty again after
+ * {@link #acquire(Locks.Client)}.
+ */
+public class LockBatch
+{
+    private static final int INITIAL_CAPACITY = 8;
+
+    private Ids[] exclusive = new Ids[0];
+
+    public LockBatch addExclusive( Locks.ResourceType resourceType, long... resourceIds )
+    {
+        int typeId = resourceType.typeId();
+        if ( typeId >= exclusive.length )
+        {
+            exclusive = Arrays.copyOf( exclusive, typeId + 1 );
+        }
+        if ( exclusive[typeId] == null )
+        {
+            exclusive[typeId] = new Ids( resourceType );
+        }
+        exclusive[typeId].add( resourceIds );
+        return this;
+    }
+
+    /**
+     * Acquires all locks in this batch using the given client and then clears the batch.
+     */
+    public void acquire( Locks.Client client ) throws AcquireLockTimeoutException
+    {
+        try
+        {
+            for ( Ids ids : exclusive )
+            {
+                if ( ids != null && ids.size > 0 )
+                {
+                    client.acquireExclusive( ids.resourceType, ids.sortedDistinct() );
+                }
+            }
+        }
+        finally
+        {
+            clear();
+        }
+    }
+
+    private void clear()
+    {
+        for ( Ids ids : exclusive )
+        {
+            if ( ids != null )
+            {
+                ids.size = 0;
+            }
+        }
+    }
+
+    private static class Ids
+    {
+        private final Locks.ResourceType resourceType;
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int size;
+
+        Ids( Locks.ResourceType resourceType )
+        {
+            this.resourceType = resourceType;
+        }
+
+        void add( long[] resourceIds )
+        {
+            if ( size + resourceIds.length > ids.length )
+            {
+                ids = Arrays.copyOf( ids, Math.max( ids.length * 2, size + resourceIds.length ) );
+            }
+            System.arraycopy( resourceIds, 0, ids, size, resourceIds.length );
+            size += resourceIds.length;
+        }
+
+        long[] sortedDistinct()
+        {
+            Arrays.sort( ids, 0, size );
+            int distinct = 1;
+            for ( int i = 1; i < size; i++ )
+            {
+                if ( ids[i] != ids[distinct - 1] )
+                {
+                    ids[distinct++] = ids[i];
+                }
+            }
+            return Arrays.copyOf( ids, distinct );
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import java.util.Arrays;
+
+/**
+ * Lock clients acquire the resources of a multi-id acquire call in ascending id order. Two transactions locking
+ * overlapping sets of resources of a type in one call will therefore always meet in the same order, which avoids
+ * the deadlocks that arbitrary lock ordering causes on frequently updated resources, such as hub nodes.
+ */
+public class LockOrdering
+{
+    private LockOrdering()
+    {   // only static helpers
+    }
+
+    /**
+     * @return the given ids in ascending order. The same array is returned if it already is sorted,
+     * otherwise a sorted copy. Duplicates are kept, since every acquired id has to be released.
+     */
+    public static long[] sorted( long[] resourceIds )
+    {
+        for ( int i = 1; i < resourceIds.length; i++ )
+        {
+            if ( resourceIds[i - 1] > resourceIds[i] )
+            {
+                long[] copy = resourceIds.clone();
+                Arrays.sort( copy );
+                return copy;
+            }
+        }
+        return resourceIds;
+    }
+}
@@ -76,6 +76,7 @@ public interface Locks extends Lifecycle
         /**
          * Can be grabbed when there are no locks or only share locks on a resource. If the lock cannot be acquired,
          * behavior is specified by the {@link WaitStrategy} for the given {@link ResourceType}.
+         * Multiple resources are acquired in ascending id order, see {@link LockOrdering}.
          */
         void acquireShared(ResourceType resourceType, long ... resourceIds) throws AcquireLockTimeoutException;
 
@@ -83,6 +84,7 @@ public interface Locks extends Lifecycle
          * Can be grabbed when no other client holds locks on the relevant resources. No other clients can hold locks
          * while one client holds an exclusive lock. If the lock cannot be acquired,
          * behavior is specified by the {@link WaitStrategy} for the given {@link ResourceType}.
+         * Multiple resources are acquired in ascending id order, see {@link LockOrdering}.
          */
         void acquireExclusive(ResourceType resourceType, long ... resourceIds) throws AcquireLockTimeoutException;
 
@@ -24,6 +24,7 @@ import org.neo4j.collection.primitive.PrimitiveIntObjectMap;
 import org.neo4j.collection.primitive.PrimitiveIntObjectVisitor;
 import org.neo4j.collection.primitive.PrimitiveLongObjectMap;
 import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+import org.neo4j.kernel.impl.locking.LockOrdering;
 import org.neo4j.kernel.impl.locking.Locks;
 
 public class CommunityLockClient implements Locks.Client
@@ -43,7 +44,7 @@ public class CommunityLockClient implements Locks.Client
     public void acquireShared( Locks.ResourceType resourceType, long... resourceIds )
     {
         PrimitiveLongObjectMap<LockResource> localLocks = localShared( resourceType );
-        for ( long resourceId : resourceIds )
+        for ( long resourceId : LockOrdering.sorted( resourceIds ) )
         {
             LockResource resource = localLocks.get( resourceId );
             if( resource != null )
@@ -62,7 +63,7 @@ public class CommunityLockClient implements Locks.Client
     public void acquireExclusive( Locks.ResourceType resourceType, long... resourceIds )
     {
         PrimitiveLongObjectMap<LockResource> localLocks = localExclusive( resourceType );
-        for ( long resourceId : resourceIds )
+        for ( long resourceId : LockOrdering.sorted( resourceIds ) )
         {
             LockResource resource = localLocks.get( resourceId );
             if( resource != null )
@@ -29,14 +29,39 @@ import org.neo4j.kernel.impl.transaction.IllegalResourceException;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.logging.Logging;
 
+/**
+ * Keeps a {@link RWLock} per locked resource. The locks are kept in a number of stripes, each guarded by its own
+ * monitor, picked by the hash code of the resource, so that transactions locking different resources don't
+ * contend with each other.
+ */
 public class LockManagerImpl implements LockManager
 {
-    private final Map<Object,RWLock> resourceLockMap = new HashMap<>();
+    static final int DEFAULT_STRIPES = 128;
+
+    private final Map<Object,RWLock>[] resourceLockMaps;
     private final RagManager ragManager;
 
     public LockManagerImpl( RagManager ragManager )
     {
+        this( ragManager, DEFAULT_STRIPES );
+    }
+
+    /**
+     * @param stripes number of stripes to keep locks in, rounded up to the nearest power of two.
+     */
+    @SuppressWarnings( "unchecked" )
+    public LockManagerImpl( RagManager ragManager, int stripes )
+    {
+        if ( stripes < 1 )
+        {
+            throw new IllegalArgumentException( "Invalid number of stripes " + stripes );
+        }
         this.ragManager = ragManager;
+        this.resourceLockMaps = new Map[Math.max( 1, Integer.highestOneBit( stripes - 1 ) << 1 )];
+        for ( int i = 0; i < resourceLockMaps.length; i++ )
+        {
+            resourceLockMaps[i] = new HashMap<>();
+        }
     }
 
     @Override
@@ -92,6 +117,7 @@ public class LockManagerImpl implements LockManager
     {
         StringLogger logger = logging.getMessagesLog( LockManager.class );
         RWLock lock;
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             if ( !resourceLockMap.containsKey( resource ) )
@@ -113,18 +139,29 @@ public class LockManagerImpl implements LockManager
      */
     public void accept( Visitor<RWLock, RuntimeException> visitor )
     {
-        synchronized ( resourceLockMap )
+        for ( Map<Object,RWLock> resourceLockMap : resourceLockMaps )
         {
-            for ( RWLock lock : resourceLockMap.values() )
+            synchronized ( resourceLockMap )
             {
-                if ( visitor.visit( lock ) )
+                for ( RWLock lock : resourceLockMap.values() )
                 {
-                    break;
+                    if ( visitor.visit( lock ) )
+                    {
+                        return;
+                    }
                 }
             }
         }
     }
 
+    private Map<Object,RWLock> stripeFor( Object resource )
+    {
+        int hash = resource.hashCode();
+        // Spread the higher bits down, since resources may well hash to multiples of the number of stripes
+        hash ^= (hash >>> 16) ^ (hash >>> 7);
+        return resourceLockMaps[hash & (resourceLockMaps.length - 1)];
+    }
+
     private void assertValidArguments( Object resource, Object tx )
     {
         if ( resource == null || tx == null )
@@ -136,6 +173,7 @@ public class LockManagerImpl implements LockManager
     private RWLock getRWLockForAcquiring( Object resource, Object tx )
     {
         assertValidArguments( resource, tx );
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             RWLock lock = resourceLockMap.get( resource );
@@ -153,6 +191,7 @@ public class LockManagerImpl implements LockManager
             int writeCountPrerequisite )
     {
         assertValidArguments( resource, tx );
+        Map<Object,RWLock> resourceLockMap = stripeFor( resource );
         synchronized ( resourceLockMap )
         {
             RWLock lock = resourceLockMap.get( resource );
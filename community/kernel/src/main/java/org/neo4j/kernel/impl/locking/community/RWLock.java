@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.locking.community;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.ListIterator;
@@ -63,11 +64,19 @@ import static org.neo4j.kernel.impl.locking.LockType.WRITE;
  */
 class RWLock implements Visitor<LineLogger, RuntimeException>
 {
+    private static final Object[] NO_HOLDERS = new Object[0];
+
     private final Object resource; // the resource this RWLock locks
     private final LinkedList<WaitElement> waitingThreadList = new LinkedList<>();
     private final ArrayMap<Object,TxLockElement> txLockElementMap = new ArrayMap<>( (byte)5, false, true );
     private final RagManager ragManager;
 
+    /**
+     * Transactions holding this lock, for the {@link RagManager} to read without synchronizing on this lock.
+     * Replaced, never modified, when a transaction gets its first or releases its last lock on this resource.
+     */
+    private volatile Object[] holders = NO_HOLDERS;
+
     // access to these is guarded by synchronized blocks
     private int totalReadCount;
     private int totalWriteCount;
@@ -233,7 +242,7 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
         if ( tle.isFree() )
         {
             txLockElementMap.remove( tx );
-            ragManager.lockReleased( this, tx );
+            removeHolder( tx );
         }
         if ( waitingThreadList.size() > 0 )
         {
@@ -418,7 +427,7 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
         if ( tle.isFree() )
         {
             txLockElementMap.remove( tx );
-            ragManager.lockReleased( this, tx );
+            removeHolder( tx );
         }
 
         // the threads in the waitingList cannot be currentThread
@@ -563,8 +572,41 @@ class RWLock implements Visitor<LineLogger, RuntimeException>
     {
         if ( tle.isFree() )
         {
-            ragManager.lockAcquired( this, tx );
+            Object[] newHolders = Arrays.copyOf( holders, holders.length + 1 );
+            newHolders[holders.length] = tx;
+            holders = newHolders;
+        }
+    }
+
+    private void removeHolder( Object tx )
+    {
+        Object[] current = holders;
+        for ( int i = 0; i < current.length; i++ )
+        {
+            if ( current[i].equals( tx ) )
+            {
+                if ( current.length == 1 )
+                {
+                    holders = NO_HOLDERS;
+                    return;
+                }
+                Object[] newHolders = new Object[current.length - 1];
+                System.arraycopy( current, 0, newHolders, 0, i );
+                System.arraycopy( current, i + 1, newHolders, i, current.length - i - 1 );
+                holders = newHolders;
+                return;
+            }
         }
+        throw new LockException( tx + " not found in locking tx list" );
+    }
+
+    /**
+     * @return the transactions holding this lock, which may be read without synchronizing on this lock and must not
+     * be modified.
+     */
+    Object[] holders()
+    {
+        return holders;
     }
 
     private TxLockElement getLockElement( Object tx )
@@ -19,22 +19,23 @@
  */
 package org.neo4j.kernel.impl.locking.community;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.DeadlockDetectedException;
-import org.neo4j.kernel.impl.util.ArrayMap;
 import org.neo4j.kernel.impl.util.StringLogger.LineLogger;
 
 /**
  * The Resource Allocation Graph manager is used for deadlock detection. It
- * keeps track of all locked resources and transactions waiting for resources.
+ * keeps track of all transactions waiting for resources, while each
+ * {@link RWLock} keeps track of the transactions holding it.
  * When a {@link RWLock} cannot give the lock to a transaction the tx has to
  * wait and that may lead to a deadlock. So before the tx is put into wait mode
  * the {@link RagManager#checkWaitOn} method is invoked to check if a wait of
@@ -53,27 +54,24 @@ import org.neo4j.kernel.impl.util.StringLogger.LineLogger;
  * traverse the graph starting on the resource and see if we can get back
  * to the tx ( T1 wants to wait on R1 and R1->T2->R2->T3->R8->T1 <==>
  * deadlock!).
+ * <p>
+ * Only waiting transactions touch the graph, and without any global monitor. A transaction registers that it's
+ * waiting before it traverses the graph, so of two transactions about to wait for each other at least one will see
+ * the other one waiting. Since the graph may change while traversed, a cycle is verified edge by edge before it is
+ * reported as a deadlock.
  */
 public class RagManager implements Visitor<LineLogger, RuntimeException>
 {
     // if a runtime exception is thrown from any method it means that the
     // RWLock class hasn't kept the contract to the RagManager
     // The contract is:
-    // o When a transaction gets a lock on a resource and both the readCount and
-    // writeCount for that transaction on the resource was 0
-    // RagManager.lockAcquired( resource ) must be invoked
-    // o When a tx releases a lock on a resource and both the readCount and
-    // writeCount for that transaction on the resource goes down to zero
-    // RagManager.lockReleased( resource ) must be invoked
-    // o After invoke to the checkWaitOn( resource ) method that didn't result
-    // in a DeadlockDetectedException the transaction must wait
+    // o Before waiting for a lock the checkWaitOn( resource ) method must
+    // be invoked, and if it didn't result in a DeadlockDetectedException
+    // the transaction must wait
     // o When the transaction wakes up from waiting on a resource the
     // stopWaitOn( resource ) method must be invoked
 
-    private final Map<Object,List<Object>> resourceMap = new HashMap<>();
-
-    private final ArrayMap<Object,Object> waitingTxMap =
-        new ArrayMap<>( (byte)5, false, true );
+    private final ConcurrentMap<Object,RWLock> waitingTxMap = new ConcurrentHashMap<>();
 
     private final AtomicInteger deadlockCount = new AtomicInteger();
 
@@ -82,41 +80,7 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
         return deadlockCount.longValue();
     }
 
-    synchronized void lockAcquired( Object resource, Object tx )
-    {
-        List<Object> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList != null )
-        {
-            assert !lockingTxList.contains( tx );
-            lockingTxList.add( tx );
-        }
-        else
-        {
-            lockingTxList = new LinkedList<>();
-            lockingTxList.add( tx );
-            resourceMap.put( resource, lockingTxList );
-        }
-    }
-
-    synchronized void lockReleased( Object resource, Object tx )
-    {
-        List<Object> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList == null )
-        {
-            throw new LockException( resource + " not found in resource map" );
-        }
-
-        if ( !lockingTxList.remove( tx ) )
-        {
-            throw new LockException( tx + "not found in locking tx list" );
-        }
-        if ( lockingTxList.size() == 0 )
-        {
-            resourceMap.remove( resource );
-        }
-    }
-
-    synchronized void stopWaitOn( Object resource, Object tx )
+    void stopWaitOn( RWLock resource, Object tx )
     {
         if ( waitingTxMap.remove( tx ) == null )
         {
@@ -125,29 +89,20 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
     }
 
     // after invoke the transaction must wait on the resource
-    synchronized void checkWaitOn( Object resource, Object tx )
+    void checkWaitOn( RWLock resource, Object tx )
         throws DeadlockDetectedException
     {
-        List<Object> lockingTxList = resourceMap.get( resource );
-        if ( lockingTxList == null )
-        {
-            throw new LockException( "Illegal resource[" + resource
-                + "], not found in map" );
-        }
-
-        if ( waitingTxMap.get( tx ) != null )
+        if ( waitingTxMap.putIfAbsent( tx, resource ) != null )
         {
             throw new LockException( tx + " already waiting for resource" );
         }
 
-        Iterator<Object> itr = lockingTxList.iterator();
-        List<Object> checkedTransactions = new LinkedList<>();
-        Stack<Object> graphStack = new Stack<>();
+        Set<Object> checkedTransactions = new HashSet<>();
+        List<Object> graphStack = new ArrayList<>();
         // has resource,transaction interleaved
-        graphStack.push( resource );
-        while ( itr.hasNext() )
+        graphStack.add( resource );
+        for ( Object lockingTx : resource.holders() )
         {
-            Object lockingTx = itr.next();
             // the if statement bellow is valid because:
             // t1 -> r1 -> t1 (can happened with RW locks) is ok but,
             // t1 -> r1 -> t1&t2 where t2 -> r1 is a deadlock
@@ -171,31 +126,42 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
             {
                 continue;
             }
-            graphStack.push( lockingTx );
-            checkWaitOnRecursive( lockingTx, tx, checkedTransactions,
-                graphStack );
-            graphStack.pop();
+            graphStack.add( lockingTx );
+            try
+            {
+                checkWaitOnRecursive( lockingTx, tx, checkedTransactions, graphStack );
+            }
+            catch ( DeadlockDetectedException e )
+            {
+                waitingTxMap.remove( tx );
+                throw e;
+            }
+            graphStack.remove( graphStack.size() - 1 );
         }
 
         // ok no deadlock, we can wait on resource
-        waitingTxMap.put( tx, resource );
     }
 
-    private synchronized void checkWaitOnRecursive( Object lockingTx,
-            Object waitingTx, List<Object> checkedTransactions,
-            Stack<Object> graphStack ) throws DeadlockDetectedException
+    private void checkWaitOnRecursive( Object lockingTx, Object waitingTx, Set<Object> checkedTransactions,
+            List<Object> graphStack ) throws DeadlockDetectedException
     {
         if ( lockingTx.equals( waitingTx ) )
         {
-            StringBuffer circle = null;
+            if ( !isStillACycle( graphStack ) )
+            {
+                // Someone along the way moved on while we were looking, there's no deadlock here after all
+                return;
+            }
+            StringBuilder circle = null;
             Object resource;
+            int i = graphStack.size();
             do
             {
-                lockingTx = graphStack.pop();
-                resource = graphStack.pop();
+                lockingTx = graphStack.get( --i );
+                resource = graphStack.get( --i );
                 if ( circle == null )
                 {
-                    circle = new StringBuffer();
+                    circle = new StringBuilder();
                     circle.append( lockingTx ).append( " <-[:HELD_BY]- " ).append( resource );
                 }
                 else
@@ -203,51 +169,76 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
                     circle.append( " <-[:WAITING_FOR]- " ).append( lockingTx ).append( " <-[:HELD_BY]- " ).append( resource );
                 }
             }
-            while ( !graphStack.isEmpty() );
+            while ( i > 0 );
             deadlockCount.incrementAndGet();
             throw new DeadlockDetectedException( waitingTx +
                 " can't wait on resource " + resource + " since => " + circle );
         }
-        checkedTransactions.add( lockingTx );
-        Object resource = waitingTxMap.get( lockingTx );
+        if ( !checkedTransactions.add( lockingTx ) )
+        {
+            return;
+        }
+        RWLock resource = waitingTxMap.get( lockingTx );
         if ( resource != null )
         {
-            graphStack.push( resource );
-            // if the resource doesn't exist in resorceMap that means all the
+            graphStack.add( resource );
+            // the resource may have no holders, that means all the
             // locks on the resource has been released
             // it is possible when this tx was in RWLock.acquire and
             // saw it had to wait for the lock the scheduler changes to some
-            // other tx that will release the locks on the resource and
-            // remove it from the map
+            // other tx that will release the locks on the resource
             // this is ok since current tx or any other tx will wake
-            // in the synchronized block and will be forced to do the deadlock
+            // and will be forced to do the deadlock
             // check once more if lock cannot be acquired
-            List<Object> lockingTxList = resourceMap.get( resource );
-            if ( lockingTxList != null )
+            for ( Object holder : resource.holders() )
             {
-                for ( Object aLockingTxList : lockingTxList )
-                {
-                    lockingTx = aLockingTxList;
-                    // so we don't
-                    if ( !checkedTransactions.contains( lockingTx ) )
-                    {
-                        graphStack.push( lockingTx );
-                        checkWaitOnRecursive( lockingTx, waitingTx,
-                                checkedTransactions, graphStack );
-                        graphStack.pop();
-                    }
-                }
+                graphStack.add( holder );
+                checkWaitOnRecursive( holder, waitingTx, checkedTransactions, graphStack );
+                graphStack.remove( graphStack.size() - 1 );
             }
-            graphStack.pop();
+            graphStack.remove( graphStack.size() - 1 );
         }
     }
 
+    /**
+     * The graph stack is resource, tx, resource, tx... where each tx holds the resource before it and waits
+     * for the resource after it, if any. The waiting tx, at the very end, waits for the first resource.
+     */
+    private boolean isStillACycle( List<Object> graphStack )
+    {
+        for ( int i = 0; i < graphStack.size(); i += 2 )
+        {
+            RWLock resource = (RWLock) graphStack.get( i );
+            Object holder = graphStack.get( i + 1 );
+            if ( !contains( resource.holders(), holder ) )
+            {
+                return false;
+            }
+            if ( i + 2 < graphStack.size() && waitingTxMap.get( holder ) != graphStack.get( i + 2 ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains( Object[] holders, Object tx )
+    {
+        for ( Object holder : holders )
+        {
+            if ( holder.equals( tx ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
-    public synchronized boolean visit( LineLogger logger )
+    public boolean visit( LineLogger logger )
     {
         logger.logLine( "Waiting list: " );
-        Iterator<Object> transactions = waitingTxMap.keySet().iterator();
-        if ( !transactions.hasNext() )
+        if ( waitingTxMap.isEmpty() )
         {
             logger.logLine( "No transactions waiting on resources" );
         }
@@ -255,14 +246,13 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
         {
             logger.logLine( "" ); // new line
         }
-        while ( transactions.hasNext() )
+        for ( Map.Entry<Object,RWLock> waiting : waitingTxMap.entrySet() )
         {
-            Object tx = transactions.next();
-            logger.logLine( "" + tx + "->" + waitingTxMap.get( tx ) );
+            logger.logLine( "" + waiting.getKey() + "->" + waiting.getValue() );
         }
         logger.logLine( "Resource lock list: " );
-        Iterator<?> resources = resourceMap.keySet().iterator();
-        if ( !resources.hasNext() )
+        Set<RWLock> resources = new HashSet<>( waitingTxMap.values() );
+        if ( resources.isEmpty() )
         {
             logger.logLine( "No locked resources found" );
         }
@@ -270,28 +260,20 @@ public class RagManager implements Visitor<LineLogger, RuntimeException>
         {
             logger.logLine( "" );
         }
-        while ( resources.hasNext() )
+        for ( RWLock resource : resources )
         {
-            Object resource = resources.next();
             logger.logLine( "" + resource + "->" );
-            Iterator<Object> itr = resourceMap.get( resource ).iterator();
-            if ( !itr.hasNext() )
+            Object[] holders = resource.holders();
+            if ( holders.length == 0 )
             {
-                logger.logLine( " Error empty list found" );
+                logger.logLine( " No holders" );
             }
-            while ( itr.hasNext() )
+            for ( int i = 0; i < holders.length; i++ )
             {
-                logger.logLine( "" + itr.next() );
-                if ( itr.hasNext() )
-                {
-                    logger.logLine( "," );
-                }
-                else
-                {
-                    logger.logLine( "" );
-                }
+                logger.logLine( "" + holders[i] );
+                logger.logLine( i < holders.length - 1 ? "," : "" );
             }
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -21,13 +21,16 @@ package org.neo4j.kernel.impl.pagecache;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.neo4j.helpers.Settings;
+import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.pagecache.PageCache;
 import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
 import org.neo4j.io.pagecache.PageSwapperFactory;
 import org.neo4j.io.pagecache.PagedFile;
-import org.neo4j.io.pagecache.RunnablePageCache;
 import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.util.JobScheduler;
@@ -36,6 +39,8 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
 
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.mapped_memory_page_size;
 import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_memory;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_warmup_enabled;
+import static org.neo4j.graphdb.factory.GraphDatabaseSettings.pagecache_warmup_profile_interval;
 
 public class LifecycledPageCache extends LifecycleAdapter implements PageCache
 {
@@ -43,21 +48,57 @@ public class LifecycledPageCache extends LifecycleAdapter implements PageCache
     private final JobScheduler scheduler;
     private final Config config;
     private final PageCacheMonitor monitor;
+    private final PageCacheWarmer warmer; // null if the page cache is not warmed up on start
+    private final StringLogger logger;
 
-    private RunnablePageCache pageCache;
+    private MuninnPageCache pageCache;
     private boolean stopped;
     private JobScheduler.JobHandle pageEvictionJobHandle;
+    private JobScheduler.JobHandle profilingJobHandle;
+    private List<PagedFile> warmedUpFiles = new ArrayList<>();
 
     public LifecycledPageCache(
             PageSwapperFactory swapperFactory,
             JobScheduler scheduler,
             Config config,
             PageCacheMonitor monitor )
+    {
+        this( swapperFactory, scheduler, config, monitor, null, StringLogger.DEV_NULL );
+    }
+
+    /**
+     * Create a page cache that, unless disabled by configuration, records
+     * which pages are in memory to a profile in the given store directory,
+     * and loads those pages back in when it is started.
+     */
+    public LifecycledPageCache(
+            PageSwapperFactory swapperFactory,
+            JobScheduler scheduler,
+            Config config,
+            PageCacheMonitor monitor,
+            FileSystemAbstraction fs,
+            File storeDir,
+            StringLogger logger )
+    {
+        this( swapperFactory, scheduler, config, monitor,
+                config.get( pagecache_warmup_enabled ) ? new PageCacheWarmer( fs, storeDir, logger ) : null,
+                logger );
+    }
+
+    private LifecycledPageCache(
+            PageSwapperFactory swapperFactory,
+            JobScheduler scheduler,
+            Config config,
+            PageCacheMonitor monitor,
+            PageCacheWarmer warmer,
+            StringLogger logger )
     {
         this.swapperFactory = swapperFactory;
         this.scheduler = scheduler;
         this.config = config;
         this.monitor = monitor;
+        this.warmer = warmer;
+        this.logger = logger;
         initialisePageCache();
     }
 
@@ -92,11 +133,73 @@ public class LifecycledPageCache extends LifecycleAdapter implements PageCache
             stopped = false;
         }
         pageEvictionJobHandle = scheduler.schedule( JobScheduler.Group.pageCacheEviction, pageCache );
+
+        if ( warmer != null )
+        {
+            warmUp();
+            long interval = config.get( pagecache_warmup_profile_interval );
+            profilingJobHandle = scheduler.scheduleRecurring( JobScheduler.Group.pageCacheProfiling, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    profile();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    private void warmUp()
+    {
+        try
+        {
+            warmedUpFiles = warmer.reheat( pageCache );
+        }
+        catch ( IOException e )
+        {
+            // Warming up is only an optimisation, so we carry on with a cold page cache.
+            logger.warn( "Failed to warm up the page cache", e );
+        }
+    }
+
+    private void profile()
+    {
+        MuninnPageCache cache;
+        synchronized ( this )
+        {
+            cache = pageCache;
+        }
+        try
+        {
+            warmer.profile( cache );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // We'll try again next time. Failing here would cancel future profiling.
+            logger.warn( "Failed to record which pages are in the page cache", e );
+        }
+    }
+
+    /**
+     * Unmap the files that were mapped for warming up the page cache. This
+     * should be called once the files have been mapped by the stores, since
+     * their warmed up pages are otherwise thrown away.
+     */
+    public synchronized void releaseWarmedUpFiles() throws IOException
+    {
+        PageCacheWarmer.close( warmedUpFiles );
     }
 
     @Override
     public synchronized void stop() throws IOException
     {
+        if ( profilingJobHandle != null )
+        {
+            profilingJobHandle.cancel( false );
+            profilingJobHandle = null;
+        }
+        releaseWarmedUpFiles();
+
         JobScheduler.JobHandle handle = pageEvictionJobHandle;
         if ( handle != null )
         {
@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.pagecache.PageCache;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_GROW;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
+
+/**
+ * Records which pages are in the page cache to a profile file, and loads
+ * them back in when the page cache is started again.
+ *
+ * The profile lists, for every mapped file in the store directory, its path
+ * relative to the store directory, the page size it was mapped with, and the
+ * sorted ids of the pages that were in memory. Relative paths keep the profile
+ * valid when the store is moved or restored from a copy.
+ */
+final class PageCacheWarmer
+{
+    static final String PROFILE_FILE_NAME = "neostore.pagecache.profile";
+
+    private static final int FORMAT_VERSION = 2;
+
+    private final FileSystemAbstraction fs;
+    private final File storeDir;
+    private final File profileFile;
+    private final StringLogger logger;
+
+    PageCacheWarmer( FileSystemAbstraction fs, File storeDir, StringLogger logger )
+    {
+        this.fs = fs;
+        this.storeDir = storeDir;
+        this.profileFile = new File( storeDir, PROFILE_FILE_NAME );
+        this.logger = logger;
+    }
+
+    /**
+     * Record the pages that are currently in the given page cache. Nothing
+     * is recorded if no files are mapped, because then we are most likely
+     * shutting down, and the previous profile is a better one.
+     */
+    synchronized void profile( MuninnPageCache pageCache ) throws IOException
+    {
+        final List<FileProfile> profiles = new ArrayList<>();
+        pageCache.visitResidentPages( new MuninnPageCache.ResidentPageVisitor()
+        {
+            @Override
+            public void visit( File file, int filePageSize, long[] filePageIds )
+            {
+                String path = relativePath( file );
+                if ( path != null )
+                {
+                    profiles.add( new FileProfile( path, filePageSize, filePageIds ) );
+                }
+            }
+        } );
+        if ( profiles.isEmpty() )
+        {
+            return;
+        }
+
+        // Write to a temporary file first, so we never leave a half-written
+        // profile behind.
+        File tmpFile = new File( profileFile.getPath() + ".tmp" );
+        try ( DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream( fs.openAsOutputStream( tmpFile, false ) ) ) )
+        {
+            out.writeInt( FORMAT_VERSION );
+            out.writeInt( profiles.size() );
+            for ( FileProfile profile : profiles )
+            {
+                out.writeUTF( profile.path );
+                out.writeInt( profile.filePageSize );
+                out.writeInt( profile.filePageIds.length );
+                for ( long filePageId : profile.filePageIds )
+                {
+                    out.writeLong( filePageId );
+                }
+            }
+        }
+        fs.deleteFile( profileFile );
+        fs.renameFile( tmpFile, profileFile );
+    }
+
+    /**
+     * Load the pages in the profile, if any, into the given page cache. The
+     * files are loaded in parallel, and the pages of each file are read in
+     * file order. No more pages are loaded than the page cache can hold.
+     *
+     * The returned files are kept mapped, since their pages would otherwise
+     * be thrown away when they are unmapped. The caller must close them once
+     * the files have been mapped by their actual users.
+     */
+    List<PagedFile> reheat( PageCache pageCache ) throws IOException
+    {
+        List<FileProfile> profiles = readProfile( pageCache.maxCachedPages() );
+        List<PagedFile> pagedFiles = new ArrayList<>();
+        if ( profiles.isEmpty() )
+        {
+            return pagedFiles;
+        }
+
+        int threads = Math.min( profiles.size(), Runtime.getRuntime().availableProcessors() );
+        ExecutorService executor = Executors.newFixedThreadPool( threads, daemon( "Page cache warmup" ) );
+        boolean success = false;
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>();
+            for ( FileProfile profile : profiles )
+            {
+                File file = new File( storeDir, profile.path );
+                if ( !fs.fileExists( file ) )
+                {
+                    continue;
+                }
+                PagedFile pagedFile;
+                try
+                {
+                    pagedFile = pageCache.map( file, profile.filePageSize );
+                }
+                catch ( IllegalArgumentException e )
+                {
+                    logger.info( "Not warming up " + file + " in the page cache, since it can no longer " +
+                            "be mapped with a page size of " + profile.filePageSize, e );
+                    continue;
+                }
+                pagedFiles.add( pagedFile );
+                futures.add( executor.submit( new Reheater( pagedFile, file, profile.filePageIds, logger ) ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get();
+            }
+            success = true;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            success = true;
+        }
+        catch ( ExecutionException e )
+        {
+            throw new IOException( "Failed to warm up the page cache", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            if ( !success )
+            {
+                close( pagedFiles );
+            }
+        }
+        return pagedFiles;
+    }
+
+    /**
+     * Close the files that were mapped by {@link #reheat(PageCache)}.
+     */
+    static void close( List<PagedFile> pagedFiles ) throws IOException
+    {
+        IOException exception = null;
+        for ( PagedFile pagedFile : pagedFiles )
+        {
+            try
+            {
+                pagedFile.close();
+            }
+            catch ( IOException e )
+            {
+                if ( exception == null )
+                {
+                    exception = e;
+                }
+                else
+                {
+                    exception.addSuppressed( e );
+                }
+            }
+        }
+        pagedFiles.clear();
+        if ( exception != null )
+        {
+            throw exception;
+        }
+    }
+
+    private List<FileProfile> readProfile( int maxPages ) throws IOException
+    {
+        List<FileProfile> profiles = new ArrayList<>();
+        if ( !fs.fileExists( profileFile ) )
+        {
+            return profiles;
+        }
+
+        try ( DataInputStream in = new DataInputStream(
+                new BufferedInputStream( fs.openAsInputStream( profileFile ) ) ) )
+        {
+            if ( in.readInt() != FORMAT_VERSION )
+            {
+                return profiles;
+            }
+            int fileCount = in.readInt();
+            int pagesLeft = maxPages;
+            for ( int i = 0; i < fileCount && pagesLeft > 0; i++ )
+            {
+                String path = in.readUTF();
+                int filePageSize = in.readInt();
+                int pageCount = in.readInt();
+                long[] filePageIds = new long[Math.min( pageCount, pagesLeft )];
+                for ( int j = 0; j < pageCount; j++ )
+                {
+                    long filePageId = in.readLong();
+                    if ( j < filePageIds.length )
+                    {
+                        filePageIds[j] = filePageId;
+                    }
+                }
+                pagesLeft -= filePageIds.length;
+                profiles.add( new FileProfile( path, filePageSize, filePageIds ) );
+            }
+        }
+        return profiles;
+    }
+
+    /**
+     * @return the path of the given file relative to the store directory, or null if the file
+     * isn't in the store directory.
+     */
+    private String relativePath( File file )
+    {
+        String dir = storeDir.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        return path.startsWith( dir ) ? path.substring( dir.length() ) : null;
+    }
+
+    private static final class FileProfile
+    {
+        private final String path;
+        private final int filePageSize;
+        private final long[] filePageIds;
+
+        FileProfile( String path, int filePageSize, long[] filePageIds )
+        {
+            this.path = path;
+            this.filePageSize = filePageSize;
+            this.filePageIds = filePageIds;
+        }
+    }
+
+    private static final class Reheater implements Runnable
+    {
+        private final PagedFile pagedFile;
+        private final File file;
+        private final long[] filePageIds;
+        private final StringLogger logger;
+
+        Reheater( PagedFile pagedFile, File file, long[] filePageIds, StringLogger logger )
+        {
+            this.pagedFile = pagedFile;
+            this.file = file;
+            this.filePageIds = filePageIds;
+            this.logger = logger;
+        }
+
+        @Override
+        public void run()
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK | PF_NO_GROW ) )
+            {
+                for ( long filePageId : filePageIds )
+                {
+                    if ( !cursor.next( filePageId ) )
+                    {
+                        // The file has shrunk since the profile was taken.
+                        break;
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                // Warming up is only an optimisation, so the other files carry on regardless.
+                logger.warn( "Failed to warm up " + file + " in the page cache", e );
+            }
+        }
+    }
+}
@@ -31,9 +31,14 @@ public class StoreIdIterator implements PrimitiveLongIterator
     private long highId, id;
 
     public StoreIdIterator( RecordStore<?> store )
+    {
+        this( store, store.getNumberOfReservedLowIds() );
+    }
+
+    public StoreIdIterator( RecordStore<?> store, long startId )
     {
         this.store = store;
-        this.id = store.getNumberOfReservedLowIds();
+        this.id = startId;
     }
 
     @Override
@@ -69,6 +69,7 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
     private final Map<Long,NodeCommand> nodeCommands = new HashMap<>();
     private final Map<Long,List<PropertyCommand>> propertyCommands = new HashMap<>();
     private final List<NodeLabelUpdate> labelUpdates = new ArrayList<>();
+    private final List<IndexRule> createdIndexes = new ArrayList<>();
 
     private final IndexingService indexingService;
     private final NodeStore nodeStore;
@@ -96,6 +97,8 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
     @Override
     public void apply()
     {
+        createIndexes();
+
         if ( !labelUpdates.isEmpty() )
         {
             updateLabelScanStore();
@@ -108,16 +111,24 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
         }
     }
 
+    private void createIndexes()
+    {
+        // Indexes created in the same transaction get populated together, in one scan of the store
+        if ( !createdIndexes.isEmpty() )
+        {
+            indexingService.createIndex( createdIndexes.toArray( new IndexRule[createdIndexes.size()] ) );
+            createdIndexes.clear();
+        }
+    }
+
     private void updateIndexes()
     {
         LazyIndexUpdates updates = new LazyIndexUpdates(
                 nodeStore, propertyStore, propertyCommands, nodeCommands, propertyLoader );
 
-        // We only allow a single writer at the time to update the schema index stores
-        synchronized ( indexingService )
-        {
-            indexingService.updateIndexes( updates, transactionId, mode.needsIdempotencyChecks() );
-        }
+        // The indexing service lets a single writer at the time update the schema index stores,
+        // applying the updates of transactions committing concurrently together
+        indexingService.updateIndexes( updates, transactionId, mode.needsIdempotencyChecks() );
     }
 
     private void updateLabelScanStore()
@@ -189,6 +200,10 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
     {
         if ( command.getSchemaRule() instanceof IndexRule )
         {
+            if ( command.getMode() != Command.Mode.CREATE )
+            {
+                createIndexes();
+            }
             switch ( command.getMode() )
             {
             case UPDATE:
@@ -209,7 +224,7 @@ public class IndexTransactionApplier extends NeoCommandHandler.Adapter
                 }
                 break;
             case CREATE:
-                indexingService.createIndex( (IndexRule) command.getSchemaRule() );
+                createdIndexes.add( (IndexRule) command.getSchemaRule() );
                 break;
             case DELETE:
                 indexingService.dropIndex( (IndexRule) command.getSchemaRule() );
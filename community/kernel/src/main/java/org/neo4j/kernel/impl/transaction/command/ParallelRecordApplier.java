@@ -0,0 +1,378 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo4j.collection.primitive.Primitive;
+import org.neo4j.collection.primitive.PrimitiveLongIntMap;
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.locking.LockGroup;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.PropertyType;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.PropertyRecord;
+import org.neo4j.kernel.impl.transaction.command.Command.NodeCommand;
+import org.neo4j.kernel.impl.transaction.command.Command.PropertyCommand;
+import org.neo4j.kernel.impl.transaction.command.Command.RelationshipCommand;
+import org.neo4j.kernel.impl.transaction.command.Command.RelationshipGroupCommand;
+
+/**
+ * Applies node, relationship, property and relationship group commands of many transactions on multiple
+ * threads, for speeding up recovery. Commands are partitioned over the threads by store and record id, so that
+ * all changes to any given record are applied by the same thread, in the order they were dispatched. Since a
+ * record command carries the whole after-state of its record, the end result is the same as if the commands
+ * had been applied one by one.
+ *
+ * Dynamic records are written together with the node or property record owning them, and a dynamic record
+ * freed by one owner may be reused by another owner in a later transaction, potentially in another partition.
+ * When that is detected all dispatched commands are awaited before continuing, which keeps the order of
+ * changes to such dynamic records too.
+ *
+ * The records being recovered must not be read until {@link #awaitApplied()} or {@link #close()} returns.
+ * Commands other than the record commands mentioned above are applied by the dispatching thread as usual.
+ */
+public class ParallelRecordApplier implements AutoCloseable
+{
+    private static final int BATCH_SIZE = 256;
+    private static final int QUEUED_BATCHES_PER_WORKER = 16;
+
+    // Runs of this many consecutive records go to the same worker, which keeps most concurrent
+    // writes on different pages instead of having the workers contend for the same pages
+    private static final int RECORDS_PER_RUN_SHIFT = 6;
+
+    private static final int NODE = 0, RELATIONSHIP = 1, PROPERTY = 2, RELATIONSHIP_GROUP = 3;
+
+    private final NeoStore neoStore;
+    private final CacheAccessBackDoor cacheAccess;
+    private final int numberOfWorkers;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private Worker[] workers;
+    private List<List<Command>> pending;
+    private final PrimitiveLongIntMap labelRecordOwners = Primitive.longIntMap();
+    private final PrimitiveLongIntMap stringRecordOwners = Primitive.longIntMap();
+    private final PrimitiveLongIntMap arrayRecordOwners = Primitive.longIntMap();
+
+    public ParallelRecordApplier( NeoStore neoStore, CacheAccessBackDoor cacheAccess, int numberOfWorkers )
+    {
+        this.neoStore = neoStore;
+        this.cacheAccess = cacheAccess;
+        this.numberOfWorkers = numberOfWorkers;
+    }
+
+    /**
+     * @return a {@link NeoCommandHandler} dispatching record commands to the worker threads of this applier
+     * and passing any other command on to the given {@code storeApplier}.
+     */
+    public NeoCommandHandler decorate( NeoCommandHandler storeApplier )
+    {
+        return new NeoCommandHandler.Delegator( storeApplier )
+        {
+            @Override
+            public boolean visitNodeCommand( NodeCommand command ) throws IOException
+            {
+                int partition = partition( NODE, command.getKey() );
+                boolean reassigned = claim( labelRecordOwners, command.getAfter().getDynamicLabelRecords(),
+                        partition );
+                dispatch( partition, command, reassigned );
+                return false;
+            }
+
+            @Override
+            public boolean visitRelationshipCommand( RelationshipCommand command ) throws IOException
+            {
+                dispatch( partition( RELATIONSHIP, command.getKey() ), command, false );
+                return false;
+            }
+
+            @Override
+            public boolean visitPropertyCommand( PropertyCommand command ) throws IOException
+            {
+                int partition = partition( PROPERTY, command.getKey() );
+                PropertyRecord record = command.getAfter();
+                boolean reassigned = false;
+                for ( PropertyBlock block : record.getPropertyBlocks() )
+                {
+                    if ( !block.isLight() )
+                    {
+                        reassigned |= claimValueRecords( block.getValueRecords(), partition );
+                    }
+                }
+                reassigned |= claimValueRecords( record.getDeletedRecords(), partition );
+                dispatch( partition, command, reassigned );
+                return false;
+            }
+
+            @Override
+            public boolean visitRelationshipGroupCommand( RelationshipGroupCommand command ) throws IOException
+            {
+                dispatch( partition( RELATIONSHIP_GROUP, command.getKey() ), command, false );
+                return false;
+            }
+        };
+    }
+
+    private int partition( int store, long id )
+    {
+        long run = (id >>> RECORDS_PER_RUN_SHIFT) + store;
+        return (int) ((run ^ (run >>> 32)) & Integer.MAX_VALUE) % numberOfWorkers;
+    }
+
+    private boolean claimValueRecords( Iterable<DynamicRecord> records, int partition )
+    {
+        boolean reassigned = false;
+        for ( DynamicRecord record : records )
+        {
+            PrimitiveLongIntMap owners = record.getType() == PropertyType.STRING.intValue() ?
+                    stringRecordOwners : arrayRecordOwners;
+            reassigned |= claim( owners, record, partition );
+        }
+        return reassigned;
+    }
+
+    private boolean claim( PrimitiveLongIntMap owners, Iterable<DynamicRecord> records, int partition )
+    {
+        boolean reassigned = false;
+        for ( DynamicRecord record : records )
+        {
+            reassigned |= claim( owners, record, partition );
+        }
+        return reassigned;
+    }
+
+    /**
+     * @return whether or not the dynamic record was previously written by a different partition.
+     */
+    private boolean claim( PrimitiveLongIntMap owners, DynamicRecord record, int partition )
+    {
+        long id = record.getId();
+        boolean reassigned = owners.containsKey( id ) && owners.get( id ) != partition;
+        owners.put( id, partition );
+        return reassigned;
+    }
+
+    private void dispatch( int partition, Command command, boolean awaitDispatched ) throws IOException
+    {
+        ensureStarted();
+        if ( awaitDispatched )
+        {
+            awaitApplied();
+        }
+        List<Command> batch = pending.get( partition );
+        batch.add( command );
+        if ( batch.size() >= BATCH_SIZE )
+        {
+            submit( partition, null );
+        }
+    }
+
+    private void ensureStarted()
+    {
+        if ( workers == null )
+        {
+            workers = new Worker[numberOfWorkers];
+            pending = new ArrayList<>( numberOfWorkers );
+            for ( int i = 0; i < numberOfWorkers; i++ )
+            {
+                pending.add( new ArrayList<Command>( BATCH_SIZE ) );
+                workers[i] = new Worker( i );
+                workers[i].start();
+            }
+        }
+    }
+
+    private void submit( int partition, CountDownLatch applied ) throws IOException
+    {
+        List<Command> commands = pending.get( partition );
+        pending.set( partition, new ArrayList<Command>( BATCH_SIZE ) );
+        try
+        {
+            workers[partition].queue.put( new Batch( commands, applied ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while dispatching recovered commands", e );
+        }
+        checkFailure();
+    }
+
+    /**
+     * Waits for all dispatched commands to have been applied.
+     *
+     * @throws IOException if any command failed to apply.
+     */
+    public void awaitApplied() throws IOException
+    {
+        if ( workers == null )
+        {
+            return;
+        }
+
+        CountDownLatch applied = new CountDownLatch( numberOfWorkers );
+        for ( int i = 0; i < numberOfWorkers; i++ )
+        {
+            submit( i, applied );
+        }
+        try
+        {
+            applied.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for recovered commands to be applied", e );
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException
+    {
+        Throwable cause = failure.get();
+        if ( cause != null )
+        {
+            throw new IOException( "Failed to apply recovered commands", cause );
+        }
+    }
+
+    /**
+     * Waits for all dispatched commands to have been applied and stops the worker threads.
+     * This applier can be used again after having been closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            awaitApplied();
+        }
+        finally
+        {
+            stopWorkers();
+        }
+    }
+
+    private void stopWorkers()
+    {
+        if ( workers == null )
+        {
+            return;
+        }
+
+        boolean interrupted = false;
+        for ( Worker worker : workers )
+        {
+            worker.interrupt();
+            while ( worker.isAlive() )
+            {
+                try
+                {
+                    worker.join();
+                }
+                catch ( InterruptedException e )
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        workers = null;
+        pending = null;
+        labelRecordOwners.clear();
+        stringRecordOwners.clear();
+        arrayRecordOwners.clear();
+        if ( interrupted )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Batch
+    {
+        private final List<Command> commands;
+        private final CountDownLatch applied;
+
+        Batch( List<Command> commands, CountDownLatch applied )
+        {
+            this.commands = commands;
+            this.applied = applied;
+        }
+    }
+
+    private class Worker extends Thread
+    {
+        private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>( QUEUED_BATCHES_PER_WORKER );
+
+        Worker( int id )
+        {
+            super( "Recovery record applier " + id );
+            setDaemon( true );
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                while ( true )
+                {
+                    Batch batch = queue.take();
+                    if ( failure.get() == null )
+                    {
+                        apply( batch.commands );
+                    }
+                    if ( batch.applied != null )
+                    {
+                        batch.applied.countDown();
+                    }
+                }
+            }
+            catch ( InterruptedException e )
+            {   // We're being stopped, and by then all queued batches have been applied
+            }
+        }
+
+        private void apply( List<Command> commands )
+        {
+            // Locks are for keeping concurrent readers from seeing partially applied records,
+            // but there are no readers during recovery
+            try ( LockGroup locks = new LockGroup() )
+            {
+                NeoCommandHandler applier = new NeoStoreTransactionApplier(
+                        neoStore, cacheAccess, LockService.NO_LOCK_SERVICE, locks, -1 );
+                for ( Command command : commands )
+                {
+                    command.handle( applier );
+                }
+            }
+            catch ( Throwable e )
+            {
+                failure.compareAndSet( null, e );
+            }
+        }
+    }
+}
@@ -20,6 +20,10 @@
 package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Deflater;
 
 import org.neo4j.helpers.ThisShouldNotHappenError;
 import org.neo4j.kernel.KernelHealth;
@@ -36,10 +40,20 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
     protected final LogFile logFile;
     private final LogRotation logRotation;
     private final TransactionIdStore transactionIdStore;
-    private final TransactionLogWriter transactionLogWriter;
+    private final LogEntryWriterv1 logEntryWriter;
+    // For transactions too large to be serialized up front, these write them straight into the channel instead
+    private final IndexCommandDetector streamedIndexCommandDetector;
+    private final LogEntryWriterv1 streamingLogEntryWriter;
     private final LogPositionMarker positionMarker = new LogPositionMarker();
-    private final IndexCommandDetector indexCommandDetector;
     private final KernelHealth kernelHealth;
+    protected final Monitor monitor;
+    private final boolean compressCommands;
+
+    // Transactions are serialized by the committing threads into these buffers before entering the log monitor,
+    // so that what's left to do while holding it is mostly copying bytes into the log channel.
+    // Serializers are pooled rather than kept per thread so that their deflaters can be ended on close.
+    private final Queue<TransactionSerializer> serializers = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
 
     // For the graph store and schema indexes order-of-updates are managed by the high level entity locks
     // such that changes are applied to the affected records in the same order that they are written to the
@@ -49,28 +63,29 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
 
     protected AbstractPhysicalTransactionAppender( LogFile logFile, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
-            IdOrderingQueue legacyIndexTransactionOrdering, KernelHealth kernelHealth )
+            IdOrderingQueue legacyIndexTransactionOrdering, KernelHealth kernelHealth, Monitor monitor,
+            boolean compressCommands )
     {
         this.logFile = logFile;
         this.logRotation = logRotation;
         this.transactionIdStore = transactionIdStore;
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
         this.kernelHealth = kernelHealth;
+        this.monitor = monitor;
+        this.compressCommands = compressCommands;
         this.channel = logFile.getWriter();
         this.transactionMetadataCache = transactionMetadataCache;
-        this.indexCommandDetector = new IndexCommandDetector( new CommandWriter( channel ) );
-        this.transactionLogWriter = new TransactionLogWriter( new LogEntryWriterv1( channel, indexCommandDetector ) );
+        this.logEntryWriter = new LogEntryWriterv1( channel, new CommandWriter( channel ) );
+        this.streamedIndexCommandDetector = new IndexCommandDetector( new CommandWriter( channel ) );
+        this.streamingLogEntryWriter = new LogEntryWriterv1( channel, streamedIndexCommandDetector );
     }
 
     /**
      * @return whether or not this transaction contains any legacy index changes.
      */
-    private boolean append0( TransactionRepresentation transaction, long transactionId ) throws IOException
+    private boolean append0( TransactionSerializer serialized, TransactionRepresentation transaction,
+            long transactionId ) throws IOException
     {
-        // Reset command writer so that we, after we've written the transaction, can ask it whether or
-        // not any legacy index command was written. If so then there's additional ordering to care about below.
-        indexCommandDetector.reset();
-
         // The outcome of this try block is either of:
         // a) transaction successfully appended, at which point it is marked as committed
         // b) transaction failed to be appended, at which point a kernel panic is issued
@@ -80,17 +95,33 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
         try
         {
             LogPosition logPosition;
+            LogPosition endPosition;
+            boolean containsLegacyIndexCommands;
             synchronized ( channel )
             {
                 logPosition = channel.getCurrentPosition( positionMarker ).newPosition();
-                transactionLogWriter.append( transaction, transactionId );
+                if ( serialized.tooLarge )
+                {
+                    streamedIndexCommandDetector.reset();
+                    streamingLogEntryWriter.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
+                            transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
+                            transaction.additionalHeader() );
+                    streamingLogEntryWriter.serialize( transaction );
+                    containsLegacyIndexCommands = streamedIndexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+                }
+                else
+                {
+                    serialized.buffer.writeTo( channel );
+                    containsLegacyIndexCommands = serialized.indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
+                }
+                logEntryWriter.writeCommitEntry( transactionId, transaction.getTimeCommitted() );
+                endPosition = channel.getCurrentPosition( positionMarker ).newPosition();
             }
             long transactionChecksum = checksum( transaction.additionalHeader(), transaction.getMasterId(),
                     transaction.getAuthorId() );
-            transactionMetadataCache.cacheTransactionMetadata( transactionId, logPosition, transaction.getMasterId(),
-                    transaction.getAuthorId(), transactionChecksum );
+            transactionMetadataCache.cacheTransactionMetadata( transactionId, logPosition, endPosition,
+                    transaction.getMasterId(), transaction.getAuthorId(), transactionChecksum );
             emptyBufferIntoChannel();
-            boolean containsLegacyIndexCommands = indexCommandDetector.hasWrittenAnyLegacyIndexCommand();
             if ( containsLegacyIndexCommands )
             {
                 // Offer this transaction id to the queue so that the legacy index applier can take part in the ordering
@@ -108,9 +139,52 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
 
     protected abstract void emptyBufferIntoChannel() throws IOException;
 
+    /**
+     * Serializes everything but the commit entry of the given transaction, since the commit entry contains the
+     * transaction id and that isn't known until inside the log monitor. Failing in here leaves the log untouched.
+     * Transactions too large for the serialization buffer are left to be written while holding the log monitor.
+     */
+    private TransactionSerializer serialize( TransactionRepresentation transaction ) throws IOException
+    {
+        TransactionSerializer serializer = serializers.poll();
+        if ( serializer == null )
+        {
+            serializer = new TransactionSerializer( compressCommands );
+        }
+        try
+        {
+            serializer.serialize( transaction );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            release( serializer );
+            throw e;
+        }
+        return serializer;
+    }
+
+    private void release( TransactionSerializer serializer )
+    {
+        serializers.offer( serializer );
+        if ( closed )
+        {   // Closed while this serializer was in use, close() won't see it so end it here
+            endSerializers();
+        }
+    }
+
+    private void endSerializers()
+    {
+        TransactionSerializer serializer;
+        while ( (serializer = serializers.poll()) != null )
+        {
+            serializer.end();
+        }
+    }
+
     @Override
     public long append( TransactionRepresentation transaction ) throws IOException
     {
+        long startTime = System.nanoTime();
         long transactionId = -1;
         long ticket;
         boolean hasLegacyIndexChanges;
@@ -118,21 +192,30 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
         // We put log rotation check outside the private append method since it must happen before
         // we generate the next transaction id
         logRotation.rotateLogIfNeeded();
+        TransactionSerializer serialized = serialize( transaction );
 
         try
         {
-            // Synchronized with logFile to get absolute control over concurrent rotations happening
-            synchronized ( logFile )
+            try
             {
-                transactionId = transactionIdStore.nextCommittingTransactionId();
-                hasLegacyIndexChanges = append0( transaction, transactionId );
-                phase = 1;
-                ticket = getNextTicket();
+                // Synchronized with logFile to get absolute control over concurrent rotations happening
+                synchronized ( logFile )
+                {
+                    transactionId = transactionIdStore.nextCommittingTransactionId();
+                    hasLegacyIndexChanges = append0( serialized, transaction, transactionId );
+                    phase = 1;
+                    ticket = getNextTicket();
+                }
+            }
+            finally
+            {
+                release( serialized );
             }
 
             forceAfterAppend( ticket );
             coordinateMultipleThreadsApplyingLegacyIndexChanges( hasLegacyIndexChanges, transactionId );
             phase = 2;
+            monitor.transactionAppended( System.nanoTime() - startTime );
             return transactionId;
         }
         finally
@@ -154,17 +237,27 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
         // a checkRotation, which any thread could call at any time. Although that method was added to
         // be able to test a certain thing, so it should go away actually.
 
-        // Synchronized with logFile to get absolute control over concurrent rotations happening
-        synchronized ( logFile )
+        TransactionSerializer serialized = serialize( transaction );
+
+        try
         {
-            long transactionId = transactionIdStore.nextCommittingTransactionId();
-            if ( transactionId != expectedTransactionId )
+            // Synchronized with logFile to get absolute control over concurrent rotations happening
+            synchronized ( logFile )
             {
-                throw new ThisShouldNotHappenError( "Zhen Li and Mattias Persson",
-                        "Received " + transaction + " with txId:" + expectedTransactionId +
-                        " to be applied, but appending it ended up generating an unexpected txId:" + transactionId );
+                long transactionId = transactionIdStore.nextCommittingTransactionId();
+                if ( transactionId != expectedTransactionId )
+                {
+                    throw new ThisShouldNotHappenError( "Zhen Li and Mattias Persson",
+                            "Received " + transaction + " with txId:" + expectedTransactionId +
+                            " to be applied, but appending it ended up generating an unexpected txId:" +
+                            transactionId );
+                }
+                append0( serialized, transaction, transactionId );
             }
-            append0( transaction, transactionId );
+        }
+        finally
+        {
+            release( serialized );
         }
     }
 
@@ -207,6 +300,114 @@ abstract class AbstractPhysicalTransactionAppender implements TransactionAppende
 
     @Override
     public void close()
-    {   // do nothing
+    {
+        closed = true;
+        // Deflaters hold on to native memory until ended
+        endSerializers();
+    }
+
+    private static class TransactionSerializer
+    {
+        /**
+         * Fewer bytes of commands than this aren't worth compressing.
+         */
+        static final int MIN_COMPRESSED_COMMANDS_SIZE = 256;
+
+        private final TransactionSerializationBuffer buffer = new TransactionSerializationBuffer();
+        private final TransactionSerializationBuffer commands;
+        private final IndexCommandDetector indexCommandDetector;
+        private final LogEntryWriterv1 writer;
+        private final LogEntryWriterv1 commandsWriter;
+        private final Deflater deflater;
+        private byte[] compressed;
+        private boolean tooLarge;
+
+        TransactionSerializer( boolean compressCommands )
+        {
+            // When compressing, commands are serialized into a separate buffer to be compressed from there
+            this.commands = compressCommands ? new TransactionSerializationBuffer() : buffer;
+            this.indexCommandDetector = new IndexCommandDetector( new CommandWriter( commands ) );
+            this.commandsWriter = new LogEntryWriterv1( commands, indexCommandDetector );
+            this.writer = compressCommands ? new LogEntryWriterv1( buffer, new CommandWriter( buffer ) ) : commandsWriter;
+            this.deflater = compressCommands ? new Deflater( Deflater.BEST_SPEED ) : null;
+            this.compressed = compressCommands ? new byte[TransactionSerializationBuffer.INITIAL_CAPACITY] : null;
+        }
+
+        void serialize( TransactionRepresentation transaction ) throws IOException
+        {
+            tooLarge = false;
+            try
+            {
+                serialize0( transaction );
+            }
+            catch ( BufferOverflowException e )
+            {
+                // Don't keep a large transaction on the heap, it's written straight into the log channel instead
+                tooLarge = true;
+                buffer.clear();
+                commands.clear();
+            }
+        }
+
+        private void serialize0( TransactionRepresentation transaction ) throws IOException
+        {
+            buffer.clear();
+            // Reset command writer so that we, after we've written the transaction, can ask it whether or
+            // not any legacy index command was written. If so then there's additional ordering to care about.
+            indexCommandDetector.reset();
+            writer.writeStartEntry( transaction.getMasterId(), transaction.getAuthorId(),
+                    transaction.getTimeStarted(), transaction.getLatestCommittedTxWhenStarted(),
+                    transaction.additionalHeader() );
+            if ( deflater == null )
+            {
+                writer.serialize( transaction );
+            }
+            else
+            {
+                commands.clear();
+                commandsWriter.serialize( transaction );
+                compressCommands();
+            }
+        }
+
+        /**
+         * Writes the serialized commands as one compressed entry, unless there are too few of them to benefit
+         * from it, or they didn't compress, in which case they are written as they are.
+         */
+        private void compressCommands() throws IOException
+        {
+            int length = commands.size();
+            if ( length >= MIN_COMPRESSED_COMMANDS_SIZE )
+            {
+                byte[] target = compressed;
+                if ( target.length < length )
+                {
+                    target = new byte[length];
+                    if ( length <= TransactionSerializationBuffer.RETAINED_CAPACITY )
+                    {
+                        compressed = target;
+                    }
+                }
+                deflater.reset();
+                deflater.setInput( commands.array(), 0, length );
+                deflater.finish();
+                int compressedLength = deflater.deflate( target, 0, length );
+                // Only worth it if smaller even counting the header and the two lengths of the compressed entry
+                if ( deflater.finished() && compressedLength + 10 < length )
+                {
+                    writer.writeCompressedCommandsEntry( length, target, compressedLength );
+                    return;
+                }
+            }
+            commands.writeTo( buffer );
+        }
+
+        void end()
+        {
+            if ( deflater != null )
+            {
+                deflater.end();
+            }
+        }
     }
 }
@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Decides how long the {@link BatchingForceThread} should let a batch of appended transactions grow before
+ * forcing it, based on how long forces have been taking and how frequently transactions have been arriving.
+ *
+ * Waiting only pays off if more transactions are expected to arrive during the wait, since those then ride
+ * along with this force instead of waiting for the next one. The wait is bounded to a fraction of the force
+ * duration so that committers never wait noticeably longer than they would have for the force itself.
+ * Both measurements are exponentially weighted moving averages, so that the delay follows the load.
+ */
+final class AdaptiveForceDelay
+{
+    static final long DEFAULT_MAX_DELAY_NANOS = MILLISECONDS.toNanos( 2 );
+
+    /**
+     * New samples have a weight of 1/2^WEIGHT_SHIFT in the moving averages.
+     */
+    private static final int WEIGHT_SHIFT = 3;
+
+    private final long maxDelayNanos;
+    private volatile long arrivalIntervalNanos;
+    private volatile long forceNanos;
+    private long lastArrivalNanos;
+
+    AdaptiveForceDelay( long maxDelayNanos )
+    {
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    /**
+     * Called by appenders, one at a time, when a transaction has been appended.
+     */
+    void transactionArrived( long nanoTime )
+    {
+        if ( lastArrivalNanos != 0 )
+        {
+            arrivalIntervalNanos = average( arrivalIntervalNanos, nanoTime - lastArrivalNanos );
+        }
+        lastArrivalNanos = nanoTime;
+    }
+
+    /**
+     * Called by the force thread after each force.
+     */
+    void forced( long durationNanos )
+    {
+        forceNanos = average( forceNanos, durationNanos );
+    }
+
+    /**
+     * @return nanoseconds to wait for more transactions before forcing, or {@code 0} for forcing right away.
+     */
+    long delayNanos()
+    {
+        long interval = arrivalIntervalNanos;
+        long delay = min( forceNanos >> 1, maxDelayNanos );
+        return interval > 0 && interval < delay ? delay : 0;
+    }
+
+    private static long average( long average, long sample )
+    {
+        return average == 0 ? sample : average + ((sample - average) >> WEIGHT_SHIFT);
+    }
+}
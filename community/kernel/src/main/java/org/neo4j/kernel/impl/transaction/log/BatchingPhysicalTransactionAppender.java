@@ -34,6 +34,9 @@ import static org.neo4j.kernel.impl.util.NumberUtil.haveSameSign;
  * Forces transactions in batches, as opposed to per transaction. There's a
  * {@link BatchingForceThread background thread} that does the actual forcing, where the committers merely waits
  * for that background thread to complete its round and increment a ticket they're waiting for.
+ *
+ * When transactions arrive faster than forces complete, the force thread holds off forcing for a short while,
+ * decided by {@link AdaptiveForceDelay}, to let more transactions join the batch.
  */
 public class BatchingPhysicalTransactionAppender extends AbstractPhysicalTransactionAppender
 {
@@ -77,6 +80,7 @@ public class BatchingPhysicalTransactionAppender extends AbstractPhysicalTransac
     private final Counter forceTicket;
     private boolean shutDown;
     private final BatchingForceThread forceThread;
+    private final AdaptiveForceDelay forceDelay;
 
     public BatchingPhysicalTransactionAppender( final LogFile logFile, final LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, final TransactionIdStore transactionIdStore,
@@ -84,11 +88,25 @@ public class BatchingPhysicalTransactionAppender extends AbstractPhysicalTransac
             Factory<Counter> counting,
             ParkStrategy idleBackoffStrategy,
             KernelHealth kernelHealth )
+    {
+        this( logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
+                counting, idleBackoffStrategy, kernelHealth, NO_MONITOR, false );
+    }
+
+    public BatchingPhysicalTransactionAppender( final LogFile logFile, final LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache, final TransactionIdStore transactionIdStore,
+            IdOrderingQueue legacyIndexTransactionOrdering,
+            Factory<Counter> counting,
+            ParkStrategy idleBackoffStrategy,
+            KernelHealth kernelHealth,
+            final Monitor monitor,
+            boolean compressCommands )
     {
         super( logFile, logRotation, transactionMetadataCache, transactionIdStore,
-                legacyIndexTransactionOrdering, kernelHealth );
+                legacyIndexTransactionOrdering, kernelHealth, monitor, compressCommands );
         appenderTicket = counting.newInstance();
         forceTicket = counting.newInstance();
+        forceDelay = new AdaptiveForceDelay( AdaptiveForceDelay.DEFAULT_MAX_DELAY_NANOS );
         forceThread = new BatchingForceThread( new BatchingForceThread.Operation()
         {
             /**
@@ -98,12 +116,31 @@ public class BatchingPhysicalTransactionAppender extends AbstractPhysicalTransac
             public boolean perform() throws IOException
             {
                 long currentAppenderTicket = appenderTicket.get();
-                if ( forceTicket.get() == currentAppenderTicket )
+                long previousForceTicket = forceTicket.get();
+                if ( previousForceTicket == currentAppenderTicket )
                 {
                     return false;
                 }
 
+                long delay = forceDelay.delayNanos();
+                if ( delay > 0 )
+                {
+                    // More transactions are likely to arrive before a force would complete anyway,
+                    // let them join this batch. Appenders unpark us while waiting, hence the deadline.
+                    long deadline = System.nanoTime() + delay;
+                    long remaining;
+                    while ( (remaining = deadline - System.nanoTime()) > 0 )
+                    {
+                        LockSupport.parkNanos( remaining );
+                    }
+                    currentAppenderTicket = appenderTicket.get();
+                }
+
+                long startTime = System.nanoTime();
                 force();
+                long forceTime = System.nanoTime() - startTime;
+                forceDelay.forced( forceTime );
+                monitor.batchForced( currentAppenderTicket - previousForceTicket, forceTime );
 
                 // Mark that we've forced at least the ticket we saw when waking up previously.
                 // It's on the pessimistic side, but better safe than sorry.
@@ -142,6 +179,7 @@ public class BatchingPhysicalTransactionAppender extends AbstractPhysicalTransac
     @Override
     protected long getNextTicket()
     {
+        forceDelay.transactionArrived( System.nanoTime() );
         return appenderTicket.incrementAndGet();
     }
 
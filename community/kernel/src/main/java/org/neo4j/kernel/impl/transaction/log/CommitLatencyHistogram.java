@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * {@link TransactionAppender.Monitor} keeping a histogram of commit latencies, to be registered as a monitor
+ * listener. Latencies are counted in buckets of powers of two microseconds, so percentiles are reported as
+ * the upper bound of the bucket they fall into, i.e. with at most a factor two of overestimation.
+ */
+public class CommitLatencyHistogram implements TransactionAppender.Monitor
+{
+    private static final int BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong forces = new AtomicLong();
+    private final AtomicLong forcedTransactions = new AtomicLong();
+    private final AtomicLong forceNanos = new AtomicLong();
+
+    @Override
+    public void transactionAppended( long latencyNanos )
+    {
+        // Bucket 0 holds latencies below one microsecond, bucket i those in [2^(i-1),2^i) microseconds
+        long micros = Math.max( TimeUnit.NANOSECONDS.toMicros( latencyNanos ), 0 );
+        buckets.incrementAndGet( Long.SIZE - Long.numberOfLeadingZeros( micros ) );
+        commits.incrementAndGet();
+    }
+
+    @Override
+    public void batchForced( long transactions, long durationNanos )
+    {
+        forces.incrementAndGet();
+        forcedTransactions.addAndGet( transactions );
+        forceNanos.addAndGet( durationNanos );
+    }
+
+    public long numberOfCommits()
+    {
+        return commits.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100.
+     * @param unit unit of the returned latency.
+     * @return the latency that the given percentile of all commits stayed within.
+     */
+    public long percentile( double percentile, TimeUnit unit )
+    {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            counts[i] = buckets.get( i );
+            total += counts[i];
+        }
+        long rank = (long) Math.ceil( total * percentile / 100d );
+        long seen = 0;
+        for ( int i = 0; i < BUCKETS; i++ )
+        {
+            seen += counts[i];
+            if ( seen >= rank && counts[i] > 0 )
+            {
+                return unit.convert( (1L << i) - 1, MICROSECONDS );
+            }
+        }
+        return 0;
+    }
+
+    public double averageBatchSize()
+    {
+        long count = forces.get();
+        return count == 0 ? 0 : forcedTransactions.get() / (double) count;
+    }
+
+    public long averageForceTime( TimeUnit unit )
+    {
+        long count = forces.get();
+        return count == 0 ? 0 : unit.convert( forceNanos.get() / count, TimeUnit.NANOSECONDS );
+    }
+}
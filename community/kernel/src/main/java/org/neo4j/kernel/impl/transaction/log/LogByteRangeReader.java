@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.io.fs.StoreChannel;
+
+/**
+ * Hands out a range of bytes of a log file to a {@link Visitor}, as they are on disk. The bytes are read
+ * in chunks using positional reads into a direct buffer, which is reused by every call from the same thread.
+ * Reading into a direct buffer saves the copy that reading into a heap buffer would incur, and unlike
+ * memory mapping the file it doesn't leave mappings around, pinning address space and the file itself,
+ * until they are garbage collected.
+ */
+class LogByteRangeReader
+{
+    static final int READ_BUFFER_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> READ_BUFFERS = new ThreadLocal<ByteBuffer>()
+    {
+        @Override
+        protected ByteBuffer initialValue()
+        {
+            return ByteBuffer.allocateDirect( READ_BUFFER_SIZE );
+        }
+    };
+
+    private LogByteRangeReader()
+    {   // no instances
+    }
+
+    /**
+     * Visits the bytes between {@code fromByteOffset} (inclusive) and {@code toByteOffset} (exclusive) in one
+     * or more chunks. The return value of the visitor is ignored, all bytes in the range will be visited.
+     * The visited buffer is only valid until the visitor returns.
+     */
+    static void read( StoreChannel channel, long fromByteOffset, long toByteOffset,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException
+    {
+        ByteBuffer buffer = READ_BUFFERS.get();
+        long position = fromByteOffset;
+        while ( position < toByteOffset )
+        {
+            buffer.clear();
+            buffer.limit( (int) Math.min( buffer.capacity(), toByteOffset - position ) );
+            while ( buffer.hasRemaining() )
+            {
+                int read = channel.read( buffer, position + buffer.position() );
+                if ( read == -1 )
+                {
+                    throw new IOException( "Unexpected end of log at " + (position + buffer.position()) +
+                            ", expected to be able to read up to " + toByteOffset );
+                }
+            }
+            buffer.flip();
+            position += buffer.remaining();
+            visitor.visit( buffer );
+        }
+    }
+}
@@ -21,6 +21,9 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.helpers.collection.Visitor;
 
 /**
  * Sees a log file as bytes, including taking care of rotation of the file into optimal chunks.
@@ -48,6 +51,21 @@ public interface LogFile
 
     void accept( LogHeaderVisitor visitor ) throws IOException;
 
+    /**
+     * Visits the bytes between two offsets in one log version, exactly as they were written, i.e. without
+     * decoding them. Bytes still sitting in the writer buffer are flushed to the channel first, if needed.
+     *
+     * @param logVersion version of the log to read from.
+     * @param fromByteOffset offset of the first byte to visit.
+     * @param toByteOffset offset right after the last byte to visit.
+     * @param visitor gets the bytes in one or more chunks. Its return value is ignored.
+     * @return {@code false} if that log version is of an older format than what is written currently,
+     * in which case nothing was visited since the bytes wouldn't be readable as-is.
+     * @throws IOException if the log version doesn't exist or on any other I/O error.
+     */
+    boolean readBytes( long logVersion, long fromByteOffset, long toByteOffset,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException;
+
     /**
      * @return {@code true} if a rotation is needed.
      */
@@ -20,7 +20,9 @@
 package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.TransactionMetadataCache.TransactionMetadata;
 import org.neo4j.kernel.lifecycle.Lifecycle;
@@ -50,6 +52,22 @@ public interface LogicalTransactionStore extends Lifecycle
     IOCursor<CommittedTransactionRepresentation> getTransactions( long transactionIdToStartFrom )
             throws NoSuchTransactionException, IOException;
 
+    /**
+     * Visits committed transactions in the exact byte format that they have in the log, which also is the format
+     * they are shipped in to other instances, without deserializing them. Only transactions whose location
+     * in the log is known by the {@link TransactionMetadataCache} can be visited like this, so visiting stops at
+     * the first one that isn't. The returned id tells where to continue using {@link #getTransactions(long)}.
+     *
+     * @param startTransactionId id of the first transaction to visit.
+     * @param endTransactionId id of the last transaction to visit.
+     * @param visitor gets the bytes of whole transactions, in transaction-id-sequential order, in one or more
+     * chunks. Its return value is ignored.
+     * @return id of the first transaction that wasn't visited, i.e. {@code endTransactionId + 1} if all were.
+     * @throws IOException if there was an I/O related error reading the transactions.
+     */
+    long visitTransactionBytes( long startTransactionId, long endTransactionId,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException;
+
     /**
      * Looks up meta data about a committed transaction.
      *
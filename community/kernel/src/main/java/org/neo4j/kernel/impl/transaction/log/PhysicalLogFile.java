@@ -24,6 +24,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.kernel.impl.transaction.log.entry.LogHeader;
@@ -222,6 +223,41 @@ public class PhysicalLogFile extends LifecycleAdapter implements LogFile
         }
     }
 
+    @Override
+    public boolean readBytes( long logVersion, long fromByteOffset, long toByteOffset,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException
+    {
+        PhysicalLogVersionedStoreChannel current = channel;
+        if ( current != null && logVersion == current.getVersion() && toByteOffset > current.position() )
+        {
+            // Some of the requested bytes are still in the writer buffer. Appenders empty it while holding
+            // the monitor of this log file, so do the same here.
+            synchronized ( this )
+            {
+                synchronized ( writer )
+                {
+                    writer.emptyBufferIntoChannelAndClearIt();
+                }
+            }
+        }
+
+        File file = logFiles.getLogFileForVersion( logVersion );
+        if ( !fileSystem.fileExists( file ) )
+        {
+            throw new FileNotFoundException( file.getPath() );
+        }
+        try ( StoreChannel rawChannel = fileSystem.open( file, "r" ) )
+        {
+            LogHeader header = readLogHeader( ByteBuffer.allocate( LOG_HEADER_SIZE ), rawChannel, true );
+            if ( header.logFormatVersion != CURRENT_LOG_VERSION )
+            {
+                return false;
+            }
+            LogByteRangeReader.read( rawChannel, fromByteOffset, toByteOffset, visitor );
+            return true;
+        }
+    }
+
     @Override
     public void accept( LogHeaderVisitor visitor ) throws IOException
     {
@@ -21,7 +21,9 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.KernelHealth;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.TransactionMetadataCache.TransactionMetadata;
@@ -50,11 +52,23 @@ public class PhysicalLogicalTransactionStore extends LifecycleAdapter implements
     private final boolean batchedWrites;
     private final IdOrderingQueue legacyIndexTransactionOrdering;
     private final KernelHealth kernelHealth;
+    private final TransactionAppender.Monitor appenderMonitor;
+    private final boolean compressCommands;
 
     public PhysicalLogicalTransactionStore( LogFile logFile, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache,
             TransactionIdStore transactionIdStore, IdOrderingQueue legacyIndexTransactionOrdering,
             KernelHealth kernelHealth, boolean batchedWrites )
+    {
+        this( logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
+                kernelHealth, batchedWrites, TransactionAppender.NO_MONITOR, false );
+    }
+
+    public PhysicalLogicalTransactionStore( LogFile logFile, LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache,
+            TransactionIdStore transactionIdStore, IdOrderingQueue legacyIndexTransactionOrdering,
+            KernelHealth kernelHealth, boolean batchedWrites, TransactionAppender.Monitor appenderMonitor,
+            boolean compressCommands )
     {
         this.logFile = logFile;
         this.logRotation = logRotation;
@@ -63,6 +77,8 @@ public class PhysicalLogicalTransactionStore extends LifecycleAdapter implements
         this.legacyIndexTransactionOrdering = legacyIndexTransactionOrdering;
         this.kernelHealth = kernelHealth;
         this.batchedWrites = batchedWrites;
+        this.appenderMonitor = appenderMonitor;
+        this.compressCommands = compressCommands;
     }
 
     @Override
@@ -70,9 +86,10 @@ public class PhysicalLogicalTransactionStore extends LifecycleAdapter implements
     {
         this.appender = batchedWrites ?
                 new BatchingPhysicalTransactionAppender( logFile, logRotation, transactionMetadataCache, transactionIdStore,
-                        legacyIndexTransactionOrdering, ATOMIC_LONG, DEFAULT_WAIT_STRATEGY, kernelHealth ) :
-                new PhysicalTransactionAppender( logFile, logRotation,
-                        transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering, kernelHealth );
+                        legacyIndexTransactionOrdering, ATOMIC_LONG, DEFAULT_WAIT_STRATEGY, kernelHealth,
+                        appenderMonitor, compressCommands ) :
+                new PhysicalTransactionAppender( logFile, logRotation, transactionMetadataCache, transactionIdStore,
+                        legacyIndexTransactionOrdering, kernelHealth, appenderMonitor, compressCommands );
     }
 
     @Override
@@ -122,6 +139,56 @@ public class PhysicalLogicalTransactionStore extends LifecycleAdapter implements
         }
     }
 
+    @Override
+    public long visitTransactionBytes( long startTransactionId, long endTransactionId,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException
+    {
+        long transactionId = startTransactionId;
+        TransactionMetadata metadata = transactionMetadataCache.getTransactionMetadata( transactionId );
+        while ( transactionId <= endTransactionId && metadata != null )
+        {
+            // Grow the range as long as transactions follow each other in the same log version
+            LogPosition start = metadata.getStartPosition();
+            LogPosition end = start;
+            long nextTransactionId = transactionId;
+            TransactionMetadata next = metadata;
+            while ( nextTransactionId <= endTransactionId && next != null && next.getStartPosition().equals( end ) )
+            {
+                TransactionMetadata following = transactionMetadataCache.getTransactionMetadata( nextTransactionId + 1 );
+                LogPosition nextEnd = next.getEndPosition() != null ? next.getEndPosition() :
+                                      following != null ? following.getStartPosition() : null;
+                if ( nextEnd == null || nextEnd.getLogVersion() != start.getLogVersion() )
+                {
+                    break;
+                }
+                end = nextEnd;
+                next = following;
+                nextTransactionId++;
+            }
+
+            if ( nextTransactionId == transactionId )
+            {
+                break;
+            }
+            try
+            {
+                if ( !logFile.readBytes( start.getLogVersion(), start.getByteOffset(), end.getByteOffset(), visitor ) )
+                {
+                    break;
+                }
+            }
+            catch ( FileNotFoundException e )
+            {
+                // The log was pruned after the transactions were cached, let the caller have a go at
+                // finding them the usual way, which will tell whether or not they're available
+                break;
+            }
+            transactionId = nextTransactionId;
+            metadata = next;
+        }
+        return transactionId;
+    }
+
     private static final TransactionMetadataCache.TransactionMetadata METADATA_FOR_EMPTY_STORE =
             new TransactionMetadataCache.TransactionMetadata( -1, -1, new LogPosition( 0, LOG_HEADER_SIZE ),
                     TransactionIdStore.BASE_TX_CHECKSUM );
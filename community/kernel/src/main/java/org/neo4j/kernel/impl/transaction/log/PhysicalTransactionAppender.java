@@ -29,9 +29,18 @@ public class PhysicalTransactionAppender extends AbstractPhysicalTransactionAppe
     public PhysicalTransactionAppender( LogFile logFile, LogRotation logRotation,
             TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
             IdOrderingQueue legacyIndexTransactionOrdering, KernelHealth kernelHealth )
+    {
+        this( logFile, logRotation, transactionMetadataCache, transactionIdStore, legacyIndexTransactionOrdering,
+                kernelHealth, NO_MONITOR, false );
+    }
+
+    public PhysicalTransactionAppender( LogFile logFile, LogRotation logRotation,
+            TransactionMetadataCache transactionMetadataCache, TransactionIdStore transactionIdStore,
+            IdOrderingQueue legacyIndexTransactionOrdering, KernelHealth kernelHealth, Monitor monitor,
+            boolean compressCommands )
     {
         super( logFile, logRotation, transactionMetadataCache, transactionIdStore,
-                legacyIndexTransactionOrdering, kernelHealth );
+                legacyIndexTransactionOrdering, kernelHealth, monitor, compressCommands );
     }
 
     @Override
@@ -43,7 +52,9 @@ public class PhysicalTransactionAppender extends AbstractPhysicalTransactionAppe
     @Override
     protected void forceAfterAppend( long ticket ) throws IOException
     {
+        long startTime = System.nanoTime();
         forceChannel();
+        monitor.batchForced( 1, System.nanoTime() - startTime );
     }
 
     @Override
@@ -21,7 +21,9 @@ package org.neo4j.kernel.impl.transaction.log;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.KernelHealth;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
@@ -67,6 +69,13 @@ public class ReadOnlyTransactionStore extends LifecycleAdapter implements Logica
         return physicalStore.getTransactions( transactionIdToStartFrom );
     }
 
+    @Override
+    public long visitTransactionBytes( long startTransactionId, long endTransactionId,
+            Visitor<ByteBuffer,IOException> visitor ) throws IOException
+    {
+        return physicalStore.visitTransactionBytes( startTransactionId, endTransactionId, visitor );
+    }
+
     @Override
     public TransactionMetadata getMetadataFor( long transactionId ) throws NoSuchTransactionException, IOException
     {
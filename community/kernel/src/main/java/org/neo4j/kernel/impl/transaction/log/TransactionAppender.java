@@ -29,6 +29,37 @@ import org.neo4j.kernel.impl.transaction.TransactionRepresentation;
  */
 public interface TransactionAppender
 {
+    /**
+     * Timings of appended transactions, see {@link CommitLatencyHistogram} for a listener keeping percentiles.
+     */
+    public interface Monitor
+    {
+        /**
+         * @param latencyNanos time from the call to {@link #append(TransactionRepresentation)} until the
+         * transaction was appended and forced.
+         */
+        void transactionAppended( long latencyNanos );
+
+        /**
+         * @param transactions number of appended transactions made durable by this force.
+         * @param durationNanos time the force took.
+         */
+        void batchForced( long transactions, long durationNanos );
+    }
+
+    public static final Monitor NO_MONITOR = new Monitor()
+    {
+        @Override
+        public void transactionAppended( long latencyNanos )
+        {
+        }
+
+        @Override
+        public void batchForced( long transactions, long durationNanos )
+        {
+        }
+    };
+
     /**
      * Appends a transaction to a log, effectively committing it. After this method have returned the
      * returned transaction id should be visible in {@link TransactionIdStore#getLastCommittedTransactionId()}.
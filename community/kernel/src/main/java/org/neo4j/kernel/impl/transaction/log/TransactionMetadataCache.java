@@ -56,13 +56,22 @@ public class TransactionMetadataCache
 
     public TransactionMetadata cacheTransactionMetadata( long txId, LogPosition position, int masterId,
                                                          int authorId, long checksum )
+    {
+        return cacheTransactionMetadata( txId, position, null, masterId, authorId, checksum );
+    }
+
+    /**
+     * @param endPosition position right after the commit entry of the transaction, or {@code null} if not known.
+     */
+    public TransactionMetadata cacheTransactionMetadata( long txId, LogPosition position, LogPosition endPosition,
+                                                         int masterId, int authorId, long checksum )
     {
         if ( position.getByteOffset() == -1 )
         {
             throw new RuntimeException( "StartEntry.position is " + position );
         }
 
-        TransactionMetadata result = new TransactionMetadata( masterId, authorId, position, checksum );
+        TransactionMetadata result = new TransactionMetadata( masterId, authorId, position, endPosition, checksum );
         txStartPositionCache.put( txId, result );
         return result;
     }
@@ -72,13 +81,21 @@ public class TransactionMetadataCache
         private final int masterId;
         private final int authorId;
         private final LogPosition startPosition;
+        private final LogPosition endPosition;
         private final long checksum;
 
         public TransactionMetadata( int masterId, int authorId, LogPosition startPosition, long checksum )
+        {
+            this( masterId, authorId, startPosition, null, checksum );
+        }
+
+        public TransactionMetadata( int masterId, int authorId, LogPosition startPosition, LogPosition endPosition,
+                long checksum )
         {
             this.masterId = masterId;
             this.authorId = authorId;
             this.startPosition = startPosition;
+            this.endPosition = endPosition;
             this.checksum = checksum;
         }
 
@@ -97,6 +114,15 @@ public class TransactionMetadataCache
             return startPosition;
         }
 
+        /**
+         * @return position right after the commit entry of this transaction, or {@code null} if not known.
+         * Not part of {@link #equals(Object) equality} since it's only a hint about where the transaction ends.
+         */
+        public LogPosition getEndPosition()
+        {
+            return endPosition;
+        }
+
         public long getChecksum()
         {
             return checksum;
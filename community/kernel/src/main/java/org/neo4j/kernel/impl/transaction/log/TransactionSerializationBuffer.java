@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Growable in-memory {@link WritableLogChannel} that a committing thread serializes its transaction into
+ * before entering the log monitor. Only {@link #writeTo(WritableLogChannel) copying} the serialized bytes
+ * then has to happen while holding it. The buffer never grows beyond {@link #MAX_CAPACITY}, writing more than
+ * that throws {@link BufferOverflowException} and such large transactions are instead written straight into
+ * the log channel.
+ */
+final class TransactionSerializationBuffer implements WritableLogChannel
+{
+    static final int INITIAL_CAPACITY = 4 * 1024;
+
+    /**
+     * Buffers that grew beyond this, for a large transaction, are dropped when {@link #clear() cleared}
+     * so that every committing thread doesn't hold on to the largest transaction it ever committed.
+     */
+    static final int RETAINED_CAPACITY = 1024 * 1024;
+
+    static final int MAX_CAPACITY = 4 * RETAINED_CAPACITY;
+
+    private ByteBuffer buffer = ByteBuffer.allocate( INITIAL_CAPACITY );
+
+    void clear()
+    {
+        if ( buffer.capacity() > RETAINED_CAPACITY )
+        {
+            buffer = ByteBuffer.allocate( INITIAL_CAPACITY );
+        }
+        else
+        {
+            buffer.clear();
+        }
+    }
+
+    int size()
+    {
+        return buffer.position();
+    }
+
+    /**
+     * @return the array backing this buffer, of which the first {@link #size()} bytes are the written ones.
+     */
+    byte[] array()
+    {
+        return buffer.array();
+    }
+
+    void writeTo( WritableLogChannel channel ) throws IOException
+    {
+        channel.put( buffer.array(), buffer.position() );
+    }
+
+    private ByteBuffer bufferWithGuaranteedSpace( int spaceInBytes )
+    {
+        if ( buffer.remaining() < spaceInBytes )
+        {
+            long capacity = buffer.capacity();
+            while ( capacity - buffer.position() < spaceInBytes )
+            {
+                capacity <<= 1;
+            }
+            if ( capacity > MAX_CAPACITY )
+            {
+                throw new BufferOverflowException();
+            }
+            ByteBuffer grown = ByteBuffer.allocate( (int) capacity );
+            buffer.flip();
+            grown.put( buffer );
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    @Override
+    public TransactionSerializationBuffer put( byte value )
+    {
+        bufferWithGuaranteedSpace( 1 ).put( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer putShort( short value )
+    {
+        bufferWithGuaranteedSpace( 2 ).putShort( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer putInt( int value )
+    {
+        bufferWithGuaranteedSpace( 4 ).putInt( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer putLong( long value )
+    {
+        bufferWithGuaranteedSpace( 8 ).putLong( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer putFloat( float value )
+    {
+        bufferWithGuaranteedSpace( 4 ).putFloat( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer putDouble( double value )
+    {
+        bufferWithGuaranteedSpace( 8 ).putDouble( value );
+        return this;
+    }
+
+    @Override
+    public TransactionSerializationBuffer put( byte[] value, int length )
+    {
+        bufferWithGuaranteedSpace( length ).put( value, 0, length );
+        return this;
+    }
+
+    @Override
+    public LogPositionMarker getCurrentPosition( LogPositionMarker positionMarker )
+    {
+        throw new UnsupportedOperationException( "Serialized transactions have no log position until appended" );
+    }
+
+    @Override
+    public void emptyBufferIntoChannelAndClearIt()
+    {   // There's no channel behind this buffer
+    }
+
+    @Override
+    public void force()
+    {   // There's no channel behind this buffer
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
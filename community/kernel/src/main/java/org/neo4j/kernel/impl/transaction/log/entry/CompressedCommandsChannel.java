@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log.entry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
+import org.neo4j.kernel.impl.transaction.log.ReadPastEndException;
+import org.neo4j.kernel.impl.transaction.log.ReadableLogChannel;
+
+/**
+ * Holds the decompressed contents of a {@link LogEntryByteCodes#COMPRESSED_COMMANDS} entry, so that the command
+ * entries in it can be read like any other entries. The position of this channel is that of the channel
+ * the compressed entry was read from, i.e. right after the compressed entry.
+ */
+class CompressedCommandsChannel implements ReadableLogChannel
+{
+    private byte[] compressed = new byte[0];
+    private ByteBuffer commands = ByteBuffer.allocate( 0 );
+    private ReadableLogChannel source;
+
+    /**
+     * @return whether or not there are more command entries to read, inflated from {@code channel}.
+     */
+    boolean hasCommandsFrom( ReadableLogChannel channel )
+    {
+        return source == channel && commands.hasRemaining();
+    }
+
+    /**
+     * Reads the rest of a compressed commands entry, i.e. what comes after its entry header, from {@code channel}
+     * and decompresses it.
+     */
+    void inflate( ReadableLogChannel channel ) throws IOException
+    {
+        source = null;
+        int uncompressedLength = channel.getInt();
+        int compressedLength = channel.getInt();
+        if ( uncompressedLength < 0 || compressedLength < 0 )
+        {
+            throw new IOException( "Invalid compressed commands entry, uncompressed length " + uncompressedLength +
+                    ", compressed length " + compressedLength );
+        }
+        if ( compressed.length < compressedLength )
+        {
+            compressed = new byte[compressedLength];
+        }
+        channel.get( compressed, compressedLength );
+
+        if ( commands.capacity() < uncompressedLength )
+        {
+            commands = ByteBuffer.allocate( uncompressedLength );
+        }
+        commands.clear();
+        // Inflaters hold on to native memory until ended, which a reader can't be relied upon to do since they
+        // aren't closed, so one is used per entry instead.
+        Inflater inflater = new Inflater();
+        inflater.setInput( compressed, 0, compressedLength );
+        try
+        {
+            int inflated = inflater.inflate( commands.array(), 0, uncompressedLength );
+            if ( inflated != uncompressedLength || !inflater.finished() )
+            {
+                throw new IOException( "Compressed commands entry inflated to " + inflated +
+                        " bytes, expected " + uncompressedLength );
+            }
+        }
+        catch ( DataFormatException e )
+        {
+            throw new IOException( "Invalid compressed commands entry", e );
+        }
+        finally
+        {
+            inflater.end();
+        }
+        commands.limit( uncompressedLength );
+        source = channel;
+    }
+
+    private ByteBuffer commands( int bytes ) throws ReadPastEndException
+    {
+        if ( commands.remaining() < bytes )
+        {
+            throw ReadPastEndException.INSTANCE;
+        }
+        return commands;
+    }
+
+    @Override
+    public byte get() throws IOException
+    {
+        return commands( 1 ).get();
+    }
+
+    @Override
+    public short getShort() throws IOException
+    {
+        return commands( 2 ).getShort();
+    }
+
+    @Override
+    public int getInt() throws IOException
+    {
+        return commands( 4 ).getInt();
+    }
+
+    @Override
+    public long getLong() throws IOException
+    {
+        return commands( 8 ).getLong();
+    }
+
+    @Override
+    public float getFloat() throws IOException
+    {
+        return commands( 4 ).getFloat();
+    }
+
+    @Override
+    public double getDouble() throws IOException
+    {
+        return commands( 8 ).getDouble();
+    }
+
+    @Override
+    public void get( byte[] bytes, int length ) throws IOException
+    {
+        commands( length ).get( bytes, 0, length );
+    }
+
+    @Override
+    public LogPositionMarker getCurrentPosition( LogPositionMarker positionMarker ) throws IOException
+    {
+        return source.getCurrentPosition( positionMarker );
+    }
+
+    @Override
+    public void close()
+    {   // The channel the commands were read from is closed by its owner
+    }
+}
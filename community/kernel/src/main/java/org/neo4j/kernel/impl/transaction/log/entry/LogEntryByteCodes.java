@@ -36,4 +36,7 @@ public class LogEntryByteCodes
     public static final byte DONE = (byte) 4;
     public static final byte TX_1P_COMMIT = (byte) 5;
     public static final byte TX_2P_COMMIT = (byte) 6;
+    // command entries of a transaction compressed together, see LogEntryWriterv1#writeCompressedCommandsEntry.
+    // Only written with entry version LogEntryVersions#LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS
+    public static final byte COMPRESSED_COMMANDS = (byte) 7;
 }
@@ -32,5 +32,10 @@ public class LogEntryVersions
     public static final byte LOG_ENTRY_VERSION_2_1 = (byte) -1;
     // version -2 for Neo4j 2.2
     public static final byte LOG_ENTRY_VERSION_2_2 = (byte) -2;
+    // version -3 for entries that Neo4j 2.2 can't read, i.e. compressed commands. Entries that are
+    // readable by 2.2 keep being written with the 2.2 version
+    public static final byte LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS = (byte) -3;
     public static final byte CURRENT_LOG_ENTRY_VERSION = LOG_ENTRY_VERSION_2_2;
+    // entry versions are negative, so this is the lowest entry version that can be read
+    public static final byte NEWEST_LOG_ENTRY_VERSION = LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS;
 }
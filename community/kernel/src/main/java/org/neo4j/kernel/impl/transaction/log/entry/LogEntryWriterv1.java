@@ -28,9 +28,11 @@ import org.neo4j.kernel.impl.transaction.command.NeoCommandHandler;
 import org.neo4j.kernel.impl.transaction.log.WritableLogChannel;
 
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMMAND;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMANDS;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_1P_COMMIT;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.TX_START;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.CURRENT_LOG_ENTRY_VERSION;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS;
 
 public class LogEntryWriterv1 implements LogEntryWriter
 {
@@ -73,6 +75,23 @@ public class LogEntryWriterv1 implements LogEntryWriter
         channel.putLong( transactionId ).putLong( timeWritten );
     }
 
+    /**
+     * Writes command entries, already serialized and then compressed using {@link java.util.zip.Deflater},
+     * as one entry. Readers hand out the command entries it contains as if they had been written one by one.
+     * The entry is written with {@link LogEntryVersions#LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS its own version},
+     * so that readers not supporting it fail on the version rather than on the entry type.
+     *
+     * @param uncompressedLength length of the serialized command entries before compression.
+     * @param compressed the compressed command entries.
+     * @param compressedLength number of bytes in {@code compressed} to write.
+     */
+    public void writeCompressedCommandsEntry( int uncompressedLength, byte[] compressed, int compressedLength )
+            throws IOException
+    {
+        channel.put( LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS ).put( COMPRESSED_COMMANDS );
+        channel.putInt( uncompressedLength ).putInt( compressedLength ).put( compressed, compressedLength );
+    }
+
     @Override
     public void serialize( TransactionRepresentation tx ) throws IOException
     {
@@ -27,6 +27,10 @@ import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
 import org.neo4j.kernel.impl.transaction.log.ReadPastEndException;
 import org.neo4j.kernel.impl.transaction.log.ReadableLogChannel;
 
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes.COMPRESSED_COMMANDS;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.NEWEST_LOG_ENTRY_VERSION;
+
 /**
  * Version aware implementation of LogEntryReader
  * Starting with Neo4j version 2.1, log entries are prefixed with a version. This allows for Neo4j instances of
@@ -34,12 +38,17 @@ import org.neo4j.kernel.impl.transaction.log.ReadableLogChannel;
  * LogEntryReader makes use of the version information to deserialize command entries that hold commands created
  * with previous versions of Neo4j. Support for this comes from the required {@link org.neo4j.kernel.impl.transaction.command.CommandReaderFactory} which can
  * provide deserializers for Commands given the version.
+ *
+ * The command entries of a transaction may have been compressed into a single
+ * {@link LogEntryByteCodes#COMPRESSED_COMMANDS} entry. Such an entry is decompressed when reached and the command
+ * entries in it are returned one by one, as if they had been written uncompressed.
  */
 class VersionAwareLogEntryReader
 {
     private final LogEntryParserFactory logEntryParserFactory;
     private final CommandReaderFactory commandReaderFactory;
     private final LogPositionMarker positionMarker = new LogPositionMarker();
+    private final CompressedCommandsChannel compressedCommands = new CompressedCommandsChannel();
 
     VersionAwareLogEntryReader( LogEntryParserFactory logEntryParserFactory, CommandReaderFactory commandReaderFactory )
     {
@@ -52,19 +61,46 @@ class VersionAwareLogEntryReader
         try
         {
             channel.getCurrentPosition( positionMarker );
+            ReadableLogChannel source = compressedCommands.hasCommandsFrom( channel ) ? compressedCommands : channel;
             LogEntryParserDispatcher dispatcher = logEntryParserFactory.newInstance( logFormatVersion );
             while ( true )
             {
+                if ( source != channel && !compressedCommands.hasCommandsFrom( channel ) )
+                {
+                    // All commands in the compressed entry have been read, continue with the channel itself
+                    source = channel;
+                    channel.getCurrentPosition( positionMarker );
+                }
+
                 /*
                  * if the read type is negative than it is actually the log entry version
                  * so we need to read an extra byte which will contain the type
                  */
-                byte type = channel.get();
+                byte type = source.get();
                 byte version = 0;
                 if ( type < 0 )
                 {
                     version = type;
-                    type = channel.get();
+                    type = source.get();
+                    if ( version < NEWEST_LOG_ENTRY_VERSION )
+                    {
+                        throw new IOException( "Log format version: " + logFormatVersion +
+                                " - Unsupported entry version " + version + " of entry[" + type + "] at position " +
+                                positionMarker.newPosition() + ", it was written by a newer version of Neo4j" );
+                    }
+                }
+
+                if ( type == COMPRESSED_COMMANDS )
+                {
+                    if ( version != LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS )
+                    {
+                        throw new IOException( "Log format version: " + logFormatVersion +
+                                " - Compressed commands entry with unexpected entry version " + version +
+                                " at position " + positionMarker.newPosition() );
+                    }
+                    compressedCommands.inflate( channel );
+                    source = compressedCommands;
+                    continue;
                 }
 
                 LogEntryParser reader = dispatcher.dispatch( type );
@@ -77,7 +113,7 @@ class VersionAwareLogEntryReader
 
                 }
 
-                LogEntry entry = reader.parse( version, channel, positionMarker, commandReaderFactory );
+                LogEntry entry = reader.parse( version, source, positionMarker, commandReaderFactory );
                 if ( !reader.skip() )
                 {
                     return entry;
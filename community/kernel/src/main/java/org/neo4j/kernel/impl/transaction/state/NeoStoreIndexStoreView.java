@@ -19,9 +19,14 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.helpers.collection.Iterables;
@@ -49,32 +54,64 @@ import org.neo4j.kernel.impl.store.record.PropertyBlock;
 import org.neo4j.kernel.impl.store.record.PropertyRecord;
 import org.neo4j.kernel.impl.store.record.Record;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
+import org.neo4j.kernel.impl.util.JobScheduler;
 import org.neo4j.register.Register.DoubleLongRegister;
 
+import static org.neo4j.helpers.Exceptions.launderedException;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.EMPTY_LONG_ARRAY;
 import static org.neo4j.kernel.api.labelscan.NodeLabelUpdate.labelChanges;
 import static org.neo4j.kernel.impl.store.NodeLabelsField.parseLabelsField;
 
 public class NeoStoreIndexStoreView implements IndexStoreView
 {
+    /**
+     * Number of consecutive node ids read as one unit of work in a partitioned store scan.
+     */
+    static final int PARTITION_SIZE = 10_000;
+
     private final PropertyStore propertyStore;
     private final NodeStore nodeStore;
     private final LockService locks;
     private final CountsTracker counts;
     private final TransactionIdStore txIdStore;
+    private final JobScheduler scheduler;
+    private final int scanThreads;
 
+    /**
+     * Creates a view which scans the node store sequentially on the thread running the scan.
+     */
     public NeoStoreIndexStoreView( LockService locks, NeoStore neoStore )
     {
-        this( locks, neoStore.getNodeStore(), neoStore.getPropertyStore(), neoStore.getCounts(), neoStore  );
+        this( locks, neoStore.getNodeStore(), neoStore.getPropertyStore(), neoStore.getCounts(), neoStore );
+    }
+
+    /**
+     * @param scheduler runs the jobs reading the node store in parallel during a store scan.
+     * @param scanThreads number of partitions of the node store read in parallel during a store scan, where
+     * {@code 1} means scanning sequentially on the thread running the scan.
+     */
+    public NeoStoreIndexStoreView( LockService locks, NeoStore neoStore, JobScheduler scheduler, int scanThreads )
+    {
+        this( locks, neoStore.getNodeStore(), neoStore.getPropertyStore(), neoStore.getCounts(), neoStore,
+                scheduler, scanThreads );
     }
 
     public NeoStoreIndexStoreView( LockService locks, NodeStore nodeStore, PropertyStore propertyStore, CountsTracker counts, TransactionIdStore txIdStore )
+    {
+        this( locks, nodeStore, propertyStore, counts, txIdStore, null, 1 );
+    }
+
+    private NeoStoreIndexStoreView( LockService locks, NodeStore nodeStore, PropertyStore propertyStore,
+                                    CountsTracker counts, TransactionIdStore txIdStore, JobScheduler scheduler,
+                                    int scanThreads )
     {
         this.locks = locks;
         this.propertyStore = propertyStore;
         this.nodeStore = nodeStore;
         this.counts = counts;
         this.txIdStore = txIdStore;
+        this.scheduler = scheduler;
+        this.scanThreads = scanThreads;
     }
 
     @Override
@@ -340,9 +377,22 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         }
     }
 
+    /**
+     * Reads the node store in node id order, handing the result of every node to {@link #process(Object)}.
+     *
+     * On stores large enough to be split into several {@link #PARTITION_SIZE partitions}, and given more than
+     * one scan thread, the partitions are read in parallel by jobs on the {@link JobScheduler}. Results are still
+     * processed by the thread running the scan, one partition at a time and in node id order, so consumers
+     * see the same ordered, single threaded stream of updates as from a sequential scan. Nodes created
+     * after the scan started, beyond the last partition, are read sequentially at the end.
+     *
+     * Partitions are read ahead of the processing, so {@link #highestReadNodeId()} is then ahead of the node
+     * being processed.
+     */
     private abstract class NodeStoreScan<RESULT, FAILURE extends Exception> implements StoreScan<FAILURE>
     {
         private volatile boolean continueScanning;
+        private volatile long highestReadNodeId = -1;
 
         protected abstract RESULT read( NodeRecord node );
 
@@ -351,31 +401,126 @@ public class NeoStoreIndexStoreView implements IndexStoreView
         @Override
         public void run() throws FAILURE
         {
-            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore );
             continueScanning = true;
+            long nextId = nodeStore.getNumberOfReservedLowIds();
+            long partitions = (nodeStore.getHighId() - nextId) / PARTITION_SIZE;
+            if ( scheduler != null && scanThreads > 1 && partitions > 1 )
+            {
+                nextId = scanPartitions( nextId, partitions );
+            }
+
+            PrimitiveLongIterator nodeIds = new StoreIdIterator( nodeStore, nextId );
             while ( continueScanning && nodeIds.hasNext() )
             {
                 long id = nodeIds.next();
-                RESULT result = null;
-                try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
+                highestReadNodeId = id;
+                RESULT result = readNode( id );
+                if ( result != null )
+                {
+                    process( result );
+                }
+            }
+        }
+
+        /**
+         * @return the first node id after the scanned partitions.
+         */
+        private long scanPartitions( long firstId, long partitions ) throws FAILURE
+        {
+            // Keep as many partitions as there are scan threads being read ahead of the processing
+            Deque<FutureTask<List<RESULT>>> readAhead = new ArrayDeque<>();
+            try
+            {
+                long nextPartition = 0;
+                while ( continueScanning && (nextPartition < partitions || !readAhead.isEmpty()) )
                 {
-                    NodeRecord record = nodeStore.forceGetRecord( id );
-                    if ( record.inUse() )
+                    while ( nextPartition < partitions && readAhead.size() < scanThreads )
+                    {
+                        long from = firstId + nextPartition++ * PARTITION_SIZE;
+                        // Published before the partition can be read, so that it's never behind what's been read
+                        highestReadNodeId = from + PARTITION_SIZE - 1;
+                        FutureTask<List<RESULT>> partition =
+                                new FutureTask<>( readPartition( from, from + PARTITION_SIZE ) );
+                        scheduler.schedule( JobScheduler.Group.indexPopulation, partition );
+                        readAhead.add( partition );
+                    }
+                    for ( RESULT result : awaitPartition( readAhead.poll() ) )
                     {
-                        result = read( record );
+                        if ( !continueScanning )
+                        {
+                            break;
+                        }
+                        process( result );
                     }
                 }
-                if ( result != null )
+                return firstId + partitions * PARTITION_SIZE;
+            }
+            finally
+            {
+                for ( FutureTask<List<RESULT>> partition : readAhead )
                 {
-                    process( result );
+                    partition.cancel( false );
                 }
             }
         }
 
+        private Callable<List<RESULT>> readPartition( final long from, final long to )
+        {
+            return new Callable<List<RESULT>>()
+            {
+                @Override
+                public List<RESULT> call()
+                {
+                    List<RESULT> results = new ArrayList<>();
+                    for ( long id = from; continueScanning && id < to; id++ )
+                    {
+                        RESULT result = readNode( id );
+                        if ( result != null )
+                        {
+                            results.add( result );
+                        }
+                    }
+                    return results;
+                }
+            };
+        }
+
+        private List<RESULT> awaitPartition( FutureTask<List<RESULT>> partition )
+        {
+            try
+            {
+                return partition.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( "Interrupted while scanning the node store", e );
+            }
+            catch ( ExecutionException e )
+            {
+                throw launderedException( e.getCause() );
+            }
+        }
+
+        private RESULT readNode( long id )
+        {
+            try ( Lock ignored = locks.acquireNodeLock( id, LockService.LockType.READ_LOCK ) )
+            {
+                NodeRecord record = nodeStore.forceGetRecord( id );
+                return record.inUse() ? read( record ) : null;
+            }
+        }
+
         @Override
         public void stop()
         {
             continueScanning = false;
         }
+
+        @Override
+        public long highestReadNodeId()
+        {
+            return highestReadNodeId;
+        }
     }
 }
@@ -26,6 +26,7 @@ import org.neo4j.kernel.impl.api.TransactionApplicationMode;
 import org.neo4j.kernel.impl.api.TransactionRepresentationStoreApplier;
 import org.neo4j.kernel.impl.locking.LockGroup;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
+import org.neo4j.kernel.impl.transaction.command.ParallelRecordApplier;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
 
@@ -38,15 +39,27 @@ public class RecoveryVisitor implements CloseableVisitor<CommittedTransactionRep
 
     private final TransactionIdStore store;
     private final TransactionRepresentationStoreApplier storeApplier;
+    private final ParallelRecordApplier recordApplier;
     private final Monitor monitor;
     private long lastTransactionIdApplied = -1;
     private long lastTransactionChecksum;
 
     public RecoveryVisitor( TransactionIdStore store,
                             TransactionRepresentationStoreApplier storeApplier, Monitor monitor )
+    {
+        this( store, storeApplier, null, monitor );
+    }
+
+    /**
+     * @param recordApplier the {@link ParallelRecordApplier} that the {@code storeApplier} hands record commands to,
+     * if any. It's awaited when closing this visitor.
+     */
+    public RecoveryVisitor( TransactionIdStore store, TransactionRepresentationStoreApplier storeApplier,
+                            ParallelRecordApplier recordApplier, Monitor monitor )
     {
         this.store = store;
         this.storeApplier = storeApplier;
+        this.recordApplier = recordApplier;
         this.monitor = monitor;
     }
 
@@ -68,6 +81,10 @@ public class RecoveryVisitor implements CloseableVisitor<CommittedTransactionRep
     @Override
     public void close() throws IOException
     {
+        if ( recordApplier != null )
+        {
+            recordApplier.close();
+        }
         if ( lastTransactionIdApplied != -1 )
         {
             store.setLastCommittedAndClosedTransactionId( lastTransactionIdApplied, lastTransactionChecksum );
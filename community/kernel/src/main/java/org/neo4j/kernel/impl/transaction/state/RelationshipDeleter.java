@@ -19,6 +19,8 @@
  */
 package org.neo4j.kernel.impl.transaction.state;
 
+import java.util.Arrays;
+
 import org.neo4j.kernel.api.properties.DefinedProperty;
 import org.neo4j.kernel.impl.store.InvalidRecordException;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
@@ -66,12 +68,30 @@ public class RelationshipDeleter
 
     private void disconnectRelationship( RelationshipRecord rel, RecordAccessSet recordChangeSet )
     {
+        // Lock all neighbouring relationships up front, in one go and in id order, instead of one by one
+        // while walking the chains in an order that differs between transactions
+        locker.getWriteLocks( neighbours( rel ) );
         disconnect( rel, RelationshipConnection.START_NEXT, recordChangeSet.getRelRecords() );
         disconnect( rel, RelationshipConnection.START_PREV, recordChangeSet.getRelRecords() );
         disconnect( rel, RelationshipConnection.END_NEXT, recordChangeSet.getRelRecords() );
         disconnect( rel, RelationshipConnection.END_PREV, recordChangeSet.getRelRecords() );
     }
 
+    private static long[] neighbours( RelationshipRecord rel )
+    {
+        long[] ids = new long[4];
+        int count = 0;
+        for ( RelationshipConnection pointer : RelationshipConnection.values() )
+        {
+            long id = pointer.get( rel );
+            if ( id != Record.NO_NEXT_RELATIONSHIP.intValue() )
+            {
+                ids[count++] = id;
+            }
+        }
+        return count == ids.length ? ids : Arrays.copyOf( ids, count );
+    }
+
     private void disconnect( RelationshipRecord rel, RelationshipConnection pointer,
                              RecordAccess<Long, RelationshipRecord, Void> relChanges )
     {
@@ -81,7 +101,6 @@ public class RelationshipDeleter
             return;
         }
 
-        locker.getWriteLock( otherRelId );
         RelationshipRecord otherRel = relChanges.getOrLoad( otherRelId, null ).forChangingLinkage();
         boolean changed = false;
         long newId = pointer.get( rel );
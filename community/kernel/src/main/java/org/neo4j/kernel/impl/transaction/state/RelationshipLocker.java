@@ -25,11 +25,21 @@ public interface RelationshipLocker
 {
     void getWriteLock( long relId ) throws AcquireLockTimeoutException;
 
+    /**
+     * Locks all the given relationships, in ascending id order.
+     */
+    void getWriteLocks( long... relIds ) throws AcquireLockTimeoutException;
+
     public static final RelationshipLocker NO_LOCKING = new RelationshipLocker()
     {
         @Override
         public void getWriteLock( long relId )
         {   // Don't lock anything
         }
+
+        @Override
+        public void getWriteLocks( long... relIds )
+        {   // Don't lock anything
+        }
     };
 }
@@ -33,6 +33,12 @@ public class TransactionalRelationshipLocker implements RelationshipLocker
         locks.acquireExclusive( ResourceTypes.RELATIONSHIP, relId );
     }
 
+    @Override
+    public void getWriteLocks( long... relIds ) throws AcquireLockTimeoutException
+    {
+        locks.acquireExclusive( ResourceTypes.RELATIONSHIP, relIds );
+    }
+
     public void setLockClient( Locks.Client locks )
     {
         this.locks = locks;
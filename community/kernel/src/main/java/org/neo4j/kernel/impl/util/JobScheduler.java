@@ -61,6 +61,11 @@ public interface JobScheduler extends Lifecycle
         indexSamplingController,
         indexSampling,
         pageCacheEviction,
+
+        /**
+         * Records which pages are in the page cache, so they can be loaded back in on startup.
+         */
+        pageCacheProfiling,
     }
 
     interface JobHandle
@@ -19,6 +19,8 @@
  */
 package org.neo4j.unsafe.impl.batchimport;
 
+import java.io.File;
+
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.kernel.configuration.Config;
 
@@ -83,6 +85,13 @@ public interface Configuration
      */
     int movingAverageSize();
 
+    /**
+     * Directory to place temporary data structures in when they don't fit in memory, memory mapped so that
+     * the operating system pages them in and out as needed. Preferably on a fast drive with enough space.
+     * {@code null} means the store directory.
+     */
+    File spillDirectory();
+
     public static class Default implements Configuration
     {
         private static final int OPTIMAL_FILE_CHANNEL_CHUNK_SIZE = 1024 * 4;
@@ -139,6 +148,12 @@ public interface Configuration
         {
             return 100;
         }
+
+        @Override
+        public File spillDirectory()
+        {
+            return null;
+        }
     }
 
     public static final Configuration DEFAULT = new Default();
@@ -200,6 +215,12 @@ public interface Configuration
         {
             return defaults.movingAverageSize();
         }
+
+        @Override
+        public File spillDirectory()
+        {
+            return defaults.spillDirectory();
+        }
     }
 
     // TODO Add Configuration option "calibrate()" which probes the hardware and returns optimal values.
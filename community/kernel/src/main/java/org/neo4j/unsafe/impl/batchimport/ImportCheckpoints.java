@@ -0,0 +1,320 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.StoreFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipLink;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+
+import static java.lang.Math.min;
+
+/**
+ * Keeps what's needed on disk to resume an import done by {@link ParallelBatchImporter} from the last
+ * {@link Phase phase} it completed, instead of from scratch, f.ex. after the process was killed hours
+ * into importing a big data set.
+ *
+ * A checkpoint is made while the store is closed, i.e. in a clean state. Store files are only ever appended
+ * to until all {@link Phase phases} have completed, so for each such file only its length and last bytes,
+ * where its trailer is, are kept. Smaller files, like id files and counts store files, are copied in full.
+ * Restoring cuts store files back to their checkpointed length and copies back the smaller files.
+ * Caches needed by the stages after a phase are written alongside.
+ */
+public class ImportCheckpoints
+{
+    public enum Phase
+    {
+        /**
+         * Nodes have been imported and dense nodes have been calculated.
+         */
+        NODES,
+        /**
+         * Relationships have been imported. What's left is linking and counting, which are done in place.
+         */
+        RELATIONSHIPS;
+    }
+
+    static final String DIRECTORY_NAME = "import-checkpoint";
+    private static final String COMPLETED = "completed";
+    private static final String STORE_FILES = "store-files";
+    private static final String COPIES = "copies";
+    private static final String ID_MAPPER = "id-mapper";
+    private static final String NODE_RELATIONSHIP_LINK = "node-relationship-link";
+    private static final int TAIL_SIZE = 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final FilenameFilter STORE_FILE_FILTER = new FilenameFilter()
+    {
+        @Override
+        public boolean accept( File dir, String name )
+        {
+            return name.startsWith( NeoStore.DEFAULT_NAME );
+        }
+    };
+
+    private final FileSystemAbstraction fileSystem;
+    private final File storeDir;
+    private final File directory;
+
+    public ImportCheckpoints( FileSystemAbstraction fileSystem, File storeDir )
+    {
+        this.fileSystem = fileSystem;
+        this.storeDir = storeDir;
+        this.directory = new File( storeDir, DIRECTORY_NAME );
+    }
+
+    /**
+     * @return the last {@link Phase} which completed and was checkpointed, or {@code null} if none.
+     */
+    public Phase lastCompleted()
+    {
+        Phase[] phases = Phase.values();
+        for ( int i = phases.length - 1; i >= 0; i-- )
+        {
+            if ( fileSystem.fileExists( new File( directoryOf( phases[i] ), COMPLETED ) ) )
+            {
+                return phases[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checkpoints the store and the given caches after {@code phase} has completed. The store must be closed.
+     *
+     * @param idMapper {@link IdMapper} to checkpoint, or {@code null} if not needed after this phase.
+     */
+    public void checkpoint( Phase phase, IdMapper idMapper, NodeRelationshipLink nodeRelationshipLink )
+            throws IOException
+    {
+        File phaseDirectory = directoryOf( phase );
+        if ( fileSystem.fileExists( phaseDirectory ) )
+        {
+            fileSystem.deleteRecursively( phaseDirectory );
+        }
+        fileSystem.mkdirs( new File( phaseDirectory, COPIES ) );
+
+        snapshotStoreFiles( phaseDirectory );
+        if ( idMapper != null )
+        {
+            try ( DataOutputStream out = output( new File( phaseDirectory, ID_MAPPER ) ) )
+            {
+                idMapper.checkpoint( out );
+            }
+        }
+        try ( DataOutputStream out = output( new File( phaseDirectory, NODE_RELATIONSHIP_LINK ) ) )
+        {
+            nodeRelationshipLink.checkpoint( out );
+        }
+
+        // Marked as completed last, so that a checkpoint only partly written is never used
+        fileSystem.create( new File( phaseDirectory, COMPLETED ) ).close();
+        for ( Phase other : Phase.values() )
+        {
+            File otherDirectory = directoryOf( other );
+            if ( other != phase && fileSystem.fileExists( otherDirectory ) )
+            {
+                fileSystem.deleteRecursively( otherDirectory );
+            }
+        }
+    }
+
+    /**
+     * Brings the store files back to how they were when {@code phase} was checkpointed.
+     * The store must be closed.
+     */
+    public void restoreStoreFiles( Phase phase ) throws IOException
+    {
+        File phaseDirectory = directoryOf( phase );
+        Set<String> checkpointedFiles = new HashSet<>();
+        try ( DataInputStream in = input( new File( phaseDirectory, STORE_FILES ) ) )
+        {
+            int count = in.readInt();
+            for ( int i = 0; i < count; i++ )
+            {
+                String name = in.readUTF();
+                File file = new File( storeDir, name );
+                checkpointedFiles.add( name );
+                if ( in.readBoolean() )
+                {
+                    fileSystem.deleteFile( file );
+                    fileSystem.copyFile( new File( new File( phaseDirectory, COPIES ), name ), file );
+                }
+                else
+                {
+                    long length = in.readLong();
+                    byte[] tail = new byte[in.readInt()];
+                    in.readFully( tail );
+                    restoreTail( file, length, tail );
+                }
+            }
+        }
+
+        // Files created after the checkpoint, f.ex. a rotated counts store file, shouldn't be there
+        for ( File file : fileSystem.listFiles( storeDir, STORE_FILE_FILTER ) )
+        {
+            if ( !fileSystem.isDirectory( file ) && !checkpointedFiles.contains( file.getName() ) )
+            {
+                fileSystem.deleteFile( file );
+            }
+        }
+    }
+
+    /**
+     * Restores caches checkpointed in {@code phase} into the given, empty, caches.
+     *
+     * @param idMapper {@link IdMapper} to restore, or {@code null} if not needed after this phase.
+     */
+    public void restore( Phase phase, IdMapper idMapper, NodeRelationshipLink nodeRelationshipLink )
+            throws IOException
+    {
+        File phaseDirectory = directoryOf( phase );
+        if ( idMapper != null )
+        {
+            try ( DataInputStream in = input( new File( phaseDirectory, ID_MAPPER ) ) )
+            {
+                idMapper.restore( in );
+            }
+        }
+        try ( DataInputStream in = input( new File( phaseDirectory, NODE_RELATIONSHIP_LINK ) ) )
+        {
+            nodeRelationshipLink.restore( in );
+        }
+    }
+
+    /**
+     * Removes all checkpoints, done when starting a new import or after an import has completed.
+     */
+    public void clear() throws IOException
+    {
+        if ( fileSystem.fileExists( directory ) )
+        {
+            fileSystem.deleteRecursively( directory );
+        }
+    }
+
+    private void snapshotStoreFiles( File phaseDirectory ) throws IOException
+    {
+        File[] files = fileSystem.listFiles( storeDir, STORE_FILE_FILTER );
+        try ( DataOutputStream out = output( new File( phaseDirectory, STORE_FILES ) ) )
+        {
+            int count = 0;
+            for ( File file : files )
+            {
+                if ( !fileSystem.isDirectory( file ) )
+                {
+                    count++;
+                }
+            }
+            out.writeInt( count );
+            for ( File file : files )
+            {
+                if ( fileSystem.isDirectory( file ) )
+                {
+                    continue;
+                }
+
+                out.writeUTF( file.getName() );
+                boolean copyInFull = copyInFull( file.getName() );
+                out.writeBoolean( copyInFull );
+                if ( copyInFull )
+                {
+                    fileSystem.copyFile( file, new File( new File( phaseDirectory, COPIES ), file.getName() ) );
+                }
+                else
+                {
+                    long length = fileSystem.getFileSize( file );
+                    byte[] tail = readTail( file, length );
+                    out.writeLong( length );
+                    out.writeInt( tail.length );
+                    out.write( tail );
+                }
+            }
+        }
+    }
+
+    private static boolean copyInFull( String name )
+    {
+        return name.equals( NeoStore.DEFAULT_NAME ) || name.endsWith( ".id" ) ||
+                name.contains( StoreFactory.COUNTS_STORE );
+    }
+
+    private byte[] readTail( File file, long length ) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( (int) min( length, TAIL_SIZE ) );
+        try ( StoreChannel channel = fileSystem.open( file, "r" ) )
+        {
+            long position = length - buffer.capacity();
+            while ( buffer.hasRemaining() )
+            {
+                int read = channel.read( buffer, position + buffer.position() );
+                if ( read == -1 )
+                {
+                    throw new IOException( "Unexpected end of " + file + " at " + (position + buffer.position()) );
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private void restoreTail( File file, long length, byte[] tail ) throws IOException
+    {
+        try ( StoreChannel channel = fileSystem.open( file, "rw" ) )
+        {
+            if ( channel.size() < length )
+            {
+                throw new IOException( file + " is shorter, " + channel.size() + ", than when checkpointed, " +
+                        length + ", and cannot be restored" );
+            }
+            channel.truncate( length );
+            channel.writeAll( ByteBuffer.wrap( tail ), length - tail.length );
+            channel.force( false );
+        }
+    }
+
+    private File directoryOf( Phase phase )
+    {
+        return new File( directory, phase.name().toLowerCase() );
+    }
+
+    private DataOutputStream output( File file ) throws IOException
+    {
+        return new DataOutputStream( new BufferedOutputStream(
+                fileSystem.openAsOutputStream( file, false ), BUFFER_SIZE ) );
+    }
+
+    private DataInputStream input( File file ) throws IOException
+    {
+        return new DataInputStream( new BufferedInputStream( fileSystem.openAsInputStream( file ), BUFFER_SIZE ) );
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.IOException;
+
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeLabelsCache;
+import org.neo4j.unsafe.impl.batchimport.staging.LonelyProcessingStep;
+import org.neo4j.unsafe.impl.batchimport.staging.Stage;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+
+/**
+ * {@link Stage} writing the label scan store of a {@link NodeIndexer} from a {@link NodeLabelsCache},
+ * i.e. without reading the node store again.
+ */
+public class LabelScanStoreStage extends Stage
+{
+    public LabelScanStoreStage( Configuration config, NodeIndexer indexer, NodeLabelsCache cache,
+            long highestNodeId )
+    {
+        super( "Label scan store", config );
+        add( new LabelScanStoreStep( control(), config, indexer, cache, highestNodeId ) );
+    }
+
+    private static class LabelScanStoreStep extends LonelyProcessingStep implements Runnable
+    {
+        private final NodeIndexer indexer;
+        private final NodeLabelsCache cache;
+        private final long highestNodeId;
+
+        LabelScanStoreStep( StageControl control, Configuration config, NodeIndexer indexer,
+                NodeLabelsCache cache, long highestNodeId )
+        {
+            super( control, "LABELS", config.batchSize(), config.movingAverageSize() );
+            this.indexer = indexer;
+            this.cache = cache;
+            this.highestNodeId = highestNodeId;
+        }
+
+        @Override
+        protected void process()
+        {
+            try
+            {
+                indexer.writeLabels( cache, highestNodeId, this );
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( e );
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            itemProcessed();
+        }
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.neo4j.graphdb.DependencyResolver;
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.kernel.api.index.IndexConfiguration;
+import org.neo4j.kernel.api.index.IndexDescriptor;
+import org.neo4j.kernel.api.index.IndexEntryConflictException;
+import org.neo4j.kernel.api.index.IndexPopulator;
+import org.neo4j.kernel.api.index.SchemaIndexProvider;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.extension.KernelExtensions;
+import org.neo4j.kernel.extension.UnsatisfiedDependencyStrategies;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
+import org.neo4j.kernel.impl.locking.LockService;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.SchemaStore;
+import org.neo4j.kernel.impl.store.UniquenessConstraintRule;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.IndexRule;
+import org.neo4j.kernel.impl.store.record.PropertyBlock;
+import org.neo4j.kernel.impl.store.record.SchemaRule;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreIndexStoreView;
+import org.neo4j.kernel.impl.transaction.state.NeoStoreProvider;
+import org.neo4j.kernel.lifecycle.LifeSupport;
+import org.neo4j.kernel.logging.Logging;
+import org.neo4j.register.Registers;
+import org.neo4j.unsafe.batchinsert.LabelScanWriter;
+import org.neo4j.unsafe.impl.batchimport.cache.NodeLabelsCache;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingNeoStore;
+
+import static org.neo4j.helpers.Exceptions.launderedException;
+import static org.neo4j.helpers.collection.MapUtil.stringMap;
+import static org.neo4j.register.Register.DoubleLongRegister;
+
+/**
+ * Builds schema indexes and the {@link LabelScanStore label scan store} as part of an import, so that
+ * a database started on the imported store sees them as online right away, instead of having to populate
+ * them by scanning the whole store.
+ *
+ * Index populators are fed with node property values as nodes pass through the node stage, see
+ * {@link NodeIndexerStep}. The label scan store is written in ascending node id order from the
+ * {@link NodeLabelsCache} after all nodes have been processed, see {@link LabelScanStoreStage}.
+ *
+ * Index and label scan store implementations are provided by the {@link KernelExtensionFactory kernel extensions}
+ * given to the constructor.
+ */
+public class NodeIndexer implements AutoCloseable
+{
+    private static final long[] NO_LABELS = new long[0];
+
+    private final Config config;
+    private final LifeSupport life = new LifeSupport();
+    private final SchemaIndexProvider indexProvider;
+    private final LabelScanStore labelScanStore;
+    private IndexRule[] rules = new IndexRule[0];
+    private IndexPopulator[] populators = new IndexPopulator[0];
+    private boolean populating;
+
+    /**
+     * Starts the kernel extensions providing indexes and label scan store. The label scan store is created
+     * if it doesn't exist and so must be started on an empty store, or it would rebuild itself from
+     * the contents of the store.
+     */
+    public NodeIndexer( final FileSystemAbstraction fileSystem, File storeDir, final Logging logging,
+            Iterable<KernelExtensionFactory<?>> kernelExtensions, final BatchingNeoStore neoStore )
+    {
+        this.config = new Config( stringMap( GraphDatabaseSettings.store_dir.name(), storeDir.getAbsolutePath() ),
+                GraphDatabaseSettings.class );
+        KernelExtensions extensions = life.add( new KernelExtensions( kernelExtensions, config,
+                new DependencyResolver.Adapter()
+                {
+                    @Override
+                    public <T> T resolveDependency( Class<T> type, SelectionStrategy selector )
+                    {
+                        if ( type.isInstance( fileSystem ) )
+                        {
+                            return type.cast( fileSystem );
+                        }
+                        if ( type.isInstance( config ) )
+                        {
+                            return type.cast( config );
+                        }
+                        if ( type.isInstance( logging ) )
+                        {
+                            return type.cast( logging );
+                        }
+                        if ( NeoStoreProvider.class.isAssignableFrom( type ) )
+                        {
+                            return type.cast( new NeoStoreProvider()
+                            {
+                                @Override
+                                public NeoStore evaluate()
+                                {
+                                    return neoStore.getNeoStore();
+                                }
+                            } );
+                        }
+                        throw new IllegalArgumentException( "Unknown dependency " + type );
+                    }
+                }, UnsatisfiedDependencyStrategies.ignore() ) );
+        life.start();
+        this.indexProvider = extensions.resolveDependency( SchemaIndexProvider.class,
+                SchemaIndexProvider.HIGHEST_PRIORITIZED_OR_NONE );
+        this.labelScanStore = life.add( extensions.resolveDependency( LabelScanStoreProvider.class,
+                LabelScanStoreProvider.HIGHEST_PRIORITIZED ).getLabelScanStore() );
+    }
+
+    /**
+     * Creates schema rules in the store for the given indexes and uniqueness constraints and prepares
+     * populators for them. After this call nodes can be {@link #index(long, long[], PropertyBlock[], Object[])
+     * indexed}.
+     */
+    public void createIndexes( List<IndexDefinition> definitions, BatchingNeoStore neoStore ) throws IOException
+    {
+        if ( indexProvider == SchemaIndexProvider.NO_INDEX_PROVIDER )
+        {
+            throw new IllegalStateException( "No schema index provider available to build " + definitions );
+        }
+
+        SchemaIndexProvider.Descriptor providerDescriptor = indexProvider.getProviderDescriptor();
+        SchemaStore schemaStore = neoStore.getSchemaStore();
+        List<IndexRule> indexRules = new ArrayList<>();
+        for ( IndexDefinition definition : definitions )
+        {
+            int labelId = neoStore.getLabelRepository().getOrCreateId( definition.label );
+            int propertyKeyId = neoStore.getPropertyKeyRepository().getOrCreateId( definition.propertyKey );
+            long indexRuleId = schemaStore.nextId();
+            IndexRule indexRule;
+            if ( definition.unique )
+            {
+                long constraintRuleId = schemaStore.nextId();
+                indexRule = IndexRule.constraintIndexRule( indexRuleId, labelId, propertyKeyId,
+                        providerDescriptor, constraintRuleId );
+                writeSchemaRule( schemaStore, UniquenessConstraintRule.uniquenessConstraintRule(
+                        constraintRuleId, labelId, propertyKeyId, indexRuleId ) );
+            }
+            else
+            {
+                indexRule = IndexRule.indexRule( indexRuleId, labelId, propertyKeyId, providerDescriptor );
+            }
+            writeSchemaRule( schemaStore, indexRule );
+            indexRules.add( indexRule );
+        }
+
+        rules = indexRules.toArray( new IndexRule[indexRules.size()] );
+        populators = new IndexPopulator[rules.length];
+        IndexSamplingConfig samplingConfig = new IndexSamplingConfig( config );
+        for ( int i = 0; i < rules.length; i++ )
+        {
+            IndexRule rule = rules[i];
+            populators[i] = indexProvider.getPopulator( rule.getId(),
+                    new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() ),
+                    new IndexConfiguration( rule.isConstraintIndex() ), samplingConfig );
+            populators[i].create();
+        }
+        populating = populators.length > 0;
+    }
+
+    private void writeSchemaRule( SchemaStore schemaStore, SchemaRule rule )
+    {
+        for ( DynamicRecord record : schemaStore.allocateFrom( rule ) )
+        {
+            schemaStore.updateRecord( record );
+        }
+    }
+
+    /**
+     * @return whether or not there are indexes being populated, i.e. whether or not nodes needs to
+     * be {@link #index(long, long[], PropertyBlock[], Object[]) indexed}.
+     */
+    public boolean isPopulating()
+    {
+        return populating;
+    }
+
+    /**
+     * Adds a node to the indexes it belongs in. Must be called by one thread at a time.
+     *
+     * @param nodeId id of the node.
+     * @param labels sorted label ids of the node.
+     * @param propertyBlocks encoded properties of the node, where the key of the block at index {@code i}
+     * is the key for the value at index {@code i*2+1} in {@code properties}.
+     * @param properties property keys and values of the node, in the format of {@link org.neo4j.unsafe.impl.batchimport.input.InputEntity#properties()}.
+     */
+    public void index( long nodeId, long[] labels, PropertyBlock[] propertyBlocks, Object[] properties )
+            throws IOException
+    {
+        for ( int i = 0; i < propertyBlocks.length; i++ )
+        {
+            int propertyKeyId = propertyBlocks[i].getKeyIndexId();
+            for ( int j = 0; j < rules.length; j++ )
+            {
+                if ( rules[j].getPropertyKey() == propertyKeyId &&
+                        Arrays.binarySearch( labels, rules[j].getLabel() ) >= 0 )
+                {
+                    try
+                    {
+                        populators[j].add( nodeId, properties[i*2+1] );
+                    }
+                    catch ( IndexEntryConflictException e )
+                    {
+                        throw e.notAllowed( rules[j].getLabel(), rules[j].getPropertyKey() );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Completes population of the indexes, verifying uniqueness constraints against property values
+     * read back from the store, which must contain all imported nodes at this point.
+     * Populated indexes will be online after this call.
+     */
+    public void completeIndexes( BatchingNeoStore neoStore ) throws IOException
+    {
+        NeoStoreIndexStoreView storeView = new NeoStoreIndexStoreView( LockService.NO_LOCK_SERVICE,
+                neoStore.getNeoStore() );
+        DoubleLongRegister sample = Registers.newDoubleLongRegister();
+        for ( int i = 0; i < populators.length; i++ )
+        {
+            IndexRule rule = rules[i];
+            IndexDescriptor descriptor = new IndexDescriptor( rule.getLabel(), rule.getPropertyKey() );
+            try
+            {
+                populators[i].verifyDeferredConstraints( storeView );
+            }
+            catch ( IndexEntryConflictException e )
+            {
+                throw e.notAllowed( descriptor );
+            }
+            catch ( Exception e )
+            {
+                throw launderedException( IOException.class, e );
+            }
+            long indexSize = populators[i].sampleResult( sample );
+            storeView.replaceIndexCounts( descriptor, sample.readFirst(), sample.readSecond(), indexSize );
+        }
+
+        for ( IndexPopulator populator : populators )
+        {
+            populator.close( true );
+        }
+        populating = false;
+    }
+
+    /**
+     * Writes labels of all nodes into the label scan store, in ascending node id order.
+     *
+     * @param cache labels of all nodes, as put there during counting of nodes.
+     * @param highestNodeId highest node id in the store.
+     * @param progress called after each node, for progress tracking.
+     */
+    public void writeLabels( NodeLabelsCache cache, long highestNodeId, Runnable progress ) throws IOException
+    {
+        int[] scratch = new int[10];
+        try ( LabelScanWriter writer = labelScanStore.newWriter() )
+        {
+            for ( long nodeId = 0; nodeId <= highestNodeId; nodeId++ )
+            {
+                scratch = cache.get( nodeId, scratch );
+                int length = 0;
+                while ( length < scratch.length && scratch[length] != -1 )
+                {
+                    length++;
+                }
+                if ( length > 0 )
+                {
+                    long[] labels = new long[length];
+                    for ( int i = 0; i < length; i++ )
+                    {
+                        labels[i] = scratch[i];
+                    }
+                    writer.write( NodeLabelUpdate.labelChanges( nodeId, NO_LABELS, labels ) );
+                }
+                progress.run();
+            }
+        }
+    }
+
+    /**
+     * Shuts down indexes and label scan store. Indexes that haven't been {@link #completeIndexes(BatchingNeoStore)
+     * completed} are left in a populating state.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            if ( populating )
+            {
+                for ( IndexPopulator populator : populators )
+                {
+                    populator.close( false );
+                }
+                populating = false;
+            }
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
+    /**
+     * Index or uniqueness constraint to create and populate during import.
+     */
+    public static class IndexDefinition
+    {
+        private final String label;
+        private final String propertyKey;
+        private final boolean unique;
+
+        public IndexDefinition( String label, String propertyKey, boolean unique )
+        {
+            this.label = label;
+            this.propertyKey = propertyKey;
+            this.unique = unique;
+        }
+
+        @Override
+        public String toString()
+        {
+            return (unique ? "UNIQUE" : "INDEX") + " ON :" + label + "(" + propertyKey + ")";
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+import org.neo4j.unsafe.impl.batchimport.staging.ExecutorServiceStep;
+import org.neo4j.unsafe.impl.batchimport.staging.StageControl;
+import org.neo4j.unsafe.impl.batchimport.store.BatchingTokenRepository.BatchingLabelTokenRepository;
+
+/**
+ * Feeds property values of {@link BatchEntity nodes} into the index populators of a {@link NodeIndexer}.
+ * Placed right after the {@link PropertyEncoderStep} so that property keys are already resolved
+ * and the values are at hand, instead of reading them back from the store later.
+ */
+public class NodeIndexerStep extends ExecutorServiceStep<List<BatchEntity<NodeRecord,InputNode>>>
+{
+    private final NodeIndexer indexer;
+    private final BatchingLabelTokenRepository labelHolder;
+
+    public NodeIndexerStep( StageControl control, Configuration config, NodeIndexer indexer,
+            BatchingLabelTokenRepository labelHolder )
+    {
+        super( control, "INDEX", config.workAheadSize(), config.movingAverageSize(), 1 );
+        this.indexer = indexer;
+        this.labelHolder = labelHolder;
+    }
+
+    @Override
+    protected Object process( long ticket, List<BatchEntity<NodeRecord,InputNode>> batch )
+    {
+        for ( BatchEntity<NodeRecord,InputNode> entity : batch )
+        {
+            InputNode input = entity.input();
+            if ( input.hasFirstPropertyId() || input.hasLabelField() )
+            {
+                throw new IllegalStateException( "Nodes with already encoded labels or properties, like " + input +
+                        ", cannot be indexed during import" );
+            }
+
+            try
+            {
+                indexer.index( entity.record().getId(), labelHolder.getOrCreateIds( input.labels() ),
+                        entity.getPropertyBlocks(), input.properties() );
+            }
+            catch ( IOException e )
+            {
+                throw new UnderlyingStorageException( e );
+            }
+        }
+        return batch;
+    }
+}
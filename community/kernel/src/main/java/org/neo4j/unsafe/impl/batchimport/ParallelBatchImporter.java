@@ -19,7 +19,11 @@
  */
 package org.neo4j.unsafe.impl.batchimport;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.neo4j.function.Function;
 import org.neo4j.graphdb.ResourceIterable;
@@ -28,6 +32,8 @@ import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.Format;
 import org.neo4j.io.fs.DefaultFileSystemAbstraction;
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.FileUtils;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
 import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.PropertyStore;
 import org.neo4j.kernel.impl.store.RelationshipStore;
@@ -36,11 +42,14 @@ import org.neo4j.kernel.impl.store.record.RelationshipRecord;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.logging.Logging;
 import org.neo4j.kernel.monitoring.Monitors;
+import org.neo4j.unsafe.impl.batchimport.ImportCheckpoints.Phase;
+import org.neo4j.unsafe.impl.batchimport.NodeIndexer.IndexDefinition;
 import org.neo4j.unsafe.impl.batchimport.cache.AvailableMemoryCalculator;
 import org.neo4j.unsafe.impl.batchimport.cache.GatheringMemoryStatsVisitor;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeLabelsCache;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipLink;
 import org.neo4j.unsafe.impl.batchimport.cache.NodeRelationshipLinkImpl;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
@@ -62,7 +71,6 @@ import static java.lang.System.currentTimeMillis;
 import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
 import static org.neo4j.unsafe.impl.batchimport.Utils.idsOf;
 import static org.neo4j.unsafe.impl.batchimport.WriterFactories.parallel;
-import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
 
 /**
  * {@link BatchImporter} which tries to exercise as much of the available resources to gain performance.
@@ -76,6 +84,12 @@ import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
  */
 public class ParallelBatchImporter implements BatchImporter
 {
+    /**
+     * Name of the directory, within {@link Configuration#spillDirectory()} or the store directory, where
+     * temporary data structures not fitting in memory are placed during an import. Deleted when the import ends.
+     */
+    static final String SPILL_DIRECTORY_NAME = "import-spill";
+
     private final String storeDir;
     private final FileSystemAbstraction fileSystem;
     private final Configuration config;
@@ -87,6 +101,8 @@ public class ParallelBatchImporter implements BatchImporter
     private final WriterFactory writerFactory;
     private final AdditionalInitialIds additionalInitialIds;
     private final AvailableMemoryCalculator memoryCalculator;
+    private final Iterable<KernelExtensionFactory<?>> kernelExtensions;
+    private final List<IndexDefinition> indexDefinitions = new ArrayList<>();
 
     /**
      * Advanced usage of the parallel batch importer, for special and very specific cases. Please use
@@ -95,6 +111,23 @@ public class ParallelBatchImporter implements BatchImporter
     public ParallelBatchImporter( String storeDir, FileSystemAbstraction fileSystem, Configuration config,
             Logging logging, ExecutionMonitor executionMonitor, Function<Configuration,WriterFactory> writerFactory,
             AdditionalInitialIds additionalInitialIds, AvailableMemoryCalculator memoryCalculator )
+    {
+        this( storeDir, fileSystem, config, logging, executionMonitor, writerFactory, additionalInitialIds,
+                memoryCalculator, Collections.<KernelExtensionFactory<?>>emptyList() );
+    }
+
+    /**
+     * Advanced usage of the parallel batch importer, for special and very specific cases. Please use
+     * a constructor with fewer arguments instead.
+     *
+     * @param kernelExtensions providing schema indexes and label scan store, which will be built as part of
+     * the import. If empty then neither the label scan store nor any {@link #createIndex(String, String) indexes}
+     * will be built.
+     */
+    public ParallelBatchImporter( String storeDir, FileSystemAbstraction fileSystem, Configuration config,
+            Logging logging, ExecutionMonitor executionMonitor, Function<Configuration,WriterFactory> writerFactory,
+            AdditionalInitialIds additionalInitialIds, AvailableMemoryCalculator memoryCalculator,
+            Iterable<KernelExtensionFactory<?>> kernelExtensions )
     {
         this.storeDir = storeDir;
         this.fileSystem = fileSystem;
@@ -102,6 +135,7 @@ public class ParallelBatchImporter implements BatchImporter
         this.logging = logging;
         this.additionalInitialIds = additionalInitialIds;
         this.memoryCalculator = memoryCalculator;
+        this.kernelExtensions = kernelExtensions;
         this.logger = logging.getMessagesLog( getClass() );
         this.executionPoller = new ExecutionSupervisor( Clock.SYSTEM_CLOCK, new MultiExecutionMonitor(
                 executionMonitor, new DynamicProcessorAssigner( config, config.maxNumberOfProcessors() ) ) );
@@ -117,51 +151,166 @@ public class ParallelBatchImporter implements BatchImporter
                 AvailableMemoryCalculator.RUNTIME );
     }
 
+    /**
+     * @param kernelExtensions providing schema indexes and label scan store, which will be built as part of
+     * the import.
+     */
+    public ParallelBatchImporter( String storeDir, Configuration config, Logging logging,
+            ExecutionMonitor executionMonitor, Iterable<KernelExtensionFactory<?>> kernelExtensions )
+    {
+        this( storeDir, new DefaultFileSystemAbstraction(), config, logging, executionMonitor, parallel(), EMPTY,
+                AvailableMemoryCalculator.RUNTIME, kernelExtensions );
+    }
+
+    /**
+     * Creates an index on {@code propertyKey} for nodes with {@code label}. The index is populated
+     * while importing the nodes and will be online when a database is started on the imported store.
+     * Must be called before the import starts and requires kernel extensions providing indexes to be
+     * given to the constructor.
+     */
+    public void createIndex( String label, String propertyKey )
+    {
+        indexDefinitions.add( new IndexDefinition( label, propertyKey, false ) );
+    }
+
+    /**
+     * Creates a uniqueness constraint on {@code propertyKey} for nodes with {@code label}, backed by an index
+     * populated while importing the nodes. The import fails if imported nodes violates the constraint.
+     * Must be called before the import starts and requires kernel extensions providing indexes to be
+     * given to the constructor.
+     */
+    public void createUniquenessConstraint( String label, String propertyKey )
+    {
+        indexDefinitions.add( new IndexDefinition( label, propertyKey, true ) );
+    }
+
     @Override
     public void doImport( Input input ) throws IOException
     {
-        logger.info( "Import starting" );
+        doImport( input, false );
+    }
+
+    /**
+     * Resumes an import which didn't complete, f.ex. because the process was killed, from the last phase
+     * it completed, as {@link ImportCheckpoints checkpointed} into the store directory.
+     * The same {@link Input} as given to the import which didn't complete must be given here.
+     *
+     * @param input {@link Input} to import.
+     * @throws IOException on I/O error or if there's no completed phase to resume from.
+     */
+    public void resumeImport( Input input ) throws IOException
+    {
+        doImport( input, true );
+    }
+
+    private void doImport( Input input, boolean resume ) throws IOException
+    {
+        logger.info( resume ? "Import resuming" : "Import starting" );
 
         // Things that we need to close later. The reason they're not in the try-with-resource statement
         // is that we need to close, and set to null, at specific points preferably. So use good ol' finally block.
         NodeRelationshipLink nodeRelationshipLink = null;
         NodeLabelsCache nodeLabelsCache = null;
+        BatchingNeoStore neoStore = null;
+        NodeIndexer nodeIndexer = null;
+        ImportCheckpoints checkpoints = new ImportCheckpoints( fileSystem, new File( storeDir ) );
+        File spillDirectory = spillDirectory();
+        NumberArrayFactory numberArrayFactory =
+                new NumberArrayFactory.Auto( memoryCalculator, NumberArrayFactory.Auto.DEFAULT_MARGIN, spillDirectory );
         long startTime = currentTimeMillis();
-        try ( BatchingNeoStore neoStore = new BatchingNeoStore( fileSystem, storeDir, config,
-                writeMonitor, logging, monitors, writerFactory, additionalInitialIds ) )
+        try
         {
+            Phase completed = null;
+            if ( resume )
+            {
+                completed = checkpoints.lastCompleted();
+                if ( completed == null )
+                {
+                    throw new IllegalStateException( "No completed import phase to resume from in " + storeDir );
+                }
+                checkpoints.restoreStoreFiles( completed );
+                logger.info( "Resuming after completed phase " + completed );
+            }
+            else
+            {
+                checkpoints.clear();
+            }
+            neoStore = newNeoStore( resume );
+            if ( kernelExtensions.iterator().hasNext() )
+            {
+                nodeIndexer = new NodeIndexer( fileSystem, new File( storeDir ), logging, kernelExtensions, neoStore );
+                if ( completed == null && !indexDefinitions.isEmpty() )
+                {
+                    nodeIndexer.createIndexes( indexDefinitions, neoStore );
+                }
+            }
+            else if ( !indexDefinitions.isEmpty() )
+            {
+                throw new IllegalStateException( "No kernel extensions given to build " + indexDefinitions );
+            }
+
             // Some temporary caches and indexes in the import
-            IdMapper idMapper = input.idMapper();
+            IdMapper idMapper = input.idMapper( numberArrayFactory );
             IdGenerator idGenerator = input.idGenerator();
-            nodeRelationshipLink = new NodeRelationshipLinkImpl( AUTO, config.denseNodeThreshold() );
+            nodeRelationshipLink = new NodeRelationshipLinkImpl( numberArrayFactory, config.denseNodeThreshold() );
+            if ( completed != null )
+            {
+                checkpoints.restore( completed, completed == Phase.NODES ? idMapper : null, nodeRelationshipLink );
+            }
             final ResourceIterable<InputNode> nodes = input.nodes();
             final ResourceIterable<InputRelationship> relationships = input.relationships();
 
-            // Stage 1 -- nodes, properties, labels
-            final NodeStage nodeStage = new NodeStage( nodes, idMapper, idGenerator, neoStore );
+            if ( completed == null )
+            {
+                // Stage 1 -- nodes, properties, labels
+                final NodeStage nodeStage = new NodeStage( nodes, idMapper, idGenerator, neoStore,
+                        nodeIndexer != null && nodeIndexer.isPopulating() ? nodeIndexer : null );
 
-            // Stage 2 -- calculate dense node threshold
-            final CalculateDenseNodesStage calculateDenseNodesStage =
-                    new CalculateDenseNodesStage( relationships, nodeRelationshipLink, idMapper );
+                // Stage 2 -- calculate dense node threshold
+                final CalculateDenseNodesStage calculateDenseNodesStage =
+                        new CalculateDenseNodesStage( relationships, nodeRelationshipLink, idMapper );
 
-            // Execute stages 1 and 2 in parallel or sequentially?
-            if ( idMapper.needsPreparation() )
-            {   // The id mapper of choice needs preparation in order to get ids from it,
-                // So we need to execute the node stage first as it fills the id mapper and prepares it in the end,
-                // before executing any stage that needs ids from the id mapper, for example calc dense node stage.
-                executeStages( nodeStage );
-                executeStages( calculateDenseNodesStage );
-            }
-            else
-            {   // The id mapper of choice doesn't need any preparation, so we can go ahead and execute
-                // the node and calc dense node stages in parallel.
-                executeStages( nodeStage, calculateDenseNodesStage );
+                // Execute stages 1 and 2 in parallel or sequentially?
+                if ( idMapper.needsPreparation() )
+                {   // The id mapper of choice needs preparation in order to get ids from it,
+                    // So we need to execute the node stage first as it fills the id mapper and prepares it in the end,
+                    // before executing any stage that needs ids from the id mapper, for example calc dense node stage.
+                    executeStages( nodeStage );
+                    executeStages( calculateDenseNodesStage );
+                }
+                else
+                {   // The id mapper of choice doesn't need any preparation, so we can go ahead and execute
+                    // the node and calc dense node stages in parallel.
+                    executeStages( nodeStage, calculateDenseNodesStage );
+                }
+
+                // The store is closed while checkpointing so that its files are in a clean state
+                neoStore.close();
+                neoStore = null;
+                if ( nodeIndexer != null && nodeIndexer.isPopulating() )
+                {   // Completing the indexes may need to read back property values, so this is done here where
+                    // all node data has been written and the store is opened again, before the checkpoint.
+                    neoStore = newNeoStore( true );
+                    nodeIndexer.completeIndexes( neoStore );
+                    neoStore.close();
+                    neoStore = null;
+                }
+                checkpoints.checkpoint( Phase.NODES, idMapper, nodeRelationshipLink );
+                neoStore = newNeoStore( true );
             }
 
-            // Stage 3 -- relationships, properties
-            final RelationshipStage relationshipStage =
-                    new RelationshipStage( relationships, idMapper, neoStore, nodeRelationshipLink );
-            executeStages( relationshipStage );
+            if ( completed != Phase.RELATIONSHIPS )
+            {
+                // Stage 3 -- relationships, properties
+                final RelationshipStage relationshipStage =
+                        new RelationshipStage( relationships, idMapper, neoStore, nodeRelationshipLink );
+                executeStages( relationshipStage );
+
+                neoStore.close();
+                neoStore = null;
+                checkpoints.checkpoint( Phase.RELATIONSHIPS, null, nodeRelationshipLink );
+                neoStore = newNeoStore( true );
+            }
 
             // Switch to reverse updating mode and release references that are no longer used so they can be collected
             writerFactory.awaitEverythingWritten();
@@ -170,7 +319,7 @@ public class ParallelBatchImporter implements BatchImporter
             idGenerator = null;
 
             // Remaining node processors
-            nodeLabelsCache = new NodeLabelsCache( AUTO, neoStore.getLabelRepository().getHighId() );
+            nodeLabelsCache = new NodeLabelsCache( numberArrayFactory, neoStore.getLabelRepository().getHighId() );
             StoreProcessor<NodeRecord> nodeFirstRelationshipProcessor = new NodeFirstRelationshipProcessor(
                     neoStore.getRelationshipGroupStore(), nodeRelationshipLink );
             StoreProcessor<NodeRecord> nodeCountsProcessor = new NodeCountsProcessor( neoStore.getNodeStore(),
@@ -218,7 +367,17 @@ public class ParallelBatchImporter implements BatchImporter
                         neoStore.getRelationshipStore(), relationshipCountsProcessor ) );
             }
 
+            if ( nodeIndexer != null )
+            {
+                // Stage 8 -- label scan store, from labels gathered when counting nodes
+                executeStages( new LabelScanStoreStage( config, nodeIndexer, nodeLabelsCache,
+                        neoStore.getNodeStore().getHighestPossibleIdInUse() ) );
+            }
+
             // We're done, do some final logging about it
+            neoStore.close();
+            neoStore = null;
+            checkpoints.clear();
             long totalTimeMillis = currentTimeMillis() - startTime;
             executionPoller.done( totalTimeMillis );
             logger.info( "Import completed, took " + Format.duration( totalTimeMillis ) );
@@ -230,6 +389,14 @@ public class ParallelBatchImporter implements BatchImporter
         }
         finally
         {
+            if ( nodeIndexer != null )
+            {
+                nodeIndexer.close();
+            }
+            if ( neoStore != null )
+            {
+                neoStore.close();
+            }
             writerFactory.shutdown();
             if ( nodeRelationshipLink != null )
             {
@@ -239,9 +406,22 @@ public class ParallelBatchImporter implements BatchImporter
             {
                 nodeLabelsCache.close();
             }
+            FileUtils.deleteRecursively( spillDirectory );
         }
     }
 
+    private File spillDirectory()
+    {
+        File parent = config.spillDirectory() != null ? config.spillDirectory() : new File( storeDir );
+        return new File( parent, SPILL_DIRECTORY_NAME );
+    }
+
+    private BatchingNeoStore newNeoStore( boolean resume )
+    {
+        return new BatchingNeoStore( fileSystem, storeDir, config, writeMonitor, logging, monitors, writerFactory,
+                additionalInitialIds, resume );
+    }
+
     private boolean enoughAvailableMemoryForRemainingProcessors( NodeRelationshipLink nodeRelationshipLink )
     {
         GatheringMemoryStatsVisitor usedMemory = new GatheringMemoryStatsVisitor();
@@ -274,7 +454,7 @@ public class ParallelBatchImporter implements BatchImporter
     public class NodeStage extends Stage
     {
         public NodeStage( ResourceIterable<InputNode> nodes, IdMapper idMapper, IdGenerator idGenerator,
-                          BatchingNeoStore neoStore )
+                          BatchingNeoStore neoStore, NodeIndexer nodeIndexer )
         {
             super( "Nodes", config );
             add( new IteratorBatcherStep<>( control(), "INPUT", config.batchSize(), config.movingAverageSize(),
@@ -285,6 +465,10 @@ public class ParallelBatchImporter implements BatchImporter
             add( new NodeEncoderStep( control(), config, idMapper, idGenerator,
                     neoStore.getLabelRepository(), nodeStore, idsOf( nodes ) ) );
             add( new PropertyEncoderStep<>( control(), config, 1, neoStore.getPropertyKeyRepository(), propertyStore ) );
+            if ( nodeIndexer != null )
+            {
+                add( new NodeIndexerStep( control(), config, nodeIndexer, neoStore.getLabelRepository() ) );
+            }
             add( new EntityStoreUpdaterStep<>( control(), config, nodeStore, propertyStore,
                     writeMonitor, writerFactory ) );
         }
@@ -32,7 +32,8 @@ public interface AvailableMemoryCalculator
 
     /**
      * Uses {@link Runtime#maxMemory()} and {@link ManagementFactory#getOperatingSystemMXBean()} to provide
-     * memory information to do free memory calculations on.
+     * memory information to do free memory calculations on. Off-heap memory already allocated by
+     * {@link OffHeapNumberArray off-heap arrays} is subtracted from what's available.
      */
     public static final AvailableMemoryCalculator RUNTIME = new AvailableMemoryCalculator()
     {
@@ -43,7 +44,7 @@ public interface AvailableMemoryCalculator
                     (com.sun.management.OperatingSystemMXBean)
                     java.lang.management.ManagementFactory.getOperatingSystemMXBean();
             long osMemory = bean.getTotalPhysicalMemorySize();
-            return osMemory-Runtime.getRuntime().maxMemory();
+            return osMemory-Runtime.getRuntime().maxMemory()-OffHeapNumberArray.allocatedMemory();
         }
 
         @Override
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Reaches into internals of direct {@link Buffer buffers} through reflection, instead of linking to the
+ * proprietary {@code sun.nio.ch.DirectBuffer} API. Members are looked up once, when this class is loaded.
+ */
+final class DirectBuffers
+{
+    private static final Field ADDRESS;
+    private static final Method CLEANER;
+    private static final Method CLEAN;
+
+    static
+    {
+        try
+        {
+            ADDRESS = Buffer.class.getDeclaredField( "address" );
+            ADDRESS.setAccessible( true );
+        }
+        catch ( NoSuchFieldException e )
+        {
+            throw new LinkageError( "Unable to find the address of direct buffers", e );
+        }
+
+        Method cleaner = null;
+        Method clean = null;
+        try
+        {
+            cleaner = Class.forName( "sun.nio.ch.DirectBuffer" ).getMethod( "cleaner" );
+            clean = Class.forName( "sun.misc.Cleaner" ).getMethod( "clean" );
+        }
+        catch ( ClassNotFoundException | NoSuchMethodException e )
+        {   // No way of unmapping eagerly on this JVM, buffers will be unmapped when garbage collected
+        }
+        CLEANER = cleaner;
+        CLEAN = clean;
+    }
+
+    private DirectBuffers()
+    {
+        throw new AssertionError( "No instances allowed" );
+    }
+
+    /**
+     * @return address of the memory of the given direct {@code buffer}.
+     */
+    static long address( Buffer buffer )
+    {
+        try
+        {
+            return ADDRESS.getLong( buffer );
+        }
+        catch ( IllegalAccessException e )
+        {
+            throw new LinkageError( "Unable to get the address of " + buffer, e );
+        }
+    }
+
+    /**
+     * Unmaps the given {@code buffer} right away instead of when it's garbage collected, if this JVM allows it.
+     * The buffer must not be accessed after this call.
+     */
+    static void unmap( MappedByteBuffer buffer )
+    {
+        if ( CLEANER == null )
+        {
+            return;
+        }
+
+        try
+        {
+            Object cleaner = CLEANER.invoke( buffer );
+            if ( cleaner != null )
+            {
+                CLEAN.invoke( cleaner );
+            }
+        }
+        catch ( ReflectiveOperationException e )
+        {
+            throw new LinkageError( "Unable to unmap " + buffer, e );
+        }
+    }
+}
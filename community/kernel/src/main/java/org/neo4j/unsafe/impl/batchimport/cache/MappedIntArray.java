@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.io.File;
+
+/**
+ * {@link IntArray} with its data in a memory mapped file, see {@link MappedMemory}. Used when the array
+ * doesn't fit in the memory available on the machine.
+ */
+public class MappedIntArray extends OffHeapIntArray
+{
+    private final MappedMemory memory;
+
+    public MappedIntArray( File directory, long length, int defaultValue )
+    {
+        this( new MappedMemory( directory, length * 4 ), length, defaultValue );
+    }
+
+    private MappedIntArray( MappedMemory memory, long length, int defaultValue )
+    {
+        super( memory.address(), length, defaultValue );
+        this.memory = memory;
+    }
+
+    @Override
+    protected void release()
+    {
+        memory.close();
+    }
+
+    @Override
+    public void visit( MemoryStatsVisitor visitor )
+    {   // The data lives in a file, not in memory
+    }
+}
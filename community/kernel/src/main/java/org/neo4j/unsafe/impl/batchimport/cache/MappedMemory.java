@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+
+/**
+ * A region of memory backed by a temporary file, which is memory mapped. The operating system will page
+ * the data in and out of memory as needed, which means that the data can be larger than the available
+ * memory on the machine. The file is deleted when this memory is {@link #close() closed}. The directory is
+ * created if it doesn't exist.
+ */
+class MappedMemory implements AutoCloseable
+{
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    MappedMemory( File directory, long bytes )
+    {
+        if ( bytes > Integer.MAX_VALUE )
+        {
+            throw new IllegalArgumentException( "Can't map more than " + Integer.MAX_VALUE +
+                    " bytes in one region, requested " + bytes );
+        }
+
+        File file = null;
+        RandomAccessFile raf = null;
+        try
+        {
+            directory.mkdirs();
+            file = File.createTempFile( "number-array", ".tmp", directory );
+            raf = new RandomAccessFile( file, "rw" );
+            raf.setLength( bytes );
+            this.buffer = raf.getChannel().map( READ_WRITE, 0, bytes );
+        }
+        catch ( IOException | RuntimeException e )
+        {
+            // Don't leave the file, nor the channel to it, behind
+            if ( raf != null )
+            {
+                try
+                {
+                    raf.close();
+                }
+                catch ( IOException closeFailure )
+                {
+                    e.addSuppressed( closeFailure );
+                }
+            }
+            if ( file != null )
+            {
+                file.delete();
+            }
+            throw new IllegalStateException( "Unable to map " + bytes + " bytes in " + directory, e );
+        }
+        this.file = file;
+        this.channel = raf.getChannel();
+    }
+
+    long address()
+    {
+        return DirectBuffers.address( buffer );
+    }
+
+    @Override
+    public void close()
+    {
+        // Unmap eagerly instead of waiting for the buffer to be garbage collected
+        DirectBuffers.unmap( buffer );
+        try
+        {
+            channel.close();
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Unable to close " + file, e );
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+}
@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.neo4j.graphdb.Direction;
 
 /**
@@ -69,5 +73,16 @@ public interface NodeRelationshipLink extends MemoryStatsVisitor.Home
         }
     };
 
+    /**
+     * Writes the contents of this cache so that it can later be {@link #restore(DataInput) restored},
+     * f.ex. when resuming an import.
+     */
+    void checkpoint( DataOutput out ) throws IOException;
+
+    /**
+     * Restores contents written by {@link #checkpoint(DataOutput)} into this, empty, cache.
+     */
+    void restore( DataInput in ) throws IOException;
+
     void close();
 }
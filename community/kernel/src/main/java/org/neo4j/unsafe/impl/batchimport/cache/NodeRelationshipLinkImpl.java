@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.neo4j.graphdb.Direction;
 
 /**
@@ -188,6 +192,18 @@ public class NodeRelationshipLinkImpl implements NodeRelationshipLink
             return nextFreeId++;
         }
 
+        private void checkpoint( DataOutput out ) throws IOException
+        {
+            out.writeInt( nextFreeId );
+            NumberArrays.write( array, out );
+        }
+
+        private void restore( DataInput in ) throws IOException
+        {
+            nextFreeId = in.readInt();
+            NumberArrays.read( in, array );
+        }
+
         private void initializeGroup( long relGroupIndex, int type )
         {
             setField( relGroupIndex, INDEX_NEXT_AND_TYPE, NextFieldManipulator.initialFieldWithType( type ) );
@@ -348,6 +364,20 @@ public class NodeRelationshipLinkImpl implements NodeRelationshipLink
         return array.toString();
     }
 
+    @Override
+    public void checkpoint( DataOutput out ) throws IOException
+    {
+        NumberArrays.write( array, out );
+        relGroupCache.checkpoint( out );
+    }
+
+    @Override
+    public void restore( DataInput in ) throws IOException
+    {
+        NumberArrays.read( in, array );
+        relGroupCache.restore( in );
+    }
+
     @Override
     public void close()
     {
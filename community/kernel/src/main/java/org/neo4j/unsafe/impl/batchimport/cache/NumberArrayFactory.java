@@ -19,6 +19,8 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache;
 
+import java.io.File;
+
 import static java.lang.String.format;
 
 import static org.neo4j.helpers.Format.bytes;
@@ -27,7 +29,8 @@ import static org.neo4j.unsafe.impl.batchimport.Utils.safeCastLongToInt;
 /**
  * Factory of {@link LongArray} and {@link IntArray} instances. Users can select in which type of memory
  * the arrays will be placed, either in {@link #HEAP} or {@link #OFF_HEAP}, or even {@link #AUTO} which
- * will have each instance placed where it fits best, favoring off-heap.
+ * will have each instance placed where it fits best, favoring off-heap. An {@link Auto} factory given
+ * a spill directory spills over to {@link FileMapped memory mapped files} when there's not enough memory.
  */
 public interface NumberArrayFactory
 {
@@ -113,20 +116,74 @@ public interface NumberArrayFactory
         }
     };
 
+    /**
+     * Puts arrays in memory mapped temporary files in a directory, leaving it to the operating system to
+     * page data in and out of memory. Arrays larger than {@link #MAX_MAPPED_BYTES} are split up into
+     * multiple mapped files using a dynamic array.
+     */
+    public static class FileMapped extends Adapter
+    {
+        static final int MAX_MAPPED_BYTES = 1 << 30;
+
+        private final File directory;
+
+        public FileMapped( File directory )
+        {
+            this.directory = directory;
+        }
+
+        @Override
+        public IntArray newIntArray( long length, int defaultValue )
+        {
+            return length * 4 <= MAX_MAPPED_BYTES
+                    ? new MappedIntArray( directory, length, defaultValue )
+                    : newDynamicIntArray( MAX_MAPPED_BYTES / 4, defaultValue );
+        }
+
+        @Override
+        public LongArray newLongArray( long length, long defaultValue )
+        {
+            return length * 8 <= MAX_MAPPED_BYTES
+                    ? new MappedLongArray( directory, length, defaultValue )
+                    : newDynamicLongArray( MAX_MAPPED_BYTES / 8, defaultValue );
+        }
+
+        @Override
+        public String toString()
+        {
+            return "FileMapped[" + directory + "]";
+        }
+    }
+
     /**
      * Looks at available memory and decides where the requested array fits best. Tries to allocate the whole
-     * array off-heap, then inside heap. If all else fails a dynamic array is returned with a smaller chunk size
-     * so that collectively the whole array will fit in memory available on the machine.
+     * array off-heap, then inside heap. If that fails a dynamic array is returned with a smaller chunk size
+     * so that collectively the whole array will fit in memory available on the machine. If there isn't
+     * enough memory available at all the array is placed in memory mapped files in the spill directory,
+     * if one has been specified.
      */
     public static class Auto extends Adapter
     {
+        /**
+         * Memory to leave available when deciding where to place an array.
+         */
+        public static final long DEFAULT_MARGIN = 300*1024*1024;
+
         private final AvailableMemoryCalculator calculator;
         private final long margin;
+        private final NumberArrayFactory spill;
+        private final NumberArrayFactory chunked = new Chunked( this );
 
         public Auto( AvailableMemoryCalculator calculator, long margin )
+        {
+            this( calculator, margin, null );
+        }
+
+        public Auto( AvailableMemoryCalculator calculator, long margin, File spillDirectory )
         {
             this.calculator = calculator;
             this.margin = margin;
+            this.spill = spillDirectory != null ? new FileMapped( spillDirectory ) : null;
         }
 
         @Override
@@ -171,7 +228,13 @@ public interface NumberArrayFactory
             {
                 // There is! (at the moment at least). OK, so for the sake of conformity return a factory
                 // that creates dynamic arrays even when requesting static arrays. Just because we can.
-                return CHUNKED_STATIC;
+                return chunked;
+            }
+
+            // Last resort, let the operating system page it in and out of memory
+            if ( spill != null )
+            {
+                return spill;
             }
 
             throw new IllegalArgumentException( format( "Neither enough free heap (%d), nor off-heap (%d) space " +
@@ -180,10 +243,18 @@ public interface NumberArrayFactory
     }
 
     /**
-     * Used as part of the fallback strategy for {@link Auto}.
+     * Used as part of the fallback strategy for {@link Auto}. Returns dynamic arrays even when static arrays
+     * are requested, having their chunks placed by the given factory.
      */
-    public static final NumberArrayFactory CHUNKED_STATIC = new Adapter()
+    public static class Chunked extends Adapter
     {
+        private final NumberArrayFactory chunkFactory;
+
+        public Chunked( NumberArrayFactory chunkFactory )
+        {
+            this.chunkFactory = chunkFactory;
+        }
+
         @Override
         public LongArray newLongArray( long length, long defaultValue )
         {
@@ -204,19 +275,20 @@ public interface NumberArrayFactory
         @Override
         public IntArray newDynamicIntArray( long chunkSize, int defaultValue )
         {
-            return new DynamicIntArray( AUTO, chunkSize, defaultValue );
+            return new DynamicIntArray( chunkFactory, chunkSize, defaultValue );
         }
 
         @Override
         public LongArray newDynamicLongArray( long chunkSize, long defaultValue )
         {
-            return new DynamicLongArray( AUTO, chunkSize, defaultValue );
+            return new DynamicLongArray( chunkFactory, chunkSize, defaultValue );
         }
-    };
+    }
 
     /**
-     * {@link Auto} factory which uses JVM stats for gathering information about available memory.
+     * {@link Auto} factory which uses JVM stats for gathering information about available memory. It has
+     * no spill directory, so an import which may need to spill should use an {@link Auto} with one instead,
+     * see {@link org.neo4j.unsafe.impl.batchimport.Configuration#spillDirectory()}.
      */
-    public static final NumberArrayFactory AUTO = new Auto(
-            AvailableMemoryCalculator.RUNTIME, 300*1024*1024 );
+    public static final NumberArrayFactory AUTO = new Auto( AvailableMemoryCalculator.RUNTIME, Auto.DEFAULT_MARGIN );
 }
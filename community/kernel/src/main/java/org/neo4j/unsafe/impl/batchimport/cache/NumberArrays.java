@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads contents of {@link NumberArray number arrays}, f.ex. to have caches survive
+ * a restart of an import.
+ */
+public class NumberArrays
+{
+    private NumberArrays()
+    {
+    }
+
+    public static void write( LongArray array, DataOutput out ) throws IOException
+    {
+        long highestSetIndex = array.highestSetIndex();
+        out.writeLong( highestSetIndex );
+        for ( long i = 0; i <= highestSetIndex; i++ )
+        {
+            out.writeLong( array.get( i ) );
+        }
+    }
+
+    /**
+     * Reads values written by {@link #write(LongArray, DataOutput)} into {@code array}, which should be empty.
+     * Only values different from what's already in the array are set, so that values not set when written
+     * are not set after reading either.
+     */
+    public static void read( DataInput in, LongArray array ) throws IOException
+    {
+        long highestSetIndex = in.readLong();
+        for ( long i = 0; i <= highestSetIndex; i++ )
+        {
+            long value = in.readLong();
+            if ( value != array.get( i ) )
+            {
+                array.set( i, value );
+            }
+        }
+    }
+
+    public static void write( IntArray array, DataOutput out ) throws IOException
+    {
+        long highestSetIndex = array.highestSetIndex();
+        out.writeLong( highestSetIndex );
+        for ( long i = 0; i <= highestSetIndex; i++ )
+        {
+            out.writeInt( array.get( i ) );
+        }
+    }
+
+    /**
+     * Reads values written by {@link #write(IntArray, DataOutput)} into {@code array}, which should be empty.
+     * Only values different from what's already in the array are set, so that values not set when written
+     * are not set after reading either.
+     */
+    public static void read( DataInput in, IntArray array ) throws IOException
+    {
+        long highestSetIndex = in.readLong();
+        for ( long i = 0; i <= highestSetIndex; i++ )
+        {
+            int value = in.readInt();
+            if ( value != array.get( i ) )
+            {
+                array.set( i, value );
+            }
+        }
+    }
+}
@@ -36,6 +36,13 @@ public class OffHeapIntArray extends OffHeapNumberArray implements IntArray
         clear();
     }
 
+    protected OffHeapIntArray( long address, long length, int defaultValue )
+    {
+        super( address, length, 2 );
+        this.defaultValue = defaultValue;
+        clear();
+    }
+
     @Override
     public int get( long index )
     {
@@ -36,6 +36,13 @@ public class OffHeapLongArray extends OffHeapNumberArray implements LongArray
         clear();
     }
 
+    protected OffHeapLongArray( long address, long length, long defaultValue )
+    {
+        super( address, length, 3 );
+        this.defaultValue = defaultValue;
+        clear();
+    }
+
     @Override
     public long get( long index )
     {
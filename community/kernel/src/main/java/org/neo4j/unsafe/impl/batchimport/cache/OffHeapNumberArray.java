@@ -20,6 +20,7 @@
 package org.neo4j.unsafe.impl.batchimport.cache;
 
 import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
 
 import sun.misc.Unsafe;
 
@@ -35,11 +36,21 @@ abstract class OffHeapNumberArray implements NumberArray
     private boolean closed;
 
     protected OffHeapNumberArray( long length, int shift )
+    {
+        this( unsafe.allocateMemory( length << shift ), length, shift );
+        ALLOCATED_MEMORY.addAndGet( length << shift );
+    }
+
+    /**
+     * For memory which has been allocated elsewhere, f.ex. a memory mapped file. Such memory isn't
+     * accounted for in {@link #allocatedMemory()} and must be released by overriding {@link #release()}.
+     */
+    protected OffHeapNumberArray( long address, long length, int shift )
     {
         this.length = length;
         this.shift = shift;
         this.stride = 1 << shift;
-        this.address = unsafe.allocateMemory( length << shift );
+        this.address = address;
     }
 
     @Override
@@ -83,6 +94,16 @@ abstract class OffHeapNumberArray implements NumberArray
 
     protected static final Unsafe unsafe = getUnsafe();
 
+    private static final AtomicLong ALLOCATED_MEMORY = new AtomicLong();
+
+    /**
+     * @return number of bytes currently allocated off-heap by all open {@link OffHeapNumberArray} instances.
+     */
+    static long allocatedMemory()
+    {
+        return ALLOCATED_MEMORY.get();
+    }
+
     private static Unsafe getUnsafe()
     {
         try
@@ -102,8 +123,14 @@ abstract class OffHeapNumberArray implements NumberArray
     {
         if ( !closed )
         {
-            unsafe.freeMemory( address );
+            release();
             closed = true;
         }
     }
+
+    protected void release()
+    {
+        unsafe.freeMemory( address );
+        ALLOCATED_MEMORY.addAndGet( -(length << shift) );
+    }
 }
@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.neo4j.collection.primitive.PrimitiveIntCollections;
 import org.neo4j.function.primitive.PrimitiveIntPredicate;
 import org.neo4j.graphdb.ResourceIterable;
@@ -82,4 +86,17 @@ public interface IdMapper
      * Gathers statistics about memory usage in this object.
      */
     void visitMemoryStats( MemoryStatsVisitor visitor );
+
+    /**
+     * Writes the state of this id mapper so that it can later be {@link #restore(DataInput) restored},
+     * f.ex. when resuming an import. Must be called after {@link #prepare(ResourceIterable) preparation},
+     * iff {@link #needsPreparation()} returns {@code true}.
+     */
+    void checkpoint( DataOutput out ) throws IOException;
+
+    /**
+     * Restores state written by {@link #checkpoint(DataOutput)} into this, empty, id mapper. After this call
+     * ids can be {@link #get(Object, PrimitiveIntPredicate) retrieved} without any further preparation.
+     */
+    void restore( DataInput in ) throws IOException;
 }
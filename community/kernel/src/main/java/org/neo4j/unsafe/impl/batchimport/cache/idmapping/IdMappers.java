@@ -19,6 +19,9 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+
 import org.neo4j.function.primitive.PrimitiveIntPredicate;
 import org.neo4j.graphdb.ResourceIterable;
 import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
@@ -64,6 +67,16 @@ public class IdMappers
         public void visitMemoryStats( MemoryStatsVisitor visitor )
         {   // No memory usage
         }
+
+        @Override
+        public void checkpoint( DataOutput out )
+        {   // Nothing to remember
+        }
+
+        @Override
+        public void restore( DataInput in )
+        {   // Nothing to restore
+        }
     }
 
     /**
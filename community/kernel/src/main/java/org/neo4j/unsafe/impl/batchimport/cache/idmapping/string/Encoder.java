@@ -19,10 +19,25 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Encodes a {@link Object} into a long.
  */
 public interface Encoder
 {
     long encode( Object value );
+
+    /**
+     * Writes any state which affects how values are encoded, so that values can be encoded the same way
+     * after {@link #restore(DataInput) restoring} it.
+     */
+    void checkpoint( DataOutput out ) throws IOException;
+
+    /**
+     * Restores state written by {@link #checkpoint(DataOutput)}.
+     */
+    void restore( DataInput in ) throws IOException;
 }
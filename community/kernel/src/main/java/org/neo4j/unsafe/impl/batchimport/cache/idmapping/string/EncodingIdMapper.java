@@ -19,6 +19,9 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -36,10 +39,12 @@ import org.neo4j.unsafe.impl.batchimport.cache.LongArray;
 import org.neo4j.unsafe.impl.batchimport.cache.LongBitsManipulator;
 import org.neo4j.unsafe.impl.batchimport.cache.MemoryStatsVisitor;
 import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrays;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Group;
 
 import static java.lang.Math.max;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import static org.neo4j.unsafe.impl.batchimport.Utils.safeCastLongToInt;
 import static org.neo4j.unsafe.impl.batchimport.Utils.unsignedCompare;
@@ -64,6 +69,10 @@ public class EncodingIdMapper implements IdMapper
     private static LongBitsManipulator COLLISION_BIT = new LongBitsManipulator( 56, 1 );
     public static int CACHE_CHUNK_SIZE = 1_000_000; // 8MB a piece
 
+    // Types of input ids among collision values, as written in #checkpoint
+    private static final byte STRING_ID = 0;
+    private static final byte LONG_ID = 1;
+
     // Encoded values added in #put, in the order in which they are put. Indexes in the array are the actual node ids,
     // values are the encoded versions of the input ids.
     private final LongArray dataCache;
@@ -444,4 +453,107 @@ public class EncodingIdMapper implements IdMapper
         trackerCache.visit( visitor );
         collisionCache.visit( visitor );
     }
+
+    @Override
+    public void checkpoint( DataOutput out ) throws IOException
+    {
+        if ( !readyForUse )
+        {
+            throw new IllegalStateException( "Can only checkpoint a prepared id mapper" );
+        }
+
+        out.writeLong( size );
+        encoder.checkpoint( out );
+        radix.checkpoint( out );
+        NumberArrays.write( dataCache, out );
+        NumberArrays.write( trackerCache, out );
+        NumberArrays.write( collisionCache, out );
+        out.writeInt( sortBuckets.length );
+        for ( long[] bucket : sortBuckets )
+        {
+            out.writeInt( bucket.length );
+            for ( long value : bucket )
+            {
+                out.writeLong( value );
+            }
+        }
+        out.writeInt( collisionValues.size() );
+        for ( Object value : collisionValues )
+        {
+            writeInputId( value, out );
+        }
+        out.writeInt( idGroups.size() );
+        for ( IdGroup idGroup : idGroups )
+        {
+            idGroup.checkpoint( out );
+        }
+    }
+
+    @Override
+    public void restore( DataInput in ) throws IOException
+    {
+        size = in.readLong();
+        encoder.restore( in );
+        radix.restore( in );
+        NumberArrays.read( in, dataCache );
+        NumberArrays.read( in, trackerCache );
+        NumberArrays.read( in, collisionCache );
+        sortBuckets = new long[in.readInt()][];
+        for ( int i = 0; i < sortBuckets.length; i++ )
+        {
+            sortBuckets[i] = new long[in.readInt()];
+            for ( int j = 0; j < sortBuckets[i].length; j++ )
+            {
+                sortBuckets[i][j] = in.readLong();
+            }
+        }
+        int collisions = in.readInt();
+        for ( int i = 0; i < collisions; i++ )
+        {
+            collisionValues.add( readInputId( in ) );
+        }
+        int groups = in.readInt();
+        for ( int i = 0; i < groups; i++ )
+        {
+            idGroups.add( IdGroup.restore( in ) );
+        }
+        readyForUse = true;
+    }
+
+    private static void writeInputId( Object inputId, DataOutput out ) throws IOException
+    {
+        if ( inputId instanceof String )
+        {
+            byte[] bytes = ((String) inputId).getBytes( UTF_8 );
+            out.writeByte( STRING_ID );
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+        else if ( inputId instanceof Long )
+        {
+            out.writeByte( LONG_ID );
+            out.writeLong( (Long) inputId );
+        }
+        else
+        {
+            throw new IllegalStateException( "Unable to checkpoint input id " + inputId + " of type " +
+                    inputId.getClass().getName() );
+        }
+    }
+
+    private static Object readInputId( DataInput in ) throws IOException
+    {
+        byte type = in.readByte();
+        switch ( type )
+        {
+        case STRING_ID:
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully( bytes );
+            return new String( bytes, UTF_8 );
+        case LONG_ID:
+            return in.readLong();
+        default:
+            throw new IOException( "Unknown input id type " + type );
+        }
+    }
 }
@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.neo4j.unsafe.impl.batchimport.input.Group;
 
 /**
@@ -58,6 +62,22 @@ class IdGroup
         return dataIndex - lowDataIndex;
     }
 
+    void checkpoint( DataOutput out ) throws IOException
+    {
+        out.writeInt( groupId );
+        out.writeUTF( group.toString() );
+        out.writeLong( lowDataIndex );
+        out.writeLong( highDataIndex );
+    }
+
+    static IdGroup restore( DataInput in ) throws IOException
+    {
+        Group group = new Group.Adapter( in.readInt(), in.readUTF() );
+        IdGroup idGroup = new IdGroup( group, in.readLong() );
+        idGroup.setHighDataIndex( in.readLong() );
+        return idGroup;
+    }
+
     @Override
     public String toString()
     {
@@ -19,6 +19,9 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+
 /**
  * {@link Encoder} that assumes that the entered strings can be parsed to {@link Long} directly.
  */
@@ -34,6 +37,16 @@ public class LongEncoder implements Encoder
         return returnVal;
     }
 
+    @Override
+    public void checkpoint( DataOutput out )
+    {   // Encoding doesn't change over time
+    }
+
+    @Override
+    public void restore( DataInput in )
+    {   // Encoding doesn't change over time
+    }
+
     private int numberOfDigits( long value )
     {
         return (int)(Math.log10( value ) + 1);
@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import org.neo4j.register.Register.IntRegister;
 
 import static java.lang.Math.pow;
@@ -47,6 +51,21 @@ public abstract class Radix
 
     public abstract RadixCalculator calculator();
 
+    /**
+     * Writes state which {@link #calculator()} depends on. Radix index counts are not included since
+     * they are only needed before sorting.
+     */
+    public void checkpoint( DataOutput out ) throws IOException
+    {   // No state by default
+    }
+
+    /**
+     * Restores state written by {@link #checkpoint(DataOutput)}.
+     */
+    public void restore( DataInput in ) throws IOException
+    {   // No state by default
+    }
+
     public static class String extends Radix
     {
         private final RadixCalculator calculator;
@@ -80,6 +99,18 @@ public abstract class Radix
             return calculator;
         }
 
+        @Override
+        public void checkpoint( DataOutput out ) throws IOException
+        {
+            out.writeInt( radixShift.read() );
+        }
+
+        @Override
+        public void restore( DataInput in ) throws IOException
+        {
+            radixShift.write( in.readInt() );
+        }
+
         @Override
         public int registerRadixOf( long value )
         {
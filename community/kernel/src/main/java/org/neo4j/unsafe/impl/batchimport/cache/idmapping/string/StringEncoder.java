@@ -19,6 +19,9 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -58,6 +61,20 @@ public class StringEncoder implements Encoder
         return (long) val[0] << 32 | val[1] & UPPER_INT_MASK;
     }
 
+    @Override
+    public void checkpoint( DataOutput out ) throws IOException
+    {
+        out.write( reMap );
+        out.writeInt( numChars );
+    }
+
+    @Override
+    public void restore( DataInput in ) throws IOException
+    {
+        in.readFully( reMap );
+        numChars = in.readInt();
+    }
+
     private int[] encodeInt( String s )
     {
         // construct bytes from string
@@ -22,6 +22,7 @@ package org.neo4j.unsafe.impl.batchimport.input;
 import org.neo4j.graphdb.ResourceIterable;
 import org.neo4j.unsafe.impl.batchimport.BatchImporter;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 
 /**
@@ -33,7 +34,11 @@ public interface Input
 
     ResourceIterable<InputRelationship> relationships();
 
-    IdMapper idMapper();
+    /**
+     * @param numberArrayFactory factory for the arrays the returned {@link IdMapper} may need.
+     * @return {@link IdMapper} for mapping input ids to actual node ids.
+     */
+    IdMapper idMapper( NumberArrayFactory numberArrayFactory );
 
     IdGenerator idGenerator();
 }
@@ -32,7 +32,7 @@ import static org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper.ANY_GRO
  */
 public class InputRelationship extends InputEntity
 {
-    private final long id;
+    private long id;
     private final Object startNode;
     private final Object endNode;
     private String type;
@@ -68,6 +68,11 @@ public class InputRelationship extends InputEntity
         return id;
     }
 
+    public void setId( long id )
+    {
+        this.id = id;
+    }
+
     public PrimitiveIntPredicate startNodeGroups()
     {
         return startNodeGroups;
@@ -23,6 +23,7 @@ import java.io.File;
 
 import org.neo4j.function.Functions;
 import org.neo4j.graphdb.ResourceIterable;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.csv.Configuration;
@@ -56,7 +57,7 @@ public class Inputs
             }
 
             @Override
-            public IdMapper idMapper()
+            public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
             {
                 return idMapper;
             }
@@ -26,6 +26,7 @@ import org.neo4j.csv.reader.CharSeeker;
 import org.neo4j.function.Function;
 import org.neo4j.graphdb.ResourceIterable;
 import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.input.Input;
@@ -47,6 +48,7 @@ public class CsvInput implements Input
     private final IdType idType;
     private final Configuration config;
     private final int[] delimiter;
+    private final int parsingThreads;
     private final BatchingIdSequence relationshipIds = new BatchingIdSequence();
 
     /**
@@ -65,6 +67,22 @@ public class CsvInput implements Input
             Iterable<DataFactory<InputNode>> nodeDataFactory, Header.Factory nodeHeaderFactory,
             Iterable<DataFactory<InputRelationship>> relationshipDataFactory, Header.Factory relationshipHeaderFactory,
             IdType idType, Configuration config )
+    {
+        this( nodeDataFactory, nodeHeaderFactory, relationshipDataFactory, relationshipHeaderFactory,
+                idType, config, 1 );
+    }
+
+    /**
+     * Like {@link #CsvInput(Iterable, Header.Factory, Iterable, Header.Factory, IdType, Configuration)}, but
+     * with a number of threads parsing each input group. With more than one, the data is split into chunks
+     * of whole lines which are parsed concurrently and then put back in input order.
+     *
+     * @param parsingThreads number of threads parsing the data of an input group.
+     */
+    public CsvInput(
+            Iterable<DataFactory<InputNode>> nodeDataFactory, Header.Factory nodeHeaderFactory,
+            Iterable<DataFactory<InputRelationship>> relationshipDataFactory, Header.Factory relationshipHeaderFactory,
+            IdType idType, Configuration config, int parsingThreads )
     {
         assertSaneConfiguration( config );
 
@@ -75,6 +93,7 @@ public class CsvInput implements Input
         this.idType = idType;
         this.config = config;
         this.delimiter = new int[] {config.delimiter()};
+        this.parsingThreads = parsingThreads;
     }
 
     private void assertSaneConfiguration( Configuration config )
@@ -104,7 +123,7 @@ public class CsvInput implements Input
             public ResourceIterator<InputNode> iterator()
             {
                 return new InputGroupsDeserializer<InputNode>( nodeDataFactory.iterator(),
-                                                               nodeHeaderFactory, config, idType )
+                                                               nodeHeaderFactory, config, idType, parsingThreads )
                 {
                     @Override
                     protected ResourceIterator<InputNode> entityDeserializer( CharSeeker dataStream, Header dataHeader,
@@ -128,14 +147,20 @@ public class CsvInput implements Input
             {
                 relationshipIds.reset();
                 return new InputGroupsDeserializer<InputRelationship>( relationshipDataFactory.iterator(),
-                                                                       relationshipHeaderFactory, config, idType )
+                        relationshipHeaderFactory, config, idType, parsingThreads )
                 {
                     @Override
                     protected ResourceIterator<InputRelationship> entityDeserializer( CharSeeker dataStream,
                               Header dataHeader, Function<InputRelationship,InputRelationship> decorator )
                     {
-                        return new InputRelationshipDeserializer( dataHeader, dataStream, delimiter,
-                                relationshipIds, decorator );
+                        return new InputRelationshipDeserializer( dataHeader, dataStream, delimiter, decorator );
+                    }
+
+                    @Override
+                    protected InputRelationship inInputOrder( InputRelationship relationship )
+                    {
+                        relationship.setId( relationshipIds.nextId() );
+                        return relationship;
                     }
                 };
             }
@@ -143,9 +168,9 @@ public class CsvInput implements Input
     }
 
     @Override
-    public IdMapper idMapper()
+    public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
     {
-        return idType.idMapper();
+        return idType.idMapper( numberArrayFactory );
     }
 
     @Override
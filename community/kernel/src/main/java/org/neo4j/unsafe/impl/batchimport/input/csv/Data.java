@@ -19,17 +19,28 @@
  */
 package org.neo4j.unsafe.impl.batchimport.input.csv;
 
+import java.nio.channels.ReadableByteChannel;
+
+import org.neo4j.csv.reader.BufferedByteSeeker;
+import org.neo4j.csv.reader.CharReadable;
 import org.neo4j.csv.reader.CharSeeker;
 import org.neo4j.function.Function;
 import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
 
 /**
- * Produces a {@link CharSeeker} that can seek and extract values from a csv/tsv style data stream.
+ * Produces a csv/tsv style data stream, from which {@link CsvInput} creates the {@link CharSeeker} seeking
+ * and extracting values, possibly several of them parsing different parts of the stream concurrently.
  * A decorator also comes with it which can specify global overrides/defaults of extracted input entities.
  */
 public interface Data<ENTITY extends InputEntity>
 {
-    CharSeeker stream();
+    CharReadable stream();
+
+    /**
+     * @return the same data as {@link #stream()}, but as UTF-8 encoded bytes which can be seeked in using
+     * {@link BufferedByteSeeker}, without decoding, or {@code null} if the data can only be read as characters.
+     */
+    ReadableByteChannel bytes();
 
     Function<ENTITY,ENTITY> decorator();
 }
@@ -21,6 +21,9 @@ package org.neo4j.unsafe.impl.batchimport.input.csv;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,6 +46,7 @@ import org.neo4j.unsafe.impl.batchimport.input.csv.Header.Entry;
 import static org.neo4j.csv.reader.BufferedCharSeeker.DEFAULT_BUFFER_SIZE;
 import static org.neo4j.csv.reader.CharSeekers.charSeeker;
 import static org.neo4j.csv.reader.Readables.multipleFiles;
+import static org.neo4j.csv.reader.Readables.multipleFilesAsBytes;
 
 /**
  * Provides common implementations of factories required by f.ex {@link CsvInput}.
@@ -53,7 +57,7 @@ public class DataFactories
      * Creates a {@link DataFactory} where all data exists in one file. If the first line is a header,
      * {@link #defaultFormatNodeFileHeader()} can be used to extract that.
      *
-     * @return {@link DataFactory} that returns a {@link CharSeeker} over the supplied {@code file}.
+     * @return {@link DataFactory} that returns a {@link CharReadable} over the supplied {@code file}.
      */
     public static <ENTITY extends InputEntity> DataFactory<ENTITY> data( final Function<ENTITY,ENTITY> decorator,
                                                                          final File file )
@@ -61,17 +65,16 @@ public class DataFactories
         return new DataFactory<ENTITY>()
         {
             @Override
-            public Data<ENTITY> create( final Configuration config )
+            public Data<ENTITY> create( Configuration config )
             {
                 return new Data<ENTITY>()
                 {
                     @Override
-                    public CharSeeker stream()
+                    public CharReadable stream()
                     {
                         try
                         {
-                            return charSeeker( Readables.file( file ), DEFAULT_BUFFER_SIZE,
-                                    true, config.quotationCharacter() );
+                            return Readables.file( file );
                         }
                         catch ( IOException e )
                         {
@@ -79,6 +82,12 @@ public class DataFactories
                         }
                     }
 
+                    @Override
+                    public ReadableByteChannel bytes()
+                    {
+                        return utf8Bytes( file );
+                    }
+
                     @Override
                     public Function<ENTITY,ENTITY> decorator()
                     {
@@ -93,7 +102,7 @@ public class DataFactories
      * Creates a {@link DataFactory} where data exists in multiple files. If the first line of the first file is a header,
      * {@link #defaultFormatNodeFileHeader()} can be used to extract that.
      *
-     * @return {@link DataFactory} that returns a {@link CharSeeker} over all the supplied {@code files}.
+     * @return {@link DataFactory} that returns a {@link CharReadable} over all the supplied {@code files}.
      */
     public static <ENTITY extends InputEntity> DataFactory<ENTITY> data( final Function<ENTITY,ENTITY> decorator,
                                                                          final File... files )
@@ -106,15 +115,20 @@ public class DataFactories
         return new DataFactory<ENTITY>()
         {
             @Override
-            public Data<ENTITY> create( final Configuration config )
+            public Data<ENTITY> create( Configuration config )
             {
                 return new Data<ENTITY>()
                 {
                     @Override
-                    public CharSeeker stream()
+                    public CharReadable stream()
                     {
-                        return charSeeker( multipleFiles( files ), DEFAULT_BUFFER_SIZE,
-                                           true, config.quotationCharacter() );
+                        return multipleFiles( files );
+                    }
+
+                    @Override
+                    public ReadableByteChannel bytes()
+                    {
+                        return utf8Bytes( files );
                     }
 
                     @Override
@@ -130,7 +144,7 @@ public class DataFactories
     /**
      * @param readable we need to have this as a {@link Factory} since one data file may be opened and scanned
      * multiple times.
-     * @return {@link DataFactory} that returns a {@link CharSeeker} over the supplied {@code readable}
+     * @return {@link DataFactory} that returns the {@link CharReadable} provided by the supplied {@code readable}
      */
     public static <ENTITY extends InputEntity> DataFactory<ENTITY> data( final Function<ENTITY,ENTITY> decorator,
                                                                          final Factory<CharReadable> readable )
@@ -138,15 +152,20 @@ public class DataFactories
         return new DataFactory<ENTITY>()
         {
             @Override
-            public Data<ENTITY> create( final Configuration config )
+            public Data<ENTITY> create( Configuration config )
             {
                 return new Data<ENTITY>()
                 {
                     @Override
-                    public CharSeeker stream()
+                    public CharReadable stream()
                     {
-                        return charSeeker( readable.newInstance(), DEFAULT_BUFFER_SIZE,
-                                           true, config.quotationCharacter() );
+                        return readable.newInstance();
+                    }
+
+                    @Override
+                    public ReadableByteChannel bytes()
+                    {
+                        return null;
                     }
 
                     @Override
@@ -159,6 +178,15 @@ public class DataFactories
         };
     }
 
+    /**
+     * Files are read as characters using the platform default charset, so their bytes can only be seeked in
+     * directly if that charset is UTF-8.
+     */
+    private static ReadableByteChannel utf8Bytes( File... files )
+    {
+        return Charset.defaultCharset().equals( StandardCharsets.UTF_8 ) ? multipleFilesAsBytes( files ) : null;
+    }
+
     /**
      * Header parser that will read header information, using the default node header format,
      * from the top of the data file.
@@ -28,7 +28,7 @@ import static java.lang.String.format;
  * Header of tabular/csv data input, specifying meta data about values in each "column", for example
  * semantically of which {@link Type} they are and which {@link Extractor type of value} they are.
  */
-public class Header
+public class Header implements Cloneable
 {
     public interface Factory
     {
@@ -53,6 +53,23 @@ public class Header
         return entries;
     }
 
+    /**
+     * @return a {@link Header} with the same entries, but with their own {@link Extractor extractors},
+     * so that values can be extracted using both headers concurrently.
+     */
+    @Override
+    public Header clone()
+    {
+        Entry[] clonedEntries = new Entry[entries.length];
+        for ( int i = 0; i < entries.length; i++ )
+        {
+            Entry entry = entries[i];
+            clonedEntries[i] = new Entry( entry.name, entry.type,
+                    entry.extractor != null ? entry.extractor.clone() : null );
+        }
+        return new Header( clonedEntries );
+    }
+
     public static class Entry
     {
         private final String name;
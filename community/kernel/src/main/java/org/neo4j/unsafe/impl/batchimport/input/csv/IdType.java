@@ -21,13 +21,12 @@ package org.neo4j.unsafe.impl.batchimport.input.csv;
 
 import org.neo4j.csv.reader.Extractor;
 import org.neo4j.csv.reader.Extractors;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerators;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
 import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMappers;
 
-import static org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory.AUTO;
-
 public enum IdType
 {
     /**
@@ -42,9 +41,9 @@ public enum IdType
         }
 
         @Override
-        public IdMapper idMapper()
+        public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
         {
-            return IdMappers.strings( AUTO );
+            return IdMappers.strings( numberArrayFactory );
         }
 
         @Override
@@ -67,9 +66,9 @@ public enum IdType
         }
 
         @Override
-        public IdMapper idMapper()
+        public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
         {
-            return IdMappers.longs( AUTO );
+            return IdMappers.longs( numberArrayFactory );
         }
 
         @Override
@@ -92,7 +91,7 @@ public enum IdType
         }
 
         @Override
-        public IdMapper idMapper()
+        public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
         {
             return IdMappers.actual();
         }
@@ -111,7 +110,7 @@ public enum IdType
         this.idsAreExternal = idsAreExternal;
     }
 
-    public abstract IdMapper idMapper();
+    public abstract IdMapper idMapper( NumberArrayFactory numberArrayFactory );
 
     public abstract IdGenerator idGenerator();
 
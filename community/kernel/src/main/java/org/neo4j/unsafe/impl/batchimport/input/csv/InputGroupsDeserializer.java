@@ -19,35 +19,53 @@
  */
 package org.neo4j.unsafe.impl.batchimport.input.csv;
 
+import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
 
+import org.neo4j.csv.reader.ByteLineChunker;
+import org.neo4j.csv.reader.CharReadable;
 import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
+import org.neo4j.csv.reader.LineChunker;
 import org.neo4j.function.Function;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.helpers.collection.NestingIterator;
 import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
 
+import static org.neo4j.csv.reader.BufferedCharSeeker.DEFAULT_BUFFER_SIZE;
+import static org.neo4j.csv.reader.CharSeekers.byteSeeker;
+import static org.neo4j.csv.reader.CharSeekers.charSeeker;
+import static org.neo4j.csv.reader.ThreadAheadReadable.threadAhead;
+
 /**
  * Able to deserialize one input group. An input group is a list of one or more input files containing
  * its own header. An import can read multiple input groups. Each group is deserialized by
- * {@link InputEntityDeserializer}.
+ * {@link InputEntityDeserializer}, or by several of them in parallel using {@link ParallelInputEntityDeserializer}
+ * if more than one parsing thread is given.
+ *
+ * Data which is {@link Data#bytes() available as UTF-8 encoded bytes} is seeked in without being decoded into
+ * characters first, given that the delimiter and quotation character are ASCII characters.
  */
 abstract class InputGroupsDeserializer<ENTITY extends InputEntity>
         extends NestingIterator<ENTITY,DataFactory<ENTITY>>
         implements ResourceIterator<ENTITY>
 {
+    private static final int MAX_ASCII_CHAR = 0x7F;
+
     private final Header.Factory headerFactory;
     private final Configuration config;
     private final IdType idType;
+    private final int parsingThreads;
     private ResourceIterator<ENTITY> currentGroup;
 
     InputGroupsDeserializer( Iterator<DataFactory<ENTITY>> dataFactory, Header.Factory headerFactory,
-                             Configuration config, IdType idType )
+                             Configuration config, IdType idType, int parsingThreads )
     {
         super( dataFactory );
         this.headerFactory = headerFactory;
         this.config = config;
         this.idType = idType;
+        this.parsingThreads = parsingThreads;
     }
 
     @Override
@@ -57,8 +75,30 @@ abstract class InputGroupsDeserializer<ENTITY extends InputEntity>
 
         // Open the data stream. It's closed by the batch importer when execution is done.
         Data<ENTITY> data = dataFactory.create( config );
-        CharSeeker dataStream = data.stream();
-        Function<ENTITY,ENTITY> decorator = data.decorator();
+        ReadableByteChannel bytes = seeksInBytes() ? data.bytes() : null;
+        CharReadable stream = bytes == null ? threadAhead( data.stream(), DEFAULT_BUFFER_SIZE ) : null;
+        final Function<ENTITY,ENTITY> decorator = data.decorator();
+
+        if ( parsingThreads > 1 )
+        {
+            int chunkSize = ParallelInputEntityDeserializer.CHUNK_SIZE;
+            Chunker chunker = bytes != null
+                    ? new ByteLineChunker( bytes, chunkSize, config.delimiter(), config.quotationCharacter() )
+                    : new LineChunker( stream, chunkSize, config.delimiter(), config.quotationCharacter() );
+            return currentGroup = new ParallelInputEntityDeserializer<>( chunker, headerFactory, config, idType,
+                    parsingThreads, new ParallelInputEntityDeserializer.DeserializerFactory<ENTITY>()
+                    {
+                        @Override
+                        public ResourceIterator<ENTITY> create( CharSeeker data, Header header )
+                        {
+                            return entityDeserializer( data, header, decorator );
+                        }
+                    } );
+        }
+
+        CharSeeker dataStream = bytes != null
+                ? byteSeeker( bytes, DEFAULT_BUFFER_SIZE, config.quotationCharacter() )
+                : charSeeker( stream, DEFAULT_BUFFER_SIZE, false, config.quotationCharacter() );
 
         // Read the header, given the data stream. This allows the header factory to be able to
         // parse the header from the data stream directly. Or it can decide to grab the header
@@ -68,6 +108,28 @@ abstract class InputGroupsDeserializer<ENTITY extends InputEntity>
         return currentGroup = entityDeserializer( dataStream, dataHeader, decorator );
     }
 
+    private boolean seeksInBytes()
+    {
+        return config.delimiter() <= MAX_ASCII_CHAR && config.quotationCharacter() <= MAX_ASCII_CHAR;
+    }
+
+    @Override
+    protected ENTITY fetchNextOrNull()
+    {
+        ENTITY entity = super.fetchNextOrNull();
+        return entity != null ? inInputOrder( entity ) : null;
+    }
+
+    /**
+     * Called for every entity in the order they appear in the input, on the thread iterating over this
+     * iterator, even if the entities have been deserialized in parallel. Assigns anything that depends on
+     * the order of the input.
+     */
+    protected ENTITY inInputOrder( ENTITY entity )
+    {
+        return entity;
+    }
+
     private void closeCurrent()
     {
         if ( currentGroup != null )
@@ -76,6 +138,9 @@ abstract class InputGroupsDeserializer<ENTITY extends InputEntity>
         }
     }
 
+    /**
+     * Called concurrently when deserializing in parallel, each time with its own {@link Header}.
+     */
     protected abstract ResourceIterator<ENTITY> entityDeserializer( CharSeeker dataStream, Header dataHeader,
                                                                     Function<ENTITY,ENTITY> decorator  );
 
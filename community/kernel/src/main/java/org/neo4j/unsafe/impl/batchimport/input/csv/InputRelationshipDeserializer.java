@@ -21,28 +21,27 @@ package org.neo4j.unsafe.impl.batchimport.input.csv;
 
 import org.neo4j.csv.reader.CharSeeker;
 import org.neo4j.function.Function;
-import org.neo4j.kernel.impl.store.id.IdSequence;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 
 /**
  * {@link InputEntityDeserializer} that knows the semantics of an {@link InputRelationship} and how to extract that from
- * csv values using a {@link Header}.
+ * csv values using a {@link Header}. Relationship ids depend on the order of all relationships in the input and
+ * are therefore not known here, where only a part of the input may be seen. They are assigned later,
+ * see {@link InputGroupsDeserializer#inInputOrder(org.neo4j.unsafe.impl.batchimport.input.InputEntity)}.
  */
 class InputRelationshipDeserializer extends InputEntityDeserializer<InputRelationship>
 {
-    private final IdSequence idSequence;
+    static final long UNASSIGNED_ID = -1;
 
     // Additional data
-    private long id;
     private String type;
     private Object startNode;
     private Object endNode;
 
-    InputRelationshipDeserializer( Header header, CharSeeker data, int[] delimiter, IdSequence idSequence,
+    InputRelationshipDeserializer( Header header, CharSeeker data, int[] delimiter,
             Function<InputRelationship,InputRelationship> decorator )
     {
         super( header, data, delimiter, decorator );
-        this.idSequence = idSequence;
     }
 
     @Override
@@ -65,6 +64,6 @@ class InputRelationshipDeserializer extends InputEntityDeserializer<InputRelatio
     @Override
     protected InputRelationship convertToInputEntity( Object[] properties )
     {
-        return new InputRelationship( idSequence.nextId(), properties, null, startNode, endNode, type, null );
+        return new InputRelationship( UNASSIGNED_ID, properties, null, startNode, endNode, type, null );
     }
 }
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.csv;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.helpers.collection.PrefetchingResourceIterator;
+import org.neo4j.unsafe.impl.batchimport.input.InputEntity;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+
+import static org.neo4j.helpers.Exceptions.launderedException;
+import static org.neo4j.helpers.NamedThreadFactory.daemon;
+
+/**
+ * Deserializes one input group using multiple threads. The data is read in {@link Chunker chunks} of whole
+ * lines, where each chunk is deserialized by its own {@link InputEntityDeserializer} on a thread from a pool.
+ * Entities are returned chunk by chunk in the order of the chunks, i.e. in the same order as the input.
+ */
+class ParallelInputEntityDeserializer<ENTITY extends InputEntity> extends PrefetchingResourceIterator<ENTITY>
+{
+    /**
+     * Number of characters per chunk. A line longer than this grows the chunk containing it.
+     */
+    static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    interface DeserializerFactory<ENTITY extends InputEntity>
+    {
+        ResourceIterator<ENTITY> create( CharSeeker data, Header header );
+    }
+
+    private final Chunker chunker;
+    private final Header header;
+    private final DeserializerFactory<ENTITY> factory;
+    private final ExecutorService executor;
+    private final int maxChunksAhead;
+    private final Deque<Future<List<ENTITY>>> chunks = new ArrayDeque<>();
+    private Iterator<ENTITY> current = Collections.emptyIterator();
+    private boolean endOfInput;
+
+    ParallelInputEntityDeserializer( Chunker chunker, Header.Factory headerFactory, Configuration config,
+            IdType idType, int threads, DeserializerFactory<ENTITY> factory )
+    {
+        this.chunker = chunker;
+        this.factory = factory;
+        this.maxChunksAhead = threads * 2;
+
+        // The header, if it's read from the data, is the first line of the first chunk
+        CharSeeker firstChunk = nextChunk();
+        this.header = headerFactory.create( firstChunk != null ? firstChunk : CharSeeker.EMPTY, config, idType );
+        this.executor = Executors.newFixedThreadPool( threads, daemon( "CSV parser" ) );
+        if ( firstChunk != null )
+        {
+            submit( firstChunk );
+        }
+    }
+
+    @Override
+    protected ENTITY fetchNextOrNull()
+    {
+        while ( !current.hasNext() )
+        {
+            readAhead();
+            Future<List<ENTITY>> chunk = chunks.poll();
+            if ( chunk == null )
+            {
+                return null;
+            }
+            current = await( chunk ).iterator();
+        }
+        return current.next();
+    }
+
+    private void readAhead()
+    {
+        while ( !endOfInput && chunks.size() < maxChunksAhead )
+        {
+            CharSeeker chunk = nextChunk();
+            if ( chunk == null )
+            {
+                endOfInput = true;
+            }
+            else
+            {
+                submit( chunk );
+            }
+        }
+    }
+
+    private CharSeeker nextChunk()
+    {
+        try
+        {
+            return chunker.nextChunk();
+        }
+        catch ( IOException e )
+        {
+            throw new InputException( "Unable to read more data from input stream", e );
+        }
+    }
+
+    private void submit( final CharSeeker chunk )
+    {
+        // Extractors hold the values they extract, so each chunk gets its own
+        final Header chunkHeader = header.clone();
+        chunks.add( executor.submit( new Callable<List<ENTITY>>()
+        {
+            @Override
+            public List<ENTITY> call()
+            {
+                List<ENTITY> entities = new ArrayList<>();
+                try ( ResourceIterator<ENTITY> deserializer = factory.create( chunk, chunkHeader ) )
+                {
+                    while ( deserializer.hasNext() )
+                    {
+                        entities.add( deserializer.next() );
+                    }
+                }
+                return entities;
+            }
+        } ) );
+    }
+
+    private List<ENTITY> await( Future<List<ENTITY>> chunk )
+    {
+        try
+        {
+            return chunk.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InputException( "Interrupted while parsing input", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw launderedException( e.getCause() );
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        executor.shutdownNow();
+        try
+        {
+            chunker.close();
+        }
+        catch ( IOException e )
+        {
+            throw new InputException( "Unable to close data iterator", e );
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.neo4j.kernel.impl.store.NodeStore;
 import org.neo4j.kernel.impl.store.PropertyStore;
 import org.neo4j.kernel.impl.store.RelationshipGroupStore;
 import org.neo4j.kernel.impl.store.RelationshipStore;
+import org.neo4j.kernel.impl.store.SchemaStore;
 import org.neo4j.kernel.impl.store.StoreFactory;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
 import org.neo4j.kernel.impl.util.StringLogger;
@@ -51,6 +52,7 @@ import static org.neo4j.graphdb.factory.GraphDatabaseSettings.dense_node_thresho
 import static org.neo4j.helpers.collection.MapUtil.stringMap;
 import static org.neo4j.kernel.impl.store.StoreFactory.configForStoreDir;
 import static org.neo4j.unsafe.impl.batchimport.store.BatchingPageCache.Mode.APPEND_ONLY;
+import static org.neo4j.unsafe.impl.batchimport.store.BatchingPageCache.Mode.APPEND_TO_EXISTING;
 import static org.neo4j.unsafe.impl.batchimport.store.BatchingPageCache.Mode.UPDATE;
 
 /**
@@ -73,6 +75,18 @@ public class BatchingNeoStore implements AutoCloseable
     public BatchingNeoStore( FileSystemAbstraction fileSystem, String storeDir,
                              Configuration config, Monitor writeMonitor, Logging logging,
                              Monitors monitors, WriterFactory writerFactory, AdditionalInitialIds initialIds )
+    {
+        this( fileSystem, storeDir, config, writeMonitor, logging, monitors, writerFactory, initialIds, false );
+    }
+
+    /**
+     * @param resume whether or not to continue importing into a store which already contains data from
+     * an earlier, not completed, import into it. If {@code false} the store must not contain any data.
+     */
+    public BatchingNeoStore( FileSystemAbstraction fileSystem, String storeDir,
+                             Configuration config, Monitor writeMonitor, Logging logging,
+                             Monitors monitors, WriterFactory writerFactory, AdditionalInitialIds initialIds,
+                             boolean resume )
     {
         this.fileSystem = fileSystem;
         this.monitors = monitors;
@@ -84,10 +98,10 @@ public class BatchingNeoStore implements AutoCloseable
                 new File( storeDir ) );
 
         this.pageCacheFactory = new BatchingPageCache( fileSystem, config.fileChannelBufferSize(),
-                writerFactory, writeMonitor, APPEND_ONLY );
+                writerFactory, writeMonitor, resume ? APPEND_TO_EXISTING : APPEND_ONLY );
         this.neoStore = newNeoStore( pageCacheFactory );
         flushNeoStoreAndAwaitEverythingWritten();
-        if ( alreadyContainsData( neoStore ) )
+        if ( !resume && alreadyContainsData( neoStore ) )
         {
             neoStore.close();
             throw new IllegalStateException( storeDir + " already contains data, cannot do import here" );
@@ -100,6 +114,12 @@ public class BatchingNeoStore implements AutoCloseable
                 neoStore.getLabelTokenStore(), initialIds.highLabelTokenId() );
         this.relationshipTypeRepository = new BatchingRelationshipTypeTokenRepository(
                 neoStore.getRelationshipTypeTokenStore(), initialIds.highRelationshipTypeTokenId() );
+        if ( resume )
+        {
+            propertyKeyRepository.loadExisting();
+            labelRepository.loadExisting();
+            relationshipTypeRepository.loadExisting();
+        }
     }
 
     private boolean alreadyContainsData( NeoStore neoStore )
@@ -170,6 +190,20 @@ public class BatchingNeoStore implements AutoCloseable
         return neoStore.getCounts();
     }
 
+    public SchemaStore getSchemaStore()
+    {
+        return neoStore.getSchemaStore();
+    }
+
+    /**
+     * @return the underlying {@link NeoStore}, for services which needs to see the store as a whole,
+     * f.ex. when reading back imported property values to verify uniqueness constraints.
+     */
+    public NeoStore getNeoStore()
+    {
+        return neoStore;
+    }
+
     public void switchToUpdateMode()
     {
         pageCacheFactory.setMode( UPDATE );
@@ -110,21 +110,34 @@ public class BatchingPageCache implements PageCache
         APPEND_ONLY
         {
             @Override
-            boolean canReadFrom( long pageId )
+            boolean canReadFrom( long pageId, long existingPages )
             {
                 return pageId == 0;
             }
         },
+        /**
+         * Like {@link #APPEND_ONLY}, but pages which existed in the file when it was mapped are read as well,
+         * so that appending to a store which already has data in it, f.ex. when resuming an import,
+         * doesn't overwrite that data.
+         */
+        APPEND_TO_EXISTING
+        {
+            @Override
+            boolean canReadFrom( long pageId, long existingPages )
+            {
+                return pageId == 0 || pageId < existingPages;
+            }
+        },
         UPDATE
         {
             @Override
-            boolean canReadFrom( long pageId )
+            boolean canReadFrom( long pageId, long existingPages )
             {
                 return true;
             }
         };
 
-        abstract boolean canReadFrom( long pageId );
+        abstract boolean canReadFrom( long pageId, long existingPages );
     }
 
     private final int pageSize;
@@ -276,6 +289,7 @@ public class BatchingPageCache implements PageCache
         private final int pageSize;
         private boolean pinned;
         private long highestKnownPageId;
+        private final long existingPages;
         private boolean changed;
 
         BatchingPageCursor( StoreChannel channel, Writer writer, final int pageSize ) throws IOException
@@ -293,6 +307,7 @@ public class BatchingPageCache implements PageCache
             } );
             this.currentBuffer = bufferPool.acquire();
             highestKnownPageId = channel.size() / pageSize;
+            existingPages = (channel.size() + pageSize - 1) / pageSize;
         }
 
         @Override
@@ -448,18 +463,15 @@ public class BatchingPageCache implements PageCache
         @Override
         public boolean next() throws IOException
         {
-            return next( currentPageId+1 );
+            return next( pinned ? currentPageId+1 : currentPageId );
         }
 
         @Override
         public boolean next( long pageId ) throws IOException
         {
-            if ( !pinned )
-            {
-                pinned = true;
-                return true;
-            }
-
+            // The first call after io() may still ask for another page than the one given to io(),
+            // f.ex. when scanning backwards from the last page to find the high id of a store
+            pinned = true;
             ensurePagePlacedOver( pageId );
             return true;
         }
@@ -489,7 +501,7 @@ public class BatchingPageCache implements PageCache
             // The reason for reading the first windows is that in order to play nicely with
             // NeoStore and loading the store sometimes header information needs to be read,
             // even if we're in append-only mode
-            if ( mode.canReadFrom( pageId ) )
+            if ( mode.canReadFrom( pageId, existingPages ) )
             {
                 readFromChannelIntoBuffer( pageId );
             }
@@ -506,7 +518,13 @@ public class BatchingPageCache implements PageCache
 
         private void readFromChannelIntoBuffer( long pageId ) throws IOException
         {
-            channel.read( prepared( currentBuffer ), pageId*pageSize );
+            ByteBuffer buffer = prepared( currentBuffer );
+            channel.read( buffer, pageId*pageSize );
+            // The part of the page beyond the end of the file must not have what this buffer had in it before
+            while ( buffer.hasRemaining() )
+            {
+                buffer.put( (byte) 0 );
+            }
         }
 
         private void flush() throws IOException
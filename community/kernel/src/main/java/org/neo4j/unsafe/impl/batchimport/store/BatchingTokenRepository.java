@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 
+import org.neo4j.kernel.impl.core.Token;
 import org.neo4j.kernel.impl.store.TokenStore;
 import org.neo4j.kernel.impl.store.record.LabelTokenRecord;
 import org.neo4j.kernel.impl.store.record.PropertyBlock;
@@ -45,14 +46,29 @@ public abstract class BatchingTokenRepository<T extends TokenRecord>
     private final Map<String,Integer> tokens = new HashMap<>();
     private final TokenStore<T> store;
     private int highId;
+    private int firstCreatedId;
 
     public BatchingTokenRepository( TokenStore<T> store, int highId )
     {
         this.store = store;
-        // TODO read the store into the repository, i.e. into existing?
         this.highId = highId;
     }
 
+    /**
+     * Reads the tokens already in the store into this repository, f.ex. when resuming an import into a store
+     * which already has some of the imported data in it. Only tokens created after this call will be
+     * persisted in {@link #close()}.
+     */
+    public void loadExisting()
+    {
+        for ( Token token : store.getTokens( Integer.MAX_VALUE ) )
+        {
+            tokens.put( token.name(), token.id() );
+            highId = max( highId, token.id() + 1 );
+        }
+        firstCreatedId = highId;
+    }
+
     public int getOrCreateId( String name )
     {
         assert name != null;
@@ -150,6 +166,10 @@ public abstract class BatchingTokenRepository<T extends TokenRecord>
         Map<Integer,String> sorted = new TreeMap<>();
         for ( Map.Entry<String,Integer> entry : tokens.entrySet() )
         {
+            if ( entry.getValue() < firstCreatedId )
+            {   // Already in the store
+                continue;
+            }
             sorted.put( entry.getValue(), entry.getKey() );
         }
         return sorted.entrySet();
@@ -36,6 +36,8 @@ import org.neo4j.test.OtherThreadExecutor;
 import org.neo4j.test.OtherThreadExecutor.WorkerCommand;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
@@ -297,6 +299,47 @@ public class GraphDatabaseServiceTest
         }
     }
 
+    @Test
+    public void shouldNotDeadlockCreatingRelationshipsToTheSameNodesInDifferentOrder() throws Exception
+    {
+        // GIVEN a hub node and a couple of other nodes
+        final GraphDatabaseService db = cleanup.add( new TestGraphDatabaseFactory().newImpermanentDatabase() );
+        final Node hub = createNode( db );
+        final Node a = createNode( db );
+        final Node b = createNode( db );
+        OtherThreadExecutor<Void> t2 = cleanup.add( new OtherThreadExecutor<Void>( "T2", null ) );
+
+        // WHEN two transactions create relationships to the hub and (a) over several statements, in opposite order
+        Transaction t1Tx = db.beginTx();
+        a.createRelationshipTo( b, MyRelTypes.TEST );
+        Future<Object> t2Commit = t2.executeDontWait( new WorkerCommand<Void, Object>()
+        {
+            @Override
+            public Object doWork( Void state ) throws Exception
+            {
+                try ( Transaction tx = db.beginTx() )
+                {
+                    hub.createRelationshipTo( b, MyRelTypes.TEST );
+                    a.createRelationshipTo( hub, MyRelTypes.TEST );
+                    tx.success();
+                }
+                return null;
+            }
+        } );
+
+        // THEN the nodes are only locked as each transaction commits, in id order, so neither waits for the other
+        // in the middle of its statements
+        t2Commit.get( 10, SECONDS );
+        hub.createRelationshipTo( a, MyRelTypes.TEST );
+        t1Tx.success();
+        t1Tx.close();
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( 3, hub.getDegree() );
+            tx.success();
+        }
+    }
+
     private WorkerCommand<Void, Transaction> beginTx( final GraphDatabaseService db )
     {
         return new WorkerCommand<Void, Transaction>()
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.api.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.impl.api.index.IndexUpdateMode;
+import org.neo4j.kernel.impl.api.index.sampling.IndexSamplingConfig;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.neo4j.helpers.collection.IteratorUtil.asSet;
+
+@Ignore( "Not a test. This is a compatibility suite that provides test cases for verifying" +
+        " SchemaIndexProvider implementations. Each index provider that is to be tested by this suite" +
+        " must create their own test class extending IndexProviderCompatibilityTestSuite." +
+        " The @Ignore annotation doesn't prevent these tests to run, it rather removes some annoying" +
+        " errors or warnings in some IDEs about test classes needing a public zero-arg constructor." )
+public class NonUniqueIndexAccessorCompatibility extends IndexProviderCompatibilityTestSuite.Compatibility
+{
+    private static final int PROPERTY_KEY_ID = 100;
+
+    private IndexAccessor accessor;
+
+    public NonUniqueIndexAccessorCompatibility( IndexProviderCompatibilityTestSuite testSuite )
+    {
+        super( testSuite );
+    }
+
+    @Test
+    public void shouldRangeSeekInclusiveAndExclusiveOverNumbers() throws Exception
+    {
+        // GIVEN
+        updateAndCommit( asList(
+                NodePropertyUpdate.add( 1L, PROPERTY_KEY_ID, -5, new long[]{1000} ),
+                NodePropertyUpdate.add( 2L, PROPERTY_KEY_ID, 0, new long[]{1000} ),
+                NodePropertyUpdate.add( 3L, PROPERTY_KEY_ID, 5.5, new long[]{1000} ),
+                NodePropertyUpdate.add( 4L, PROPERTY_KEY_ID, 10, new long[]{1000} ),
+                NodePropertyUpdate.add( 5L, PROPERTY_KEY_ID, "5", new long[]{1000} ) ) );
+
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // WHEN/THEN
+            assertEquals( asSet( 2L, 3L, 4L ), asSet( reader.rangeSeekByNumber( 0, true, 10, true ) ) );
+            assertEquals( asSet( 3L ), asSet( reader.rangeSeekByNumber( 0, false, 10, false ) ) );
+            assertEquals( asSet( 1L, 2L ), asSet( reader.rangeSeekByNumber( null, false, 5, true ) ) );
+            assertEquals( asSet( 3L, 4L ), asSet( reader.rangeSeekByNumber( 5, true, null, false ) ) );
+        }
+    }
+
+    @Test
+    public void shouldRangeSeekInclusiveAndExclusiveOverStrings() throws Exception
+    {
+        // GIVEN
+        updateAndCommit( asList(
+                NodePropertyUpdate.add( 1L, PROPERTY_KEY_ID, "Anna", new long[]{1000} ),
+                NodePropertyUpdate.add( 2L, PROPERTY_KEY_ID, "Bob", new long[]{1000} ),
+                NodePropertyUpdate.add( 3L, PROPERTY_KEY_ID, "Bobby", new long[]{1000} ),
+                NodePropertyUpdate.add( 4L, PROPERTY_KEY_ID, "Carl", new long[]{1000} ),
+                NodePropertyUpdate.add( 5L, PROPERTY_KEY_ID, 42, new long[]{1000} ) ) );
+
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // WHEN/THEN
+            assertEquals( asSet( 2L, 3L, 4L ), asSet( reader.rangeSeekByString( "Bob", true, "Carl", true ) ) );
+            assertEquals( asSet( 3L ), asSet( reader.rangeSeekByString( "Bob", false, "Carl", false ) ) );
+            assertEquals( asSet( 1L, 2L, 3L ), asSet( reader.rangeSeekByString( null, false, "C", false ) ) );
+            assertEquals( asSet( 4L ), asSet( reader.rangeSeekByString( "Bobz", true, null, false ) ) );
+        }
+    }
+
+    @Test
+    public void shouldRangeSeekByPrefix() throws Exception
+    {
+        // GIVEN
+        updateAndCommit( asList(
+                NodePropertyUpdate.add( 1L, PROPERTY_KEY_ID, "Anna", new long[]{1000} ),
+                NodePropertyUpdate.add( 2L, PROPERTY_KEY_ID, "Bob", new long[]{1000} ),
+                NodePropertyUpdate.add( 3L, PROPERTY_KEY_ID, "Bobby", new long[]{1000} ),
+                NodePropertyUpdate.add( 4L, PROPERTY_KEY_ID, "bob", new long[]{1000} ) ) );
+
+        try ( IndexReader reader = accessor.newReader() )
+        {
+            // WHEN/THEN
+            assertEquals( asSet( 2L, 3L ), asSet( reader.rangeSeekByPrefix( "Bob" ) ) );
+            assertEquals( asSet( 1L, 2L, 3L, 4L ), asSet( reader.rangeSeekByPrefix( "" ) ) );
+        }
+    }
+
+    @Before
+    public void before() throws IOException
+    {
+        IndexConfiguration indexConfig = new IndexConfiguration( false );
+        IndexSamplingConfig indexSamplingConfig = new IndexSamplingConfig( new Config() );
+        IndexPopulator populator = indexProvider.getPopulator( 17, descriptor, indexConfig, indexSamplingConfig );
+        populator.create();
+        populator.close( true );
+        accessor = indexProvider.getOnlineAccessor( 17, indexConfig, indexSamplingConfig );
+    }
+
+    @After
+    public void after() throws IOException
+    {
+        accessor.drop();
+        accessor.close();
+    }
+
+    private void updateAndCommit( List<NodePropertyUpdate> updates ) throws IOException, IndexEntryConflictException
+    {
+        try ( IndexUpdater updater = accessor.newUpdater( IndexUpdateMode.ONLINE ) )
+        {
+            for ( NodePropertyUpdate update : updates )
+            {
+                updater.process( update );
+            }
+        }
+    }
+}
@@ -67,15 +67,14 @@ public class LockingStatementOperationsTest
     }
 
     @Test
-    public void shouldAcquireEntityWriteLockCreatingRelationship() throws Exception
+    public void shouldLeaveLockingOfNodesToCommitWhenCreatingRelationship() throws Exception
     {
         // when
         lockingOps.relationshipCreate( state, 1, 2, 3 );
 
         // then
-        order.verify( locks ).acquireExclusive( ResourceTypes.NODE, 2 );
-        order.verify( locks ).acquireExclusive( ResourceTypes.NODE, 3 );
-        order.verify( entityWriteOps ).relationshipCreate( state, 1, 2, 3 );
+        verify( entityWriteOps ).relationshipCreate( state, 1, 2, 3 );
+        verifyZeroInteractions( locks );
     }
 
     @Test
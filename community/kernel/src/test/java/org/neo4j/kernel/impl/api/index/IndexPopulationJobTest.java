@@ -20,9 +20,11 @@
 package org.neo4j.kernel.impl.api.index;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -33,6 +35,8 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.Label;
@@ -52,6 +56,7 @@ import org.neo4j.kernel.api.index.InternalIndexState;
 import org.neo4j.kernel.api.index.NodePropertyUpdate;
 import org.neo4j.kernel.api.index.PreexistingIndexEntryConflictException;
 import org.neo4j.kernel.api.index.PropertyAccessor;
+import org.neo4j.kernel.api.labelscan.NodeLabelUpdate;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.api.KernelSchemaStateStore;
 import org.neo4j.kernel.impl.api.index.inmemory.InMemoryIndexProvider;
@@ -74,6 +79,7 @@ import org.neo4j.test.OtherThreadExecutor.WorkerCommand;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
@@ -92,6 +98,7 @@ import static org.mockito.Mockito.when;
 import static org.neo4j.helpers.collection.IteratorUtil.asSet;
 import static org.neo4j.helpers.collection.MapUtil.genericMap;
 import static org.neo4j.helpers.collection.MapUtil.map;
+import static org.neo4j.kernel.api.index.NodePropertyUpdate.add;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.change;
 import static org.neo4j.kernel.api.index.NodePropertyUpdate.remove;
 import static org.neo4j.kernel.impl.api.index.TestSchemaIndexProviderDescriptor.PROVIDER_DESCRIPTOR;
@@ -124,6 +131,56 @@ public class IndexPopulationJobTest
         verifyNoMoreInteractions( populator );
     }
 
+    @Test
+    public void shouldPopulateSeveralIndexesInOneStoreScan() throws Exception
+    {
+        // GIVEN
+        long first = createNode( map( name, "Taylor", age, 42 ), FIRST );
+        long second = createNode( map( name, "Swift" ), SECOND );
+        IndexStoreView storeView = spy( indexStoreView );
+        IndexPopulationJob job = new IndexPopulationJob( storeView, stateHolder, DevNullLoggingService.DEV_NULL );
+        IndexPopulator firstNames = addPopulator( job, FIRST, name );
+        IndexPopulator firstAges = addPopulator( job, FIRST, age );
+        IndexPopulator secondNames = addPopulator( job, SECOND, name );
+
+        // WHEN
+        job.run();
+
+        // THEN
+        verify( storeView, times( 1 ) ).visitNodes( any( int[].class ), any( int[].class ),
+                Matchers.<Visitor<NodePropertyUpdate, RuntimeException>>any(),
+                Matchers.<Visitor<NodeLabelUpdate, RuntimeException>>any() );
+        verify( storeView, times( 0 ) ).visitNodesWithPropertyAndLabel( any( IndexDescriptor.class ),
+                Matchers.<Visitor<NodePropertyUpdate, RuntimeException>>any() );
+        verify( firstNames ).add( first, "Taylor" );
+        verify( firstAges ).add( first, 42 );
+        verify( secondNames ).add( second, "Swift" );
+        for ( IndexPopulator populator : asSet( firstNames, firstAges, secondNames ) )
+        {
+            verify( populator ).close( true );
+        }
+    }
+
+    @Test
+    public void shouldKeepPopulatingOtherIndexesWhenOneIndexFails() throws Exception
+    {
+        // GIVEN
+        long nodeId = createNode( map( name, "Taylor", age, 42 ), FIRST );
+        IndexPopulationJob job = new IndexPopulationJob( indexStoreView, stateHolder, DevNullLoggingService.DEV_NULL );
+        IndexPopulator names = addPopulator( job, FIRST, name );
+        IndexPopulator ages = addPopulator( job, FIRST, age );
+        doThrow( new IOException( "not successful" ) ).when( names ).add( anyLong(), any() );
+
+        // WHEN
+        job.run();
+
+        // THEN
+        verify( names ).markAsFailed( any( String.class ) );
+        verify( names ).close( false );
+        verify( ages ).add( nodeId, 42 );
+        verify( ages ).close( true );
+    }
+
     @Test
     public void shouldFlushSchemaStateAfterPopulation() throws Exception
     {
@@ -219,6 +276,92 @@ public class IndexPopulationJobTest
         assertEquals( expectedRemoved, populator.removed );
     }
 
+    @Test
+    public void shouldApplyConcurrentUpdatesToScannedNodesAfterTheirScannedEntries() throws Exception
+    {
+        // GIVEN a scan over more than one batch of nodes
+        final Map<Long, Pair<Integer, Object>> nodes = new HashMap<>();
+        for ( long nodeId = 0; nodeId < 1_500; nodeId++ )
+        {
+            nodes.put( nodeId, Pair.<Integer, Object>of( NAME_KEY, "v" + nodeId ) );
+        }
+        Map<Long, Runnable> concurrently = new HashMap<>();
+        IndexStoreView storeView = scriptedStoreView( nodes, concurrently );
+        RecordingPopulator populator = new RecordingPopulator();
+        IndexPopulationJob job = new IndexPopulationJob( storeView, stateHolder, DevNullLoggingService.DEV_NULL );
+        addPopulator( job, populator, LABEL, NAME_KEY );
+
+        // and transactions committing while the scan is in the first batch and in the second batch,
+        // to nodes the scan has passed as well as to nodes it has yet to get to
+        concurrently.put( 20L, commit( job, nodes, NAME_KEY, "c", 5, 500 ) );
+        concurrently.put( 1_200L, commit( job, nodes, NAME_KEY, "c", 1_100, 1_400 ) );
+
+        // WHEN
+        job.run();
+
+        // THEN updates to passed nodes are applied after their scanned entries, others are seen by the scan
+        assertEquals( asList( "add v5", "update c5" ), populator.events.get( 5L ) );
+        assertEquals( asList( "add c500" ), populator.events.get( 500L ) );
+        assertEquals( asList( "add v1100", "update c1100" ), populator.events.get( 1_100L ) );
+        assertEquals( asList( "add c1400" ), populator.events.get( 1_400L ) );
+        assertEquals( 1_500, populator.events.size() );
+    }
+
+    @Test
+    public void shouldApplyConcurrentUpdatesToNodesScannedAfterTheLastBatchOfAnIndex() throws Exception
+    {
+        // GIVEN two indexes populated in one scan, where the entries of the first index end before the scan does
+        final Map<Long, Pair<Integer, Object>> nodes = new HashMap<>();
+        for ( long nodeId = 0; nodeId < 1_500; nodeId++ )
+        {
+            nodes.put( nodeId, Pair.<Integer, Object>of( nodeId < 1_050 ? NAME_KEY : AGE_KEY, "v" + nodeId ) );
+        }
+        Map<Long, Runnable> concurrently = new HashMap<>();
+        IndexStoreView storeView = scriptedStoreView( nodes, concurrently );
+        RecordingPopulator names = new RecordingPopulator();
+        RecordingPopulator ages = new RecordingPopulator();
+        IndexPopulationJob job = new IndexPopulationJob( storeView, stateHolder, DevNullLoggingService.DEV_NULL );
+        addPopulator( job, names, LABEL, NAME_KEY );
+        addPopulator( job, ages, LABEL, AGE_KEY );
+
+        // and a transaction giving a node the scan has passed, after the last entry of the first index, a name
+        concurrently.put( 1_300L, commit( job, nodes, NAME_KEY, "c", 1_100 ) );
+
+        // WHEN
+        job.run();
+
+        // THEN
+        assertEquals( asList( "update c1100" ), names.events.get( 1_100L ) );
+        assertEquals( 1_051, names.events.size() );
+        assertEquals( 450, ages.events.size() );
+    }
+
+    @Test
+    public void shouldApplyConcurrentUpdatesToNodesReadAheadOfTheVisitedNode() throws Exception
+    {
+        // GIVEN a scan reading the store ahead of the node it visits
+        final Map<Long, Pair<Integer, Object>> nodes = new HashMap<>();
+        for ( long nodeId = 0; nodeId < 200; nodeId++ )
+        {
+            nodes.put( nodeId, Pair.<Integer, Object>of( NAME_KEY, "v" + nodeId ) );
+        }
+        Map<Long, Runnable> concurrently = new HashMap<>();
+        IndexStoreView storeView = scriptedStoreView( nodes, concurrently, 100 );
+        RecordingPopulator populator = new RecordingPopulator();
+        IndexPopulationJob job = new IndexPopulationJob( storeView, stateHolder, DevNullLoggingService.DEV_NULL );
+        addPopulator( job, populator, LABEL, NAME_KEY );
+
+        // and transactions committing to nodes read but not yet visited, as well as to nodes not yet read
+        concurrently.put( 20L, commit( job, nodes, NAME_KEY, "c", 50, 150 ) );
+
+        // WHEN
+        job.run();
+
+        // THEN
+        assertEquals( asList( "add v50", "update c50" ), populator.events.get( 50L ) );
+        assertEquals( asList( "add c150" ), populator.events.get( 150L ) );
+    }
+
     @Test
     public void shouldTransitionToFailedStateIfPopulationJobCrashes() throws Exception
     {
@@ -416,6 +559,12 @@ public class IndexPopulationJobTest
         {
             latch.finish();
         }
+
+        @Override
+        public long highestReadNodeId()
+        {
+            return -1;
+        }
     }
 
     private class NodeChangingWriter extends IndexPopulator.Adapter
@@ -556,6 +705,176 @@ public class IndexPopulationJobTest
         }
     }
 
+    private static final int LABEL = 0, NAME_KEY = 0, AGE_KEY = 1;
+
+    /**
+     * Records, per node, the entries added by the scan and the updates processed from transactions.
+     */
+    private static class RecordingPopulator extends IndexPopulator.Adapter
+    {
+        private final Map<Long, List<String>> events = new HashMap<>();
+
+        @Override
+        public void add( long nodeId, Object propertyValue )
+        {
+            record( nodeId, "add " + propertyValue );
+        }
+
+        @Override
+        public IndexUpdater newPopulatingUpdater( PropertyAccessor propertyAccessor )
+        {
+            return new IndexUpdater()
+            {
+                @Override
+                public void process( NodePropertyUpdate update )
+                {
+                    record( update.getNodeId(), "update " + update.getValueAfter() );
+                }
+
+                @Override
+                public void close()
+                {
+                }
+
+                @Override
+                public void remove( Collection<Long> nodeIds )
+                {
+                    throw new UnsupportedOperationException( "not expected" );
+                }
+            };
+        }
+
+        private void record( long nodeId, String event )
+        {
+            List<String> nodeEvents = events.get( nodeId );
+            if ( nodeEvents == null )
+            {
+                events.put( nodeId, nodeEvents = new ArrayList<>() );
+            }
+            nodeEvents.add( event );
+        }
+    }
+
+    private IndexStoreView scriptedStoreView( Map<Long, Pair<Integer, Object>> nodes,
+                                              Map<Long, Runnable> concurrently )
+    {
+        return scriptedStoreView( nodes, concurrently, 0 );
+    }
+
+    /**
+     * @return a store view scanning the given nodes, each with one property, in id order, reading {@code readAhead}
+     * nodes ahead of the one it visits. Right before visiting a node it runs the action registered for it in
+     * {@code concurrently}, mimicking transactions committing while the scan is at that node.
+     */
+    @SuppressWarnings( "unchecked" )
+    private IndexStoreView scriptedStoreView( final Map<Long, Pair<Integer, Object>> nodes,
+                                              final Map<Long, Runnable> concurrently, final int readAhead )
+    {
+        IndexStoreView storeView = mock( IndexStoreView.class );
+        when( storeView.visitNodesWithPropertyAndLabel( any( IndexDescriptor.class ), any( Visitor.class ) ) )
+                .thenAnswer( new Answer<StoreScan<Exception>>()
+                {
+                    @Override
+                    public StoreScan<Exception> answer( InvocationOnMock invocation )
+                    {
+                        IndexDescriptor descriptor = (IndexDescriptor) invocation.getArguments()[0];
+                        return scriptedScan( nodes, concurrently, readAhead, descriptor.getPropertyKeyId(),
+                                (Visitor<NodePropertyUpdate, Exception>) invocation.getArguments()[1] );
+                    }
+                } );
+        when( storeView.visitNodes( any( int[].class ), any( int[].class ), any( Visitor.class ),
+                any( Visitor.class ) ) ).thenAnswer( new Answer<StoreScan<Exception>>()
+                {
+                    @Override
+                    public StoreScan<Exception> answer( InvocationOnMock invocation )
+                    {
+                        return scriptedScan( nodes, concurrently, readAhead, -1,
+                                (Visitor<NodePropertyUpdate, Exception>) invocation.getArguments()[2] );
+                    }
+                } );
+        return storeView;
+    }
+
+    private StoreScan<Exception> scriptedScan( final Map<Long, Pair<Integer, Object>> nodes,
+            final Map<Long, Runnable> concurrently, final int readAhead, final int propertyKeyId,
+            final Visitor<NodePropertyUpdate, Exception> visitor )
+    {
+        return new StoreScan<Exception>()
+        {
+            private long highestReadNodeId = -1;
+
+            @Override
+            public void run() throws Exception
+            {
+                Map<Long, Pair<Integer, Object>> read = new HashMap<>();
+                for ( long nodeId = 0; nodeId < nodes.size(); nodeId++ )
+                {
+                    Runnable action = concurrently.get( nodeId );
+                    if ( action != null )
+                    {
+                        action.run();
+                    }
+                    while ( highestReadNodeId < Math.min( nodeId + readAhead, nodes.size() - 1 ) )
+                    {
+                        highestReadNodeId++;
+                        read.put( highestReadNodeId, nodes.get( highestReadNodeId ) );
+                    }
+                    Pair<Integer, Object> property = read.remove( nodeId );
+                    if ( propertyKeyId == -1 || property.first() == propertyKeyId )
+                    {
+                        visitor.visit( add( nodeId, property.first(), property.other(), new long[]{LABEL} ) );
+                    }
+                }
+            }
+
+            @Override
+            public void stop()
+            {
+            }
+
+            @Override
+            public long highestReadNodeId()
+            {
+                return highestReadNodeId;
+            }
+        };
+    }
+
+    /**
+     * @return an action setting the property of the given nodes to {@code prefix} followed by the node id, in
+     * the scanned nodes as well as by feeding the update to the job, like a committing transaction would.
+     */
+    private Runnable commit( final IndexPopulationJob job, final Map<Long, Pair<Integer, Object>> nodes,
+                             final int propertyKeyId, final String prefix, final long... nodeIds )
+    {
+        return new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long[] labels = new long[]{LABEL};
+                for ( long nodeId : nodeIds )
+                {
+                    Pair<Integer, Object> before = nodes.get( nodeId );
+                    Object value = prefix + nodeId;
+                    nodes.put( nodeId, Pair.<Integer, Object>of( propertyKeyId, value ) );
+                    job.update( before.first() == propertyKeyId
+                            ? change( nodeId, propertyKeyId, before.other(), labels, value, labels )
+                            : add( nodeId, propertyKeyId, value, labels ) );
+                }
+            }
+        };
+    }
+
+    private void addPopulator( IndexPopulationJob job, IndexPopulator populator, int labelId, int propertyKeyId )
+    {
+        FlippableIndexProxy flipper = new FlippableIndexProxy();
+        flipper.setFlipTarget( mock( IndexProxyFactory.class ) );
+        job.addPopulator( populator, new IndexDescriptor( labelId, propertyKeyId ), new IndexConfiguration( false ),
+                PROVIDER_DESCRIPTOR, format( ":%d(%d)", labelId, propertyKeyId ), flipper,
+                mock( FailedIndexProxyFactory.class ) );
+    }
+
     private IndexPopulator inMemoryPopulator( boolean constraint )
     {
         IndexConfiguration indexConfig = new IndexConfiguration( constraint );
@@ -638,6 +957,17 @@ public class IndexPopulationJobTest
                 stateHolder, new SingleLoggingService( logger ) );
     }
 
+    private IndexPopulator addPopulator( IndexPopulationJob job, Label label, String propertyKey )
+    {
+        IndexPopulator populator = spy( inMemoryPopulator( false ) );
+        FlippableIndexProxy flipper = new FlippableIndexProxy();
+        flipper.setFlipTarget( mock( IndexProxyFactory.class ) );
+        job.addPopulator( populator, indexDescriptor( label, propertyKey ), new IndexConfiguration( false ),
+                PROVIDER_DESCRIPTOR, format( ":%s(%s)", label.name(), propertyKey ), flipper,
+                mock( FailedIndexProxyFactory.class ) );
+        return populator;
+    }
+
     private IndexDescriptor indexDescriptor( Label label, String propertyKey )
     {
         IndexDescriptor descriptor;
@@ -29,7 +29,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
 
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.helpers.collection.ArrayIterator;
@@ -61,6 +63,8 @@ import org.neo4j.kernel.lifecycle.LifecycleException;
 import org.neo4j.kernel.logging.Logging;
 import org.neo4j.register.Register;
 import org.neo4j.register.Register.DoubleLongRegister;
+import org.neo4j.test.OtherThreadExecutor.WorkerCommand;
+import org.neo4j.test.OtherThreadRule;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.CoreMatchers.containsString;
@@ -75,6 +79,7 @@ import static org.mockito.Mockito.RETURNS_MOCKS;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -107,6 +112,12 @@ public class IndexingServiceTest
     private final IndexStoreView storeView  = mock( IndexStoreView.class );
     private final TokenNameLookup nameLookup = mock( TokenNameLookup.class );
     private final TestLogging logging = new TestLogging();
+    @Rule
+    public final OtherThreadRule<Void> committer1 = new OtherThreadRule<>( "committer1" );
+    @Rule
+    public final OtherThreadRule<Void> committer2 = new OtherThreadRule<>( "committer2" );
+    @Rule
+    public final OtherThreadRule<Void> committer3 = new OtherThreadRule<>( "committer3" );
 
     @Test
     public void shouldBringIndexOnlineAndFlipOverToIndexAccessor() throws Exception
@@ -156,6 +167,43 @@ public class IndexingServiceTest
         // We are asserting that the second call to createIndex does not throw an exception.
     }
 
+    @Test
+    public void shouldApplyUpdatesOfConcurrentlyCommittingTransactionsAsOneSortedBatch() throws Exception
+    {
+        // given
+        CountDownLatch latch = new CountDownLatch( 1 );
+        when( accessor.newUpdater( any( IndexUpdateMode.class ) ) ).thenReturn( updater );
+        doAnswer( afterAwaiting( latch ) ).when( updater ).process( add( 5, "five" ) );
+
+        IndexingService indexingService = newIndexingServiceWithMockedDependencies( populator, accessor, withData() );
+        life.start();
+        indexingService.createIndex( indexRule( 0, labelId, propertyKeyId, PROVIDER_DESCRIPTOR ) );
+        verify( populator, timeout( 1000 ) ).close( true );
+
+        // when
+        Future<Void> first = committer1.execute( updateIndexes( indexingService, 1, add( 5, "five" ) ) );
+        committer1.get().waitUntilWaiting();
+        Future<Void> second = committer2.execute( updateIndexes( indexingService, 2, add( 3, "three" ) ) );
+        committer2.get().waitUntilWaiting();
+        Future<Void> third = committer3.execute( updateIndexes( indexingService, 3, add( 1, "one" ) ) );
+        committer3.get().waitUntilWaiting();
+        latch.countDown();
+        first.get();
+        second.get();
+        third.get();
+
+        // then
+        InOrder order = inOrder( accessor, updater );
+        order.verify( accessor ).newUpdater( IndexUpdateMode.ONLINE );
+        order.verify( updater ).process( add( 5, "five" ) );
+        order.verify( updater ).close();
+        order.verify( accessor ).newUpdater( IndexUpdateMode.ONLINE );
+        order.verify( updater ).process( add( 1, "one" ) );
+        order.verify( updater ).process( add( 3, "three" ) );
+        order.verify( updater ).close();
+        verify( accessor, times( 2 ) ).newUpdater( IndexUpdateMode.ONLINE );
+    }
+
     @Test
     public void shouldDeliverUpdatesThatOccurDuringPopulationToPopulator() throws Exception
     {
@@ -174,6 +222,8 @@ public class IndexingServiceTest
         indexingService.createIndex( indexRule( 0, labelId, propertyKeyId, PROVIDER_DESCRIPTOR ) );
         IndexProxy proxy = indexingService.getIndexProxy( (long) 0 );
         assertEquals( InternalIndexState.POPULATING, proxy.getState() );
+        // the scan is done once the scanned entries are being added
+        verify( populator, timeout( 1000 ) ).add( 1, "value1" );
 
         NodePropertyUpdate value2 = add( 2, "value2" );
         try (IndexUpdater updater = proxy.newUpdater( IndexUpdateMode.ONLINE ) )
@@ -190,15 +240,13 @@ public class IndexingServiceTest
         InOrder order = inOrder( populator, accessor, updater);
         order.verify( populator ).create();
         order.verify( populator ).add( 1, "value1" );
+        order.verify( populator ).verifyDeferredConstraints( storeView );
 
-
-        // invoked from indexAllNodes(), empty because the id we added (2) is bigger than the one we indexed (1)
-        //
-        // (We don't get an update for value2 here because we mock a fake store that doesn't contain it
-        //  just for the purpose of testing this behavior)
+        // value2 came in while the scanned entries were added, i.e. after the scan had passed all nodes,
+        // so it's applied when flipping
         order.verify( populator ).newPopulatingUpdater( storeView );
+        order.verify( updater ).process( value2 );
         order.verify( updater ).close();
-        order.verify( populator ).verifyDeferredConstraints( storeView );
         order.verify( populator ).sampleResult( any( Register.DoubleLong.Out.class ) );
         order.verify( populator ).close( true );
         verifyNoMoreInteractions( updater );
@@ -500,6 +548,33 @@ public class IndexingServiceTest
         return logging;
     }
 
+    private WorkerCommand<Void, Void> updateIndexes( final IndexingService indexingService, final long transactionId,
+                                                     final NodePropertyUpdate... updates )
+    {
+        return new WorkerCommand<Void, Void>()
+        {
+            @Override
+            public Void doWork( Void state )
+            {
+                indexingService.updateIndexes( new IndexUpdates()
+                {
+                    @Override
+                    public Set<Long> changedNodeIds()
+                    {
+                        throw new UnsupportedOperationException( "not expected while running" );
+                    }
+
+                    @Override
+                    public Iterator<NodePropertyUpdate> iterator()
+                    {
+                        return new ArrayIterator<>( updates );
+                    }
+                }, transactionId, false );
+                return null;
+            }
+        };
+    }
+
     private NodePropertyUpdate add( long nodeId, Object propertyValue )
     {
         return NodePropertyUpdate.add( nodeId, propertyKeyId, propertyValue, new long[]{labelId} );
@@ -563,11 +638,14 @@ public class IndexingServiceTest
             final Visitor<NodePropertyUpdate, RuntimeException> visitor = visitor( invocation.getArguments()[1] );
             return new StoreScan<RuntimeException>()
             {
+                private volatile long highestReadNodeId = -1;
+
                 @Override
                 public void run()
                 {
                     for ( NodePropertyUpdate update : updates )
                     {
+                        highestReadNodeId = update.getNodeId();
                         visitor.visit( update );
                     }
                 }
@@ -577,6 +655,12 @@ public class IndexingServiceTest
                 {
                     // throw new UnsupportedOperationException( "not implemented" );
                 }
+
+                @Override
+                public long highestReadNodeId()
+                {
+                    return highestReadNodeId;
+                }
             };
         }
 
@@ -28,6 +28,7 @@ import java.util.Set;
 
 import org.neo4j.collection.primitive.PrimitiveLongCollections;
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.Predicate;
 import org.neo4j.kernel.api.exceptions.index.IndexNotFoundKernelException;
 
 import static org.neo4j.collection.primitive.PrimitiveLongCollections.toPrimitiveIterator;
@@ -71,6 +72,20 @@ class HashBasedIndex extends InMemoryIndexImplementation
         return nodes == null ? PrimitiveLongCollections.emptyIterator() : toPrimitiveIterator( nodes.iterator() );
     }
 
+    @Override
+    PrimitiveLongIterator doLookup( Predicate<Object> propertyValues )
+    {
+        Set<Long> nodes = new HashSet<>();
+        for ( Map.Entry<Object, Set<Long>> entry : data().entrySet() )
+        {
+            if ( propertyValues.accept( entry.getKey() ) )
+            {
+                nodes.addAll( entry.getValue() );
+            }
+        }
+        return toPrimitiveIterator( nodes.iterator() );
+    }
+
     @Override
     boolean doAdd( Object propertyValue, long nodeId, boolean applyIdempotently )
     {
@@ -22,9 +22,11 @@ package org.neo4j.kernel.impl.api.index.inmemory;
 import java.util.Set;
 
 import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.helpers.Predicate;
 import org.neo4j.kernel.api.direct.BoundedIterable;
 import org.neo4j.kernel.api.index.ArrayEncoder;
 import org.neo4j.kernel.api.index.IndexReader;
+import org.neo4j.kernel.api.index.RangeMatcher;
 
 abstract class InMemoryIndexImplementation implements IndexReader, BoundedIterable<Long>
 {
@@ -38,6 +40,47 @@ abstract class InMemoryIndexImplementation implements IndexReader, BoundedIterab
         return doLookup( encode( value ) );
     }
 
+    @Override
+    public final PrimitiveLongIterator rangeSeekByNumber( final Number lower, final boolean includeLower,
+                                                          final Number upper, final boolean includeUpper )
+    {
+        return doLookup( new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object key )
+            {
+                return RangeMatcher.inNumberRange( key, lower, includeLower, upper, includeUpper );
+            }
+        } );
+    }
+
+    @Override
+    public final PrimitiveLongIterator rangeSeekByString( final String lower, final boolean includeLower,
+                                                          final String upper, final boolean includeUpper )
+    {
+        return doLookup( new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object key )
+            {
+                return RangeMatcher.inStringRange( key, lower, includeLower, upper, includeUpper );
+            }
+        } );
+    }
+
+    @Override
+    public final PrimitiveLongIterator rangeSeekByPrefix( final String prefix )
+    {
+        return doLookup( new Predicate<Object>()
+        {
+            @Override
+            public boolean accept( Object key )
+            {
+                return RangeMatcher.hasPrefix( key, prefix );
+            }
+        } );
+    }
+
     final boolean add( long nodeId, Object propertyValue, boolean applyIdempotently )
     {
         return doAdd( encode( propertyValue ), nodeId, applyIdempotently );
@@ -50,6 +93,11 @@ abstract class InMemoryIndexImplementation implements IndexReader, BoundedIterab
 
     abstract PrimitiveLongIterator doLookup( Object propertyValue );
 
+    /**
+     * @return the nodes indexed under any of the (encoded) values accepted by the given predicate.
+     */
+    abstract PrimitiveLongIterator doLookup( Predicate<Object> propertyValues );
+
     abstract boolean doAdd( Object propertyValue, long nodeId, boolean applyIdempotently );
 
     abstract void doRemove( Object propertyValue, long nodeId );
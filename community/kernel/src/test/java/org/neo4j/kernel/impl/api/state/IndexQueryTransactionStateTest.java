@@ -299,6 +299,69 @@ public class IndexQueryTransactionStateTest
         assertNoSuchNode( result );
     }
 
+    @Test
+    public void shouldIncludeCreatedNodesWithCorrectLabelAndPropertyInPrefixSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "My" ) )
+                .thenReturn( asPrimitiveResourceIterator( 2l, 3l ) );
+        when( store.nodeGetProperty( anyLong(), eq( propertyKeyId ) ) ).thenReturn(
+                noNodeProperty( 1, propertyKeyId ) );
+        when( store.nodeGetAllProperties( anyLong() ) ).thenReturn( IteratorUtil
+                .<DefinedProperty>emptyIterator() );
+        when( store.nodeHasLabel( 1l, labelId ) ).thenReturn( false );
+
+        state.txState().nodeDoReplaceProperty( 1l, noNodeProperty( 1l, propertyKeyId ),
+                                                   stringProperty( propertyKeyId, value ) );
+        txContext.nodeAddLabel( state, 1l, labelId );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByPrefix( state, indexDescriptor, "My" );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l, 2l, 3l ) ) );
+    }
+
+    @Test
+    public void shouldExcludeNodesWithPropertyChangedOutOfRangeFromStringRangeSeek() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByString( state, indexDescriptor, "A", true, "N", false ) )
+                .thenReturn( asPrimitiveResourceIterator( 1l, 2l ) );
+        when( store.nodeGetProperty( 1l, propertyKeyId ) ).thenReturn( stringProperty( propertyKeyId, value ) );
+        when( store.nodeHasLabel( 1l, labelId ) ).thenReturn( true );
+        when( store.nodeGetLabels( 1l ) ).thenReturn( PrimitiveIntCollections.iterator( labelId ),
+                PrimitiveIntCollections.iterator( labelId ) );
+        when( store.constraintsGetForLabelAndPropertyKey( labelId, propertyKeyId ) )
+                .thenReturn( Collections.<UniquenessConstraint>emptyIterator() );
+
+        txContext.nodeSetProperty( state, 1l, stringProperty( propertyKeyId, "Some Value" ) );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByString( state, indexDescriptor,
+                "A", true, "N", false );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 2l ) ) );
+    }
+
+    @Test
+    public void shouldFilterNumberRangeSeekResultsOnExactPropertyValues() throws Exception
+    {
+        // Given
+        when( store.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor, 5, true, 10, true ) )
+                .thenReturn( asPrimitiveResourceIterator( 1l, 2l ) );
+        when( store.nodeGetProperty( 1l, propertyKeyId ) ).thenReturn( Property.intProperty( propertyKeyId, 7 ) );
+        when( store.nodeGetProperty( 2l, propertyKeyId ) ).thenReturn( Property.intProperty( propertyKeyId, 10 ) );
+
+        // When
+        PrimitiveLongIterator result = txContext.nodesGetFromIndexRangeSeekByNumber( state, indexDescriptor,
+                5, true, 10, false );
+
+        // Then
+        assertThat( asSet( result ), equalTo( asSet( 1l ) ) );
+    }
+
     // exists
     int labelId = 2;
     int propertyKeyId = 3;
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.impl.cache.TestCacheTypes.Entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionFilterTest
+{
+    @Test
+    public void shouldCountFrequencyOfKeys() throws Exception
+    {
+        // GIVEN
+        FrequencySketch sketch = new FrequencySketch( 100 );
+
+        // WHEN
+        for ( int i = 0; i < 5; i++ )
+        {
+            sketch.increment( 10 );
+        }
+        sketch.increment( 11 );
+
+        // THEN
+        assertEquals( 5, sketch.frequency( 10 ) );
+        assertEquals( 1, sketch.frequency( 11 ) );
+        assertEquals( 0, sketch.frequency( 12 ) );
+    }
+
+    @Test
+    public void shouldNotCountBeyondMaxFrequency() throws Exception
+    {
+        // GIVEN
+        FrequencySketch sketch = new FrequencySketch( 100 );
+
+        // WHEN
+        for ( int i = 0; i < 100; i++ )
+        {
+            sketch.increment( 10 );
+        }
+
+        // THEN
+        assertEquals( FrequencySketch.MAX_FREQUENCY, sketch.frequency( 10 ) );
+    }
+
+    @Test
+    public void shouldAgeFrequencies() throws Exception
+    {
+        // GIVEN
+        FrequencySketch sketch = new FrequencySketch( 64 );
+        for ( int i = 0; i < 8; i++ )
+        {
+            sketch.increment( 10 );
+        }
+
+        // WHEN enough other keys are counted
+        for ( int i = 0; i < 64 * 10; i++ )
+        {
+            sketch.increment( 1000 + i );
+        }
+
+        // THEN
+        assertTrue( sketch.frequency( 10 ) < 8 );
+    }
+
+    @Test
+    public void shouldAdmitMoreFrequentlyAccessedCandidateOverVictim() throws Exception
+    {
+        // GIVEN
+        AdmissionFilter filter = new AdmissionFilter( 100 );
+        filter.record( 1 );
+        filter.record( 1 );
+        filter.record( 2 );
+
+        // THEN
+        assertTrue( filter.admit( 1, 2 ) );
+        assertFalse( filter.admit( 2, 1 ) );
+        assertFalse( filter.admit( 3, 2 ) );
+    }
+
+    @Test
+    public void shouldOnlyAdmitCandidateAccessedMoreThanOnceWithoutVictim() throws Exception
+    {
+        // GIVEN
+        AdmissionFilter filter = new AdmissionFilter( 100 );
+
+        // WHEN
+        filter.record( 1 );
+
+        // THEN
+        assertFalse( filter.admit( 1 ) );
+
+        // and WHEN
+        filter.record( 1 );
+
+        // THEN
+        assertTrue( filter.admit( 1 ) );
+    }
+
+    @Test
+    public void admittingCacheShouldOnlyPutAdmittedEntities() throws Exception
+    {
+        // GIVEN
+        Cache<Entity> cache = new AdmittingCache<>( new StrongReferenceCache<Entity>( "test" ),
+                new AdmissionFilter( 100 ) );
+        Entity entity = new Entity( 1 );
+
+        // WHEN accessed the first time, like in a scan
+        assertNull( cache.get( 1 ) );
+        assertSame( entity, cache.put( entity ) );
+
+        // THEN
+        assertNull( cache.get( 1 ) );
+
+        // and WHEN accessed again
+        assertSame( entity, cache.put( entity ) );
+
+        // THEN
+        assertSame( entity, cache.get( 1 ) );
+    }
+
+    @Test
+    public void admittingCacheShouldPutForcedEntities() throws Exception
+    {
+        // GIVEN
+        Cache<Entity> cache = new AdmittingCache<>( new StrongReferenceCache<Entity>( "test" ),
+                new AdmissionFilter( 100 ) );
+        Entity entity = new Entity( 1 );
+
+        // WHEN
+        cache.put( entity, true );
+
+        // THEN
+        assertSame( entity, cache.get( 1 ) );
+    }
+}
@@ -21,12 +21,16 @@ package org.neo4j.kernel.impl.cache;
 
 import org.junit.Test;
 
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseSettings;
+import org.neo4j.helpers.Settings;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.impl.core.Caches;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class CacheTypesIT
@@ -76,6 +80,42 @@ public class CacheTypesIT
         db.shutdown();
     }
 
+    @Test
+    public void testOffHeapCache()
+    {
+        GraphDatabaseAPI db = newDb( OffHeapCacheProvider.NAME );
+        assertEquals( OffHeapCacheProvider.NAME, caches( db ).getProvider().getName() );
+        db.shutdown();
+    }
+
+    @Test
+    public void testSoftRefCacheWithAdmissionFilter()
+    {
+        GraphDatabaseAPI db = (GraphDatabaseAPI) new TestGraphDatabaseFactory().newImpermanentDatabaseBuilder()
+                .setConfig( GraphDatabaseSettings.cache_type, SoftCacheProvider.NAME )
+                .setConfig( GraphDatabaseSettings.cache_admission_filter, Settings.TRUE )
+                .newGraphDatabase();
+        Node node;
+        try ( Transaction tx = db.beginTx() )
+        {
+            node = db.createNode();
+            node.setProperty( "key", "value" );
+            tx.success();
+        }
+        for ( int i = 0; i < 3; i++ )
+        {
+            try ( Transaction tx = db.beginTx() )
+            {
+                assertEquals( "value", db.getNodeById( node.getId() ).getProperty( "key" ) );
+                node.setProperty( "key", "value" + i );
+                node.setProperty( "key", "value" );
+                tx.success();
+            }
+        }
+        assertTrue( caches( db ).node() instanceof AdmittingCache );
+        db.shutdown();
+    }
+
     @Test
     public void testInvalidCache()
     {
@@ -0,0 +1,334 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.cache;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.impl.cache.TestCacheTypes.Entity;
+import org.neo4j.kernel.impl.util.StringLogger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapCacheTest
+{
+    @Test
+    public void shouldHonorPutSemantics() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 1 );
+        SizedEntity version1 = new SizedEntity( 10, 5 );
+        assertSame( version1, cache.put( version1 ) );
+
+        // WHEN
+        SizedEntity version2 = new SizedEntity( 10, 7 );
+        SizedEntity existing = cache.put( version2 );
+
+        // THEN the cache doesn't keep the object, but a copy of what it was put with
+        assertNotSame( version1, existing );
+        assertEquals( 5, existing.payload );
+
+        // and WHEN forcing it
+        assertSame( version2, cache.put( version2, true ) );
+        assertEquals( 7, cache.get( 10 ).payload );
+    }
+
+    @Test
+    public void shouldMaterializeNewViewsOnEveryGet() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 4 );
+        cache.put( new SizedEntity( 1, 20 ) );
+
+        // WHEN
+        SizedEntity first = cache.get( 1 );
+        SizedEntity second = cache.get( 1 );
+
+        // THEN
+        assertNotSame( first, second );
+        assertEquals( 20, first.payload );
+        assertEquals( 20, second.payload );
+        assertNull( cache.get( 2 ) );
+        assertEquals( 2, cache.hitCount() );
+        assertEquals( 1, cache.missCount() );
+    }
+
+    @Test
+    public void shouldWriteBackChangesOfLatestView() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 1 );
+        cache.put( new SizedEntity( 1, 10 ) );
+        SizedEntity view = cache.get( 1 );
+
+        // WHEN
+        view.payload = 30;
+        cache.updateSize( view, 0 );
+
+        // THEN
+        assertEquals( 30, cache.get( 1 ).payload );
+    }
+
+    @Test
+    public void shouldEvictEntityOnWriteBackOfStaleView() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 1 );
+        cache.put( new SizedEntity( 1, 10 ) );
+        SizedEntity stale = cache.get( 1 );
+        SizedEntity latest = cache.get( 1 );
+        latest.payload = 20;
+        cache.updateSize( latest, 0 );
+
+        // WHEN
+        stale.payload = 30;
+        cache.updateSize( stale, 0 );
+
+        // THEN neither version can be trusted to be complete, so it's loaded anew next time
+        assertNull( cache.get( 1 ) );
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.bytesUsed() );
+    }
+
+    @Test
+    public void shouldEvictEntityWhenReadWriteBackRacesWithCommit() throws Exception
+    {
+        // GIVEN a reader and a committer having a view each of the same entity
+        final SizedEntityFormat format = new SizedEntityFormat();
+        final OffHeapCache<SizedEntity> cache =
+                new OffHeapCache<>( "test", 1024, 1, format, StringLogger.DEV_NULL );
+        cache.put( new SizedEntity( 1, 10 ) );
+        final SizedEntity read = cache.get( 1 );
+        SizedEntity committed = cache.get( 1 );
+        read.payload = 20;
+        committed.payload = 30;
+
+        // WHEN the reader writes back its view while the committer is serializing its own
+        format.whileWriting = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                Thread reader = new Thread()
+                {
+                    @Override
+                    public void run()
+                    {
+                        cache.updateSize( read, 0 );
+                    }
+                };
+                reader.start();
+                try
+                {
+                    reader.join();
+                }
+                catch ( InterruptedException e )
+                {
+                    throw new RuntimeException( e );
+                }
+            }
+        };
+        cache.updateSize( committed, 0 );
+
+        // THEN the cache must not keep what the reader wrote back, since it misses the committed changes
+        assertNull( cache.get( 1 ) );
+        assertEquals( 0, cache.bytesUsed() );
+    }
+
+    @Test
+    public void shouldNotWriteBackChangesOfRemovedEntity() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 1 );
+        cache.put( new SizedEntity( 1, 10 ) );
+        SizedEntity view = cache.get( 1 );
+
+        // WHEN
+        assertNotNull( cache.remove( 1 ) );
+        cache.updateSize( view, 0 );
+
+        // THEN
+        assertNull( cache.get( 1 ) );
+        assertEquals( 0, cache.size() );
+        assertEquals( 0, cache.bytesUsed() );
+    }
+
+    @Test
+    public void shouldEvictOldestEntriesAndStayWithinItsSize() throws Exception
+    {
+        // GIVEN a single segment which fits ten entries
+        int entrySize = OffHeapCache.ENTRY_HEADER_SIZE + 4 + 20;
+        OffHeapCache<SizedEntity> cache = newCache( entrySize * 10, 1 );
+
+        // WHEN
+        for ( int i = 0; i < 25; i++ )
+        {
+            cache.put( new SizedEntity( i, 20 ) );
+            assertTrue( cache.bytesUsed() <= cache.maxSize() );
+        }
+
+        // THEN
+        assertEquals( 10, cache.size() );
+        assertEquals( entrySize * 10, cache.bytesUsed() );
+        for ( int i = 0; i < 15; i++ )
+        {
+            assertNull( cache.get( i ) );
+        }
+        for ( int i = 15; i < 25; i++ )
+        {
+            assertEquals( 20, cache.get( i ).payload );
+        }
+    }
+
+    @Test
+    public void shouldKeepEntriesOfVaryingSizesIntactAcrossWrapArounds() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1000, 1 );
+
+        // WHEN
+        for ( int round = 0; round < 50; round++ )
+        {
+            for ( int id = 0; id < 10; id++ )
+            {
+                SizedEntity view = cache.get( id );
+                int payload = (round * 7 + id * 13) % 90;
+                if ( view != null && view.payload % 2 == 0 )
+                {
+                    view.payload = payload;
+                    cache.updateSize( view, 0 );
+                }
+                else
+                {
+                    cache.put( new SizedEntity( id, payload ), true );
+                }
+            }
+
+            // THEN
+            for ( int id = 0; id < 10; id++ )
+            {
+                SizedEntity view = cache.get( id );
+                if ( view != null )
+                {
+                    assertEquals( (round * 7 + id * 13) % 90, view.payload );
+                }
+            }
+            assertTrue( cache.bytesUsed() <= cache.maxSize() );
+        }
+    }
+
+    @Test
+    public void shouldGrowSegmentsBeforeEvictingAnything() throws Exception
+    {
+        // GIVEN a single segment which starts out smaller than its maximum size
+        OffHeapCache<SizedEntity> cache = newCache( 1024 * 1024, 1 );
+
+        // WHEN writing more than the initial size, some of it overwritten
+        for ( int i = 0; i < 5000; i++ )
+        {
+            cache.put( new SizedEntity( i, i % 50 ) );
+        }
+        for ( int i = 0; i < 5000; i += 3 )
+        {
+            SizedEntity view = cache.get( i );
+            view.payload = 100;
+            cache.updateSize( view, 0 );
+        }
+
+        // THEN
+        assertEquals( 5000, cache.size() );
+        for ( int i = 0; i < 5000; i++ )
+        {
+            assertEquals( i % 3 == 0 ? 100 : i % 50, cache.get( i ).payload );
+        }
+    }
+
+    @Test
+    public void shouldNotCacheEntitiesBiggerThanASegment() throws Exception
+    {
+        // GIVEN
+        OffHeapCache<SizedEntity> cache = newCache( 1024, 4 );
+
+        // WHEN
+        SizedEntity entity = new SizedEntity( 1, 1024 );
+        assertSame( entity, cache.put( entity ) );
+
+        // THEN
+        assertNull( cache.get( 1 ) );
+        assertEquals( 0, cache.size() );
+    }
+
+    private OffHeapCache<SizedEntity> newCache( int size, int segments )
+    {
+        return new OffHeapCache<>( "test", size, segments, new SizedEntityFormat(), StringLogger.DEV_NULL );
+    }
+
+    private static class SizedEntity extends Entity
+    {
+        private int payload;
+
+        SizedEntity( long id, int payload )
+        {
+            super( id );
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Writes the payload of a {@link SizedEntity} followed by that many bytes.
+     */
+    private static class SizedEntityFormat implements OffHeapCache.Format<SizedEntity>
+    {
+        private Runnable whileWriting;
+
+        @Override
+        public void write( SizedEntity entity, ByteBuffer target )
+        {
+            Runnable action = whileWriting;
+            if ( action != null )
+            {   // only once, i.e. not for write-backs the action itself does
+                whileWriting = null;
+                action.run();
+            }
+            target.putInt( entity.payload );
+            for ( int i = 0; i < entity.payload; i++ )
+            {
+                target.put( (byte) entity.payload );
+            }
+        }
+
+        @Override
+        public SizedEntity read( long id, ByteBuffer source )
+        {
+            int payload = source.getInt();
+            for ( int i = 0; i < payload; i++ )
+            {
+                assertEquals( (byte) payload, source.get() );
+            }
+            return new SizedEntity( id, payload );
+        }
+    }
+}
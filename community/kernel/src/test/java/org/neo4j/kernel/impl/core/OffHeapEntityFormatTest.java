@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.api.properties.DefinedProperty;
+import org.neo4j.kernel.api.properties.Property;
+import org.neo4j.kernel.impl.cache.EntityWithSizeObject;
+import org.neo4j.kernel.impl.cache.OffHeapCache;
+import org.neo4j.kernel.impl.util.RelIdArray;
+import org.neo4j.kernel.impl.util.RelIdArray.DirectionWrapper;
+import org.neo4j.kernel.impl.util.RelIdArrayWithLoops;
+import org.neo4j.kernel.impl.util.RelIdIterator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import static org.neo4j.helpers.collection.IteratorUtil.asSet;
+import static org.neo4j.helpers.collection.IteratorUtil.count;
+
+public class OffHeapEntityFormatTest
+{
+    @Test
+    public void shouldRoundTripNodeWithLabelsPropertiesAndRelationships() throws Exception
+    {
+        // GIVEN
+        NodeImpl node = new NodeImpl( 42 );
+        node.commitLabels( new int[] {1, 3, 7} );
+        node.setProperties( properties() );
+        RelIdArray knows = new RelIdArrayWithLoops( 0 );
+        knows.add( 10, DirectionWrapper.OUTGOING );
+        knows.add( 11, DirectionWrapper.INCOMING );
+        knows.add( 12, DirectionWrapper.BOTH );
+        knows.add( 1L << 34, DirectionWrapper.OUTGOING );
+        RelIdArray likes = new RelIdArray( 3 );
+        likes.add( 20, DirectionWrapper.INCOMING );
+        node.setAllRelationships( new RelIdArray[] {knows, likes} );
+
+        // WHEN
+        NodeImpl read = roundTrip( node, OffHeapEntityFormat.NODES );
+
+        // THEN
+        assertEquals( 42, read.getId() );
+        assertFalse( read.isDense() );
+        assertArrayEquals( new int[] {1, 3, 7}, read.getCachedLabels() );
+        assertProperties( read );
+        assertEquals( RelationshipLoadingPosition.EMPTY, read.getRelChainPosition() );
+        RelIdArray[] relationships = read.getRelationshipIds();
+        assertEquals( 2, relationships.length );
+        assertEquals( 0, relationships[0].getType() );
+        assertEquals( asSet( 10L, 12L, 1L << 34 ), ids( relationships[0], DirectionWrapper.OUTGOING ) );
+        assertEquals( asSet( 11L, 12L ), ids( relationships[0], DirectionWrapper.INCOMING ) );
+        assertEquals( 4, ids( relationships[0], DirectionWrapper.BOTH ).size() );
+        assertEquals( 3, relationships[1].getType() );
+        assertEquals( asSet( 20L ), ids( relationships[1], DirectionWrapper.INCOMING ) );
+        assertTrue( ids( relationships[1], DirectionWrapper.OUTGOING ).isEmpty() );
+    }
+
+    @Test
+    public void shouldLeaveOutStateWhichIsNotLoaded() throws Exception
+    {
+        // GIVEN
+        NodeImpl node = new DenseNodeImpl( 5 );
+        node.setRelChainPosition( new SingleChainPosition( 100 ) );
+
+        // WHEN
+        NodeImpl read = roundTrip( node, OffHeapEntityFormat.NODES );
+
+        // THEN
+        assertTrue( read instanceof DenseNodeImpl );
+        assertNull( read.getCachedLabels() );
+        assertFalse( read.hasLoadedProperties() );
+        assertNull( read.getRelationshipIds() );
+        assertNull( read.getRelChainPosition() );
+    }
+
+    @Test
+    public void shouldRoundTripRelationship() throws Exception
+    {
+        // GIVEN
+        RelationshipImpl relationship = new RelationshipImpl( 1L << 33, 7, 1L << 34, 65535 );
+        relationship.setProperties( properties() );
+
+        // WHEN
+        RelationshipImpl read = roundTrip( relationship, OffHeapEntityFormat.RELATIONSHIPS );
+
+        // THEN
+        assertEquals( 1L << 33, read.getId() );
+        assertEquals( 7, read.getStartNodeId() );
+        assertEquals( 1L << 34, read.getEndNodeId() );
+        assertEquals( 65535, read.getTypeId() );
+        assertProperties( read );
+    }
+
+    private static final Object[] VALUES = {
+            true, (byte) 1, (short) 2, 'c', 4, 5L, 6.5f, 7.5d, "eight",
+            new boolean[] {true, false}, new byte[] {1, 2}, new short[] {3, 4}, new char[] {'a', 'b'},
+            new int[] {5, 6}, new long[] {7, 8}, new float[] {9.5f}, new double[] {10.5d},
+            new String[] {"eleven", "twelve"}};
+
+    private static Iterator<DefinedProperty> properties()
+    {
+        DefinedProperty[] properties = new DefinedProperty[VALUES.length];
+        for ( int i = 0; i < VALUES.length; i++ )
+        {
+            properties[i] = Property.property( i, VALUES[i] );
+        }
+        return Arrays.asList( properties ).iterator();
+    }
+
+    private static void assertProperties( ArrayBasedPrimitive entity )
+    {
+        assertEquals( VALUES.length, count( entity.getCachedProperties() ) );
+        for ( int i = 0; i < VALUES.length; i++ )
+        {
+            assertTrue( "Property " + i, entity.getCachedProperty( i ).valueEquals( VALUES[i] ) );
+        }
+    }
+
+    private static Set<Long> ids( RelIdArray array, DirectionWrapper direction )
+    {
+        Set<Long> ids = new HashSet<>();
+        for ( RelIdIterator iterator = array.iterator( direction ); iterator.hasNext(); )
+        {
+            ids.add( iterator.next() );
+        }
+        return ids;
+    }
+
+    private static <E extends EntityWithSizeObject> E roundTrip( E entity, OffHeapCache.Format<E> format )
+    {
+        ByteBuffer buffer = ByteBuffer.allocate( 4096 );
+        format.write( entity, buffer );
+        buffer.flip();
+        E read = format.read( entity.getId(), buffer );
+        assertFalse( buffer.hasRemaining() );
+        return read;
+    }
+}
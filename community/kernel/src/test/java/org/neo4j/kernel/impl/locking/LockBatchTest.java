@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class LockBatchTest
+{
+    @Test
+    public void shouldAcquireEachResourceTypeInOneCallWithSortedDistinctIds() throws Exception
+    {
+        // given
+        Locks.Client client = mock( Locks.Client.class );
+        LockBatch batch = new LockBatch();
+        batch.addExclusive( ResourceTypes.RELATIONSHIP, 12, 3 );
+        batch.addExclusive( ResourceTypes.NODE, 42, 7, 19 );
+        batch.addExclusive( ResourceTypes.NODE, 7, 1 );
+
+        // when
+        batch.acquire( client );
+
+        // then
+        InOrder order = inOrder( client );
+        order.verify( client ).acquireExclusive( ResourceTypes.NODE, 1, 7, 19, 42 );
+        order.verify( client ).acquireExclusive( ResourceTypes.RELATIONSHIP, 3, 12 );
+        verifyNoMoreInteractions( client );
+    }
+
+    @Test
+    public void shouldBeEmptyAfterAcquiring() throws Exception
+    {
+        // given
+        Locks.Client client = mock( Locks.Client.class );
+        LockBatch batch = new LockBatch().addExclusive( ResourceTypes.NODE, 1 );
+
+        // when
+        batch.acquire( client );
+        batch.acquire( client );
+
+        // then
+        inOrder( client ).verify( client ).acquireExclusive( ResourceTypes.NODE, 1 );
+        verifyNoMoreInteractions( client );
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.locking.community;
+
+import org.junit.Test;
+
+import org.neo4j.kernel.DeadlockDetectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RagManagerTest
+{
+    private final RagManager ragManager = new RagManager();
+
+    @Test
+    public void shouldDetectDeadlockAmongWaitingTransactions() throws Exception
+    {
+        // GIVEN tx1 holding r1, tx2 holding r2, tx3 holding r3
+        RWLock r1 = writeLocked( "r1", "tx1" );
+        RWLock r2 = writeLocked( "r2", "tx2" );
+        RWLock r3 = writeLocked( "r3", "tx3" );
+
+        // and tx1 waiting for r2, tx2 waiting for r3
+        ragManager.checkWaitOn( r2, "tx1" );
+        ragManager.checkWaitOn( r3, "tx2" );
+
+        // WHEN
+        try
+        {
+            ragManager.checkWaitOn( r1, "tx3" );
+            fail( "Should have detected deadlock" );
+        }
+        catch ( DeadlockDetectedException e )
+        {
+            // THEN
+            assertEquals( 1, ragManager.getDeadlockCount() );
+        }
+
+        // and tx3 shouldn't be registered as waiting
+        ragManager.checkWaitOn( writeLocked( "r4", "tx4" ), "tx3" );
+    }
+
+    @Test
+    public void shouldNotDetectDeadlockOnceTransactionStoppedWaiting() throws Exception
+    {
+        // GIVEN
+        RWLock r1 = writeLocked( "r1", "tx1" );
+        RWLock r2 = writeLocked( "r2", "tx2" );
+        ragManager.checkWaitOn( r2, "tx1" );
+
+        // WHEN
+        ragManager.stopWaitOn( r2, "tx1" );
+
+        // THEN
+        ragManager.checkWaitOn( r1, "tx2" );
+        assertEquals( 0, ragManager.getDeadlockCount() );
+    }
+
+    @Test
+    public void shouldAllowWaitingForOwnReadLockToBeUpgraded() throws Exception
+    {
+        // GIVEN tx1 and tx2 both holding read lock on r1
+        RWLock r1 = new RWLock( "r1", ragManager );
+        r1.mark();
+        r1.acquireReadLock( "tx1" );
+        r1.mark();
+        r1.acquireReadLock( "tx2" );
+
+        // WHEN tx1 waits to upgrade
+        ragManager.checkWaitOn( r1, "tx1" );
+
+        // THEN tx2 waiting to upgrade as well is a deadlock
+        try
+        {
+            ragManager.checkWaitOn( r1, "tx2" );
+            fail( "Should have detected deadlock" );
+        }
+        catch ( DeadlockDetectedException e )
+        {
+            // good
+        }
+    }
+
+    private RWLock writeLocked( Object resource, Object tx )
+    {
+        RWLock lock = new RWLock( resource, ragManager );
+        lock.mark();
+        lock.acquireWriteLock( tx );
+        return lock;
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.pagecache;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.io.pagecache.PageCursor;
+import org.neo4j.io.pagecache.PagedFile;
+import org.neo4j.io.pagecache.impl.muninn.MuninnPageCache;
+import org.neo4j.io.pagecache.monitoring.PageCacheMonitor;
+import org.neo4j.kernel.impl.util.StringLogger;
+import org.neo4j.test.EphemeralFileSystemRule;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.neo4j.io.pagecache.PagedFile.PF_NO_FAULT;
+import static org.neo4j.io.pagecache.PagedFile.PF_SHARED_LOCK;
+
+public class PageCacheWarmerTest
+{
+    @Rule
+    public EphemeralFileSystemRule fsRule = new EphemeralFileSystemRule();
+
+    private EphemeralFileSystemAbstraction fs;
+    private final File storeDir = new File( "store" );
+    private final File file = new File( storeDir, "a" );
+
+    @Before
+    public void setUp() throws IOException
+    {
+        fs = fsRule.get();
+        fs.mkdirs( storeDir );
+        StoreChannel channel = fs.create( file );
+        channel.writeAll( ByteBuffer.allocate( 8 * 8 ) );
+        channel.close();
+    }
+
+    @Test
+    public void reheatMustLoadThePagesThatWereInMemoryWhenProfiled() throws Exception
+    {
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, storeDir, StringLogger.DEV_NULL );
+
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file, 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK ) )
+            {
+                assertTrue( cursor.next( 1 ) );
+                assertTrue( cursor.next( 3 ) );
+                assertTrue( cursor.next( 5 ) );
+            }
+            warmer.profile( pageCache );
+        }
+        pageCache.close();
+
+        pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        List<PagedFile> warmedUpFiles = warmer.reheat( pageCache );
+        assertThat( warmedUpFiles.size(), is( 1 ) );
+
+        try ( PagedFile pagedFile = pageCache.map( file, 8 );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK | PF_NO_FAULT ) )
+        {
+            assertFalse( cursor.next( 0 ) );
+            assertTrue( cursor.next( 1 ) );
+            assertFalse( cursor.next( 2 ) );
+            assertTrue( cursor.next( 3 ) );
+            assertTrue( cursor.next( 5 ) );
+        }
+        PageCacheWarmer.close( warmedUpFiles );
+        pageCache.close();
+    }
+
+    @Test
+    public void reheatMustDoNothingWithoutProfile() throws Exception
+    {
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, storeDir, StringLogger.DEV_NULL );
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+
+        assertTrue( warmer.reheat( pageCache ).isEmpty() );
+        pageCache.close();
+    }
+
+    @Test
+    public void profileMustNotOverwritePreviousProfileWhenNoFilesAreMapped() throws Exception
+    {
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, storeDir, StringLogger.DEV_NULL );
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file, 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK ) )
+            {
+                assertTrue( cursor.next( 2 ) );
+            }
+            warmer.profile( pageCache );
+        }
+        warmer.profile( pageCache );
+        pageCache.close();
+
+        pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        List<PagedFile> warmedUpFiles = warmer.reheat( pageCache );
+        assertThat( warmedUpFiles.size(), is( 1 ) );
+        PageCacheWarmer.close( warmedUpFiles );
+        pageCache.close();
+    }
+
+    @Test
+    public void reheatMustFindFilesInStoreThatHasBeenMoved() throws Exception
+    {
+        PageCacheWarmer warmer = new PageCacheWarmer( fs, storeDir, StringLogger.DEV_NULL );
+        MuninnPageCache pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        try ( PagedFile pagedFile = pageCache.map( file, 8 ) )
+        {
+            try ( PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK ) )
+            {
+                assertTrue( cursor.next( 4 ) );
+            }
+            warmer.profile( pageCache );
+        }
+        pageCache.close();
+
+        File movedStoreDir = new File( "moved" );
+        fs.mkdirs( movedStoreDir );
+        File movedFile = new File( movedStoreDir, file.getName() );
+        fs.renameFile( file, movedFile );
+        fs.renameFile( new File( storeDir, PageCacheWarmer.PROFILE_FILE_NAME ),
+                new File( movedStoreDir, PageCacheWarmer.PROFILE_FILE_NAME ) );
+
+        warmer = new PageCacheWarmer( fs, movedStoreDir, StringLogger.DEV_NULL );
+        pageCache = new MuninnPageCache( fs, 16, 8, PageCacheMonitor.NULL );
+        List<PagedFile> warmedUpFiles = warmer.reheat( pageCache );
+        assertThat( warmedUpFiles.size(), is( 1 ) );
+
+        try ( PagedFile pagedFile = pageCache.map( movedFile, 8 );
+              PageCursor cursor = pagedFile.io( 0, PF_SHARED_LOCK | PF_NO_FAULT ) )
+        {
+            assertTrue( cursor.next( 4 ) );
+        }
+        PageCacheWarmer.close( warmedUpFiles );
+        pageCache.close();
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.recovery;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.neo4j.graphdb.DynamicLabel;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.mockfs.EphemeralFileSystemAbstraction;
+import org.neo4j.kernel.impl.MyRelTypes;
+import org.neo4j.test.EphemeralFileSystemRule;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.neo4j.tooling.GlobalGraphOperations;
+
+import static org.junit.Assert.assertEquals;
+import static org.neo4j.helpers.collection.IteratorUtil.count;
+import static org.neo4j.test.EphemeralFileSystemRule.shutdownDb;
+
+public class ParallelRecoveryTest
+{
+    @Rule
+    public EphemeralFileSystemRule fs = new EphemeralFileSystemRule();
+
+    private final File storeDir = new File( "dir" ).getAbsoluteFile();
+    private final Label label = DynamicLabel.label( "Label" );
+
+    @Test
+    public void shouldRecoverRecordsWithReusedDynamicRecords() throws Exception
+    {
+        // GIVEN a database where dynamic records get freed and then reused by other nodes and properties
+        GraphDatabaseService db = newDatabase( fs.get() );
+        Map<Long,String> expected = new HashMap<>();
+        Node[] nodes = createNodes( db, 500, "first", expected );
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( int i = 0; i < nodes.length; i += 2 )
+            {
+                for ( Relationship relationship : nodes[i].getRelationships() )
+                {
+                    relationship.delete();
+                }
+                nodes[i].delete();
+                expected.remove( nodes[i].getId() );
+            }
+            tx.success();
+        }
+        createNodes( db, 500, "second", expected );
+
+        // WHEN crashing and recovering
+        EphemeralFileSystemAbstraction snapshot = fs.snapshot( shutdownDb( db ) );
+        db = newDatabase( snapshot );
+
+        // THEN
+        try ( Transaction tx = db.beginTx() )
+        {
+            assertEquals( expected.size(), count( GlobalGraphOperations.at( db ).getAllNodes() ) );
+            for ( Map.Entry<Long,String> entry : expected.entrySet() )
+            {
+                Node node = db.getNodeById( entry.getKey() );
+                assertEquals( entry.getValue(), node.getProperty( "name" ) );
+                assertEquals( entry.getValue().length(), ((long[]) node.getProperty( "array" )).length );
+            }
+            assertEquals( expected.size(), count( GlobalGraphOperations.at( db ).getAllNodesWithLabel( label ) ) );
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    private GraphDatabaseService newDatabase( EphemeralFileSystemAbstraction fileSystem )
+    {
+        return new TestGraphDatabaseFactory().setFileSystem( fileSystem ).newImpermanentDatabase( storeDir.getPath() );
+    }
+
+    private Node[] createNodes( GraphDatabaseService db, int count, String prefix, Map<Long,String> expected )
+    {
+        Node[] nodes = new Node[count];
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                String name = prefix + " and a loooooooooooooooooooooooooooooooooooooooooooooooooooooooooooong " + i;
+                nodes[i] = db.createNode( label );
+                nodes[i].setProperty( "name", name );
+                nodes[i].setProperty( "array", new long[name.length()] );
+                if ( i > 0 )
+                {
+                    nodes[i - 1].createRelationshipTo( nodes[i], MyRelTypes.TEST );
+                }
+                expected.put( nodes[i].getId(), name );
+            }
+            tx.success();
+        }
+        return nodes;
+    }
+}
@@ -23,9 +23,11 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -33,11 +35,14 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.neo4j.helpers.collection.CloseableVisitor;
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
 import org.neo4j.kernel.DefaultFileSystemAbstraction;
 import org.neo4j.kernel.KernelHealth;
 import org.neo4j.kernel.Recovery;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.transaction.command.Command;
+import org.neo4j.kernel.impl.transaction.log.IOCursor;
+import org.neo4j.kernel.impl.transaction.log.InMemoryLogChannel;
 import org.neo4j.kernel.impl.transaction.log.LogFile;
 import org.neo4j.kernel.impl.transaction.log.LogFileRecoverer;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
@@ -50,6 +55,7 @@ import org.neo4j.kernel.impl.transaction.log.PhysicalLogFile;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFile.Monitor;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogFiles;
 import org.neo4j.kernel.impl.transaction.log.PhysicalLogicalTransactionStore;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionCursor;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.TransactionAppender;
@@ -64,6 +70,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
@@ -341,6 +348,86 @@ public class PhysicalLogicalTransactionStoreTest
 
     }
 
+    @Test
+    public void shouldVisitTransactionBytesExactlyAsTheyAreInTheLog() throws Exception
+    {
+        // GIVEN
+        TransactionIdStore transactionIdStore = new DeadSimpleTransactionIdStore( 0l, 0l );
+        TransactionMetadataCache positionCache = new TransactionMetadataCache( 10, 100 );
+        LifeSupport life = new LifeSupport();
+        PhysicalLogFiles logFiles = new PhysicalLogFiles( testDir, DEFAULT_NAME, fs );
+        Monitor monitor = new Monitors().newMonitor( PhysicalLogFile.Monitor.class );
+        LogFile logFile = life.add( new PhysicalLogFile( fs, logFiles, 1000,
+                transactionIdStore, mock( LogVersionRepository.class ), monitor, positionCache ) );
+        LogicalTransactionStore store = life.add( new PhysicalLogicalTransactionStore( logFile,
+                LogRotation.NO_ROTATION, positionCache, transactionIdStore, BYPASS, mock( KernelHealth.class ),
+                false ) );
+
+        life.start();
+        try
+        {
+            for ( int i = 0; i < 3; i++ )
+            {
+                addATransactionAndRewind( logFile, positionCache, transactionIdStore,
+                        new byte[]{1, 2, 5}, 2, 1, 12345, 4545, 12355 );
+            }
+
+            // WHEN
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            long next = store.visitTransactionBytes( 2, 3, new Visitor<ByteBuffer,IOException>()
+            {
+                @Override
+                public boolean visit( ByteBuffer chunk ) throws IOException
+                {
+                    while ( chunk.hasRemaining() )
+                    {
+                        bytes.write( chunk.get() );
+                    }
+                    return false;
+                }
+            } );
+
+            // THEN
+            assertEquals( 4, next );
+            long start = positionCache.getTransactionMetadata( 2 ).getStartPosition().getByteOffset();
+            long end = positionCache.getTransactionMetadata( 3 ).getEndPosition().getByteOffset();
+            byte[] expected = new byte[(int) (end - start)];
+            try ( StoreChannel channel = fs.open( logFiles.getLogFileForVersion( 0 ), "r" ) )
+            {
+                channel.read( ByteBuffer.wrap( expected ), start );
+            }
+            assertArrayEquals( expected, bytes.toByteArray() );
+            InMemoryLogChannel channel = new InMemoryLogChannel();
+            channel.put( bytes.toByteArray(), bytes.size() );
+            try ( IOCursor<CommittedTransactionRepresentation> cursor = new PhysicalTransactionCursor<>(
+                    channel, new LogEntryReaderFactory().<InMemoryLogChannel>create() ) )
+            {
+                assertTrue( cursor.next() );
+                assertEquals( 2, cursor.get().getCommitEntry().getTxId() );
+                assertTrue( cursor.next() );
+                assertEquals( 3, cursor.get().getCommitEntry().getTxId() );
+            }
+
+            // and WHEN the positions of the transactions are no longer known
+            positionCache.clear();
+
+            // THEN
+            assertEquals( 2, store.visitTransactionBytes( 2, 3, new Visitor<ByteBuffer,IOException>()
+            {
+                @Override
+                public boolean visit( ByteBuffer chunk ) throws IOException
+                {
+                    fail( "Should not have visited anything" );
+                    return false;
+                }
+            } ) );
+        }
+        finally
+        {
+            life.shutdown();
+        }
+    }
+
     private void addATransactionAndRewind( LogFile logFile,
                                            TransactionMetadataCache positionCache,
                                            TransactionIdStore transactionIdStore,
@@ -22,6 +22,7 @@ package org.neo4j.kernel.impl.transaction;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -33,6 +34,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.KernelHealth;
 import org.neo4j.kernel.impl.index.IndexDefineCommand;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
@@ -43,6 +45,7 @@ import org.neo4j.kernel.impl.transaction.log.InMemoryLogChannel;
 import org.neo4j.kernel.impl.transaction.log.InMemoryVersionableLogChannel;
 import org.neo4j.kernel.impl.transaction.log.LogFile;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
 import org.neo4j.kernel.impl.transaction.log.LogRotation;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionAppender;
 import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionCursor;
@@ -64,14 +67,16 @@ import org.neo4j.test.CleanupRule;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
-import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -82,6 +87,7 @@ import static org.mockito.Mockito.when;
 
 import static org.neo4j.helpers.Exceptions.contains;
 import static org.neo4j.kernel.impl.transaction.log.BatchingPhysicalTransactionAppender.DEFAULT_WAIT_STRATEGY;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.CURRENT_LOG_VERSION;
 import static org.neo4j.kernel.impl.util.Counter.ATOMIC_LONG;
 import static org.neo4j.kernel.impl.util.IdOrderingQueue.BYPASS;
 
@@ -225,7 +231,7 @@ public class PhysicalTransactionAppenderTest
         String failureMessage = "Forces a failure";
         WritableLogChannel channel = spy( new InMemoryLogChannel() );
         IOException failure = new IOException( failureMessage );
-        when( channel.putInt( anyInt() ) ).thenThrow( failure );
+        when( channel.putLong( anyLong() ) ).thenThrow( failure );
         LogFile logFile = mock( LogFile.class );
         when( logFile.getWriter() ).thenReturn( channel );
         TransactionMetadataCache metadataCache = new TransactionMetadataCache( 10, 10 );
@@ -430,6 +436,116 @@ public class PhysicalTransactionAppenderTest
         return transaction;
     }
 
+    @Test
+    public void shouldAppendTransactionsWithCompressedCommands() throws Exception
+    {
+        // GIVEN
+        InMemoryVersionableLogChannel uncompressedChannel = new InMemoryVersionableLogChannel();
+        TransactionAppender compressingAppender = appenderWritingTo( channel, true );
+        TransactionAppender appender = appenderWritingTo( uncompressedChannel, false );
+        int nodes = 20;
+
+        // WHEN
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation(
+                createNodeCommands( nodes ) );
+        transaction.setHeader( new byte[0], 2, 1, 12345, 4545, 12355, -1 );
+        compressingAppender.append( transaction );
+        appender.append( transaction );
+
+        // THEN
+        LogPosition compressedEnd = channel.getCurrentPosition( new LogPositionMarker() ).newPosition();
+        LogPosition uncompressedEnd = uncompressedChannel.getCurrentPosition( new LogPositionMarker() ).newPosition();
+        assertThat( compressedEnd.getByteOffset(), lessThan( uncompressedEnd.getByteOffset() ) );
+        final LogEntryReader<ReadableVersionableLogChannel> logEntryReader = new LogEntryReaderFactory().versionable();
+        try ( PhysicalTransactionCursor<ReadableVersionableLogChannel> reader =
+                      new PhysicalTransactionCursor<>( channel, logEntryReader ) )
+        {
+            assertTrue( reader.next() );
+            final List<Long> nodeIds = new ArrayList<>();
+            reader.get().getTransactionRepresentation().accept( new Visitor<Command,IOException>()
+            {
+                @Override
+                public boolean visit( Command command )
+                {
+                    nodeIds.add( command.getKey() );
+                    return false;
+                }
+            } );
+            assertEquals( nodes, nodeIds.size() );
+            for ( int i = 0; i < nodes; i++ )
+            {
+                assertEquals( (long) i, (long) nodeIds.get( i ) );
+            }
+            assertEquals( 15, reader.get().getCommitEntry().getTxId() );
+        }
+    }
+
+    @Test
+    public void shouldAppendTransactionTooLargeToBeSerializedUpFront() throws Exception
+    {
+        // GIVEN
+        // more commands than fit in the serialization buffer of a committing thread
+        InMemoryVersionableLogChannel channel = new InMemoryVersionableLogChannel( 0, CURRENT_LOG_VERSION,
+                32 * 1024 * 1024 );
+        TransactionAppender appender = appenderWritingTo( channel, false );
+        int nodes = 200_000;
+
+        // WHEN
+        PhysicalTransactionRepresentation transaction = new PhysicalTransactionRepresentation(
+                createNodeCommands( nodes ) );
+        transaction.setHeader( new byte[0], 2, 1, 12345, 4545, 12355, -1 );
+        appender.append( transaction );
+
+        // THEN
+        LogPosition end = channel.getCurrentPosition( new LogPositionMarker() ).newPosition();
+        assertThat( 4L * 1024 * 1024, lessThan( end.getByteOffset() ) );
+        final LogEntryReader<ReadableVersionableLogChannel> logEntryReader = new LogEntryReaderFactory().versionable();
+        try ( PhysicalTransactionCursor<ReadableVersionableLogChannel> reader =
+                      new PhysicalTransactionCursor<>( channel, logEntryReader ) )
+        {
+            assertTrue( reader.next() );
+            final List<Long> nodeIds = new ArrayList<>();
+            reader.get().getTransactionRepresentation().accept( new Visitor<Command,IOException>()
+            {
+                @Override
+                public boolean visit( Command command )
+                {
+                    nodeIds.add( command.getKey() );
+                    return false;
+                }
+            } );
+            assertEquals( nodes, nodeIds.size() );
+            assertEquals( 15, reader.get().getCommitEntry().getTxId() );
+            assertFalse( reader.next() );
+        }
+    }
+
+    private TransactionAppender appenderWritingTo( InMemoryVersionableLogChannel channel, boolean compressCommands )
+    {
+        LogFile logFile = mock( LogFile.class );
+        when( logFile.getWriter() ).thenReturn( channel );
+        TransactionIdStore transactionIdStore = mock( TransactionIdStore.class );
+        when( transactionIdStore.nextCommittingTransactionId() ).thenReturn( 15L );
+        return new PhysicalTransactionAppender( logFile, LogRotation.NO_ROTATION,
+                new TransactionMetadataCache( 10, 100 ), transactionIdStore, BYPASS, mock( KernelHealth.class ),
+                TransactionAppender.NO_MONITOR, compressCommands );
+    }
+
+    private Collection<Command> createNodeCommands( int count )
+    {
+        Collection<Command> commands = new ArrayList<>();
+        for ( long id = 0; id < count; id++ )
+        {
+            Command.NodeCommand command = new Command.NodeCommand();
+            NodeRecord before = new NodeRecord( id );
+            NodeRecord after = new NodeRecord( id );
+            after.setInUse( true );
+            command.init( before, after );
+            commands.add( command );
+        }
+        return commands;
+    }
+
     private Collection<Command> singleCreateNodeCommand()
     {
         Collection<Command> commands = new ArrayList<>();
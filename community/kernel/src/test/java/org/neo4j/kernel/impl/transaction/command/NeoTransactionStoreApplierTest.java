@@ -583,6 +583,7 @@ public class NeoTransactionStoreApplierTest
         // when
         final boolean result =
                 applier.visitSchemaRuleCommand( command ) & indexApplier.visitSchemaRuleCommand( command );
+        applyAndClose( applier, indexApplier );
 
         // then
         assertFalse( result );
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.command;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.neo4j.kernel.impl.core.CacheAccessBackDoor;
+import org.neo4j.kernel.impl.store.DynamicArrayStore;
+import org.neo4j.kernel.impl.store.NeoStore;
+import org.neo4j.kernel.impl.store.NodeStore;
+import org.neo4j.kernel.impl.store.UnderlyingStorageException;
+import org.neo4j.kernel.impl.store.record.DynamicRecord;
+import org.neo4j.kernel.impl.store.record.NodeRecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelRecordApplierTest
+{
+    private final NeoStore neoStore = mock( NeoStore.class );
+    private final NodeStore nodeStore = mock( NodeStore.class );
+    private final CacheAccessBackDoor cacheAccess = mock( CacheAccessBackDoor.class );
+
+    @Before
+    public void setup()
+    {
+        when( neoStore.getNodeStore() ).thenReturn( nodeStore );
+    }
+
+    @Test
+    public void shouldApplyAllChangesToARecordInOrder() throws Exception
+    {
+        // GIVEN
+        final ConcurrentMap<Long,Long> writtenNodes = new ConcurrentHashMap<>();
+        doAnswer( new Answer<Void>()
+        {
+            @Override
+            public Void answer( InvocationOnMock invocation ) throws Throwable
+            {
+                NodeRecord record = (NodeRecord) invocation.getArguments()[0];
+                writtenNodes.put( record.getId(), record.getNextRel() );
+                return null;
+            }
+        } ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        ParallelRecordApplier applier = new ParallelRecordApplier( neoStore, cacheAccess, 4 );
+
+        // WHEN
+        int rounds = 20, nodes = 1000;
+        for ( int round = 0; round < rounds; round++ )
+        {
+            NeoCommandHandler handler = applier.decorate( NeoCommandHandler.EMPTY );
+            for ( int id = 0; id < nodes; id++ )
+            {
+                nodeCommand( id, round ).handle( handler );
+            }
+        }
+        applier.close();
+
+        // THEN
+        assertEquals( nodes, writtenNodes.size() );
+        for ( long writtenRound : writtenNodes.values() )
+        {
+            assertEquals( rounds - 1, writtenRound );
+        }
+    }
+
+    @Test
+    public void shouldKeepOrderOfDynamicRecordsReusedByRecordsInOtherPartitions() throws Exception
+    {
+        // GIVEN node 0 slow to write, and its dynamic label record later reused by node 64
+        DynamicArrayStore dynamicLabelStore = mock( DynamicArrayStore.class );
+        final List<DynamicRecord> writtenLabelRecords = new CopyOnWriteArrayList<>();
+        doAnswer( new Answer<Void>()
+        {
+            @Override
+            public Void answer( InvocationOnMock invocation ) throws Throwable
+            {
+                if ( ((NodeRecord) invocation.getArguments()[0]).getId() == 0 )
+                {
+                    Thread.sleep( 100 );
+                }
+                return null;
+            }
+        } ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        doAnswer( new Answer<Void>()
+        {
+            @Override
+            @SuppressWarnings( "unchecked" )
+            public Void answer( InvocationOnMock invocation ) throws Throwable
+            {
+                for ( DynamicRecord record : (Iterable<DynamicRecord>) invocation.getArguments()[0] )
+                {
+                    writtenLabelRecords.add( record );
+                }
+                return null;
+            }
+        } ).when( nodeStore ).updateDynamicLabelRecords( any( Iterable.class ) );
+        ParallelRecordApplier applier = new ParallelRecordApplier( neoStore, cacheAccess, 2 );
+        DynamicRecord first = DynamicRecord.dynamicRecord( 7, true );
+        DynamicRecord second = DynamicRecord.dynamicRecord( 7, true );
+
+        // WHEN
+        nodeCommand( 0, 0, first ).handle( applier.decorate( NeoCommandHandler.EMPTY ) );
+        nodeCommand( 64, 0, second ).handle( applier.decorate( NeoCommandHandler.EMPTY ) );
+        applier.close();
+
+        // THEN
+        assertEquals( 2, writtenLabelRecords.size() );
+        assertSame( second, writtenLabelRecords.get( 1 ) );
+    }
+
+    @Test
+    public void shouldFailOnCloseIfAnyCommandFailedToApply() throws Exception
+    {
+        // GIVEN
+        UnderlyingStorageException failure = new UnderlyingStorageException( "Forced failure" );
+        doThrow( failure ).when( nodeStore ).updateRecord( any( NodeRecord.class ) );
+        ParallelRecordApplier applier = new ParallelRecordApplier( neoStore, cacheAccess, 2 );
+        nodeCommand( 0, 0 ).handle( applier.decorate( NeoCommandHandler.EMPTY ) );
+
+        // WHEN
+        try
+        {
+            applier.close();
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // THEN
+            assertSame( failure, e.getCause() );
+        }
+    }
+
+    private Command.NodeCommand nodeCommand( long id, long nextRel, DynamicRecord... labelRecords )
+    {
+        NodeRecord after = new NodeRecord( id, false, nextRel, -1 );
+        after.setInUse( true );
+        if ( labelRecords.length > 0 )
+        {
+            after.setLabelField( 42, Arrays.asList( labelRecords ) );
+        }
+        return new Command.NodeCommand().init( new NodeRecord( id ), after );
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+
+public class AdaptiveForceDelayTest
+{
+    private final AdaptiveForceDelay delay = new AdaptiveForceDelay( MILLISECONDS.toNanos( 2 ) );
+
+    @Test
+    public void shouldNotDelayWithoutMeasurements() throws Exception
+    {
+        assertEquals( 0, delay.delayNanos() );
+    }
+
+    @Test
+    public void shouldDelayWhenTransactionsArriveFasterThanForces() throws Exception
+    {
+        // GIVEN transactions arriving every 100µs and forces taking 1ms
+        arrive( 10, MICROSECONDS.toNanos( 100 ) );
+        delay.forced( MILLISECONDS.toNanos( 1 ) );
+
+        // THEN wait half a force for more transactions to arrive
+        assertEquals( MICROSECONDS.toNanos( 500 ), delay.delayNanos() );
+    }
+
+    @Test
+    public void shouldNotDelayWhenTransactionsArriveSlowerThanForces() throws Exception
+    {
+        // GIVEN transactions arriving every 5ms and forces taking 1ms
+        arrive( 10, MILLISECONDS.toNanos( 5 ) );
+        delay.forced( MILLISECONDS.toNanos( 1 ) );
+
+        // THEN
+        assertEquals( 0, delay.delayNanos() );
+    }
+
+    @Test
+    public void shouldNotDelayLongerThanMaxDelay() throws Exception
+    {
+        // GIVEN forces taking 10ms
+        arrive( 10, MICROSECONDS.toNanos( 100 ) );
+        delay.forced( MILLISECONDS.toNanos( 10 ) );
+
+        // THEN
+        assertEquals( MILLISECONDS.toNanos( 2 ), delay.delayNanos() );
+    }
+
+    private void arrive( int count, long intervalNanos )
+    {
+        long time = 1;
+        for ( int i = 0; i < count; i++ )
+        {
+            delay.transactionArrived( time );
+            time += intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.DatabaseRule;
+import org.neo4j.test.ImpermanentDatabaseRule;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommitLatencyHistogramTest
+{
+    public final @Rule DatabaseRule db = new ImpermanentDatabaseRule();
+
+    @Test
+    public void shouldMeasureCommitsOfTheDatabase() throws Exception
+    {
+        // GIVEN
+        CommitLatencyHistogram histogram = db.resolveDependency( CommitLatencyHistogram.class );
+        long commitsBefore = histogram.numberOfCommits();
+
+        // WHEN
+        try ( Transaction tx = db.beginTx() )
+        {
+            db.createNode();
+            tx.success();
+        }
+
+        // THEN
+        assertEquals( commitsBefore + 1, histogram.numberOfCommits() );
+        assertTrue( histogram.averageBatchSize() > 0 );
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinAFactorTwo() throws Exception
+    {
+        // GIVEN
+        CommitLatencyHistogram histogram = new CommitLatencyHistogram();
+
+        // WHEN 90 fast commits and 10 slow ones
+        for ( int i = 0; i < 90; i++ )
+        {
+            histogram.transactionAppended( MICROSECONDS.toNanos( 100 ) );
+        }
+        for ( int i = 0; i < 10; i++ )
+        {
+            histogram.transactionAppended( MILLISECONDS.toNanos( 10 ) );
+        }
+
+        // THEN
+        assertEquals( 100, histogram.numberOfCommits() );
+        long median = histogram.percentile( 50, MICROSECONDS );
+        assertTrue( "" + median, median >= 100 && median < 200 );
+        long p90 = histogram.percentile( 90, MICROSECONDS );
+        assertTrue( "" + p90, p90 >= 100 && p90 < 200 );
+        long p99 = histogram.percentile( 99, MICROSECONDS );
+        assertTrue( "" + p99, p99 >= 10_000 && p99 < 20_000 );
+    }
+
+    @Test
+    public void shouldReportZeroWithoutCommits() throws Exception
+    {
+        CommitLatencyHistogram histogram = new CommitLatencyHistogram();
+
+        assertEquals( 0, histogram.percentile( 99, MICROSECONDS ) );
+        assertEquals( 0, histogram.averageBatchSize(), 0 );
+    }
+
+    @Test
+    public void shouldAverageBatchSizes() throws Exception
+    {
+        // GIVEN
+        CommitLatencyHistogram histogram = new CommitLatencyHistogram();
+
+        // WHEN
+        histogram.batchForced( 10, MILLISECONDS.toNanos( 1 ) );
+        histogram.batchForced( 20, MILLISECONDS.toNanos( 3 ) );
+
+        // THEN
+        assertEquals( 15, histogram.averageBatchSize(), 0 );
+        assertEquals( 2, histogram.averageForceTime( MILLISECONDS ) );
+    }
+}
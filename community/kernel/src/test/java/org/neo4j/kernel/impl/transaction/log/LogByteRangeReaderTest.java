@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.kernel.impl.transaction.log;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.neo4j.helpers.collection.Visitor;
+import org.neo4j.io.fs.FileSystemAbstraction;
+import org.neo4j.io.fs.StoreChannel;
+import org.neo4j.kernel.DefaultFileSystemAbstraction;
+import org.neo4j.test.EphemeralFileSystemRule;
+import org.neo4j.test.TargetDirectory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.neo4j.kernel.impl.transaction.log.LogByteRangeReader.READ_BUFFER_SIZE;
+import static org.neo4j.test.TargetDirectory.testDirForTest;
+
+public class LogByteRangeReaderTest
+{
+    @Rule
+    public TargetDirectory.TestDirectory dir = testDirForTest( getClass() );
+    @Rule
+    public EphemeralFileSystemRule ephemeralFs = new EphemeralFileSystemRule();
+
+    @Test
+    public void shouldReadSmallRange() throws Exception
+    {
+        shouldReadRange( new DefaultFileSystemAbstraction(), 100, 1000 );
+    }
+
+    @Test
+    public void shouldReadRangeSpanningMultipleChunks() throws Exception
+    {
+        shouldReadRange( new DefaultFileSystemAbstraction(), 1000, READ_BUFFER_SIZE * 2 + 1000 );
+    }
+
+    @Test
+    public void shouldReadRangeFromEphemeralFileSystem() throws Exception
+    {
+        shouldReadRange( ephemeralFs.get(), 1000, READ_BUFFER_SIZE + 1000 );
+    }
+
+    private void shouldReadRange( FileSystemAbstraction fs, int from, int to ) throws IOException
+    {
+        // GIVEN
+        File file = new File( dir.directory(), "file" );
+        fs.mkdirs( file.getParentFile() );
+        byte[] data = new byte[to + 100];
+        for ( int i = 0; i < data.length; i++ )
+        {
+            data[i] = (byte) (i * 31);
+        }
+        try ( StoreChannel channel = fs.create( file ) )
+        {
+            channel.writeAll( ByteBuffer.wrap( data ) );
+        }
+
+        // WHEN
+        final ByteArrayOutputStream read = new ByteArrayOutputStream();
+        try ( StoreChannel channel = fs.open( file, "r" ) )
+        {
+            LogByteRangeReader.read( channel, from, to, new Visitor<ByteBuffer,IOException>()
+            {
+                @Override
+                public boolean visit( ByteBuffer chunk ) throws IOException
+                {
+                    byte[] bytes = new byte[chunk.remaining()];
+                    chunk.get( bytes );
+                    read.write( bytes );
+                    return false;
+                }
+            } );
+        }
+
+        // THEN
+        byte[] expected = new byte[to - from];
+        System.arraycopy( data, from, expected, 0, expected.length );
+        assertArrayEquals( expected, read.toByteArray() );
+    }
+}
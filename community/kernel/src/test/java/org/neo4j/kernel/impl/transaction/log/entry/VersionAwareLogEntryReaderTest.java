@@ -20,14 +20,21 @@
 package org.neo4j.kernel.impl.transaction.log.entry;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
 
 import org.junit.Test;
 
+import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.transaction.command.Command;
 import org.neo4j.kernel.impl.transaction.command.CommandReaderFactory;
 import org.neo4j.kernel.impl.transaction.command.NeoCommandType;
+import org.neo4j.kernel.impl.transaction.log.CommandWriter;
 import org.neo4j.kernel.impl.transaction.log.InMemoryLogChannel;
 import org.neo4j.kernel.impl.transaction.log.LogPosition;
+import org.neo4j.kernel.impl.transaction.log.LogPositionMarker;
+import org.neo4j.kernel.impl.transaction.log.PhysicalTransactionRepresentation;
 import org.neo4j.kernel.impl.transaction.log.entry.DefaultLogEntryParserFactory;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntry;
 import org.neo4j.kernel.impl.transaction.log.entry.LogEntryByteCodes;
@@ -38,10 +45,16 @@ import org.neo4j.kernel.impl.transaction.log.entry.LogEntryStart;
 import org.neo4j.kernel.impl.transaction.log.entry.OnePhaseCommit;
 import org.neo4j.kernel.impl.transaction.log.entry.VersionAwareLogEntryReader;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.CURRENT_LOG_ENTRY_VERSION;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS;
+import static org.neo4j.kernel.impl.transaction.log.entry.LogEntryVersions.NEWEST_LOG_ENTRY_VERSION;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.LOG_VERSION_2_1;
 import static org.neo4j.kernel.impl.transaction.log.entry.LogVersions.LOG_VERSION_2_2;
 
@@ -115,6 +128,103 @@ public class VersionAwareLogEntryReaderTest
         assertEquals( command, logEntry );
     }
 
+    @Test
+    public void shouldReadCommandLogEntriesFromCompressedCommandsEntry() throws IOException
+    {
+        // given
+        InMemoryLogChannel commands = new InMemoryLogChannel();
+        List<Command> nodeCommands = new ArrayList<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            Command.NodeCommand command = new Command.NodeCommand();
+            command.init( new NodeRecord( i ), new NodeRecord( i ) );
+            nodeCommands.add( command );
+        }
+        new LogEntryWriterv1( commands, new CommandWriter( commands ) )
+                .serialize( new PhysicalTransactionRepresentation( nodeCommands ) );
+        byte[] uncompressed = new byte[(int) commands.getCurrentPosition( new LogPositionMarker() )
+                .newPosition().getByteOffset()];
+        commands.get( uncompressed, uncompressed.length );
+        Deflater deflater = new Deflater();
+        deflater.setInput( uncompressed );
+        deflater.finish();
+        byte[] compressed = new byte[uncompressed.length * 2];
+        int compressedLength = deflater.deflate( compressed );
+        final OnePhaseCommit commit = new OnePhaseCommit( CURRENT_LOG_ENTRY_VERSION, 42, 21 );
+
+        final InMemoryLogChannel channel = new InMemoryLogChannel();
+        LogEntryWriterv1 writer = new LogEntryWriterv1( channel, new CommandWriter( channel ) );
+        writer.writeCompressedCommandsEntry( uncompressed.length, compressed, compressedLength );
+        writer.writeCommitEntry( commit.getTxId(), commit.getTimeWritten() );
+
+        // when/then
+        for ( Command command : nodeCommands )
+        {
+            assertEquals( command,
+                    ((LogEntryCommand) logEntryReader.readLogEntry( channel, LOG_VERSION_2_2 )).getXaCommand() );
+        }
+        assertEquals( commit, logEntryReader.readLogEntry( channel, LOG_VERSION_2_2 ) );
+    }
+
+    @Test
+    public void shouldWriteCompressedCommandsEntryWithItsOwnEntryVersion() throws IOException
+    {
+        // given
+        final InMemoryLogChannel channel = new InMemoryLogChannel();
+        LogEntryWriterv1 writer = new LogEntryWriterv1( channel, new CommandWriter( channel ) );
+
+        // when
+        writer.writeCompressedCommandsEntry( 0, new byte[0], 0 );
+
+        // then
+        assertEquals( LOG_ENTRY_VERSION_2_2_COMPRESSED_COMMANDS, channel.get() );
+        assertEquals( LogEntryByteCodes.COMPRESSED_COMMANDS, channel.get() );
+    }
+
+    @Test
+    public void shouldFailOnCompressedCommandsEntryWithOlderEntryVersion() throws IOException
+    {
+        // given
+        final InMemoryLogChannel channel = new InMemoryLogChannel();
+        channel.put( CURRENT_LOG_ENTRY_VERSION );
+        channel.put( LogEntryByteCodes.COMPRESSED_COMMANDS );
+        channel.putInt( 0 ).putInt( 0 );
+
+        // when
+        try
+        {
+            logEntryReader.readLogEntry( channel, LOG_VERSION_2_2 );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then
+            assertThat( e.getMessage(), containsString( "unexpected entry version" ) );
+        }
+    }
+
+    @Test
+    public void shouldFailOnEntryVersionNewerThanSupported() throws IOException
+    {
+        // given
+        final InMemoryLogChannel channel = new InMemoryLogChannel();
+        channel.put( (byte) (NEWEST_LOG_ENTRY_VERSION - 1) );
+        channel.put( LogEntryByteCodes.TX_1P_COMMIT );
+        channel.putLong( 42 ).putLong( 21 );
+
+        // when
+        try
+        {
+            logEntryReader.readLogEntry( channel, LOG_VERSION_2_2 );
+            fail( "Should have failed" );
+        }
+        catch ( IOException e )
+        {
+            // then
+            assertThat( e.getMessage(), containsString( "Unsupported entry version" ) );
+        }
+    }
+
     @Test
     public void shouldReturnNullWhenThereIsNoCommand() throws IOException
     {
@@ -27,10 +27,12 @@ import static org.mockito.Mockito.mock;
 import static org.neo4j.helpers.collection.IteratorUtil.asSet;
 import static org.neo4j.helpers.collection.IteratorUtil.emptySetOf;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.After;
 import org.junit.Before;
@@ -61,6 +63,7 @@ import org.neo4j.kernel.impl.locking.LockService;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.StoreAccess;
 import org.neo4j.kernel.impl.store.counts.CountsTracker;
+import org.neo4j.kernel.impl.util.Neo4jJobScheduler;
 import org.neo4j.test.TargetDirectory;
 
 public class NeoStoreIndexStoreViewTest
@@ -148,6 +151,56 @@ public class NeoStoreIndexStoreViewTest
         order.verifyNoMoreInteractions();
     }
 
+    @Test
+    public void shouldVisitNodesInIdOrderWhenScanningPartitionsInParallel() throws Exception
+    {
+        // given
+        List<Long> expectedNodeIds = new ArrayList<>();
+        expectedNodeIds.add( alistair.getId() );
+        expectedNodeIds.add( stefan.getId() );
+        expectedNodeIds.addAll( createNamedNodes( NeoStoreIndexStoreView.PARTITION_SIZE * 3 + 10 ) );
+        Neo4jJobScheduler scheduler = new Neo4jJobScheduler();
+        scheduler.init();
+        storeView = new NeoStoreIndexStoreView( locks, neoStore, scheduler, 4 );
+
+        final List<Long> visitedNodeIds = new ArrayList<>();
+        final List<Long> highestReadNodeIds = new ArrayList<>();
+        final StoreScan<?>[] scan = new StoreScan<?>[1];
+        Visitor<NodePropertyUpdate, Exception> visitor = new Visitor<NodePropertyUpdate, Exception>()
+        {
+            @Override
+            public boolean visit( NodePropertyUpdate update )
+            {
+                visitedNodeIds.add( update.getNodeId() );
+                highestReadNodeIds.add( scan[0].highestReadNodeId() );
+                return false;
+            }
+        };
+        StoreScan<Exception> storeScan = storeView
+                .visitNodesWithPropertyAndLabel( new IndexDescriptor( labelId, propertyKeyId ), visitor );
+        scan[0] = storeScan;
+
+        // when
+        try
+        {
+            storeScan.run();
+        }
+        finally
+        {
+            scheduler.shutdown();
+        }
+
+        // then
+        assertEquals( expectedNodeIds, visitedNodeIds );
+        for ( int i = 0; i < visitedNodeIds.size(); i++ )
+        {
+            assertTrue( "read position " + highestReadNodeIds.get( i ) + " behind visited node " +
+                    visitedNodeIds.get( i ), highestReadNodeIds.get( i ) >= visitedNodeIds.get( i ) );
+        }
+        assertTrue( "scan should have read ahead of the first visited node",
+                highestReadNodeIds.get( 0 ) >= NeoStoreIndexStoreView.PARTITION_SIZE );
+    }
+
     @Test
     public void shouldReadProperties() throws PropertyNotFoundException, EntityNotFoundException
     {
@@ -155,7 +208,7 @@ public class NeoStoreIndexStoreViewTest
         assertTrue( property.valueEquals( "Alistair" ) );
     }
 
-    Map<Long, Lock> lockMocks = new HashMap<>();
+    Map<Long, Lock> lockMocks = new ConcurrentHashMap<>();
 
     @Before
     public void before() throws KernelException
@@ -177,7 +230,8 @@ public class NeoStoreIndexStoreViewTest
                 Lock lock = lockMocks.get( nodeId );
                 if ( lock == null )
                 {
-                    lockMocks.put( nodeId, lock = mock( Lock.class ) );
+                    Lock existing = lockMocks.putIfAbsent( nodeId, lock = mock( Lock.class ) );
+                    lock = existing != null ? existing : lock;
                 }
                 return lock;
             }
@@ -204,6 +258,25 @@ public class NeoStoreIndexStoreViewTest
         }
     }
 
+    private List<Long> createNamedNodes( int count )
+    {
+        List<Long> nodeIds = new ArrayList<>();
+        while ( nodeIds.size() < count )
+        {
+            try ( Transaction tx = graphDb.beginTx() )
+            {
+                for ( int i = 0; i < 5_000 && nodeIds.size() < count; i++ )
+                {
+                    Node node = graphDb.createNode( label );
+                    node.setProperty( "name", "Node" + nodeIds.size() );
+                    nodeIds.add( node.getId() );
+                }
+                tx.success();
+            }
+        }
+        return nodeIds;
+    }
+
     private void deleteAlistairAndStefanNodes()
     {
         try ( Transaction tx = graphDb.beginTx() )
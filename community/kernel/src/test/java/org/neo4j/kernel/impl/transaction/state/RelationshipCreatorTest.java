@@ -116,6 +116,15 @@ public class RelationshipCreatorTest
             relationshipLocksAcquired.add( relId );
         }
 
+        @Override
+        public void getWriteLocks( long... relIds )
+        {
+            for ( long relId : relIds )
+            {
+                getWriteLock( relId );
+            }
+        }
+
         protected void changingRelationship( long relId )
         {   // Called by tracking record proxies
             assertTrue( "Tried to change relationship " + relId + " without this transaction having it locked",
@@ -92,6 +92,7 @@ public class SchemaRuleCommandTest
 
         // WHEN
         indexApplier.visitSchemaRuleCommand( command );
+        indexApplier.apply();
 
         // THEN
         verify( indexes ).createIndex( rule );
@@ -29,6 +29,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import org.neo4j.test.TargetDirectory;
+
 import static java.lang.System.currentTimeMillis;
 
 import static org.junit.Assert.assertEquals;
@@ -87,7 +89,9 @@ public class IntArrayTest
     {
         return Arrays.asList(
                 new Object[] {NumberArrayFactory.HEAP},
-                new Object[] {NumberArrayFactory.OFF_HEAP}
+                new Object[] {NumberArrayFactory.OFF_HEAP},
+                new Object[] {new NumberArrayFactory.FileMapped(
+                        TargetDirectory.forTest( IntArrayTest.class ).cacheDirectory( "mapped" ) )}
                 );
     }
 
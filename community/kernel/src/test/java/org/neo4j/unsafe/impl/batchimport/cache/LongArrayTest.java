@@ -29,6 +29,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
 
+import org.neo4j.test.TargetDirectory;
+
 import static java.lang.System.currentTimeMillis;
 
 import static org.junit.Assert.assertEquals;
@@ -100,7 +102,9 @@ public class LongArrayTest
     {
         return Arrays.asList(
                 new Object[] {NumberArrayFactory.HEAP},
-                new Object[] {NumberArrayFactory.OFF_HEAP}
+                new Object[] {NumberArrayFactory.OFF_HEAP},
+                new Object[] {new NumberArrayFactory.FileMapped(
+                        TargetDirectory.forTest( LongArrayTest.class ).cacheDirectory( "mapped" ) )}
                 );
     }
 
@@ -19,7 +19,15 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache;
 
+import java.io.File;
+
+import org.junit.Rule;
 import org.junit.Test;
+
+import org.neo4j.test.TargetDirectory;
+import org.neo4j.test.TargetDirectory.TestDirectory;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -30,6 +38,8 @@ public class NumberArrayFactoryTest
     private static final int KILO = 1024;
     private static final long MEGA = KILO*KILO;
 
+    public final @Rule TestDirectory directory = TargetDirectory.testDirForTest( getClass() );
+
     @Test
     public void shouldAllocateOnHeapIfAvailable() throws Exception
     {
@@ -82,4 +92,66 @@ public class NumberArrayFactoryTest
         assertTrue( array instanceof DynamicLongArray );
         assertEquals( 12345, array.get( 1*MEGA-10 ) );
     }
+
+    @Test
+    public void shouldSpillToMappedFilesIfNotEnoughMemoryAvailable() throws Exception
+    {
+        // GIVEN
+        AvailableMemoryCalculator memory = mock( AvailableMemoryCalculator.class );
+        when( memory.availableHeapMemory() ).thenReturn( 1*MEGA );
+        when( memory.availableOffHeapMemory() ).thenReturn( 1*MEGA );
+        NumberArrayFactory factory = new NumberArrayFactory.Auto( memory, 10*KILO, directory.directory() );
+
+        // WHEN
+        LongArray array = factory.newLongArray( 1*MEGA, -1 );
+        array.set( 1*MEGA-10, 12345 );
+
+        // THEN
+        assertTrue( array instanceof MappedLongArray );
+        assertEquals( 12345, array.get( 1*MEGA-10 ) );
+        assertEquals( -1, array.get( 1*MEGA-11 ) );
+        assertEquals( 1, directory.directory().list().length );
+
+        // and WHEN
+        array.close();
+
+        // THEN
+        assertArrayEquals( new String[0], directory.directory().list() );
+    }
+
+    @Test
+    public void shouldCreateSpillDirectoryIfItDoesNotExist() throws Exception
+    {
+        // GIVEN
+        AvailableMemoryCalculator memory = mock( AvailableMemoryCalculator.class );
+        when( memory.availableHeapMemory() ).thenReturn( 1*MEGA );
+        when( memory.availableOffHeapMemory() ).thenReturn( 1*MEGA );
+        File spillDirectory = new File( directory.directory(), "spill" );
+        NumberArrayFactory factory = new NumberArrayFactory.Auto( memory, 10*KILO, spillDirectory );
+
+        // WHEN
+        try ( LongArray array = factory.newLongArray( 1*MEGA, -1 ) )
+        {
+            array.set( 1*MEGA-10, 12345 );
+
+            // THEN
+            assertTrue( array instanceof MappedLongArray );
+            assertEquals( 12345, array.get( 1*MEGA-10 ) );
+            assertEquals( 1, spillDirectory.list().length );
+        }
+        assertArrayEquals( new String[0], spillDirectory.list() );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void shouldFailIfNotEnoughMemoryAvailableAndNoSpillDirectory() throws Exception
+    {
+        // GIVEN
+        AvailableMemoryCalculator memory = mock( AvailableMemoryCalculator.class );
+        when( memory.availableHeapMemory() ).thenReturn( 1*MEGA );
+        when( memory.availableOffHeapMemory() ).thenReturn( 1*MEGA );
+        NumberArrayFactory factory = new NumberArrayFactory.Auto( memory, 10*KILO );
+
+        // WHEN
+        factory.newLongArray( 1*MEGA, 0 );
+    }
 }
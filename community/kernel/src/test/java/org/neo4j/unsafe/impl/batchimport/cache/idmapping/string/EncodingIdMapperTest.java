@@ -19,6 +19,10 @@
  */
 package org.neo4j.unsafe.impl.batchimport.cache.idmapping.string;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -329,6 +333,45 @@ public class EncodingIdMapperTest
         assertEquals( 2L, mapper.get( "10", groups( 0, 1, 2 ) ) );
     }
 
+    @Test
+    public void shouldGetSameIdsAfterCheckpointAndRestore() throws Exception
+    {
+        // GIVEN
+        IdMapper mapper = new EncodingIdMapper( NumberArrayFactory.AUTO, new StringEncoder(), new Radix.String() );
+        List<Object> ids = new ArrayList<>();
+        for ( int i = 0; i < 10_000; i++ )
+        {
+            ids.add( "id" + i );
+        }
+        ids.add( "id0" ); // a collision, in another group
+        ResourceIterable<Object> idIterable = IteratorUtil.resourceIterable( ids );
+        for ( int i = 0; i < ids.size(); i++ )
+        {
+            mapper.put( ids.get( i ), i, i < ids.size() - 1 ? GLOBAL : group( 1, "other" ) );
+        }
+        mapper.prepare( idIterable );
+
+        // WHEN
+        ByteArrayOutputStream checkpoint = new ByteArrayOutputStream();
+        try ( DataOutputStream out = new DataOutputStream( checkpoint ) )
+        {
+            mapper.checkpoint( out );
+        }
+        IdMapper restored = new EncodingIdMapper( NumberArrayFactory.AUTO, new StringEncoder(), new Radix.String() );
+        try ( DataInputStream in = new DataInputStream( new ByteArrayInputStream( checkpoint.toByteArray() ) ) )
+        {
+            restored.restore( in );
+        }
+
+        // THEN looking them up in another order than they were put, since that affects the encoding
+        for ( int i = ids.size() - 2; i >= 0; i-- )
+        {
+            assertEquals( i, restored.get( ids.get( i ), groups( 0 ) ) );
+        }
+        assertEquals( ids.size() - 1, restored.get( "id0", groups( 1 ) ) );
+        assertEquals( -1L, restored.get( "missing", ANY_GROUP ) );
+    }
+
     private Group group( int id, final String name )
     {
         return new Group.Adapter( id, name );
@@ -26,7 +26,9 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -38,42 +40,69 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.neo4j.function.Function;
+import org.neo4j.graphdb.DynamicLabel;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Label;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.ResourceIterable;
+import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.graphdb.schema.IndexDefinition;
+import org.neo4j.graphdb.schema.Schema;
+import org.neo4j.helpers.Exceptions;
 import org.neo4j.helpers.Pair;
 import org.neo4j.io.fs.DefaultFileSystemAbstraction;
 import org.neo4j.io.fs.FileSystemAbstraction;
 import org.neo4j.kernel.GraphDatabaseAPI;
 import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.labelscan.LabelScanStore;
+import org.neo4j.kernel.extension.KernelExtensionFactory;
+import org.neo4j.kernel.impl.api.index.inmemory.InMemoryIndexProvider;
+import org.neo4j.kernel.impl.api.index.inmemory.InMemoryIndexProviderFactory;
+import org.neo4j.kernel.impl.api.scan.InMemoryLabelScanStore;
+import org.neo4j.kernel.impl.api.scan.InMemoryLabelScanStoreExtension;
+import org.neo4j.kernel.impl.api.scan.LabelScanStoreProvider;
 import org.neo4j.kernel.impl.core.Token;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.TokenStore;
 import org.neo4j.kernel.impl.transaction.state.NeoStoreProvider;
 import org.neo4j.kernel.impl.util.AutoCreatingHashMap;
+import org.neo4j.kernel.lifecycle.Lifecycle;
 import org.neo4j.kernel.logging.DevNullLoggingService;
 import org.neo4j.test.TargetDirectory;
 import org.neo4j.test.TargetDirectory.TestDirectory;
+import org.neo4j.test.TestGraphDatabaseFactory;
 import org.neo4j.tooling.GlobalGraphOperations;
 import org.neo4j.unsafe.impl.batchimport.BatchImporter;
 import org.neo4j.unsafe.impl.batchimport.Configuration;
 import org.neo4j.unsafe.impl.batchimport.Configuration.Default;
 import org.neo4j.unsafe.impl.batchimport.ParallelBatchImporter;
+import org.neo4j.unsafe.impl.batchimport.cache.AvailableMemoryCalculator;
+import org.neo4j.unsafe.impl.batchimport.cache.NumberArrayFactory;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdGenerator;
+import org.neo4j.unsafe.impl.batchimport.cache.idmapping.IdMapper;
+import org.neo4j.unsafe.impl.batchimport.input.Input;
 import org.neo4j.unsafe.impl.batchimport.input.InputNode;
 import org.neo4j.unsafe.impl.batchimport.input.InputRelationship;
 
 import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.neo4j.helpers.collection.IteratorUtil.asSet;
+import static org.neo4j.helpers.collection.IteratorUtil.count;
+import static org.neo4j.helpers.collection.IteratorUtil.loop;
 import static org.neo4j.kernel.impl.util.AutoCreatingHashMap.nested;
 import static org.neo4j.kernel.impl.util.AutoCreatingHashMap.values;
 import static org.neo4j.register.Registers.newDoubleLongRegister;
+import static org.neo4j.unsafe.impl.batchimport.AdditionalInitialIds.EMPTY;
+import static org.neo4j.unsafe.impl.batchimport.WriterFactories.parallel;
 import static org.neo4j.unsafe.impl.batchimport.input.InputEntity.NO_PROPERTIES;
 import static org.neo4j.unsafe.impl.batchimport.input.Inputs.csv;
 import static org.neo4j.unsafe.impl.batchimport.input.csv.Configuration.COMMAS;
@@ -109,6 +138,201 @@ public class CsvInputBatchImportIT
         }
     }
 
+    @Test
+    public void shouldResumeImportWhichFailedAfterImportingNodes() throws Exception
+    {
+        // GIVEN an import which failed right after having imported the nodes
+        List<InputNode> nodeData = randomNodeData();
+        List<InputRelationship> relationshipData = randomRelationshipData( nodeData );
+        File nodeFile = nodeDataAsFile( nodeData );
+        File relationshipFile = relationshipDataAsFile( relationshipData );
+        try
+        {
+            new ParallelBatchImporter( directory.absolutePath(), smallBatchSizeConfig(),
+                    new DevNullLoggingService(), invisible() ).doImport(
+                            failingWhenImportingRelationships( csv( nodeFile, relationshipFile, IdType.STRING, COMMAS ) ) );
+            fail( "Should have failed" );
+        }
+        catch ( IllegalStateException e )
+        {   // Good
+        }
+
+        // WHEN
+        boolean success = false;
+        try
+        {
+            new ParallelBatchImporter( directory.absolutePath(), smallBatchSizeConfig(),
+                    new DevNullLoggingService(), invisible() ).resumeImport(
+                            csv( nodeFile, relationshipFile, IdType.STRING, COMMAS ) );
+
+            // THEN
+            verifyImportedData( nodeData, relationshipData );
+            success = true;
+        }
+        finally
+        {
+            if ( !success )
+            {
+                System.err.println( "Seed " + seed );
+            }
+        }
+    }
+
+    @Test
+    public void shouldBuildIndexesAndLabelScanStoreDuringImport() throws Exception
+    {
+        // GIVEN
+        InMemoryIndexProvider indexProvider = new InMemoryIndexProvider();
+        LabelScanStore labelScanStore = new InMemoryLabelScanStore();
+        ParallelBatchImporter importer = new ParallelBatchImporter( directory.absolutePath(),
+                new DefaultFileSystemAbstraction(), smallBatchSizeConfig(), new DevNullLoggingService(), invisible(),
+                parallel(), EMPTY, AvailableMemoryCalculator.RUNTIME,
+                indexingExtensions( indexProvider, labelScanStore ) );
+        importer.createIndex( "Label0", "name" );
+        importer.createUniquenessConstraint( "Label1", "name" );
+        List<InputNode> nodeData = randomNodeData();
+
+        // WHEN
+        importer.doImport( csv( nodeDataAsFile( nodeData ), relationshipDataAsFile( randomRelationshipData( nodeData ) ),
+                IdType.STRING, COMMAS ) );
+
+        // THEN
+        GraphDatabaseService db = new TestGraphDatabaseFactory()
+                .addKernelExtensions( indexingExtensions( indexProvider, labelScanStore ) )
+                .newEmbeddedDatabase( directory.absolutePath() );
+        try ( Transaction tx = db.beginTx() )
+        {
+            for ( IndexDefinition index : db.schema().getIndexes() )
+            {
+                assertEquals( Schema.IndexState.ONLINE, db.schema().getIndexState( index ) );
+            }
+            assertEquals( 2, count( db.schema().getIndexes() ) );
+            assertEquals( 1, count( db.schema().getConstraints() ) );
+
+            for ( String labelName : asList( "Label0", "Label1", "Label2", "Label3" ) )
+            {
+                Label label = DynamicLabel.label( labelName );
+                Set<String> expectedNames = new HashSet<>();
+                for ( InputNode node : nodeData )
+                {
+                    if ( asList( node.labels() ).contains( labelName ) )
+                    {
+                        expectedNames.add( (String) node.properties()[1] );
+                    }
+                }
+                Set<String> names = new HashSet<>();
+                for ( Node node : loop( db.findNodes( label ) ) )
+                {
+                    names.add( (String) node.getProperty( "name" ) );
+                }
+                assertEquals( expectedNames, names );
+                if ( labelName.equals( "Label0" ) || labelName.equals( "Label1" ) )
+                {
+                    for ( String name : expectedNames )
+                    {
+                        assertEquals( name, db.findNode( label, "name", name ).getProperty( "name" ) );
+                    }
+                }
+            }
+            tx.success();
+        }
+        finally
+        {
+            db.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldFailImportOfNodesViolatingUniquenessConstraint() throws Exception
+    {
+        // GIVEN
+        ParallelBatchImporter importer = new ParallelBatchImporter( directory.absolutePath(),
+                new DefaultFileSystemAbstraction(), smallBatchSizeConfig(), new DevNullLoggingService(), invisible(),
+                parallel(), EMPTY, AvailableMemoryCalculator.RUNTIME,
+                indexingExtensions( new InMemoryIndexProvider(), new InMemoryLabelScanStore() ) );
+        importer.createUniquenessConstraint( "Person", "name" );
+        List<InputNode> nodeData = asList(
+                new InputNode( "a", new Object[] {"name", "Same"}, null, new String[] {"Person"}, null ),
+                new InputNode( "b", new Object[] {"name", "Other"}, null, new String[] {"Person"}, null ),
+                new InputNode( "c", new Object[] {"name", "Same"}, null, new String[] {"Person"}, null ) );
+
+        // WHEN
+        try
+        {
+            importer.doImport( csv( nodeDataAsFile( nodeData ),
+                    relationshipDataAsFile( Collections.<InputRelationship>emptyList() ), IdType.STRING, COMMAS ) );
+            fail( "Should have failed" );
+        }
+        catch ( Exception e )
+        {   // THEN
+            assertThat( Exceptions.stringify( e ), containsString( "Same" ) );
+        }
+    }
+
+    private Iterable<KernelExtensionFactory<?>> indexingExtensions( InMemoryIndexProvider indexProvider,
+            final LabelScanStore labelScanStore )
+    {
+        KernelExtensionFactory<?> labelScanStoreExtension =
+                new KernelExtensionFactory<InMemoryLabelScanStoreExtension.NoDependencies>( "shared-scan-store" )
+        {
+            @Override
+            public Lifecycle newKernelExtension( InMemoryLabelScanStoreExtension.NoDependencies dependencies )
+            {
+                return new LabelScanStoreProvider( labelScanStore, 100 );
+            }
+        };
+        return Arrays.<KernelExtensionFactory<?>>asList(
+                new InMemoryIndexProviderFactory( indexProvider ), labelScanStoreExtension );
+    }
+
+    /**
+     * Relationships are read once to calculate dense nodes and a second time to import them.
+     * The second time fails.
+     */
+    private Input failingWhenImportingRelationships( final Input input )
+    {
+        return new Input()
+        {
+            private int relationshipIterators;
+
+            @Override
+            public ResourceIterable<InputNode> nodes()
+            {
+                return input.nodes();
+            }
+
+            @Override
+            public ResourceIterable<InputRelationship> relationships()
+            {
+                final ResourceIterable<InputRelationship> relationships = input.relationships();
+                return new ResourceIterable<InputRelationship>()
+                {
+                    @Override
+                    public ResourceIterator<InputRelationship> iterator()
+                    {
+                        if ( ++relationshipIterators > 1 )
+                        {
+                            throw new IllegalStateException( "Failing on purpose" );
+                        }
+                        return relationships.iterator();
+                    }
+                };
+            }
+
+            @Override
+            public IdMapper idMapper( NumberArrayFactory numberArrayFactory )
+            {
+                return input.idMapper( numberArrayFactory );
+            }
+
+            @Override
+            public IdGenerator idGenerator()
+            {
+                return input.idGenerator();
+            }
+        };
+    }
+
     // ======================================================
     // Below is code for generating import data
     // ======================================================
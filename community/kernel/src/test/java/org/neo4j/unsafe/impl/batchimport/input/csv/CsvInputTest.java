@@ -19,14 +19,19 @@
  */
 package org.neo4j.unsafe.impl.batchimport.input.csv;
 
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
 import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Set;
 
 import org.junit.Rule;
 import org.junit.Test;
 
-import org.neo4j.csv.reader.BufferedCharSeeker;
+import org.neo4j.csv.reader.CharReadable;
 import org.neo4j.csv.reader.CharSeeker;
 import org.neo4j.csv.reader.Extractor;
 import org.neo4j.csv.reader.Extractors;
@@ -102,15 +107,61 @@ public class CsvInputTest
         assertRelationship( relationships.next(), 1L, "node2", "node10", "HACKS", properties( "since", 987654L ) );
     }
 
+    @Test
+    public void shouldAssignRelationshipIdsInInputOrderWhenParsingInParallel() throws Exception
+    {
+        // GIVEN
+        DataFactory<InputRelationship> group1 = data( ":START_ID,:END_ID,:TYPE\n" +
+                                                      "a,b,KNOWS\n" +
+                                                      "b,c,KNOWS\n" );
+        DataFactory<InputRelationship> group2 = data( ":START_ID,:END_ID,:TYPE\n" +
+                                                      "c,d,HACKS\n" );
+        Iterable<DataFactory<InputRelationship>> data = dataIterable( group1, group2 );
+        Input input = new CsvInput( null, null, data, defaultFormatRelationshipFileHeader(),
+                IdType.STRING, COMMAS, 4 );
+
+        // WHEN/THEN
+        try ( ResourceIterator<InputRelationship> relationships = input.relationships().iterator() )
+        {
+            assertRelationship( relationships.next(), 0L, "a", "b", "KNOWS", NO_PROPERTIES );
+            assertRelationship( relationships.next(), 1L, "b", "c", "KNOWS", NO_PROPERTIES );
+            assertRelationship( relationships.next(), 2L, "c", "d", "HACKS", NO_PROPERTIES );
+            assertFalse( relationships.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldSeekInUtf8BytesOfDataWhenAvailable() throws Exception
+    {
+        for ( int parsingThreads : new int[] {1, 4} )
+        {
+            // GIVEN
+            Iterable<DataFactory<InputNode>> data = dataIterable( utf8Data( ":ID,name,age:int\n" +
+                                                                            "1,\"Mattias, Åström\",35\n" +
+                                                                            "2,日本,\n" ) );
+            Input input = new CsvInput( data, defaultFormatNodeFileHeader(), null, null, IdType.ACTUAL, COMMAS,
+                    parsingThreads );
+
+            // WHEN/THEN
+            try ( ResourceIterator<InputNode> nodes = input.nodes().iterator() )
+            {
+                assertNode( nodes.next(), 1L, properties( "name", "Mattias, Åström", "age", 35 ), labels() );
+                assertNode( nodes.next(), 2L, properties( "name", "日本" ), labels() );
+                assertFalse( nodes.hasNext() );
+            }
+        }
+    }
+
     @Test
     public void shouldCloseDataIteratorsInTheEnd() throws Exception
     {
         // GIVEN
-        CharSeeker nodeData = spy( charSeeker( "test" ) );
-        CharSeeker relationshipData = spy( charSeeker( "test" ) );
+        Reader nodeData = spy( new StringReader( "test" ) );
+        Reader relationshipData = spy( new StringReader( "test" ) );
         IdType idType = IdType.STRING;
-        Iterable<DataFactory<InputNode>> nodeDataIterable = dataIterable( given( nodeData ) );
-        Iterable<DataFactory<InputRelationship>> relationshipDataIterable = dataIterable( given( relationshipData ) );
+        Iterable<DataFactory<InputNode>> nodeDataIterable = dataIterable( given( wrap( nodeData ) ) );
+        Iterable<DataFactory<InputRelationship>> relationshipDataIterable =
+                dataIterable( given( wrap( relationshipData ) ) );
         Input input = new CsvInput(
                 nodeDataIterable, header( entry( "single", Type.IGNORE, idType.extractor( extractors ) ) ),
                 relationshipDataIterable, header( entry( "single", Type.IGNORE, idType.extractor( extractors ) ) ),
@@ -478,7 +529,7 @@ public class CsvInputTest
         };
     }
 
-    private <ENTITY extends InputEntity> DataFactory<ENTITY> given( final CharSeeker data )
+    private <ENTITY extends InputEntity> DataFactory<ENTITY> given( final CharReadable data )
     {
         return new DataFactory<ENTITY>()
         {
@@ -490,17 +541,23 @@ public class CsvInputTest
         };
     }
 
-    private <ENTITY extends InputEntity> Data<ENTITY> noDecoratorData( final CharSeeker data,
+    private <ENTITY extends InputEntity> Data<ENTITY> noDecoratorData( final CharReadable data,
             final Function<ENTITY,ENTITY> decorator )
     {
         return new Data<ENTITY>()
         {
             @Override
-            public CharSeeker stream()
+            public CharReadable stream()
             {
                 return data;
             }
 
+            @Override
+            public ReadableByteChannel bytes()
+            {
+                return null;
+            }
+
             @Override
             public Function<ENTITY,ENTITY> decorator()
             {
@@ -566,14 +623,49 @@ public class CsvInputTest
             @Override
             public Data<ENTITY> create( Configuration config )
             {
-                return noDecoratorData( charSeeker( data ), decorator );
+                return noDecoratorData( readable( data ), decorator );
+            }
+        };
+    }
+
+    /**
+     * @return data which can only be read as UTF-8 encoded bytes.
+     */
+    private <ENTITY extends InputEntity> DataFactory<ENTITY> utf8Data( final String data )
+    {
+        return new DataFactory<ENTITY>()
+        {
+            @Override
+            public Data<ENTITY> create( Configuration config )
+            {
+                return new Data<ENTITY>()
+                {
+                    @Override
+                    public CharReadable stream()
+                    {
+                        throw new AssertionError( "Should have read the bytes" );
+                    }
+
+                    @Override
+                    public ReadableByteChannel bytes()
+                    {
+                        return Channels.newChannel(
+                                new ByteArrayInputStream( data.getBytes( StandardCharsets.UTF_8 ) ) );
+                    }
+
+                    @Override
+                    public Function<ENTITY,ENTITY> decorator()
+                    {
+                        return Functions.identity();
+                    }
+                };
             }
         };
     }
 
-    private CharSeeker charSeeker( String data )
+    private CharReadable readable( String data )
     {
-        return new BufferedCharSeeker( wrap( new StringReader( data ) ) );
+        return wrap( new StringReader( data ) );
     }
 
     @SuppressWarnings( { "rawtypes", "unchecked" } )
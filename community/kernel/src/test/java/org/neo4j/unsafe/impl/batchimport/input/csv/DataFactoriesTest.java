@@ -39,6 +39,7 @@ import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
+import static org.neo4j.csv.reader.CharSeekers.charSeeker;
 import static org.neo4j.csv.reader.Readables.multipleSources;
 import static org.neo4j.csv.reader.Readables.wrap;
 import static org.neo4j.helpers.collection.IteratorUtil.array;
@@ -213,7 +214,7 @@ public class DataFactoriesTest
         Extractors extractors = new Extractors( ';' );
 
         // WHEN
-        CharSeeker seeker = dataFactory.create( TABS ).stream();
+        CharSeeker seeker = charSeeker( dataFactory.create( TABS ).stream(), TABS.quotationCharacter() );
         Header header = headerFactory.create( seeker, TABS, IdType.ACTUAL );
 
         // THEN
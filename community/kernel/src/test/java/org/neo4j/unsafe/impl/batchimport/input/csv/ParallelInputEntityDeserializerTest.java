@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.unsafe.impl.batchimport.input.csv;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import org.neo4j.csv.reader.ByteLineChunker;
+import org.neo4j.csv.reader.CharSeeker;
+import org.neo4j.csv.reader.Chunker;
+import org.neo4j.csv.reader.LineChunker;
+import org.neo4j.function.Functions;
+import org.neo4j.graphdb.ResourceIterator;
+import org.neo4j.unsafe.impl.batchimport.input.InputException;
+import org.neo4j.unsafe.impl.batchimport.input.InputNode;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import static org.neo4j.csv.reader.Readables.wrap;
+import static org.neo4j.unsafe.impl.batchimport.input.csv.Configuration.COMMAS;
+import static org.neo4j.unsafe.impl.batchimport.input.csv.DataFactories.defaultFormatNodeFileHeader;
+
+public class ParallelInputEntityDeserializerTest
+{
+    @Test
+    public void shouldDeserializeChunksInParallelAndReturnEntitiesInInputOrder() throws Exception
+    {
+        // GIVEN
+        StringBuilder data = new StringBuilder( ":ID,name,description\n" );
+        int nodes = 1_000;
+        for ( int i = 0; i < nodes; i++ )
+        {
+            data.append( i ).append( ",node" ).append( i ).append( ",\"line one\nline, two\"\n" );
+        }
+
+        // WHEN
+        try ( ResourceIterator<InputNode> deserializer = deserializer( data.toString(), 64 ) )
+        {
+            // THEN
+            for ( int i = 0; i < nodes; i++ )
+            {
+                InputNode node = deserializer.next();
+                assertEquals( String.valueOf( i ), node.id() );
+                assertArrayEquals( new Object[] {"name", "node" + i, "description", "line one\nline, two"},
+                        node.properties() );
+            }
+            assertFalse( deserializer.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldDeserializeUtf8BytesInParallel() throws Exception
+    {
+        // GIVEN
+        StringBuilder data = new StringBuilder( ":ID,name\n" );
+        int nodes = 1_000;
+        for ( int i = 0; i < nodes; i++ )
+        {
+            data.append( i ).append( ",\"nöde, " ).append( i ).append( "\"\n" );
+        }
+        Chunker chunker = new ByteLineChunker( Channels.newChannel( new ByteArrayInputStream(
+                data.toString().getBytes( StandardCharsets.UTF_8 ) ) ), 64, ',', '"' );
+
+        // WHEN
+        try ( ResourceIterator<InputNode> deserializer = deserializer( chunker ) )
+        {
+            // THEN
+            for ( int i = 0; i < nodes; i++ )
+            {
+                InputNode node = deserializer.next();
+                assertEquals( String.valueOf( i ), node.id() );
+                assertArrayEquals( new Object[] {"name", "nöde, " + i}, node.properties() );
+            }
+            assertFalse( deserializer.hasNext() );
+        }
+    }
+
+    @Test
+    public void shouldPropagateFailureFromParsingThread() throws Exception
+    {
+        // GIVEN
+        String data = ":ID,age:int\n" +
+                      "1,10\n" +
+                      "2,twenty\n";
+
+        // WHEN
+        try ( ResourceIterator<InputNode> deserializer = deserializer( data, 8 ) )
+        {
+            deserializer.next();
+            deserializer.next();
+            fail( "Should have failed" );
+        }
+        catch ( NumberFormatException | InputException e )
+        {   // THEN good
+        }
+    }
+
+    private ResourceIterator<InputNode> deserializer( String data, int chunkSize )
+    {
+        return deserializer( new LineChunker( wrap( new StringReader( data ) ), chunkSize, ',', '"' ) );
+    }
+
+    private ResourceIterator<InputNode> deserializer( Chunker chunker )
+    {
+        return new ParallelInputEntityDeserializer<>( chunker, defaultFormatNodeFileHeader(), COMMAS, IdType.STRING, 4,
+                new ParallelInputEntityDeserializer.DeserializerFactory<InputNode>()
+                {
+                    @Override
+                    public ResourceIterator<InputNode> create( CharSeeker data, Header header )
+                    {
+                        return new InputNodeDeserializer( header, data, new int[] {','},
+                                Functions.<InputNode>identity(), true );
+                    }
+                } );
+    }
+}
@@ -178,6 +178,33 @@ public class BatchingPageCacheTest
         }
     }
 
+    @Test
+    public void shouldReadPagesExistingWhenMappedWhenAppendingToExisting() throws Exception
+    {
+        // GIVEN
+        int pageSize = 100;
+        File file = directory.file( "store" );
+        fillFileWithByteContents( file ); // 256 bytes, i.e. the last page only partly existing
+        PageCache pageCache = new BatchingPageCache( FS, pageSize, SYNCHRONOUS, NO_MONITOR, Mode.APPEND_TO_EXISTING );
+        PagedFile pagedFile = pageCache.map( file, pageSize );
+
+        // WHEN
+        byte[] readBack = new byte[pageSize];
+        try ( PageCursor cursor = pagedFile.io( 0, PagedFile.PF_SHARED_LOCK ) )
+        {
+            cursor.next( 2 );
+            cursor.getBytes( readBack );
+        }
+        pageCache.close();
+
+        // THEN
+        for ( int i = 0; i < pageSize; i++ )
+        {
+            byte expected = i < 56 ? (byte) (200 + i) : 0;
+            assertEquals( expected, readBack[i] );
+        }
+    }
+
     private void assertByteContentsAreCorrect( File file ) throws IOException
     {
         try ( StoreChannel channel = FS.open( file, "r" ) )
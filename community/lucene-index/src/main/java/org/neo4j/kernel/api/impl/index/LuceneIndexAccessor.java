@@ -21,6 +21,7 @@ package org.neo4j.kernel.api.impl.index;
 
 import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
@@ -246,10 +247,14 @@ abstract class LuceneIndexAccessor implements IndexAccessor
         @Override
         public void remove( Collection<Long> nodeIds ) throws IOException
         {
+            Term[] terms = new Term[nodeIds.size()];
+            int i = 0;
             for ( long nodeId : nodeIds )
             {
-                LuceneIndexAccessor.this.remove( nodeId );
+                terms[i++] = documentStructure.newQueryForChangeOrRemove( nodeId );
             }
+            // One call lets the writer buffer all deletes together, rather than one call per document
+            writer.deleteDocuments( terms );
         }
     }
 }
@@ -0,0 +1,411 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.collection.primitive.concurrent;
+
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+import org.neo4j.jsr166e.StampedLock;
+
+/**
+ * A concurrent map from primitive {@code long} keys to objects, for hot paths where a
+ * {@link java.util.concurrent.ConcurrentHashMap} would box every key and allocate a node per entry.
+ *
+ * The map is split into a power-of-two number of stripes, picked by the hash of the key, each an open-addressing
+ * table with linear probing guarded by its own {@link StampedLock}. Updates take the write lock of the stripe, while
+ * {@link #get(long)} and {@link #containsKey(long)} don't lock at all, but read optimistically and retry if the
+ * stripe was updated meanwhile, so that many threads can look up the same hot key without contending. Tables grow when full and shrink when mostly empty, and
+ * removal shifts entries back instead of leaving tombstones, so a map of short lived entries, like a lock table,
+ * doesn't degrade or hold on to memory over time. Apart from growing and shrinking tables, no operation allocates.
+ *
+ * Null values are not permitted.
+ */
+public class StripedLongObjectMap<VALUE>
+{
+    public static final int DEFAULT_STRIPES = 256;
+    private static final int MIN_STRIPE_CAPACITY = 8;
+    private static final int MAX_OPTIMISTIC_READS = 8;
+
+    private final Stripe<VALUE>[] stripes;
+    private final int stripeShift;
+
+    public StripedLongObjectMap()
+    {
+        this( DEFAULT_STRIPES );
+    }
+
+    /**
+     * @param stripes number of stripes, i.e. how many threads can update the map without contending, rounded up to
+     * the nearest power of two.
+     */
+    @SuppressWarnings( "unchecked" )
+    public StripedLongObjectMap( int stripes )
+    {
+        if ( stripes < 1 || stripes > 1 << 16 )
+        {
+            throw new IllegalArgumentException( "Invalid number of stripes " + stripes );
+        }
+        int count = Math.max( 1, Integer.highestOneBit( stripes - 1 ) << 1 );
+        this.stripes = new Stripe[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            this.stripes[i] = new Stripe<>();
+        }
+        // Stripes are picked by the high bits of the hash, slots within a stripe by the low bits
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros( count );
+    }
+
+    public VALUE get( long key )
+    {
+        long hash = hash( key );
+        return stripeFor( hash ).get( key, hash );
+    }
+
+    public boolean containsKey( long key )
+    {
+        return get( key ) != null;
+    }
+
+    /**
+     * @return the previous value of {@code key}, or {@code null} if there was none.
+     */
+    public VALUE put( long key, VALUE value )
+    {
+        checkValue( value );
+        long hash = hash( key );
+        Stripe<VALUE> stripe = stripeFor( hash );
+        long stamp = stripe.lock.writeLock();
+        try
+        {
+            return stripe.put( key, hash, value, false );
+        }
+        finally
+        {
+            stripe.lock.unlockWrite( stamp );
+        }
+    }
+
+    /**
+     * Puts {@code value} for {@code key} only if there's no value for it already.
+     *
+     * @return the existing value of {@code key}, or {@code null} if {@code value} was put.
+     */
+    public VALUE putIfAbsent( long key, VALUE value )
+    {
+        checkValue( value );
+        long hash = hash( key );
+        Stripe<VALUE> stripe = stripeFor( hash );
+        long stamp = stripe.lock.writeLock();
+        try
+        {
+            return stripe.put( key, hash, value, true );
+        }
+        finally
+        {
+            stripe.lock.unlockWrite( stamp );
+        }
+    }
+
+    /**
+     * @return the removed value of {@code key}, or {@code null} if there was none.
+     */
+    public VALUE remove( long key )
+    {
+        long hash = hash( key );
+        Stripe<VALUE> stripe = stripeFor( hash );
+        long stamp = stripe.lock.writeLock();
+        try
+        {
+            return stripe.remove( key, hash, null );
+        }
+        finally
+        {
+            stripe.lock.unlockWrite( stamp );
+        }
+    }
+
+    /**
+     * Removes {@code key} only if it is mapped to {@code value}, compared by identity.
+     *
+     * @return whether or not the entry was removed.
+     */
+    public boolean remove( long key, VALUE value )
+    {
+        checkValue( value );
+        long hash = hash( key );
+        Stripe<VALUE> stripe = stripeFor( hash );
+        long stamp = stripe.lock.writeLock();
+        try
+        {
+            return stripe.remove( key, hash, value ) != null;
+        }
+        finally
+        {
+            stripe.lock.unlockWrite( stamp );
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for ( Stripe<VALUE> stripe : stripes )
+        {
+            long stamp = stripe.lock.readLock();
+            try
+            {
+                size += stripe.size;
+            }
+            finally
+            {
+                stripe.lock.unlockRead( stamp );
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Visits the entries of this map, one stripe at a time, until all have been visited or the visitor returns
+     * {@code true}. Entries of a stripe are visited while holding its read lock, so the visitor must not update
+     * this map.
+     */
+    public <E extends Exception> void visitEntries( PrimitiveLongObjectVisitor<VALUE, E> visitor ) throws E
+    {
+        for ( Stripe<VALUE> stripe : stripes )
+        {
+            long stamp = stripe.lock.readLock();
+            try
+            {
+                if ( stripe.visitEntries( visitor ) )
+                {
+                    return;
+                }
+            }
+            finally
+            {
+                stripe.lock.unlockRead( stamp );
+            }
+        }
+    }
+
+    private Stripe<VALUE> stripeFor( long hash )
+    {
+        return stripes.length == 1 ? stripes[0] : stripes[(int) (hash >>> stripeShift)];
+    }
+
+    private static void checkValue( Object value )
+    {
+        if ( value == null )
+        {
+            throw new IllegalArgumentException( "Null values are not allowed" );
+        }
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading sequential ids, the common case for keys, over both stripes and slots.
+     */
+    private static long hash( long key )
+    {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static class Stripe<VALUE>
+    {
+        private final StampedLock lock = new StampedLock();
+        private long[] keys = new long[MIN_STRIPE_CAPACITY];
+        /** A slot is free if its value is null. */
+        private Object[] values = new Object[MIN_STRIPE_CAPACITY];
+        private int size;
+
+        /**
+         * Reads without locking and retries if the stripe was updated meanwhile. Only if that keeps happening
+         * is the read lock taken, so that a reader can't be starved by a stream of updates.
+         */
+        VALUE get( long key, long hash )
+        {
+            for ( int attempt = 0; attempt < MAX_OPTIMISTIC_READS; attempt++ )
+            {
+                long stamp = lock.tryOptimisticRead();
+                if ( stamp != 0 )
+                {
+                    VALUE value = find( key, hash );
+                    if ( lock.validate( stamp ) )
+                    {
+                        return value;
+                    }
+                }
+            }
+
+            long stamp = lock.readLock();
+            try
+            {
+                return find( key, hash );
+            }
+            finally
+            {
+                lock.unlockRead( stamp );
+            }
+        }
+
+        /**
+         * May run concurrently with an update, in which case the result is garbage which the caller discards.
+         * It must not fail or loop forever though, even if seeing a table in the middle of resizing
+         * or of shifting entries back.
+         */
+        @SuppressWarnings( "unchecked" )
+        private VALUE find( long key, long hash )
+        {
+            long[] keys = this.keys;
+            Object[] values = this.values;
+            if ( keys.length != values.length )
+            {   // In the middle of resizing
+                return null;
+            }
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            for ( int probes = 0; probes < keys.length; probes++, slot = (slot + 1) & mask )
+            {
+                Object value = values[slot];
+                if ( value == null )
+                {
+                    break;
+                }
+                if ( keys[slot] == key )
+                {
+                    return (VALUE) value;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        VALUE put( long key, long hash, VALUE value, boolean onlyIfAbsent )
+        {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            for ( ; values[slot] != null; slot = (slot + 1) & mask )
+            {
+                if ( keys[slot] == key )
+                {
+                    VALUE previous = (VALUE) values[slot];
+                    if ( !onlyIfAbsent )
+                    {
+                        values[slot] = value;
+                    }
+                    return previous;
+                }
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            // Keep the load factor at most 3/4
+            if ( ++size > (keys.length >>> 2) * 3 )
+            {
+                resize( keys.length << 1 );
+            }
+            return null;
+        }
+
+        @SuppressWarnings( "unchecked" )
+        VALUE remove( long key, long hash, VALUE expected )
+        {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            for ( ; values[slot] != null; slot = (slot + 1) & mask )
+            {
+                if ( keys[slot] == key )
+                {
+                    break;
+                }
+            }
+            VALUE removed = (VALUE) values[slot];
+            if ( removed == null || (expected != null && removed != expected) )
+            {
+                return null;
+            }
+            deleteSlot( slot, mask );
+            if ( --size < keys.length >>> 3 && keys.length > MIN_STRIPE_CAPACITY )
+            {
+                resize( keys.length >>> 1 );
+            }
+            return removed;
+        }
+
+        /**
+         * Frees the slot by shifting back the entries after it which would no longer be reachable otherwise.
+         */
+        private void deleteSlot( int free, int mask )
+        {
+            for ( int slot = (free + 1) & mask; values[slot] != null; slot = (slot + 1) & mask )
+            {
+                int home = (int) hash( keys[slot] ) & mask;
+                // The entry may move to the free slot only if its home isn't cyclically in (free, slot]
+                if ( ((slot - home) & mask) >= ((slot - free) & mask) )
+                {
+                    keys[free] = keys[slot];
+                    values[free] = values[slot];
+                    free = slot;
+                }
+            }
+            values[free] = null;
+        }
+
+        private void resize( int capacity )
+        {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[capacity];
+            values = new Object[capacity];
+            int mask = capacity - 1;
+            for ( int i = 0; i < oldKeys.length; i++ )
+            {
+                if ( oldValues[i] != null )
+                {
+                    int slot = (int) hash( oldKeys[i] ) & mask;
+                    while ( values[slot] != null )
+                    {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        @SuppressWarnings( "unchecked" )
+        <E extends Exception> boolean visitEntries( PrimitiveLongObjectVisitor<VALUE, E> visitor ) throws E
+        {
+            for ( int i = 0; i < keys.length; i++ )
+            {
+                if ( values[i] != null && visitor.visited( keys[i], (VALUE) values[i] ) )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
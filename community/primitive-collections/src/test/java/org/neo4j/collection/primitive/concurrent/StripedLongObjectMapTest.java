@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2002-2015 "Neo Technology,"
+ * Network Engine for Objects in Lund AB [http://neotechnology.com]
+ *
+ * This file is part of Neo4j.
+ *
+ * Neo4j is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.collection.primitive.concurrent;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StripedLongObjectMapTest
+{
+    @Test
+    public void shouldPutIfAbsent() throws Exception
+    {
+        // GIVEN
+        StripedLongObjectMap<String> map = new StripedLongObjectMap<>();
+        String first = "first";
+
+        // WHEN
+        assertNull( map.putIfAbsent( 10, first ) );
+        String existing = map.putIfAbsent( 10, "second" );
+
+        // THEN
+        assertSame( first, existing );
+        assertSame( first, map.get( 10 ) );
+        assertEquals( 1, map.size() );
+    }
+
+    @Test
+    public void shouldOnlyRemoveExpectedValue() throws Exception
+    {
+        // GIVEN
+        StripedLongObjectMap<String> map = new StripedLongObjectMap<>();
+        String value = "value";
+        map.put( 10, value );
+
+        // WHEN
+        boolean removedOther = map.remove( 10, new String( value ) );
+        boolean removedExpected = map.remove( 10, value );
+
+        // THEN
+        assertFalse( removedOther );
+        assertTrue( removedExpected );
+        assertNull( map.get( 10 ) );
+        assertTrue( map.isEmpty() );
+    }
+
+    @Test
+    public void shouldBehaveLikeAMapWhileGrowingAndShrinking() throws Exception
+    {
+        // GIVEN a map with few stripes, so that each will grow and shrink a lot
+        StripedLongObjectMap<Long> map = new StripedLongObjectMap<>( 4 );
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random( 1234 );
+
+        // WHEN
+        for ( int i = 0; i < 100_000; i++ )
+        {
+            // Skew towards insertions in the first half and removals in the second
+            boolean insert = random.nextInt( 100 ) < (i < 50_000 ? 70 : 30);
+            long key = random.nextInt( 10_000 );
+            if ( insert )
+            {
+                Long value = (long) i;
+                assertEquals( expected.put( key, value ), map.put( key, value ) );
+            }
+            else
+            {
+                assertEquals( expected.remove( key ), map.remove( key ) );
+            }
+        }
+
+        // THEN
+        assertEquals( expected.size(), map.size() );
+        for ( long key = 0; key < 10_000; key++ )
+        {
+            assertEquals( expected.get( key ), map.get( key ) );
+        }
+        final Map<Long, Long> visited = new HashMap<>();
+        map.visitEntries( new PrimitiveLongObjectVisitor<Long, RuntimeException>()
+        {
+            @Override
+            public boolean visited( long key, Long value )
+            {
+                visited.put( key, value );
+                return false;
+            }
+        } );
+        assertEquals( expected, visited );
+    }
+
+    @Test
+    public void shouldHandleConcurrentUpdatesOfDisjointKeys() throws Throwable
+    {
+        // GIVEN
+        final StripedLongObjectMap<Long> map = new StripedLongObjectMap<>( 8 );
+        final int threads = 4;
+        final int keysPerThread = 10_000;
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] workers = new Thread[threads];
+        for ( int t = 0; t < threads; t++ )
+        {
+            final int offset = t * keysPerThread;
+            workers[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                        for ( int round = 0; round < 3; round++ )
+                        {
+                            for ( long key = offset; key < offset + keysPerThread; key++ )
+                            {
+                                assertNull( map.putIfAbsent( key, key ) );
+                            }
+                            for ( long key = offset; key < offset + keysPerThread; key++ )
+                            {
+                                assertEquals( (Long) key, map.get( key ) );
+                                if ( round < 2 )
+                                {
+                                    assertTrue( map.remove( key, map.get( key ) ) );
+                                }
+                            }
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            workers[t].start();
+        }
+
+        // WHEN
+        start.countDown();
+        for ( Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        // THEN
+        if ( failure.get() != null )
+        {
+            throw failure.get();
+        }
+        assertEquals( threads * keysPerThread, map.size() );
+    }
+
+    @Test
+    public void shouldAlwaysFindStableKeyWhileOtherKeysOfItsStripeAreUpdated() throws Throwable
+    {
+        // GIVEN a single stripe, so that its table keeps resizing and shifting entries around the stable key
+        final StripedLongObjectMap<Long> map = new StripedLongObjectMap<>( 1 );
+        final long stableKey = 0;
+        map.put( stableKey, stableKey );
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[2];
+        for ( int t = 0; t < readers.length; t++ )
+        {
+            readers[t] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        while ( !done.get() )
+                        {
+                            assertEquals( (Long) stableKey, map.get( stableKey ) );
+                            assertTrue( map.containsKey( stableKey ) );
+                        }
+                    }
+                    catch ( Throwable e )
+                    {
+                        failure.compareAndSet( null, e );
+                    }
+                }
+            };
+            readers[t].start();
+        }
+
+        // WHEN
+        try
+        {
+            for ( int round = 0; round < 50 && failure.get() == null; round++ )
+            {
+                for ( long key = 1; key <= 1_000; key++ )
+                {
+                    map.put( key, key );
+                }
+                for ( long key = 1; key <= 1_000; key++ )
+                {
+                    map.remove( key );
+                }
+            }
+        }
+        finally
+        {
+            done.set( true );
+            for ( Thread reader : readers )
+            {
+                reader.join();
+            }
+        }
+
+        // THEN
+        if ( failure.get() != null )
+        {
+            throw failure.get();
+        }
+        assertEquals( 1, map.size() );
+    }
+}
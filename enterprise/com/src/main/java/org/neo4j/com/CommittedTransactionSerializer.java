@@ -22,6 +22,7 @@ package org.neo4j.com;
 import org.jboss.netty.buffer.ChannelBuffer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.neo4j.helpers.collection.Visitor;
 import org.neo4j.kernel.impl.transaction.CommittedTransactionRepresentation;
@@ -37,11 +38,19 @@ import org.neo4j.kernel.impl.transaction.log.entry.LogEntryWriterv1;
  */
 public class CommittedTransactionSerializer implements Visitor<CommittedTransactionRepresentation,IOException>
 {
+    /**
+     * Raw transaction bytes are written in slices no bigger than the smallest allowed chunk size, so that
+     * a {@link ChunkingChannelBuffer} never needs to grow a chunk beyond its capacity to fit a slice.
+     */
+    static final int RAW_SLICE_SIZE = 1024;
+
+    private final ChannelBuffer targetBuffer;
     private final NetworkWritableLogChannel channel;
     private final LogEntryWriterv1 writer;
 
     public CommittedTransactionSerializer( ChannelBuffer targetBuffer )
     {
+        this.targetBuffer = targetBuffer;
         this.channel = new NetworkWritableLogChannel( targetBuffer );
         this.writer = new LogEntryWriterv1( channel, new CommandWriter( channel ) );
     }
@@ -58,4 +67,21 @@ public class CommittedTransactionSerializer implements Visitor<CommittedTransact
         writer.writeCommitEntry( commitEntry.getTxId(), commitEntry.getTimeWritten() );
         return false;
     }
+
+    /**
+     * Writes transactions which are already serialized in the format of the transaction log, which is the same
+     * format that {@link #visit(CommittedTransactionRepresentation)} writes in.
+     *
+     * @param transactions bytes of one or more whole transactions.
+     */
+    public void writeRaw( ByteBuffer transactions )
+    {
+        while ( transactions.hasRemaining() )
+        {
+            ByteBuffer slice = transactions.slice();
+            slice.limit( Math.min( slice.remaining(), RAW_SLICE_SIZE ) );
+            transactions.position( transactions.position() + slice.limit() );
+            targetBuffer.writeBytes( slice );
+        }
+    }
 }
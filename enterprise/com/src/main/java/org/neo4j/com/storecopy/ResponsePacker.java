@@ -20,7 +20,9 @@
 package org.neo4j.com.storecopy;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
+import org.neo4j.com.CommittedTransactionSerializer;
 import org.neo4j.com.RequestContext;
 import org.neo4j.com.ResourceReleaser;
 import org.neo4j.com.Response;
@@ -63,7 +65,15 @@ public class ResponsePacker
                 // Check so that it's even worth thinking about extracting any transactions at all
                 if ( toStartFrom > BASE_TX_ID && toStartFrom <= toEndAt )
                 {
-                    extractTransactions( toStartFrom, filterVisitor( visitor, toEndAt ) );
+                    long next = toStartFrom;
+                    if ( visitor instanceof CommittedTransactionSerializer )
+                    {
+                        next = extractRawTransactions( toStartFrom, toEndAt, (CommittedTransactionSerializer) visitor );
+                    }
+                    if ( next <= toEndAt )
+                    {
+                        extractTransactions( next, filterVisitor( visitor, toEndAt ) );
+                    }
                 }
             }
         };
@@ -106,6 +116,28 @@ public class ResponsePacker
         };
     }
 
+    /**
+     * Transactions are sent in the same format as they are written in the log, so the ones that can be located
+     * in the log without reading it are sent as the bytes they are there, instead of being deserialized
+     * and serialized again.
+     *
+     * @return id of the first transaction that wasn't sent.
+     */
+    protected long extractRawTransactions( long startingAtTransactionId, long endingAtTransactionId,
+                                           final CommittedTransactionSerializer serializer ) throws IOException
+    {
+        return transactionStore.visitTransactionBytes( startingAtTransactionId, endingAtTransactionId,
+                new Visitor<ByteBuffer,IOException>()
+                {
+                    @Override
+                    public boolean visit( ByteBuffer transactions ) throws IOException
+                    {
+                        serializer.writeRaw( transactions );
+                        return false;
+                    }
+                } );
+    }
+
     protected void extractTransactions( long startingAtTransactionId,
                                         Visitor<CommittedTransactionRepresentation,IOException> visitor )
             throws IOException
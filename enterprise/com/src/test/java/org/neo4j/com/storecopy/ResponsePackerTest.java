@@ -19,11 +19,19 @@
  */
 package org.neo4j.com.storecopy;
 
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
-import org.junit.Test;
-
+import org.neo4j.com.CommittedTransactionSerializer;
 import org.neo4j.com.RequestContext;
 import org.neo4j.com.Response;
 import org.neo4j.helpers.collection.Visitor;
@@ -35,11 +43,15 @@ import org.neo4j.kernel.impl.transaction.log.LogicalTransactionStore;
 import org.neo4j.kernel.impl.transaction.log.TransactionIdStore;
 import org.neo4j.kernel.impl.transaction.log.entry.OnePhaseCommit;
 
+import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -94,6 +106,69 @@ public class ResponsePackerTest
         } );
     }
 
+    @Test
+    public void shouldSendTransactionBytesFromTheLogAsIsAndTheRestDeserialized() throws Exception
+    {
+        // GIVEN
+        LogicalTransactionStore transactionStore = mock( LogicalTransactionStore.class );
+        final byte[] rawTransactions = new byte[3000];
+        for ( int i = 0; i < rawTransactions.length; i++ )
+        {
+            rawTransactions[i] = (byte) i;
+        }
+        // transactions 6 and 7 have known positions in the log, 8 hasn't
+        when( transactionStore.visitTransactionBytes( eq( 6L ), eq( 8L ), any( Visitor.class ) ) ).thenAnswer(
+                new Answer<Long>()
+                {
+                    @Override
+                    public Long answer( InvocationOnMock invocation ) throws Throwable
+                    {
+                        @SuppressWarnings( "unchecked" )
+                        Visitor<ByteBuffer,IOException> visitor =
+                                (Visitor<ByteBuffer,IOException>) invocation.getArguments()[2];
+                        visitor.visit( ByteBuffer.wrap( rawTransactions ) );
+                        return 8L;
+                    }
+                } );
+        when( transactionStore.getTransactions( 8L ) ).thenReturn( new EndlessCursor( 8L ) );
+        TransactionIdStore transactionIdStore = new DeadSimpleTransactionIdStore( 8L, 0 );
+        ResponsePacker packer = new ResponsePacker( transactionStore, transactionIdStore,
+                singletonProvider( new StoreId() ) );
+
+        // WHEN
+        Response<Object> response = packer.packTransactionStreamResponse( requestContextStartingAt( 5L ), null );
+        final ChannelBuffer target = ChannelBuffers.dynamicBuffer();
+        final List<Long> deserializedTransactions = new ArrayList<>();
+        response.accept( new Response.Handler()
+        {
+            @Override
+            public void obligation( long txId ) throws IOException
+            {
+                fail( "Should not be called" );
+            }
+
+            @Override
+            public Visitor<CommittedTransactionRepresentation, IOException> transactions()
+            {
+                return new CommittedTransactionSerializer( target )
+                {
+                    @Override
+                    public boolean visit( CommittedTransactionRepresentation tx ) throws IOException
+                    {
+                        deserializedTransactions.add( tx.getCommitEntry().getTxId() );
+                        return true;
+                    }
+                };
+            }
+        } );
+
+        // THEN
+        byte[] sent = new byte[target.readableBytes()];
+        target.readBytes( sent );
+        assertArrayEquals( rawTransactions, sent );
+        assertEquals( asList( 8L ), deserializedTransactions );
+    }
+
     private RequestContext requestContextStartingAt( long txId )
     {
         return new RequestContext( 0, 0, 0, txId, 0 );
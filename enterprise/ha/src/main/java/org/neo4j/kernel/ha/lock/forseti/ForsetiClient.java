@@ -19,15 +19,15 @@
  */
 package org.neo4j.kernel.ha.lock.forseti;
 
-import java.util.concurrent.ConcurrentMap;
-
 import org.neo4j.collection.primitive.Primitive;
 import org.neo4j.collection.pool.LinkedQueuePool;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
 import org.neo4j.collection.primitive.PrimitiveLongIntMap;
 import org.neo4j.collection.primitive.PrimitiveLongVisitor;
+import org.neo4j.collection.primitive.concurrent.StripedLongObjectMap;
 import org.neo4j.kernel.DeadlockDetectedException;
 import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
+import org.neo4j.kernel.impl.locking.LockOrdering;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
 import org.neo4j.kernel.impl.util.concurrent.WaitStrategy;
@@ -44,11 +44,14 @@ import static java.lang.String.format;
  */
 public class ForsetiClient implements Locks.Client
 {
+    /** Max number of dead shared locks per resource type kept around for reuse. */
+    private static final int MAX_FREE_SHARED_LOCKS = 64;
+
     /** Id for this client */
     private final int myId;
 
     /** resourceType -> lock map. These are the global lock maps, shared across all clients. */
-    private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+    private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
 
     /** resourceType -> wait strategy */
     private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
@@ -76,8 +79,16 @@ public class ForsetiClient implements Locks.Client
      * we want to hold in the global lock map. */
     private final ExclusiveLock myExclusiveLock = new ExclusiveLock(this);
 
+    /**
+     * Shared locks this client released last, per resource type, to reuse instead of creating new ones. Each stack
+     * only holds locks from the lock map of its resource type, see {@link SharedLock#acquire(ForsetiClient,
+     * StripedLongObjectMap, long)} for why.
+     */
+    private final SharedLock[][] freeSharedLocks;
+    private final int[] freeSharedLockCounts;
+
     public ForsetiClient( int id,
-                          ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps,
+                          StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps,
                           WaitStrategy<AcquireLockTimeoutException>[] waitStrategies,
                           LinkedQueuePool<ForsetiClient> clientPool )
     {
@@ -87,6 +98,8 @@ public class ForsetiClient implements Locks.Client
         this.clientPool          = clientPool;
         this.sharedLockCounts    = new PrimitiveLongIntMap[lockMaps.length];
         this.exclusiveLockCounts = new PrimitiveLongIntMap[lockMaps.length];
+        this.freeSharedLocks     = new SharedLock[lockMaps.length][MAX_FREE_SHARED_LOCKS];
+        this.freeSharedLockCounts = new int[lockMaps.length];
 
         for ( int i = 0; i < sharedLockCounts.length; i++ )
         {
@@ -99,13 +112,13 @@ public class ForsetiClient implements Locks.Client
     public void acquireShared( Locks.ResourceType resourceType, long... resourceIds ) throws AcquireLockTimeoutException
     {
         // Grab the global lock map we will be using
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
 
         // And grab our local lock maps
         PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
         PrimitiveLongIntMap heldExclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
 
-        for ( long resourceId : resourceIds )
+        for ( long resourceId : LockOrdering.sorted( resourceIds ) )
         {
             // First, check if we already hold this as a shared lock
             int heldCount = heldShareLocks.get( resourceId );
@@ -141,12 +154,13 @@ public class ForsetiClient implements Locks.Client
                     // Try to create a new shared lock
                     if(mySharedLock == null)
                     {
-                        mySharedLock = new SharedLock( this );
+                        mySharedLock = newSharedLock( resourceType.typeId(), resourceId );
                     }
 
                     if(lockMap.putIfAbsent( resourceId, mySharedLock ) == null)
                     {
                         // Success, we now hold the shared lock.
+                        mySharedLock = null;
                         break;
                     }
                     else
@@ -158,11 +172,16 @@ public class ForsetiClient implements Locks.Client
                 // Someone holds shared lock on this entity, try and get in on that action
                 else if(existingLock instanceof SharedLock)
                 {
-                    if(((SharedLock)existingLock).acquire(this))
+                    if(((SharedLock)existingLock).acquire( this, lockMap, resourceId ))
                     {
                         // Success!
                         break;
                     }
+                    if(lockMap.get( resourceId ) != existingLock)
+                    {
+                        // The lock was released, and may have been reused for another resource, have another go
+                        continue;
+                    }
                 }
 
                 // Someone holds an exclusive lock on this entity
@@ -185,6 +204,12 @@ public class ForsetiClient implements Locks.Client
             // Got the lock, no longer waiting for anyone.
             clearWaitList();
 
+            if(mySharedLock != null)
+            {
+                // We created a lock, but joined one someone else put in the map, so ours was never used
+                discardSharedLock( resourceType.typeId(), mySharedLock );
+            }
+
             // Make a local note about the fact that we now hold this lock
             heldShareLocks.put( resourceId, 1 );
         }
@@ -195,10 +220,10 @@ public class ForsetiClient implements Locks.Client
     {
         // For details on how this works, refer to the acquireShared method call, as the two are very similar
 
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
-        for ( long resourceId : resourceIds )
+        for ( long resourceId : LockOrdering.sorted( resourceIds ) )
         {
             int heldCount = heldLocks.get( resourceId );
             if(heldCount != -1)
@@ -238,7 +263,7 @@ public class ForsetiClient implements Locks.Client
     @Override
     public boolean tryExclusiveLock( Locks.ResourceType resourceType, long... resourceIds )
     {
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldLocks = exclusiveLockCounts[resourceType.typeId()];
 
         for ( long resourceId : resourceIds )
@@ -295,7 +320,7 @@ public class ForsetiClient implements Locks.Client
     @Override
     public boolean trySharedLock( Locks.ResourceType resourceType, long... resourceIds )
     {
-        ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap     = lockMaps[resourceType.typeId()];
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap     = lockMaps[resourceType.typeId()];
         PrimitiveLongIntMap heldShareLocks = sharedLockCounts[resourceType.typeId()];
         PrimitiveLongIntMap heldExclusiveLocks = exclusiveLockCounts[resourceType.typeId()];
 
@@ -323,18 +348,20 @@ public class ForsetiClient implements Locks.Client
                 if(existingLock == null)
                 {
                     // Try to create a new shared lock
-                    if(lockMap.putIfAbsent( resourceId, new SharedLock(this) ) == null)
+                    SharedLock mySharedLock = newSharedLock( resourceType.typeId(), resourceId );
+                    if(lockMap.putIfAbsent( resourceId, mySharedLock ) == null)
                     {
                         // Success!
                         break;
                     }
+                    discardSharedLock( resourceType.typeId(), mySharedLock );
                 }
                 else if(existingLock instanceof SharedLock)
                 {
                     // Note that there is a "safe" race here where someone may be releasing the last reference to a lock
                     // and thus removing that lock instance (making it unacquirable). In this case, we allow retrying,
                     // even though this is a try-lock call.
-                    if(((SharedLock)existingLock).acquire(this))
+                    if(((SharedLock)existingLock).acquire( this, lockMap, resourceId ))
                     {
                         // Success!
                         break;
@@ -371,7 +398,7 @@ public class ForsetiClient implements Locks.Client
             // Only release if we were not holding an exclusive lock as well
             if( !exclusiveLockCounts[resourceType.typeId()].containsKey( resourceId ) )
             {
-                releaseGlobalLock( lockMaps[resourceType.typeId()], resourceId );
+                releaseGlobalLock( resourceType.typeId(), resourceId );
             }
         }
     }
@@ -389,11 +416,11 @@ public class ForsetiClient implements Locks.Client
             if( sharedLockCounts[resourceType.typeId()].containsKey( resourceId ) )
             {
                 // We are still holding a shared lock, so swap the exclusive lock for that
-                lockMaps[resourceType.typeId()].put( resourceId, new SharedLock( this ) );
+                lockMaps[resourceType.typeId()].put( resourceId, newSharedLock( resourceType.typeId(), resourceId ) );
             }
             else
             {
-                releaseGlobalLock( lockMaps[resourceType.typeId()], resourceId );
+                releaseGlobalLock( resourceType.typeId(), resourceId );
             }
         }
     }
@@ -407,7 +434,7 @@ public class ForsetiClient implements Locks.Client
             if(localLocks != null)
             {
                 int size = localLocks.size();
-                localLocks.visitKeys( releaseSharedLockVisitor.initialize( exclusiveLockCounts[i], lockMaps[i] ) );
+                localLocks.visitKeys( releaseSharedLockVisitor.initialize( exclusiveLockCounts[i], i ) );
                 if(size <= 32)
                 {
                     // If the map is small, its fast and nice to GC to clear it. However, if its large, it is
@@ -432,7 +459,7 @@ public class ForsetiClient implements Locks.Client
             if(localLocks != null)
             {
                 int size = localLocks.size();
-                localLocks.visitKeys( releaseExclusiveLockVisitor.initialize( sharedLockCounts[i], lockMaps[i] ) );
+                localLocks.visitKeys( releaseExclusiveLockVisitor.initialize( sharedLockCounts[i], i ) );
                 if(size <= 32)
                 {
                     // If the map is small, its fast and nice to GC to clear it. However, if its large, it is
@@ -463,7 +490,7 @@ public class ForsetiClient implements Locks.Client
             if(exclusiveLocks != null)
             {
                 int size = exclusiveLocks.size();
-                exclusiveLocks.visitKeys( releaseExclusiveAndClearSharedVisitor.initialize( sharedLocks, lockMaps[i] ));
+                exclusiveLocks.visitKeys( releaseExclusiveAndClearSharedVisitor.initialize( sharedLocks, i ));
                 if(size <= 32)
                 {
                     // If the map is small, its fast and nice to GC to clear it. However, if its large, it is
@@ -481,7 +508,7 @@ public class ForsetiClient implements Locks.Client
             if(sharedLocks != null)
             {
                 int size = sharedLocks.size();
-                sharedLocks.visitKeys( releaseSharedDontCheckExclusiveVisitor.initialize( lockMaps[i] ) );
+                sharedLocks.visitKeys( releaseSharedDontCheckExclusiveVisitor.initialize( i ) );
                 if(size <= 32)
                 {
                     // If the map is small, its fast and nice to GC to clear it. However, if its large, it is
@@ -559,17 +586,54 @@ public class ForsetiClient implements Locks.Client
     }
 
     /** Release a lock from the global pool. */
-    private void releaseGlobalLock( ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap, long resourceId )
+    private void releaseGlobalLock( int typeId, long resourceId )
     {
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = lockMaps[typeId];
         ForsetiLockManager.Lock lock = lockMap.get( resourceId );
         if( lock instanceof ExclusiveLock )
         {
-            lockMap.remove( resourceId );
+            lockMap.remove( resourceId, lock );
         }
         else if( lock instanceof SharedLock && ((SharedLock)lock).release(this) )
         {
             // We were the last to hold this lock, it is now dead and we should remove it.
-            lockMap.remove( resourceId );
+            lockMap.remove( resourceId, lock );
+            freeSharedLock( typeId, (SharedLock) lock );
+        }
+    }
+
+    /** A shared lock held by this client, reusing a dead one if we have any. */
+    private SharedLock newSharedLock( int typeId, long resourceId )
+    {
+        int count = freeSharedLockCounts[typeId];
+        if(count == 0)
+        {
+            return new SharedLock( this, resourceId );
+        }
+        SharedLock lock = freeSharedLocks[typeId][--count];
+        freeSharedLocks[typeId][count] = null;
+        freeSharedLockCounts[typeId] = count;
+        return lock.reuse( this, resourceId );
+    }
+
+    /** Release a shared lock which we created, but never put in the lock map. */
+    private void discardSharedLock( int typeId, SharedLock lock )
+    {
+        // Someone may have found it in the map while it was dead and still be holding a reference to it, if so it
+        // won't die here and whoever holds the last reference will dispose of it.
+        if(lock.release( this ))
+        {
+            freeSharedLock( typeId, lock );
+        }
+    }
+
+    private void freeSharedLock( int typeId, SharedLock lock )
+    {
+        int count = freeSharedLockCounts[typeId];
+        if(count < MAX_FREE_SHARED_LOCKS)
+        {
+            freeSharedLocks[typeId][count] = lock;
+            freeSharedLockCounts[typeId] = count + 1;
         }
     }
 
@@ -592,14 +656,14 @@ public class ForsetiClient implements Locks.Client
     }
 
     /** Attempt to upgrade a share lock to an exclusive lock, grabbing the share lock if we don't hold it. */
-    private boolean tryUpgradeSharedToExclusive( Locks.ResourceType resourceType, ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap,
+    private boolean tryUpgradeSharedToExclusive( Locks.ResourceType resourceType, StripedLongObjectMap<ForsetiLockManager.Lock> lockMap,
                                                  long resourceId, SharedLock sharedLock ) throws AcquireLockTimeoutException
     {
         int tries = 0;
         if(!sharedLockCounts[resourceType.typeId()].containsKey( resourceId ))
         {
             // We don't hold the shared lock, we need to grab it to upgrade it to an exclusive one
-            if(!sharedLock.acquire( this ))
+            if(!sharedLock.acquire( this, lockMap, resourceId ))
             {
                 return false;
             }
@@ -612,13 +676,13 @@ public class ForsetiClient implements Locks.Client
                 }
                 else
                 {
-                    releaseGlobalLock( lockMap, resourceId );
+                    releaseGlobalLock( resourceType.typeId(), resourceId );
                     return false;
                 }
             }
             catch(Throwable e)
             {
-                releaseGlobalLock( lockMap, resourceId );
+                releaseGlobalLock( resourceType.typeId(), resourceId );
                 throw e;
             }
         }
@@ -632,7 +696,7 @@ public class ForsetiClient implements Locks.Client
     /** Attempt to upgrade a share lock that we hold to an exclusive lock. */
     private boolean tryUpgradeToExclusiveWithShareLockHeld(
             Locks.ResourceType resourceType,
-            ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap,
+            StripedLongObjectMap<ForsetiLockManager.Lock> lockMap,
             long resourceId,
             SharedLock sharedLock,
             int tries ) throws AcquireLockTimeoutException
@@ -683,6 +747,12 @@ public class ForsetiClient implements Locks.Client
         lock.copyHolderWaitListsInto( waitList );
         if(lock.anyHolderIsWaitingFor( myId ) && lock.holderWaitListSize() >= waitListSize())
         {
+            if(lockMaps[type.typeId()].get( resourceId ) != lock)
+            {
+                // The lock was released while we looked at it, and its holders may now be those of another resource
+                clearWaitList();
+                return;
+            }
             waitList.clear();
             throw new DeadlockDetectedException( this + " can't acquire " + lock + " on " + type + "("+resourceId+"), because holders of that lock " +
                     "are waiting for " + this + ".\n Wait list:" + lock.describeWaitList() );
@@ -711,13 +781,13 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseSharedLocksVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap exclusiveLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private int typeId;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap exclusiveLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 int typeId )
         {
             this.exclusiveLockCounts = exclusiveLockCounts;
-            this.lockMap = lockMap;
+            this.typeId = typeId;
             return this;
         }
 
@@ -726,7 +796,7 @@ public class ForsetiClient implements Locks.Client
         {
             if(!exclusiveLockCounts.containsKey( resourceId ))
             {
-                releaseGlobalLock( lockMap, resourceId );
+                releaseGlobalLock( typeId, resourceId );
             }
             return false;
         }
@@ -739,18 +809,18 @@ public class ForsetiClient implements Locks.Client
      */
     private class ReleaseSharedDontCheckExclusiveVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private int typeId;
 
-        private PrimitiveLongVisitor<RuntimeException> initialize( ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+        private PrimitiveLongVisitor<RuntimeException> initialize( int typeId )
         {
-            this.lockMap = lockMap;
+            this.typeId = typeId;
             return this;
         }
 
         @Override
         public boolean visited( long resourceId )
         {
-            releaseGlobalLock( lockMap, resourceId );
+            releaseGlobalLock( typeId, resourceId );
             return false;
         }
     }
@@ -758,13 +828,13 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private int typeId;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap sharedLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 int typeId )
         {
             this.sharedLockCounts = sharedLockCounts;
-            this.lockMap = lockMap;
+            this.typeId = typeId;
             return this;
         }
 
@@ -773,11 +843,11 @@ public class ForsetiClient implements Locks.Client
         {
             if(sharedLockCounts.containsKey( resourceId ))
             {
-                lockMap.put( resourceId, new SharedLock( ForsetiClient.this ) );
+                lockMaps[typeId].put( resourceId, newSharedLock( typeId, resourceId ) );
             }
             else
             {
-                releaseGlobalLock( lockMap, resourceId );
+                releaseGlobalLock( typeId, resourceId );
             }
             return false;
         }
@@ -792,20 +862,20 @@ public class ForsetiClient implements Locks.Client
     private class ReleaseExclusiveLocksAndClearSharedVisitor implements PrimitiveLongVisitor<RuntimeException>
     {
         private PrimitiveLongIntMap sharedLockCounts;
-        private ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap;
+        private int typeId;
 
         private PrimitiveLongVisitor<RuntimeException> initialize( PrimitiveLongIntMap sharedLockCounts,
-                                                 ConcurrentMap<Long, ForsetiLockManager.Lock> lockMap )
+                                                 int typeId )
         {
             this.sharedLockCounts = sharedLockCounts;
-            this.lockMap = lockMap;
+            this.typeId = typeId;
             return this;
         }
 
         @Override
         public boolean visited( long resourceId )
         {
-            releaseGlobalLock( lockMap, resourceId );
+            releaseGlobalLock( typeId, resourceId );
 
             // If we hold this as a shared lock, we can throw that shared lock away directly, since we haven't
             // followed the down-grade protocol.
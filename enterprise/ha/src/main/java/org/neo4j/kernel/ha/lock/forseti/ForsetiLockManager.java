@@ -19,15 +19,14 @@
  */
 package org.neo4j.kernel.ha.lock.forseti;
 
-import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.neo4j.collection.pool.LinkedQueuePool;
 import org.neo4j.collection.pool.Pool;
+import org.neo4j.collection.primitive.PrimitiveLongObjectVisitor;
+import org.neo4j.collection.primitive.concurrent.StripedLongObjectMap;
 import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
 import org.neo4j.kernel.impl.locking.Locks;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
@@ -57,6 +56,10 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
  * In the case of an exclusive lock, the client has it's own unique exclusive lock, which it must put into the lock map
  * using a CAS operation.
  *
+ * The lock maps are {@link StripedLongObjectMap striped primitive maps}, and shared locks released by all their
+ * holders are reused by the client which released them last, so grabbing and releasing locks doesn't create garbage
+ * in the common case.
+ *
  * Once the client is in the holder list, it has the lock.
  *
  * <h2>Deadlock detection</h2>
@@ -90,9 +93,6 @@ import org.neo4j.kernel.lifecycle.LifecycleAdapter;
  * We have at least one type of lock (SchemaLock) that can be held concurrently by several hundred transactions. It may
  * be worth investigating fat locks, or in any case optimize the current way SharedLock adds and removes clients from
  * its holder list.
- *
- * The maps used by forseti should be replaced by faster concurrent maps, perhaps a striped hopscotch map or something
- * similar.
  */
 public class ForsetiLockManager extends LifecycleAdapter implements Locks
 {
@@ -108,7 +108,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     }
 
     /** Pointers to lock maps, one array per resource type. */
-    private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+    private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
 
     /** Reverse lookup resource types by id, used for introspection */
     private final ResourceType[] resourceTypes;
@@ -119,7 +119,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     @SuppressWarnings( "unchecked" )
     public ForsetiLockManager( ResourceType... resourceTypes )
     {
-        this.lockMaps = new ConcurrentMap[findMaxResourceId( resourceTypes )];
+        this.lockMaps = new StripedLongObjectMap[findMaxResourceId( resourceTypes )];
         this.resourceTypes = new ResourceType[findMaxResourceId( resourceTypes )];
 
         /* Wait strategies per resource type */
@@ -127,7 +127,7 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
 
         for ( ResourceType type : resourceTypes )
         {
-            this.lockMaps[type.typeId()] = new ConcurrentHashMap<>(16, 0.6f, 512);
+            this.lockMaps[type.typeId()] = new StripedLongObjectMap<>();
             waitStrategies[type.typeId()] = type.waitStrategy();
             this.resourceTypes[type.typeId()] = type;
         }
@@ -149,18 +149,22 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
     }
 
     @Override
-    public void accept( Visitor out )
+    public void accept( final Visitor out )
     {
         for ( int i = 0; i < lockMaps.length; i++ )
         {
             if(lockMaps[i] != null)
             {
-                ResourceType type = resourceTypes[i];
-                for ( Map.Entry<Long, Lock> entry : lockMaps[i].entrySet() )
+                final ResourceType type = resourceTypes[i];
+                lockMaps[i].visitEntries( new PrimitiveLongObjectVisitor<Lock, RuntimeException>()
                 {
-                    Lock lock = entry.getValue();
-                    out.visit( type, entry.getKey(), lock.describeWaitList(), 0 );
-                }
+                    @Override
+                    public boolean visited( long resourceId, Lock lock )
+                    {
+                        out.visit( type, resourceId, lock.describeWaitList(), 0 );
+                        return false;
+                    }
+                } );
             }
         }
     }
@@ -183,11 +187,11 @@ public class ForsetiLockManager extends LifecycleAdapter implements Locks
         /** Re-use ids, forseti uses these in arrays, so we want to keep them low and not loose them. */
         // TODO we could use a synchronised SimpleBitSet instead, since we know that we only care about reusing a very limited set of integers.
         private final Queue<Integer> unusedIds = new ConcurrentLinkedQueue<>();
-        private final ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps;
+        private final StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps;
         private final WaitStrategy<AcquireLockTimeoutException>[] waitStrategies;
 
         public ForsetiClientFlyweightPool(
-                ConcurrentMap<Long, ForsetiLockManager.Lock>[] lockMaps,
+                StripedLongObjectMap<ForsetiLockManager.Lock>[] lockMaps,
                 WaitStrategy<AcquireLockTimeoutException>[] waitStrategies )
         {
             super( 128, null);
@@ -22,11 +22,15 @@ package org.neo4j.kernel.ha.lock.forseti;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.neo4j.collection.primitive.concurrent.StripedLongObjectMap;
 import org.neo4j.kernel.impl.util.collection.SimpleBitSet;
 
 /**
  * A Forseti share lock. Can be upgraded to an update lock, which will block new attempts at acquiring shared lock,
  * but will allow existing holders to complete.
+ *
+ * Once released by all its holders a shared lock is dead, and may be {@link #reuse(ForsetiClient, long) reused}
+ * for another resource by the client which released it last.
  */
 class SharedLock implements ForsetiLockManager.Lock
 {
@@ -76,9 +80,33 @@ class SharedLock implements ForsetiLockManager.Lock
     /** Client that holds the update lock, if any. */
     private ForsetiClient updateHolder;
 
+    /** The resource this lock is for, as long as it is alive. */
+    private long resourceId;
+
     SharedLock(ForsetiClient client)
     {
+        this( client, -1 );
+    }
+
+    SharedLock(ForsetiClient client, long resourceId)
+    {
+        this.resourceId = resourceId;
+        addClientHoldingLock( client );
+    }
+
+    /**
+     * Brings this dead lock back to life, held by {@code client}, for {@code resourceId}. Only the client which
+     * released it last may do this, and only before it is put back into a lock map.
+     */
+    SharedLock reuse( ForsetiClient client, long resourceId )
+    {
+        assert refCount.get() == 0 : this + " is still alive";
+        this.resourceId = resourceId;
+        this.updateHolder = null;
         addClientHoldingLock( client );
+        // Publishes the above, anyone trying to acquire this lock can't get a reference before this
+        refCount.set( 1 );
+        return this;
     }
 
     public boolean acquire(ForsetiClient client)
@@ -93,6 +121,33 @@ class SharedLock implements ForsetiLockManager.Lock
         return addClientHoldingLock( client );
     }
 
+    /**
+     * Acquires this lock, if it still is the lock of {@code resourceId} in {@code lockMap}. Dead locks are reused,
+     * so this lock may have been released and reused for another resource since it was looked up in the map.
+     */
+    public boolean acquire( ForsetiClient client, StripedLongObjectMap<ForsetiLockManager.Lock> lockMap,
+                            long resourceId )
+    {
+        if(!acquireReference())
+        {
+            return false;
+        }
+
+        // With our reference this lock can't die, check that it is alive for the resource we're after
+        if(lockMap.get( resourceId ) != this)
+        {
+            if(releaseReference())
+            {
+                // Its holders released it while we held our reference, so it's up to us to remove it. It won't be
+                // reused though, since only the client that released a lock last may do that.
+                lockMap.remove( this.resourceId, this );
+            }
+            return false;
+        }
+
+        return addClientHoldingLock( client );
+    }
+
     public boolean release(ForsetiClient client)
     {
         removeClientHoldingLock( client );
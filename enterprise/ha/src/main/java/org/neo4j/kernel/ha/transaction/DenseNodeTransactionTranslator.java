@@ -27,7 +27,6 @@ import java.util.List;
 import org.neo4j.helpers.Function;
 import org.neo4j.kernel.impl.index.IndexCommand;
 import org.neo4j.kernel.impl.index.IndexDefineCommand;
-import org.neo4j.kernel.impl.locking.AcquireLockTimeoutException;
 import org.neo4j.kernel.impl.store.NeoStore;
 import org.neo4j.kernel.impl.store.record.NodeRecord;
 import org.neo4j.kernel.impl.store.record.PrimitiveRecord;
@@ -66,23 +65,10 @@ public class DenseNodeTransactionTranslator implements Function<List<LogEntry>,L
         this.neoStore = neoStore;
 
         groupGetter = new RelationshipGroupGetter( neoStore.getRelationshipGroupStore() );
-        relationshipCreator = new RelationshipCreator( new RelationshipLocker()
-        {
-            @Override
-            public void getWriteLock( long relId ) throws AcquireLockTimeoutException
-            {
-                return; // no locking when applying transactions
-            }
-        }, groupGetter, 1 );
+        // no locking when applying transactions
+        relationshipCreator = new RelationshipCreator( RelationshipLocker.NO_LOCKING, groupGetter, 1 );
 
-        deleter = new RelationshipDeleter( new RelationshipLocker()
-        {
-            @Override
-            public void getWriteLock( long relId ) throws AcquireLockTimeoutException
-            {
-                return; // no locking when applying transactions
-            }
-        }, groupGetter, new PropertyDeleter(
+        deleter = new RelationshipDeleter( RelationshipLocker.NO_LOCKING, groupGetter, new PropertyDeleter(
                 neoStore.getPropertyStore(), new PropertyTraverser() ) );
     }
 
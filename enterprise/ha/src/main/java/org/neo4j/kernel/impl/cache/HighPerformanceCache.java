@@ -20,15 +20,35 @@
 package org.neo4j.kernel.impl.cache;
 
 import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.neo4j.helpers.NamedThreadFactory;
 import org.neo4j.kernel.impl.util.StringLogger;
 import org.neo4j.kernel.info.DiagnosticsPhase;
 import org.neo4j.kernel.info.DiagnosticsProvider;
 
+/**
+ * A cache with a fixed size array of slots, where an entity goes into the slot given by its id.
+ *
+ * The slots are divided into segments of consecutive slots, each with its own size accounting and max size.
+ * When a segment grows close to its max size a purge of that segment is handed off to a background purger,
+ * which evicts entities using a CLOCK policy: a {@link #get(long) get} marks the slot as referenced, and the
+ * purger sweeping over the segment gives referenced entities a second chance by clearing the mark, evicting
+ * the ones not referenced since the last sweep until the registered sizes of the remaining entities are well
+ * below the max size. Different segments are purged in parallel.
+ *
+ * Threads using the cache never wait for a purge. A thread putting into a segment which has grown beyond
+ * its max size, because the purger can't keep up, will evict a bit itself if no one else is currently purging
+ * that segment.
+ */
 public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.Adapter<E>
     implements DiagnosticsProvider
 {
@@ -37,12 +57,31 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     }
 
     public static final long MIN_SIZE = 1;
+    static final int DEFAULT_SEGMENT_COUNT = 16;
+
+    /**
+     * Purges of all high performance caches are carried out by these threads, which are only kept
+     * around while there are purges to do.
+     */
+    static final Executor PURGERS;
+    static
+    {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor purgers = new ThreadPoolExecutor( threads, threads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), NamedThreadFactory.daemon( "HPC purger" ) );
+        purgers.allowCoreThreadTimeOut( true );
+        PURGERS = purgers;
+    }
+
     private final AtomicReferenceArray<E> cache;
+    // One bit per slot, set when the entity in it is read. Updated without synchronization since a lost
+    // update only means a lost second chance.
+    private final long[] referenced;
+    private final Segment[] segments;
+    private final int segmentLength;
+    private final Executor purgers;
+    private final AdmissionFilter admission;
     private final long maxSize;
-    private long closeToMaxSize;
-    private long purgeStopSize;
-    private long purgeHandoffSize;
-    private final AtomicLong currentSize = new AtomicLong( 0 );
     private final long minLogInterval;
     private final String name;
     private final AtomicLong highestIdSet = new AtomicLong();
@@ -52,28 +91,54 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     private long missCount = 0;
     private long totalPuts = 0;
     private long collisions = 0;
-    private long purgeCount = 0;
 
     private final StringLogger logger;
 
-    private final AtomicBoolean purging = new AtomicBoolean();
-    private final AtomicInteger avertedPurgeWaits = new AtomicInteger();
-    private final AtomicInteger forcedPurgeWaits = new AtomicInteger();
-    private long purgeTime;
+    private final AtomicInteger purgeCount = new AtomicInteger();
+    private final AtomicInteger assistedPurges = new AtomicInteger();
+    private final AtomicLong purgeTime = new AtomicLong();
     private Monitor monitor;
 
     HighPerformanceCache( AtomicReferenceArray<E> cache )
+    {
+        this( cache, null );
+    }
+
+    HighPerformanceCache( AtomicReferenceArray<E> cache, AdmissionFilter admission )
     {
         this.cache = cache;
+        this.admission = admission;
         this.minLogInterval = Long.MAX_VALUE;
         this.maxSize = 1024l*1024*1024;
         this.name = "test cache";
         this.logger = null;
-        calculateSizes();
+        this.purgers = PURGERS;
+        this.referenced = new long[bitsetLength( cache.length() )];
+        this.segmentLength = cache.length();
+        this.segments = new Segment[] {new Segment( 0, cache.length(), maxSize )};
     }
 
     public HighPerformanceCache( long maxSizeInBytes, float arrayHeapFraction, long minLogInterval, String name,
                                  StringLogger logger, Monitor monitor )
+    {
+        this( maxSizeInBytes, arrayHeapFraction, minLogInterval, name, logger, monitor,
+                DEFAULT_SEGMENT_COUNT, PURGERS, false );
+    }
+
+    public HighPerformanceCache( long maxSizeInBytes, float arrayHeapFraction, long minLogInterval, String name,
+                                 StringLogger logger, Monitor monitor, int segmentCount, Executor purgers )
+    {
+        this( maxSizeInBytes, arrayHeapFraction, minLogInterval, name, logger, monitor, segmentCount, purgers,
+                false );
+    }
+
+    /**
+     * @param admissionFilter whether or not to only let an entity replace another one occupying its slot if
+     * it has been accessed more frequently, see {@link AdmissionFilter}.
+     */
+    public HighPerformanceCache( long maxSizeInBytes, float arrayHeapFraction, long minLogInterval, String name,
+                                 StringLogger logger, Monitor monitor, int segmentCount, Executor purgers,
+                                 boolean admissionFilter )
     {
         if ( logger == null )
         {
@@ -97,20 +162,36 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         {
             throw new IllegalArgumentException( "Max size can not be " + maxSizeInBytes );
         }
+        if ( segmentCount < 1 )
+        {
+            throw new IllegalArgumentException( "Segment count can not be " + segmentCount );
+        }
 
         this.cache = new AtomicReferenceArray<>( (int) maxElementCount );
+        this.referenced = new long[bitsetLength( cache.length() )];
+        // The sketch takes as much memory per expected key as the lookup table per slot, keep it an eighth of that
+        this.admission = admissionFilter ? new AdmissionFilter( Math.max( 1, cache.length() / 8 ) ) : null;
         this.maxSize = maxSizeInBytes;
         this.name = name == null ? super.toString() : name;
         this.logger = logger;
         this.monitor = monitor;
-        calculateSizes();
+        this.purgers = purgers;
+
+        segmentCount = (int) Math.min( segmentCount, cache.length() );
+        this.segmentLength = (cache.length() + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[(cache.length() + segmentLength - 1) / segmentLength];
+        for ( int i = 0; i < segments.length; i++ )
+        {
+            int start = i * segmentLength;
+            int end = Math.min( start + segmentLength, cache.length() );
+            // Each segment gets a share of the max size relative to its number of slots
+            segments[i] = new Segment( start, end, Math.max( MIN_SIZE, maxSize * (end - start) / cache.length() ) );
+        }
     }
 
-    private void calculateSizes()
+    private static int bitsetLength( int slots )
     {
-        this.closeToMaxSize = (long)(maxSize * 0.95d);
-        this.purgeStopSize = (long)(maxSize * 0.90d);
-        this.purgeHandoffSize = (long)(maxSize * 1.05d);
+        return (slots + 63) >>> 6;
     }
 
     protected int getPosition( EntityWithSizeObject obj )
@@ -123,6 +204,11 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         return (int) ( id % cache.length() );
     }
 
+    private Segment segmentOf( int pos )
+    {
+        return segments[pos / segmentLength];
+    }
+
     private long putTimeStamp = 0;
 
     @Override
@@ -142,6 +228,12 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
             {   // There's an existing element representing the same entity at this position, return the existing
                 return oldObj;
             }
+            if ( oldObj != null && !force && admission != null &&
+                    !admission.admit( obj.getId(), oldObj.getId() ) )
+            {   // The entity at this position is accessed more frequently than the one we're trying to put,
+                // leave it be and don't cache the new one
+                return obj;
+            }
 
             // Either we're trying to put a new element that doesn't exist at this location an element
             // that doesn't represent the same entity that is already here. In any case, overwrite what's there
@@ -149,21 +241,26 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
             if ( cache.compareAndSet( pos, oldObj, obj ) )
             {
                 setHighest( pos );
+                if ( oldObj == null || oldObj.getId() != obj.getId() )
+                {   // A reference to whatever was here before doesn't give the new entity a second chance
+                    clearReferenced( pos );
+                }
                 int oldObjSize = 0;
                 if ( oldObj != null )
                 {
                     oldObjSize = oldObj.getRegisteredSize();
                 }
-                long size = currentSize.addAndGet( objectSize - oldObjSize );
+                Segment segment = segmentOf( pos );
+                long size = segment.size.addAndGet( objectSize - oldObjSize );
                 obj.setRegisteredSize( objectSize );
                 if ( oldObj != null )
                 {
                     collisions++;
                 }
                 totalPuts++;
-                if ( size > closeToMaxSize )
+                if ( size > segment.closeToMaxSize )
                 {
-                    purgeFrom( pos );
+                    purge( segment );
                 }
 
                 // We successfully updated the cache with our new element, break and have it returned.
@@ -208,126 +305,168 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         E obj = cache.get(pos);
         if ( obj != null )
         {
-            if ( cache.compareAndSet( pos, obj, null ) )
-            {
-                currentSize.addAndGet( obj.getRegisteredSize() * -1 );
-            }
+            removeAt( pos, obj );
         }
         return obj;
     }
 
+    private boolean removeAt( int pos, E obj )
+    {
+        if ( cache.compareAndSet( pos, obj, null ) )
+        {
+            segmentOf( pos ).size.addAndGet( obj.getRegisteredSize() * -1 );
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public E get( long id )
     {
+        if ( admission != null )
+        {
+            admission.record( id );
+        }
         int pos = getPosition( id );
         E obj = cache.get( pos );
         if ( obj != null && obj.getId() == id )
         {
             hitCount++;
+            markReferenced( pos );
             return obj;
         }
         missCount++;
         return null;
     }
 
-    private long lastPurgeLogTimestamp = 0;
+    private void markReferenced( int pos )
+    {
+        long bit = 1L << pos;
+        int index = pos >>> 6;
+        if ( (referenced[index] & bit) == 0 )
+        {
+            referenced[index] |= bit;
+        }
+    }
 
-    private void purgeFrom( int pos )
+    /**
+     * @return whether or not the slot was referenced, clearing the mark.
+     */
+    private boolean clearReferenced( int pos )
     {
-        long myCurrentSize = currentSize.get();
-        if ( myCurrentSize <= closeToMaxSize )
+        long bit = 1L << pos;
+        int index = pos >>> 6;
+        if ( (referenced[index] & bit) != 0 )
         {
-            return;
+            referenced[index] &= ~bit;
+            return true;
         }
+        return false;
+    }
 
-        // if we're within 0.95 < size < 1.05 and someone else is purging then just return and let
-        // the other one purge for us. if we're above 1.05 then wait for the purger to finish before returning.
-        if ( purging.compareAndSet( false, true ) )
-        {   // We're going to do the purge
+    /**
+     * Called when the size of {@code segment} has gone above its close to max size. Hands off the purge to
+     * the background purgers, or evicts a bit directly if the segment has grown past its max size.
+     */
+    private void purge( final Segment segment )
+    {
+        if ( segment.size.get() > segment.handoffSize && segment.purgeLock.tryLock() )
+        {   // The background purge isn't keeping up, help out a little without waiting for anyone
             try
             {
-                doPurge( pos );
+                assistedPurges.incrementAndGet();
+                doPurge( segment, segment.closeToMaxSize );
             }
             finally
             {
-                purging.set( false );
+                segment.purgeLock.unlock();
             }
         }
-        else
-        {   // Someone else is currently doing a purge
-            if ( myCurrentSize < purgeHandoffSize )
-            {   // It's safe to just return and let the purger do its thing
-                avertedPurgeWaits.incrementAndGet();
-            }
-            else
+
+        if ( segment.purgeScheduled.compareAndSet( false, true ) )
+        {
+            purgers.execute( new Runnable()
             {
-                // Wait for the current purge to complete. Some threads might slip through here before
-                // A thread just entering doPurge above, but that's fine
-                forcedPurgeWaits.incrementAndGet();
-                waitForCurrentPurgeToComplete();
-            }
+                @Override
+                public void run()
+                {
+                    backgroundPurge( segment );
+                }
+            } );
         }
     }
 
-    private synchronized void waitForCurrentPurgeToComplete()
+    private void backgroundPurge( Segment segment )
     {
-        // Just a nice way of saying "wait for the monitor on this object currently held by the thread doing a purge"
+        try
+        {
+            if ( segment.purgeLock.tryLock() )
+            {   // If not then someone is assisting right now, it will be rescheduled below if needed
+                try
+                {
+                    doPurge( segment, segment.purgeStopSize );
+                }
+                finally
+                {
+                    segment.purgeLock.unlock();
+                }
+            }
+        }
+        finally
+        {
+            segment.purgeScheduled.set( false );
+        }
+        if ( segment.size.get() > segment.closeToMaxSize )
+        {
+            purge( segment );
+        }
     }
 
-    private synchronized void doPurge( int pos )
+    private long lastPurgeLogTimestamp = 0;
+
+    /**
+     * Sweeps the CLOCK hand of {@code segment} until the size of it is at or below {@code targetSize}.
+     * Must be called holding the purge lock of the segment.
+     */
+    private void doPurge( Segment segment, long targetSize )
     {
-        long sizeBefore = currentSize.get();
-        if ( sizeBefore <= closeToMaxSize )
+        long segmentSizeBefore = segment.size.get();
+        if ( segmentSizeBefore <= targetSize )
         {
             return;
         }
 
+        long sizeBefore = size();
         long startTime = System.currentTimeMillis();
-        purgeCount++;
+        int purgeNumber = purgeCount.incrementAndGet();
         int numberOfEntitiesPurged = 0;
         try
         {
-            int index = 1;
-            do
+            // One revolution clears all the reference marks, so the second will evict anything it needs to
+            long slotsToVisit = 2L * (segment.end - segment.start);
+            for ( long visited = 0; visited < slotsToVisit && segment.size.get() > targetSize; visited++ )
             {
-                int minusPos = pos - index;
-                if ( minusPos >= 0 )
+                int pos = segment.hand;
+                segment.hand = pos + 1 == segment.end ? segment.start : pos + 1;
+                E obj = cache.get( pos );
+                if ( obj == null || clearReferenced( pos ) )
                 {
-                    if ( remove( minusPos ) != null )
-                    {
-                        numberOfEntitiesPurged++;
-                        if ( currentSize.get() <= purgeStopSize )
-                        {
-                            return;
-                        }
-                    }
+                    continue;
                 }
-                int plusPos = pos + index;
-                if ( plusPos < cache.length() )
+                if ( removeAt( pos, obj ) )
                 {
-                    if ( remove( plusPos ) != null )
-                    {
-                        numberOfEntitiesPurged++;
-                        if ( currentSize.get() <= purgeStopSize )
-                        {
-                            return;
-                        }
-                    }
+                    numberOfEntitiesPurged++;
                 }
-                index++;
             }
-            while ( ( pos - index ) >= 0 || ( pos + index ) < cache.length() );
-            // current object larger than max size, clear it
-            remove( pos );
         }
         finally
         {
             long timestamp = System.currentTimeMillis();
-            purgeTime += (timestamp-startTime);
+            purgeTime.addAndGet( timestamp-startTime );
+            long sizeAfter = size();
             if ( timestamp - lastPurgeLogTimestamp > minLogInterval )
             {
                 lastPurgeLogTimestamp = timestamp;
-                long sizeAfter = currentSize.get();
 
                 String sizeBeforeStr = getSize( sizeBefore );
                 String sizeAfterStr = getSize( sizeAfter );
@@ -336,11 +475,11 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
                 String missPercentage =  ((float) missCount / (float) (hitCount+missCount) * 100.0f) + "%";
                 String colPercentage = ((float) collisions / (float) totalPuts * 100.0f) + "%";
 
-                logger.logMessage( name + " purge (nr " + purgeCount + ") " + sizeBeforeStr + " -> " + sizeAfterStr + " (" + diffStr +
+                logger.logMessage( name + " purge (nr " + purgeNumber + ") " + sizeBeforeStr + " -> " + sizeAfterStr + " (" + diffStr +
                         ") " + missPercentage + " misses, " + colPercentage + " collisions (" + collisions + ").", true );
                 printAccurateStatistics();
             }
-            monitor.purged( sizeBefore, currentSize.get(), numberOfEntitiesPurged );
+            monitor.purged( sizeBefore, sizeAfter, numberOfEntitiesPurged );
         }
     }
 
@@ -359,8 +498,9 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
                 registeredSize += obj.getRegisteredSize();
             }
         }
+        long currentSize = size();
         logger.logMessage( name + " purge (nr " + purgeCount + "): elementCount:" + elementCount + " and sizes actual:" + getSize( actualSize ) +
-                    ", perceived:" + getSize( currentSize.get() ) + " (diff:" + getSize(currentSize.get() - actualSize) + "), registered:" + getSize( registeredSize ), true );
+                    ", perceived:" + getSize( currentSize ) + " (diff:" + getSize(currentSize - actualSize) + "), registered:" + getSize( registeredSize ), true );
     }
 
     @Override
@@ -402,14 +542,15 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     @Override
     public String toString()
     {
-        String currentSizeStr = getSize( currentSize.get() );
+        String currentSizeStr = getSize( size() );
+        int purges = purgeCount.get();
 
         String missPercentage =  ((float) missCount / (float) (hitCount+missCount) * 100.0f) + "%";
         String colPercentage = ((float) collisions / (float) totalPuts * 100.0f) + "%";
 
-        return name + " array:" + cache.length() + " purge:" + purgeCount + " size:" + currentSizeStr +
-                " misses:" + missPercentage + " collisions:" + colPercentage + " (" + collisions + ") av.purge waits:" +
-                avertedPurgeWaits.get() + " purge waits:" + forcedPurgeWaits.get() + " avg. purge time:" + (purgeCount > 0 ? (purgeTime/purgeCount) + "ms" : "N/A");
+        return name + " array:" + cache.length() + " segments:" + segments.length + " purge:" + purges + " size:" + currentSizeStr +
+                " misses:" + missPercentage + " collisions:" + colPercentage + " (" + collisions + ")" +
+                " assisted purges:" + assistedPurges.get() + " avg. purge time:" + (purges > 0 ? (purgeTime.get()/purges) + "ms" : "N/A");
     }
 
     private String getSize( long size )
@@ -439,7 +580,10 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         {
             cache.set( i, null );
         }
-        currentSize.set( 0 );
+        for ( Segment segment : segments )
+        {
+            segment.size.set( 0 );
+        }
         highestIdSet.set( 0 );
     }
 
@@ -461,7 +605,12 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
     @Override
     public long size()
     {
-        return currentSize.get();
+        long size = 0;
+        for ( Segment segment : segments )
+        {
+            size += segment.size.get();
+        }
+        return size;
     }
 
     @Override
@@ -485,11 +634,39 @@ public class HighPerformanceCache<E extends EntityWithSizeObject> extends Cache.
         {
             return;
         }
-        long size = currentSize.addAndGet( newSize - existingObj.getRegisteredSize() );
+        Segment segment = segmentOf( pos );
+        long size = segment.size.addAndGet( newSize - existingObj.getRegisteredSize() );
         obj.setRegisteredSize( newSize );
-        if ( size > closeToMaxSize )
+        if ( size > segment.closeToMaxSize )
+        {
+            purge( segment );
+        }
+    }
+
+    /**
+     * The slots {@code [start,end)} of the cache, purged independently of other segments.
+     */
+    private static class Segment
+    {
+        private final int start;
+        private final int end;
+        private final long closeToMaxSize;
+        private final long purgeStopSize;
+        private final long handoffSize;
+        private final AtomicLong size = new AtomicLong();
+        private final AtomicBoolean purgeScheduled = new AtomicBoolean();
+        private final ReentrantLock purgeLock = new ReentrantLock();
+        // Only accessed holding the purge lock
+        private int hand;
+
+        Segment( int start, int end, long maxSize )
         {
-            purgeFrom( pos );
+            this.start = start;
+            this.end = end;
+            this.hand = start;
+            this.closeToMaxSize = (long)(maxSize * 0.95d);
+            this.purgeStopSize = (long)(maxSize * 0.90d);
+            this.handoffSize = (long)(maxSize * 1.05d);
         }
     }
 }
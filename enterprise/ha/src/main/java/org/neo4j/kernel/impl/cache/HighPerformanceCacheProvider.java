@@ -19,6 +19,7 @@
  */
 package org.neo4j.kernel.impl.cache;
 
+import org.neo4j.graphdb.factory.GraphDatabaseSettings;
 import org.neo4j.helpers.Service;
 import org.neo4j.kernel.configuration.Config;
 import org.neo4j.kernel.impl.core.NodeImpl;
@@ -48,7 +49,9 @@ public class HighPerformanceCacheProvider extends CacheProvider
         }
         return new HighPerformanceCache<>( mem.nodeCacheSize(), mem.nodeLookupTableFraction(),
                 config.get( HighPerformanceCacheSettings.log_interval ),
-                NODE_CACHE_NAME, logger, monitors.newMonitor( HighPerformanceCache.Monitor.class ) );
+                NODE_CACHE_NAME, logger, monitors.newMonitor( HighPerformanceCache.Monitor.class ),
+                HighPerformanceCache.DEFAULT_SEGMENT_COUNT, HighPerformanceCache.PURGERS,
+                config.get( GraphDatabaseSettings.cache_admission_filter ) );
     }
 
     @Override
@@ -57,7 +60,9 @@ public class HighPerformanceCacheProvider extends CacheProvider
         HPCMemoryConfig mem = config.get( HighPerformanceCacheSettings.cache_memory );
         return new HighPerformanceCache<>( mem.relCacheSize(), mem.relLookupTableFraction(),
                 config.get( HighPerformanceCacheSettings.log_interval ),
-                RELATIONSHIP_CACHE_NAME, logger, monitors.newMonitor( HighPerformanceCache.Monitor.class ) );
+                RELATIONSHIP_CACHE_NAME, logger, monitors.newMonitor( HighPerformanceCache.Monitor.class ),
+                HighPerformanceCache.DEFAULT_SEGMENT_COUNT, HighPerformanceCache.PURGERS,
+                config.get( GraphDatabaseSettings.cache_admission_filter ) );
     }
 
     @Override
@@ -21,6 +21,9 @@ package org.neo4j.kernel.ha.lock.forseti;
 
 import org.junit.Test;
 
+import org.neo4j.collection.primitive.concurrent.StripedLongObjectMap;
+
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
@@ -61,4 +64,26 @@ public class SharedLockTest
         assertThat( lock.isUpdateLock(), equalTo(false));
     }
 
+    @Test
+    public void shouldNotAcquireLockReusedForAnotherResource() throws Exception
+    {
+        // Given a lock looked up for resource 1, but released and reused for resource 2 before being acquired
+        ForsetiClient clientA = mock(ForsetiClient.class);
+        ForsetiClient clientB = mock(ForsetiClient.class);
+        StripedLongObjectMap<ForsetiLockManager.Lock> lockMap = new StripedLongObjectMap<>();
+        SharedLock lock = new SharedLock( clientA, 1 );
+        lockMap.put( 1, lock );
+        assertTrue( lock.release( clientA ) );
+        lockMap.remove( 1, lock );
+        lockMap.put( 2, lock.reuse( clientA, 2 ) );
+
+        // When
+        boolean acquired = lock.acquire( clientB, lockMap, 1 );
+
+        // Then
+        assertFalse( acquired );
+        assertThat( lock.numberOfHolders(), equalTo( 1 ) );
+        assertTrue( lock.acquire( clientB, lockMap, 2 ) );
+        assertThat( lock.numberOfHolders(), equalTo( 2 ) );
+    }
 }
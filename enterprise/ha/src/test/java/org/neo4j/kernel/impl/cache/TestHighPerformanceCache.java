@@ -19,6 +19,9 @@
  */
 package org.neo4j.kernel.impl.cache;
 
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.junit.Before;
@@ -30,6 +33,8 @@ import org.neo4j.kernel.impl.util.StringLogger;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -161,7 +166,7 @@ public class TestHighPerformanceCache
         // GIVEN
         Monitor monitor = mock( Monitor.class );
         cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
-                monitor );
+                monitor, 1, sameThreadExecutor() );
         cache.put( new Entity( 0, 10 ) );
         cache.put( new Entity( 1, 50 ) );
         cache.put( new Entity( 2, 10 ) );
@@ -171,8 +176,187 @@ public class TestHighPerformanceCache
         // WHEN
         cache.put( new Entity( 4, 50 ) );
 
+        // THEN having gone far above max size the putting thread itself purges to just below the purge threshold
+        verify( monitor ).purged( 130L, 70L, 2 );
+    }
+
+    @Test
+    public void shouldHandOffPurgeToBackgroundPurger() throws Exception
+    {
+        // GIVEN
+        QueuingExecutor purger = new QueuingExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                mock( Monitor.class ), 1, purger );
+        for ( int i = 0; i < 9; i++ )
+        {
+            cache.put( new Entity( i, 10 ) );
+        }
+        assertEquals( 0, purger.tasks.size() );
+
+        // WHEN going above 95% of max size, but not 105%
+        cache.put( new Entity( 9, 10 ) );
+
+        // THEN nothing has been purged, only scheduled to be
+        assertEquals( 100, cache.size() );
+        assertEquals( 1, purger.tasks.size() );
+
+        // and WHEN the purger runs
+        purger.runAll();
+
+        // THEN
+        assertEquals( 90, cache.size() );
+    }
+
+    @Test
+    public void shouldPurgeDirectlyIfFarAboveMaxSizeWithoutWaitingForBackgroundPurger() throws Exception
+    {
+        // GIVEN
+        QueuingExecutor purger = new QueuingExecutor();
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                mock( Monitor.class ), 1, purger );
+
+        // WHEN
+        for ( int i = 0; i < 20; i++ )
+        {
+            cache.put( new Entity( i, 10 ) );
+        }
+
+        // THEN it never went far above max size even if the scheduled purge never ran
+        assertTrue( cache.size() <= 105 );
+        assertEquals( 1, purger.tasks.size() );
+    }
+
+    @Test
+    public void shouldGiveRecentlyReadEntitiesASecondChance() throws Exception
+    {
+        // GIVEN
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                mock( Monitor.class ), 1, sameThreadExecutor() );
+        for ( int i = 0; i < 9; i++ )
+        {
+            cache.put( new Entity( i, 10 ) );
+        }
+        cache.get( 0 );
+
+        // WHEN
+        cache.put( new Entity( 9, 10 ) );
+
+        // THEN the first one not read was evicted instead of the one read
+        assertNotNull( cache.get( 0 ) );
+        assertNull( cache.get( 1 ) );
+        assertEquals( 90, cache.size() );
+    }
+
+    @Test
+    public void shouldNotGiveSecondChanceToEntityPutInSlotOfReadEntity() throws Exception
+    {
+        // GIVEN
+        cache = new HighPerformanceCache<>( 100, 1.0f, SECONDS.toMillis( 10 ), "purge test", StringLogger.DEV_NULL,
+                mock( Monitor.class ), 1, sameThreadExecutor() );
+        for ( int i = 0; i < 9; i++ )
+        {
+            cache.put( new Entity( i, 10 ) );
+        }
+        cache.get( 0 );
+        long collidingId = cacheLength();
+        cache.put( new Entity( collidingId, 10 ) );
+
+        // WHEN
+        cache.put( new Entity( 9, 10 ) );
+
+        // THEN the entity which replaced the read one was evicted, since it hasn't been read itself
+        assertNull( cache.get( collidingId ) );
+        assertNotNull( cache.get( 1 ) );
+        assertEquals( 90, cache.size() );
+    }
+
+    @Test
+    public void shouldPurgeSegmentsIndependently() throws Exception
+    {
+        // GIVEN two segments of roughly 500 bytes each
+        cache = new HighPerformanceCache<>( 1000, 1.0f, SECONDS.toMillis( 10 ), "purge test",
+                StringLogger.DEV_NULL, mock( Monitor.class ), 2, sameThreadExecutor() );
+        cache.put( new Entity( 0, 100 ) );
+
+        // WHEN filling the other segment until it needs purging
+        long lastId = cacheLength() - 1;
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( new Entity( lastId - i, 100 ) );
+        }
+
+        // THEN the first segment is left as is
+        assertNotNull( cache.get( 0 ) );
+        assertTrue( cache.size() < 100 + 500 );
+    }
+
+    private int cacheLength()
+    {
+        return (int) (Runtime.getRuntime().maxMemory() / 100 / 8);
+    }
+
+    private static Executor sameThreadExecutor()
+    {
+        return new Executor()
+        {
+            @Override
+            public void execute( Runnable command )
+            {
+                command.run();
+            }
+        };
+    }
+
+    private static class QueuingExecutor implements Executor
+    {
+        private final Queue<Runnable> tasks = new LinkedList<>();
+
+        @Override
+        public void execute( Runnable command )
+        {
+            tasks.add( command );
+        }
+
+        void runAll()
+        {
+            while ( !tasks.isEmpty() )
+            {
+                tasks.poll().run();
+            }
+        }
+    }
+
+    @Test
+    public void shouldNotReplaceMoreFrequentlyAccessedEntityWithAdmissionFilter() throws Exception
+    {
+        // GIVEN entities 1 and 11, sharing the same slot
+        cache = new HighPerformanceCache<>( new AtomicReferenceArray<Entity>( 10 ), new AdmissionFilter( 100 ) );
+        Entity frequent = new Entity( 1, 10 );
+        cache.put( frequent );
+        for ( int i = 0; i < 3; i++ )
+        {
+            cache.get( 1 );
+        }
+
+        // WHEN
+        assertNull( cache.get( 11 ) );
+        Entity infrequent = new Entity( 11, 10 );
+        assertEquals( infrequent, cache.put( infrequent ) );
+
+        // THEN
+        assertEquals( frequent, cache.get( 1 ) );
+        assertNull( cache.get( 11 ) );
+
+        // and WHEN the other one becomes more frequently accessed
+        for ( int i = 0; i < 5; i++ )
+        {
+            cache.get( 11 );
+        }
+        cache.put( infrequent );
+
         // THEN
-        verify( monitor ).purged( 130L, 60L, 3 );
+        assertEquals( infrequent, cache.get( 11 ) );
+        assertNull( cache.get( 1 ) );
     }
 
     private static class Entity implements EntityWithSizeObject